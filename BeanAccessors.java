@@ -0,0 +1,280 @@
+package com.ljn.demo.util;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 编译后的JavaBean属性读取器（按列顺序）
+ * 特点：
+ * 1. 按字段名（TitleDTO.field、ImportDataHeaderVO.fieldName）找到getter，只在编译时解析一次
+ * 2. getter通过LambdaMetafactory生成为Function，调用与直接调用getter相同，没有反射和JSON转换开销；
+ *    数据类型对本类的类加载器不可见时退化为MethodHandle调用
+ * 3. 按（类型，字段顺序）缓存，同一报表重复导出时直接复用；缓存挂在类型的ClassValue上，
+ *    随类型一起回收，不会阻止热部署后旧类加载器被卸载，每个类型缓存的字段顺序有上限
+ * 线程安全
+ *
+ * @param <T> 数据行类型
+ */
+public class BeanAccessors<T> {
+    // 每个类型最多缓存的字段顺序数，超过后新的字段顺序每次重新编译
+    private static final int MAX_CACHED_LAYOUTS = 64;
+
+    // 类型 -> （字段顺序 -> 读取器）
+    private static final ClassValue<Map<List<String>, BeanAccessors<?>>> CACHE =
+        new ClassValue<Map<List<String>, BeanAccessors<?>>>() {
+            @Override
+            protected Map<List<String>, BeanAccessors<?>> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+
+    private static final MethodType FUNCTION_TYPE = MethodType.methodType(Function.class);
+
+    private static final MethodType APPLY_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final Class<T> type;
+
+    private final List<String> fields;
+
+    // 按列顺序的读取函数，没有字段的列为null
+    private final Function<T, Object>[] getters;
+
+    private BeanAccessors(Class<T> type, List<String> fields, Function<T, Object>[] getters) {
+        this.type = type;
+        this.fields = fields;
+        this.getters = getters;
+    }
+
+    /**
+     * 获取读取器（按类型和字段顺序缓存）
+     *
+     * @param type 数据行类型
+     * @param fields 按列顺序的字段名，元素为null的列读取结果为null
+     * @param <T> 数据行类型
+     * @return 读取器
+     * @throws IllegalArgumentException 字段没有对应的getter，或getter无法访问
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> BeanAccessors<T> of(Class<T> type, List<String> fields) {
+        Objects.requireNonNull(type, "数据类型不能为空");
+        Objects.requireNonNull(fields, "字段不能为空");
+        List<String> key = Collections.unmodifiableList(Arrays.asList(fields.toArray(new String[0])));
+        Map<List<String>, BeanAccessors<?>> layouts = CACHE.get(type);
+        BeanAccessors<?> cached = layouts.get(key);
+        if (cached == null) {
+            if (layouts.size() >= MAX_CACHED_LAYOUTS) {
+                return compile(type, key);
+            }
+            cached = layouts.computeIfAbsent(key, k -> compile(type, k));
+        }
+        return (BeanAccessors<T>) cached;
+    }
+
+    /**
+     * 按最低层级标题获取读取器
+     *
+     * @param type 数据行类型
+     * @param titles 按列顺序的最低层级标题
+     * @param <T> 数据行类型
+     * @return 读取器
+     */
+    public static <T> BeanAccessors<T> ofTitles(Class<T> type, List<TitleDTO> titles) {
+        List<String> fields = new ArrayList<>(titles.size());
+        for (TitleDTO title : titles) {
+            fields.add(title.getField());
+        }
+        return of(type, fields);
+    }
+
+    /**
+     * 按表头字段清单获取读取器（列索引为清单顺序）
+     *
+     * @param type 数据行类型
+     * @param headers 表头字段有序清单
+     * @param <T> 数据行类型
+     * @return 读取器
+     */
+    public static <T> BeanAccessors<T> ofHeaders(Class<T> type, List<ImportDataHeaderVO> headers) {
+        List<String> fields = new ArrayList<>(headers.size());
+        for (ImportDataHeaderVO header : headers) {
+            fields.add(header.getFieldName());
+        }
+        return of(type, fields);
+    }
+
+    /**
+     * 列数
+     *
+     * @return 列数
+     */
+    public int size() {
+        return getters.length;
+    }
+
+    /**
+     * 按列顺序的字段名
+     *
+     * @return 字段名（只读）
+     */
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * 列的读取函数
+     *
+     * @param column 列索引
+     * @return 读取函数，没有字段的列返回null
+     */
+    public Function<T, Object> getter(int column) {
+        return getters[column];
+    }
+
+    /**
+     * 读取一列的值
+     *
+     * @param bean 数据行
+     * @param column 列索引
+     * @return 属性值
+     */
+    public Object get(T bean, int column) {
+        Function<T, Object> getter = getters[column];
+        return getter != null ? getter.apply(bean) : null;
+    }
+
+    /**
+     * 读取一行的值
+     *
+     * @param bean 数据行
+     * @return 按列顺序的属性值
+     */
+    public Object[] toRow(T bean) {
+        Object[] row = new Object[getters.length];
+        toRow(bean, row);
+        return row;
+    }
+
+    /**
+     * 读取一行的值到已有数组（复用数组，避免每行分配）
+     *
+     * @param bean 数据行
+     * @param row 目标数组，长度不小于列数
+     */
+    public void toRow(T bean, Object[] row) {
+        for (int i = 0; i < getters.length; i++) {
+            row[i] = getters[i] != null ? getters[i].apply(bean) : null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BeanAccessors{" + type.getName() + ", fields=" + fields + "}";
+    }
+
+    private static <T> BeanAccessors<T> compile(Class<T> type, List<String> fields) {
+        Map<String, Method> readMethods = new HashMap<>();
+        try {
+            for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+                if (descriptor.getReadMethod() != null) {
+                    readMethods.put(descriptor.getName(), descriptor.getReadMethod());
+                }
+            }
+        } catch (IntrospectionException ex) {
+            throw new IllegalArgumentException("无法解析数据类型: " + type.getName(), ex);
+        } finally {
+            // Introspector的缓存强引用BeanInfo（进而引用类型），解析结果已由本类缓存，这里清除
+            Introspector.flushFromCaches(type);
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Function<T, Object>[] getters = new Function[fields.size()];
+        for (int i = 0; i < getters.length; i++) {
+            String field = fields.get(i);
+            if (field == null) {
+                continue;
+            }
+            Method method = readMethods.get(field);
+            if (method == null) {
+                throw new IllegalArgumentException(type.getName() + " 没有字段 " + field + " 的读取方法");
+            }
+            getters[i] = compileGetter(lookup, method, field);
+        }
+        return new BeanAccessors<>(type, fields, getters);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Function<T, Object> compileGetter(MethodHandles.Lookup lookup, Method method, String field) {
+        MethodHandle handle;
+        try {
+            handle = lookup.unreflect(method);
+        } catch (IllegalAccessException ex) {
+            // 非public类的getter
+            try {
+                method.setAccessible(true);
+                handle = lookup.unreflect(method);
+            } catch (IllegalAccessException | RuntimeException e) {
+                // RuntimeException：模块未开放（InaccessibleObjectException）或安全管理器拒绝
+                throw new IllegalArgumentException("无法访问字段 " + field + " 的读取方法", e);
+            }
+        }
+        if (isVisible(method.getDeclaringClass()) && isVisible(method.getReturnType())) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "apply", FUNCTION_TYPE, APPLY_TYPE, handle,
+                    handle.type().wrap());
+                return (Function<T, Object>) site.getTarget().invokeExact();
+            } catch (LambdaConversionException ex) {
+                // getter不可直接链接时退化为MethodHandle调用
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException("生成字段读取函数失败: " + field, ex);
+            }
+        }
+        // 生成的类看不到数据类型（不同类加载器）时，退化为MethodHandle调用
+        MethodHandle generic = handle.asType(APPLY_TYPE);
+        return bean -> {
+            try {
+                return generic.invokeExact((Object) bean);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("读取字段失败: " + field, e);
+            }
+        };
+    }
+
+    /**
+     * 类型是否能被本类的类加载器按名称解析为同一个类（生成的读取函数与本类在同一个类加载器中）
+     */
+    private static boolean isVisible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, BeanAccessors.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+}
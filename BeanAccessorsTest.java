@@ -0,0 +1,165 @@
+package com.ljn.demo.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * JavaBean属性读取器测试
+ */
+public class BeanAccessorsTest {
+
+    @Test
+    public void toRowTest() {
+        BeanAccessors<Employee> accessors = BeanAccessors.of(Employee.class,
+            Arrays.asList("name", null, "age", "active"));
+        assertEquals(4, accessors.size());
+        assertArrayEquals(new Object[] {"张三", null, 30, true}, accessors.toRow(new Employee("张三", 30, true)));
+        assertNull(accessors.getter(1));
+        assertEquals(30, accessors.get(new Employee("李四", 30, false), 2));
+    }
+
+    @Test
+    public void cacheTest() {
+        BeanAccessors<Employee> accessors = BeanAccessors.of(Employee.class, Arrays.asList("name", "age"));
+        assertSame(accessors, BeanAccessors.of(Employee.class, Arrays.asList("name", "age")));
+        assertSame(accessors, BeanAccessors.ofTitles(Employee.class,
+            Arrays.asList(new TitleDTO("姓名", "name"), new TitleDTO("年龄", "age"))));
+    }
+
+    @Test
+    public void nonPublicTypeTest() {
+        BeanAccessors<Internal> accessors = BeanAccessors.of(Internal.class, Arrays.asList("code"));
+        assertEquals("A01", accessors.get(new Internal(), 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFieldTest() {
+        BeanAccessors.of(Employee.class, Arrays.asList("salary"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void getterExceptionTest() {
+        // getter抛出的运行时异常原样传出
+        BeanAccessors.of(Failing.class, Arrays.asList("value")).get(new Failing(), 0);
+    }
+
+    @Test
+    public void classLoaderUnloadTest() throws Exception {
+        WeakReference<ClassLoader> loader = readWithIsolatedLoader();
+        // 缓存不持有类加载器的强引用，旧类加载器可以被回收
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20L);
+        }
+        assertNull(loader.get());
+    }
+
+    private static WeakReference<ClassLoader> readWithIsolatedLoader() throws Exception {
+        IsolatedLoader loader = new IsolatedLoader(Employee.class.getName());
+        Class<?> type = loader.loadClass(Employee.class.getName());
+        assertTrue(type != Employee.class);
+        Object bean = type.getConstructor(String.class, int.class, boolean.class).newInstance("王五", 40, true);
+        readRow(type, bean);
+        return new WeakReference<>(loader);
+    }
+
+    private static <T> void readRow(Class<T> type, Object bean) {
+        // 本类的类加载器看不到该类型，退化为MethodHandle调用
+        BeanAccessors<T> accessors = BeanAccessors.of(type, Arrays.asList("name", "age"));
+        assertArrayEquals(new Object[] {"王五", 40}, accessors.toRow(type.cast(bean)));
+        assertSame(accessors, BeanAccessors.of(type, Arrays.asList("name", "age")));
+    }
+
+    /**
+     * 自行定义指定类的类加载器（模拟热部署的应用类加载器）
+     */
+    private static class IsolatedLoader extends ClassLoader {
+        private final String isolated;
+
+        IsolatedLoader(String isolated) {
+            super(BeanAccessorsTest.class.getClassLoader());
+            this.isolated = isolated;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(isolated)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    byte[] bytes = readClass(name);
+                    loaded = defineClass(name, bytes, 0, bytes.length);
+                }
+                return loaded;
+            }
+        }
+
+        private byte[] readClass(String name) throws ClassNotFoundException {
+            try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                if (in == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int length;
+                while ((length = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, length);
+                }
+                return out.toByteArray();
+            } catch (IOException ex) {
+                throw new ClassNotFoundException(name, ex);
+            }
+        }
+    }
+
+    public static class Failing {
+        public String getValue() {
+            throw new IllegalStateException("读取失败");
+        }
+    }
+
+    public static class Employee {
+        private final String name;
+
+        private final int age;
+
+        private final boolean active;
+
+        public Employee(String name, int age, boolean active) {
+            this.name = name;
+            this.age = age;
+            this.active = active;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    static class Internal {
+        public String getCode() {
+            return "A01";
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.ljn.demo.util;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.util.CellAddress;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 超大Excel（.xlsx）导入工具类（流式解析，低内存占用）
+ * 支持GB级文件，基于POI Event API实现
+ * 特点：
+ * 1. 共享字符串、内联字符串按单元格类型解析，行数据按单元格引用放到对应列（空单元格为null，不会错位）
+ * 2. 可传入期望的多级表头（TitleDTO树或ExcelMultiHeadVO），在同一次SAX解析中校验前N行表头，
+ *    合并的父级标题只校验左上角单元格，最低层级标题按列位置得到 字段 -> 列索引 映射，数据行直接按映射绑定字段
+ */
+public class BigExcelImportUtil {
+    // 表头不一致时最多列出的差异个数
+    private static final int MAX_MISMATCHES = 10;
+
+    /**
+     * 数据处理回调接口（业务层实现，自定义数据转换和行处理逻辑）
+     */
+    public interface DataHandler {
+        /**
+         * 工作表开始解析时触发（可做初始化操作，如获取表名）
+         * @param sheetName 当前工作表名称
+         */
+        default void onSheetStart(String sheetName) {}
+
+        /**
+         * 表头校验通过时触发（只在传入期望表头时触发，每个工作表一次）
+         * @param sheetName 当前工作表名称
+         * @param headers 最低层级字段清单（columnIndex为所在列）
+         */
+        default void onHeader(String sheetName, List<ImportDataHeaderVO> headers) {}
+
+        /**
+         * 单元格数据转换（业务层自定义类型转换，如String→Date、String→Integer）
+         * @param cellValue 原始单元格值（String类型）
+         * @param columnIndex 列索引（从0开始）
+         * @return 转换后的单元格值（任意类型，如Object、String、Integer）
+         */
+        Object convertCellValue(String cellValue, int columnIndex);
+
+        /**
+         * 行数据处理（业务层实现行数据的业务逻辑，如校验、入库）
+         * @param rowData 转换后的行数据（List<Object>，下标与列索引一致，空单元格为null）
+         * @param rowNum 行号（从0开始，含表头）
+         * @return true：继续解析下一行；false：终止当前工作表解析
+         */
+        boolean handleRowData(List<Object> rowData, int rowNum);
+
+        /**
+         * 工作表解析结束时触发（可做收尾操作，如批量提交数据）
+         * @param sheetName 当前工作表名称
+         * @param totalRows 当前工作表总解析行数
+         */
+        default void onSheetEnd(String sheetName, int totalRows) {}
+    }
+
+    /**
+     * 核心导入方法：流式解析超大.xlsx文件（不校验表头，表头行也作为数据行回调）
+     * @param filePath Excel文件路径（绝对路径，如"D:/big_data.xlsx"）
+     * @param dataHandler 数据处理回调（业务层实现）
+     * @throws Exception 解析过程中的异常（IO异常、SAX解析异常等）
+     */
+    public static void importExcel(String filePath, DataHandler dataHandler) throws Exception {
+        importExcel(filePath, (HeaderTemplate) null, dataHandler);
+    }
+
+    /**
+     * 按多级表头定义导入：校验每个工作表的前N行表头，表头行不回调handleRowData
+     * @param filePath Excel文件路径
+     * @param titles 期望的多级表头（与导出时的表头定义相同）
+     * @param dataHandler 数据处理回调
+     * @return 最低层级字段清单（displayName、fieldName、columnIndex）
+     * @throws IllegalArgumentException 文件表头与期望的表头不一致
+     * @throws Exception 解析过程中的异常
+     */
+    public static List<ImportDataHeaderVO> importExcel(String filePath, List<TitleDTO> titles,
+        DataHandler dataHandler) throws Exception {
+        Objects.requireNonNull(titles, "表头定义不能为空");
+        HeaderTemplate template = HeaderTemplate.of(HeaderLayout.of(titles));
+        importExcel(filePath, template, dataHandler);
+        return template.copyHeaders();
+    }
+
+    /**
+     * 按多级表头VO导入：按titleNameList逐行校验表头（合并区域内只校验左上角单元格），表头行不回调handleRowData
+     * @param filePath Excel文件路径
+     * @param excelMultiHeadVO 期望的多级表头（与ExcelUtil.createMultiHeader使用的相同）
+     * @param dataHandler 数据处理回调
+     * @return 表头字段清单（columnIndex为空时按清单顺序）
+     * @throws IllegalArgumentException 文件表头与期望的表头不一致
+     * @throws Exception 解析过程中的异常
+     */
+    public static List<ImportDataHeaderVO> importExcel(String filePath, ExcelMultiHeadVO excelMultiHeadVO,
+        DataHandler dataHandler) throws Exception {
+        Objects.requireNonNull(excelMultiHeadVO, "表头定义不能为空");
+        HeaderTemplate template = HeaderTemplate.of(excelMultiHeadVO);
+        importExcel(filePath, template, dataHandler);
+        return template.copyHeaders();
+    }
+
+    private static void importExcel(String filePath, HeaderTemplate template, DataHandler dataHandler)
+        throws Exception {
+        // 校验参数
+        Objects.requireNonNull(filePath, "Excel文件路径不能为空");
+        Objects.requireNonNull(dataHandler, "数据处理回调DataHandler不能为空");
+
+        // 1. 只读打开Excel文件（OPCPackage是.xlsx的容器，基于ZIP格式，按文件打开不整体读入内存）
+        try (OPCPackage opcPackage = OPCPackage.open(filePath, PackageAccess.READ)) {
+
+            // 2. 创建XSSFReader（POI事件驱动解析的核心类）；共享字符串表用SAX解析为只读字符串列表，
+            // 不通过XSSFReader.getSharedStringsTable()构建完整的XMLBeans对象模型
+            XSSFReader xssfReader = new XSSFReader(opcPackage);
+            SharedStrings sharedStrings = new ReadOnlySharedStringsTable(opcPackage);
+
+            // 3. 获取SAX解析器（禁用外部实体）
+            XMLReader xmlReader = XMLHelper.newXMLReader();
+
+            // 4. 遍历所有工作表（.xlsx可能包含多个sheet，导出超过行数上限时每个sheet都带表头）
+            XSSFReader.SheetIterator sheetIterator = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+            while (sheetIterator.hasNext()) {
+                try (InputStream sheetIn = sheetIterator.next()) {
+                    String sheetName = sheetIterator.getSheetName();
+                    dataHandler.onSheetStart(sheetName);
+
+                    ExcelSheetHandler sheetHandler = new ExcelSheetHandler(sheetName, sharedStrings, template,
+                        dataHandler);
+                    xmlReader.setContentHandler(sheetHandler);
+                    xmlReader.parse(new InputSource(sheetIn));
+
+                    dataHandler.onSheetEnd(sheetName, sheetHandler.getTotalRows());
+
+                    // 若业务层终止解析（handleRowData返回false），则停止后续工作表解析
+                    if (sheetHandler.isParseStopped()) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 期望的表头：前N行每个位置的标题（null表示不校验，如合并区域内的非左上角单元格）+ 最低层级字段清单
+     */
+    static class HeaderTemplate {
+        private final String[][] expected;
+
+        private final List<ImportDataHeaderVO> headers;
+
+        private final int columnCount;
+
+        HeaderTemplate(String[][] expected, List<ImportDataHeaderVO> headers, int columnCount) {
+            this.expected = expected;
+            this.headers = headers;
+            this.columnCount = columnCount;
+        }
+
+        static HeaderTemplate of(HeaderLayout layout) {
+            String[][] expected = new String[layout.getDepth()][layout.getColumnCount()];
+            for (HeaderLayout.HeaderCell cell : layout.getCells()) {
+                expected[cell.getFirstRow()][cell.getFirstColumn()] = nullToEmpty(cell.getTitle());
+            }
+            List<ImportDataHeaderVO> headers = new ArrayList<>(layout.getColumnCount());
+            for (HeaderLayout.HeaderCell column : layout.getColumns()) {
+                ImportDataHeaderVO header = new ImportDataHeaderVO();
+                header.setDisplayName(column.getTitle());
+                header.setFieldName(column.getField());
+                header.setColumnIndex(column.getFirstColumn());
+                headers.add(header);
+            }
+            return new HeaderTemplate(expected, headers, layout.getColumnCount());
+        }
+
+        static HeaderTemplate of(ExcelMultiHeadVO excelMultiHeadVO) {
+            List<List<String>> titleNameList = excelMultiHeadVO.getTitleNameList();
+            if (titleNameList == null || titleNameList.isEmpty()) {
+                throw new IllegalArgumentException("titleNameList is null.");
+            }
+            int columnCount = 0;
+            for (List<String> titleNames : titleNameList) {
+                columnCount = Math.max(columnCount, titleNames.size());
+            }
+            String[][] expected = new String[titleNameList.size()][columnCount];
+            for (int row = 0; row < titleNameList.size(); row++) {
+                List<String> titleNames = titleNameList.get(row);
+                for (int col = 0; col < titleNames.size(); col++) {
+                    expected[row][col] = nullToEmpty(titleNames.get(col));
+                }
+            }
+            // 合并区域内除左上角外的单元格不校验（编辑过的文件可能已清空）
+            List<CellRangeAddress> regions = excelMultiHeadVO.getCellRangeAddressList();
+            if (regions != null) {
+                for (CellRangeAddress region : regions) {
+                    for (int row = region.getFirstRow(); row <= region.getLastRow() && row < expected.length; row++) {
+                        for (int col = region.getFirstColumn(); col <= region.getLastColumn() && col < columnCount;
+                            col++) {
+                            if (row != region.getFirstRow() || col != region.getFirstColumn()) {
+                                expected[row][col] = null;
+                            }
+                        }
+                    }
+                }
+            }
+            List<ImportDataHeaderVO> headerVOList = excelMultiHeadVO.getHeaderVOList();
+            List<ImportDataHeaderVO> headers = new ArrayList<>();
+            if (headerVOList != null) {
+                for (int i = 0; i < headerVOList.size(); i++) {
+                    ImportDataHeaderVO header = copy(headerVOList.get(i));
+                    if (header.getColumnIndex() == null) {
+                        header.setColumnIndex(i);
+                    }
+                    headers.add(header);
+                }
+            }
+            return new HeaderTemplate(expected, headers, columnCount);
+        }
+
+        int getRowCount() {
+            return expected.length;
+        }
+
+        int getColumnCount() {
+            return columnCount;
+        }
+
+        List<ImportDataHeaderVO> copyHeaders() {
+            List<ImportDataHeaderVO> copies = new ArrayList<>(headers.size());
+            for (ImportDataHeaderVO header : headers) {
+                copies.add(copy(header));
+            }
+            return copies;
+        }
+
+        /**
+         * 校验一行表头，差异追加到mismatches
+         */
+        void check(String sheetName, int row, List<String> actual, List<String> mismatches) {
+            String[] titles = expected[row];
+            for (int col = 0; col < titles.length; col++) {
+                String title = titles[col];
+                if (title == null) {
+                    continue;
+                }
+                String value = col < actual.size() ? nullToEmpty(actual.get(col)) : "";
+                if (!title.trim().equals(value.trim()) && mismatches.size() < MAX_MISMATCHES) {
+                    mismatches.add(sheetName + "!" + new CellAddress(row, col).formatAsString() + " 期望[" + title
+                        + "] 实际[" + value + "]");
+                }
+            }
+        }
+
+        private static ImportDataHeaderVO copy(ImportDataHeaderVO source) {
+            ImportDataHeaderVO header = new ImportDataHeaderVO();
+            header.setDisplayName(source.getDisplayName());
+            header.setFieldName(source.getFieldName());
+            header.setColumnIndex(source.getColumnIndex());
+            return header;
+        }
+
+        private static String nullToEmpty(String value) {
+            return value == null ? "" : value;
+        }
+    }
+
+    /**
+     * 内部SAX处理器：监听Excel XML的行、单元格事件，逐行收集数据并触发回调
+     */
+    private static class ExcelSheetHandler extends DefaultHandler {
+        private final String sheetName; // 当前工作表名称
+        private final SharedStrings sharedStrings; // 共享字符串表
+        private final HeaderTemplate template; // 期望的表头（为null时不校验）
+        private final DataHandler dataHandler; // 业务层回调
+        private final List<String> currentRowValues = new ArrayList<>(); // 当前行的原始值（下标为列索引）
+        private final StringBuilder currentCellValue = new StringBuilder(); // 当前单元格的原始值
+        private final List<String> mismatches = new ArrayList<>(); // 表头差异
+        private String currentCellType; // 当前单元格类型（t属性）
+        private int currentRowNum = -1; // 当前行号（从0开始）
+        private int currentColumnIndex = -1; // 当前列索引（从0开始）
+        private int checkedHeaderRows; // 已校验的表头行数
+        private boolean headerChecked; // 表头是否已校验通过
+        private boolean isCollecting; // 是否正在收集<v>或内联字符串<t>的文本
+        private boolean isParseStopped; // 是否终止解析（业务层控制）
+        private int totalRows; // 当前工作表总解析行数
+
+        ExcelSheetHandler(String sheetName, SharedStrings sharedStrings, HeaderTemplate template,
+            DataHandler dataHandler) {
+            this.sheetName = sheetName;
+            this.sharedStrings = sharedStrings;
+            this.template = template;
+            this.dataHandler = dataHandler;
+            this.headerChecked = template == null;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (isParseStopped) {
+                return;
+            }
+            switch (localName) {
+                case "row":
+                    // r属性从1开始，可省略（省略时为上一行的下一行）
+                    String rowRef = attributes.getValue("r");
+                    currentRowNum = rowRef != null ? Integer.parseInt(rowRef) - 1 : currentRowNum + 1;
+                    currentRowValues.clear();
+                    currentColumnIndex = -1;
+                    break;
+                case "c":
+                    // r属性如"B3"，可省略（省略时为上一列的下一列）
+                    String cellRef = attributes.getValue("r");
+                    currentColumnIndex = cellRef != null ? new CellReference(cellRef).getCol()
+                        : currentColumnIndex + 1;
+                    currentCellType = attributes.getValue("t");
+                    currentCellValue.setLength(0);
+                    break;
+                case "v":
+                case "t":
+                    // <t>为内联字符串（<is>下，富文本时有多个）
+                    isCollecting = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (isCollecting) {
+                currentCellValue.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            if (isParseStopped) {
+                return;
+            }
+            switch (localName) {
+                case "v":
+                case "t":
+                    isCollecting = false;
+                    break;
+                case "c":
+                    while (currentRowValues.size() < currentColumnIndex) {
+                        currentRowValues.add(null);
+                    }
+                    currentRowValues.add(cellValue());
+                    break;
+                case "row":
+                    endRow();
+                    break;
+                case "sheetData":
+                    // 表头行数多于数据（或整行为空未写出）时在这里补充校验
+                    checkHeader(Integer.MAX_VALUE);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private String cellValue() {
+            String value = currentCellValue.toString();
+            if ("s".equals(currentCellType)) {
+                // 共享字符串：<v>为共享字符串表的索引
+                return value.isEmpty() ? value : sharedStrings.getItemAt(Integer.parseInt(value)).getString();
+            }
+            // 内联字符串、公式字符串、数字、布尔（"1"/"0"）、错误均为原始文本
+            return value;
+        }
+
+        private void endRow() {
+            if (!headerChecked) {
+                checkHeader(currentRowNum);
+                if (currentRowNum < template.getRowCount()) {
+                    template.check(sheetName, currentRowNum, currentRowValues, mismatches);
+                    checkedHeaderRows = currentRowNum + 1;
+                    totalRows++;
+                    checkHeader(checkedHeaderRows);
+                    return;
+                }
+            }
+
+            // 转换行数据（列数不少于表头列数，缺失的单元格为null）
+            int width = Math.max(currentRowValues.size(), template != null ? template.getColumnCount() : 0);
+            List<Object> rowData = new ArrayList<>(width);
+            for (int col = 0; col < width; col++) {
+                String value = col < currentRowValues.size() ? currentRowValues.get(col) : null;
+                rowData.add(value != null ? dataHandler.convertCellValue(value, col) : null);
+            }
+            totalRows++;
+            if (!dataHandler.handleRowData(rowData, currentRowNum)) {
+                isParseStopped = true;
+            }
+        }
+
+        /**
+         * 到达第rowNum行前，未出现的表头行按空行校验；表头全部校验完成时汇总差异
+         */
+        private void checkHeader(int rowNum) {
+            if (headerChecked) {
+                return;
+            }
+            int end = Math.min(rowNum, template.getRowCount());
+            for (int row = checkedHeaderRows; row < end; row++) {
+                template.check(sheetName, row, Collections.emptyList(), mismatches);
+            }
+            checkedHeaderRows = Math.max(checkedHeaderRows, end);
+            if (checkedHeaderRows < template.getRowCount()) {
+                return;
+            }
+            if (!mismatches.isEmpty()) {
+                throw new IllegalArgumentException("Excel表头与模板不一致: " + String.join("; ", mismatches));
+            }
+            headerChecked = true;
+            dataHandler.onHeader(sheetName, template.copyHeaders());
+        }
+
+        public int getTotalRows() {
+            return totalRows;
+        }
+
+        public boolean isParseStopped() {
+            return isParseStopped;
+        }
+    }
+}
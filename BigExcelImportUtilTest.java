@@ -0,0 +1,174 @@
+package com.ljn.demo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 多级表头流式导入测试
+ */
+public class BigExcelImportUtilTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void importWithHeaderTest() throws Exception {
+        File file = export(titles());
+        List<List<Object>> rows = new ArrayList<>();
+        List<ImportDataHeaderVO> headers = BigExcelImportUtil.importExcel(file.getPath(), titles(),
+            new CollectingHandler(rows));
+
+        // 合并的父级标题解析到最低层级字段
+        assertEquals(4, headers.size());
+        assertEquals("email", headers.get(2).getFieldName());
+        assertEquals("邮箱", headers.get(2).getDisplayName());
+        assertEquals(2, (int) headers.get(2).getColumnIndex());
+
+        // 表头行不作为数据行，缺失的单元格为null，列不错位
+        assertEquals(2, rows.size());
+        assertEquals(Arrays.asList("张三", "123", "a@b.c", "研发"), rows.get(0));
+        assertNull(rows.get(1).get(1));
+        assertEquals("市场", rows.get(1).get(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void headerMismatchTest() throws Exception {
+        List<TitleDTO> exported = titles();
+        exported.get(1).setTitle("部门名称");
+        File file = export(exported);
+        BigExcelImportUtil.importExcel(file.getPath(), titles(), new CollectingHandler(new ArrayList<>()));
+    }
+
+    @Test
+    public void importWithMultiHeadVoTest() throws Exception {
+        ExcelMultiHeadVO headVO = multiHeadVO();
+        File file = folder.newFile("vo.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            XSSFSheet sheet = workbook.createSheet("员工");
+            ExcelUtil.createMultiHeader(workbook, sheet, headVO);
+            XSSFRow row = sheet.createRow(2);
+            row.createCell(0).setCellValue("张三");
+            row.createCell(2).setCellValue(5);
+            // 共享字符串表中的重复值
+            sheet.createRow(3).createCell(0).setCellValue("张三");
+            try (OutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+        }
+
+        List<List<Object>> rows = new ArrayList<>();
+        List<ImportDataHeaderVO> headers = BigExcelImportUtil.importExcel(file.getPath(), headVO,
+            new CollectingHandler(rows));
+        assertEquals(3, headers.size());
+        assertEquals("phone", headers.get(1).getFieldName());
+        assertEquals(1, (int) headers.get(1).getColumnIndex());
+
+        // 两行表头不作为数据行，缺失的单元格为null
+        assertEquals(2, rows.size());
+        assertEquals(Arrays.asList("张三", null, "5.0"), rows.get(0));
+        assertEquals("张三", rows.get(1).get(0));
+    }
+
+    @Test
+    public void multiHeadVoMismatchTest() throws Exception {
+        ExcelMultiHeadVO exported = multiHeadVO();
+        exported.setTitleNameList(Arrays.asList(Arrays.asList("基本信息", "基本信息", "部门"),
+            Arrays.asList("姓名", "手机", "部门")));
+        File file = folder.newFile("vo.xlsx");
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            ExcelUtil.createMultiHeader(workbook, workbook.createSheet("员工"), exported);
+            try (OutputStream out = new FileOutputStream(file)) {
+                workbook.write(out);
+            }
+        }
+        try {
+            BigExcelImportUtil.importExcel(file.getPath(), multiHeadVO(), new CollectingHandler(new ArrayList<>()));
+            fail("表头不一致时应抛出异常");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("手机"));
+        }
+    }
+
+    private static ExcelMultiHeadVO multiHeadVO() {
+        ExcelMultiHeadVO headVO = new ExcelMultiHeadVO();
+        headVO.setTitleNameList(Arrays.asList(Arrays.asList("基本信息", "基本信息", "部门"),
+            Arrays.asList("姓名", "电话", "部门")));
+        headVO.setCellRangeAddressList(new ArrayList<>(Arrays.asList(CellRangeAddress.valueOf("A1:B1"),
+            CellRangeAddress.valueOf("C1:C2"))));
+        List<ImportDataHeaderVO> headers = new ArrayList<>();
+        String[][] fields = {{"姓名", "name"}, {"电话", "phone"}, {"部门", "dept"}};
+        for (String[] field : fields) {
+            ImportDataHeaderVO header = new ImportDataHeaderVO();
+            header.setDisplayName(field[0]);
+            header.setFieldName(field[1]);
+            headers.add(header);
+        }
+        headVO.setHeaderVOList(headers);
+        return headVO;
+    }
+
+    private File export(List<TitleDTO> titles) throws Exception {
+        List<Map<String, Object>> data = new ArrayList<>();
+        data.add(row("张三", "123", "a@b.c", "研发"));
+        data.add(row("李四", null, "d@e.f", "市场"));
+        File file = folder.newFile("import.xlsx");
+        try (OutputStream out = new FileOutputStream(file)) {
+            new MultiLevelHeaderExcelHelper(titles).exportStreaming("员工", data.iterator(), out);
+        }
+        return file;
+    }
+
+    private static Map<String, Object> row(String name, String phone, String email, String dept) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("name", name);
+        row.put("phone", phone);
+        row.put("email", email);
+        row.put("dept", dept);
+        return row;
+    }
+
+    private static List<TitleDTO> titles() {
+        TitleDTO contact = new TitleDTO("联系方式",
+            new ArrayList<>(Arrays.asList(new TitleDTO("电话", "phone"), new TitleDTO("邮箱", "email"))));
+        TitleDTO basic = new TitleDTO("基本信息",
+            new ArrayList<>(Arrays.asList(new TitleDTO("姓名", "name"), contact)));
+        return new ArrayList<>(Arrays.asList(basic, new TitleDTO("部门", "dept")));
+    }
+
+    private static class CollectingHandler implements BigExcelImportUtil.DataHandler {
+        private final List<List<Object>> rows;
+
+        CollectingHandler(List<List<Object>> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public Object convertCellValue(String cellValue, int columnIndex) {
+            return cellValue;
+        }
+
+        @Override
+        public boolean handleRowData(List<Object> rowData, int rowNum) {
+            rows.add(rowData);
+            return true;
+        }
+    }
+}
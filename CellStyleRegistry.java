@@ -0,0 +1,140 @@
+package org.example;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * 单元格样式注册表
+ * 特点：
+ * 1. 样式以key注册，每个Workbook只按注册顺序创建一次，避免逐单元格创建样式导致styles.xml膨胀和64k样式上限
+ * 2. 各线程的Workbook样式创建顺序一致，生成的styles.xml相同，合并时可直接复用
+ * 3. 按列解析样式key，写数据时只做数组下标访问
+ */
+public class CellStyleRegistry {
+    // 内置样式：表头（加粗、居中、细边框）
+    public static final String HEADER = "header";
+
+    // 内置样式：数据（细边框、垂直居中）
+    public static final String BODY = "body";
+
+    // 内置样式：日期数据（数据样式 + 日期格式）
+    public static final String DATE = "date";
+
+    private final Map<String, StyleDefinition> definitions = new LinkedHashMap<>();
+
+    public CellStyleRegistry() {
+        register(HEADER, CellStyleRegistry::defineHeaderStyle);
+        register(BODY, CellStyleRegistry::defineBodyStyle);
+        register(DATE, (workbook, style) -> {
+            defineBodyStyle(workbook, style);
+            style.setDataFormat(workbook.createDataFormat().getFormat("yyyy-MM-dd HH:mm:ss"));
+        });
+    }
+
+    /**
+     * 注册（或覆盖）样式
+     *
+     * @param key 样式key
+     * @param definition 样式定义
+     */
+    public synchronized void register(String key, StyleDefinition definition) {
+        Objects.requireNonNull(key, "样式key不能为空");
+        Objects.requireNonNull(definition, "样式定义不能为空");
+        definitions.put(key, definition);
+    }
+
+    /**
+     * 在指定Workbook中创建全部已注册样式
+     *
+     * @param workbook 工作簿
+     * @return 该Workbook的样式池
+     */
+    public synchronized StylePool bind(Workbook workbook) {
+        Map<String, CellStyle> styles = new HashMap<>(definitions.size() * 2);
+        for (Map.Entry<String, StyleDefinition> entry : definitions.entrySet()) {
+            CellStyle style = workbook.createCellStyle();
+            entry.getValue().define(workbook, style);
+            styles.put(entry.getKey(), style);
+        }
+        return new StylePool(styles);
+    }
+
+    private static void defineHeaderStyle(Workbook workbook, CellStyle style) {
+        Font font = workbook.createFont();
+        font.setBold(true);
+        style.setFont(font);
+        style.setAlignment(HorizontalAlignment.CENTER);
+        style.setVerticalAlignment(VerticalAlignment.CENTER);
+        setThinBorder(style);
+    }
+
+    private static void defineBodyStyle(Workbook workbook, CellStyle style) {
+        setThinBorder(style);
+        style.setVerticalAlignment(VerticalAlignment.CENTER);
+    }
+
+    private static void setThinBorder(CellStyle style) {
+        style.setBorderTop(BorderStyle.THIN);
+        style.setBorderBottom(BorderStyle.THIN);
+        style.setBorderLeft(BorderStyle.THIN);
+        style.setBorderRight(BorderStyle.THIN);
+    }
+
+    /**
+     * 样式定义：在新建的样式上设置属性（需要字体时通过workbook创建）
+     */
+    @FunctionalInterface
+    public interface StyleDefinition {
+        void define(Workbook workbook, CellStyle style);
+    }
+
+    /**
+     * 单个Workbook内的样式池
+     */
+    public static class StylePool {
+        private final Map<String, CellStyle> styles;
+
+        StylePool(Map<String, CellStyle> styles) {
+            this.styles = styles;
+        }
+
+        /**
+         * 按key获取样式
+         *
+         * @param key 样式key
+         * @return 样式
+         */
+        public CellStyle get(String key) {
+            CellStyle style = styles.get(key);
+            if (style == null) {
+                throw new IllegalArgumentException("未注册的样式: " + key);
+            }
+            return style;
+        }
+
+        /**
+         * 按列解析样式
+         *
+         * @param columnCount 列数
+         * @param keySelector 列索引 -> 样式key
+         * @return 每列对应的样式
+         */
+        public CellStyle[] resolveColumns(int columnCount, IntFunction<String> keySelector) {
+            CellStyle[] columnStyles = new CellStyle[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                columnStyles[i] = get(keySelector.apply(i));
+            }
+            return columnStyles;
+        }
+    }
+}
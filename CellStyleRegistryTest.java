@@ -0,0 +1,105 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.function.IntFunction;
+
+/**
+ * 单元格样式注册表测试：样式数量与数据行数无关，未注册的key报错
+ */
+public class CellStyleRegistryTest {
+    private static final String AMOUNT = "amount";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void bindTest() throws Exception {
+        CellStyleRegistry registry = new CellStyleRegistry();
+        registry.register(AMOUNT, CellStyleRegistryTest::defineAmountStyle);
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            int initial = workbook.getNumCellStyles();
+            CellStyleRegistry.StylePool pool = registry.bind(workbook);
+            // 内置的表头、数据、日期样式和自定义样式各创建一次
+            assertEquals(initial + 4, workbook.getNumCellStyles());
+
+            // 按列解析样式只查找，不再创建
+            CellStyle[] columnStyles = pool.resolveColumns(1000,
+                column -> column % 2 == 0 ? AMOUNT : CellStyleRegistry.BODY);
+            assertEquals(initial + 4, workbook.getNumCellStyles());
+            assertSame(pool.get(AMOUNT), columnStyles[0]);
+            assertSame(pool.get(CellStyleRegistry.BODY), columnStyles[999]);
+            assertEquals("#,##0.00", columnStyles[0].getDataFormatString());
+        }
+    }
+
+    @Test
+    public void styleCountTest() throws Exception {
+        // 行数相差百倍、Sheet数不同，合并后的样式数相同
+        File small = export(100, AMOUNT);
+        File large = export(20000, AMOUNT);
+        try (XSSFWorkbook smallWorkbook = new XSSFWorkbook(small);
+            XSSFWorkbook largeWorkbook = new XSSFWorkbook(large)) {
+            assertEquals(1, smallWorkbook.getNumberOfSheets());
+            assertEquals(4, largeWorkbook.getNumberOfSheets());
+            assertEquals(smallWorkbook.getNumCellStyles(), largeWorkbook.getNumCellStyles());
+
+            // 各Sheet的数据单元格引用同一个自定义样式
+            short amountIndex = -1;
+            for (Sheet sheet : largeWorkbook) {
+                CellStyle style = sheet.getRow(sheet.getLastRowNum()).getCell(1).getCellStyle();
+                assertEquals("#,##0.00", style.getDataFormatString());
+                if (amountIndex < 0) {
+                    amountIndex = style.getIndex();
+                }
+                assertEquals(amountIndex, style.getIndex());
+            }
+        }
+    }
+
+    @Test
+    public void unknownKeyTest() throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            new CellStyleRegistry().bind(workbook).get("missing");
+            fail("未注册的样式key应报错");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("未注册的样式: missing", ex.getMessage());
+        }
+
+        // 导出时样式选择返回未注册的key，异常传递给调用方
+        try {
+            export(100, "missing");
+            fail("未注册的样式key应报错");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("未注册的样式: missing", ex.getMessage());
+        }
+    }
+
+    private File export(int rows, String amountKey) throws Exception {
+        IntFunction<String> cellStyleKeySelector = column -> column == 1 ? amountKey : CellStyleRegistry.BODY;
+        PoiMultiThreadExcelExporter<Integer> exporter = new PoiMultiThreadExcelExporter<>(
+            new String[] {"序号", "金额"}, value -> new Object[] {value, value * 1.5}, "Sheet", 4, null,
+            cellStyleKeySelector);
+        exporter.registerStyle(AMOUNT, CellStyleRegistryTest::defineAmountStyle);
+        File file = new File(folder.newFolder(), "styles.xlsx");
+        exporter.export(PoiMultiThreadExcelExporterTest.numbers(rows), file.getPath(), 5000).await();
+        return file;
+    }
+
+    private static void defineAmountStyle(Workbook workbook, CellStyle style) {
+        style.setBorderBottom(BorderStyle.THIN);
+        style.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+    }
+}
@@ -0,0 +1,235 @@
+package com.ljn.demo.util;
+
+import org.apache.poi.ss.usermodel.Sheet;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 列宽估算器（替代sheet.autoSizeColumn）
+ * 特点：
+ * 1. 写入行时按列增量记录最大显示宽度，只做字符计数，不依赖AWT字体排版
+ * 2. 中文等全角字符按2个字符宽度计算，与ExcelUtil表头列宽算法一致
+ * 3. 数据量大时可开启蓄水池抽样，只测量固定数量的样本行，表头始终全量测量
+ * 非线程安全，每个Sheet使用一个实例
+ */
+public class ColumnWidthEstimator {
+    // Excel允许的最大列宽（255个字符，单位1/256字符），Sheet.setColumnWidth超过时抛出异常
+    public static final int MAX_COLUMN_WIDTH = 255 * 256;
+
+    // 单个字符宽度（POI使用1/256个字符宽度作为单位）
+    private static final int CHAR_WIDTH = 256;
+
+    // 估算宽度之外的缓冲，避免内容被截断
+    private static final int PADDING = 256;
+
+    // 日期按 yyyy-MM-dd HH:mm:ss 计算宽度
+    private static final int DATE_WIDTH = 19 * CHAR_WIDTH;
+
+    private final int columnCount;
+
+    // 抽样行数，<=0 表示全量测量
+    private final int sampleSize;
+
+    // 表头宽度（全量）
+    private final int[] headerWidths;
+
+    // 全量模式下的数据最大宽度
+    private final int[] dataWidths;
+
+    // 抽样模式下的样本行宽度：[样本槽位][列]
+    private final int[][] samples;
+
+    // 已开始的数据行数
+    private long rowCount;
+
+    // 当前行写入的样本槽位，-1 表示当前行不测量
+    private int currentSlot = -1;
+
+    /**
+     * 全量测量
+     *
+     * @param columnCount 列数
+     */
+    public ColumnWidthEstimator(int columnCount) {
+        this(columnCount, 0);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param columnCount 列数
+     * @param sampleSize 抽样行数，<=0 表示全量测量
+     */
+    public ColumnWidthEstimator(int columnCount, int sampleSize) {
+        this.columnCount = columnCount;
+        this.sampleSize = Math.max(0, sampleSize);
+        this.headerWidths = new int[columnCount];
+        this.dataWidths = this.sampleSize == 0 ? new int[columnCount] : null;
+        this.samples = this.sampleSize == 0 ? null : new int[this.sampleSize][];
+    }
+
+    /**
+     * 记录表头单元格（不参与抽样）
+     *
+     * @param column 列索引
+     * @param value 表头内容
+     */
+    public void acceptHeader(int column, Object value) {
+        if (column < columnCount) {
+            headerWidths[column] = Math.max(headerWidths[column], calculateWidth(value));
+        }
+    }
+
+    /**
+     * 开始一个数据行
+     *
+     * @return 当前行是否需要测量，为false时调用方可跳过accept
+     */
+    public boolean startRow() {
+        rowCount++;
+        if (samples == null) {
+            currentSlot = 0;
+            return true;
+        }
+        if (rowCount <= sampleSize) {
+            currentSlot = (int) (rowCount - 1);
+        } else {
+            // 蓄水池抽样：以 sampleSize / rowCount 的概率替换已有样本
+            long slot = ThreadLocalRandom.current().nextLong(rowCount);
+            currentSlot = slot < sampleSize ? (int) slot : -1;
+        }
+        if (currentSlot < 0) {
+            return false;
+        }
+        if (samples[currentSlot] == null) {
+            samples[currentSlot] = new int[columnCount];
+        } else {
+            Arrays.fill(samples[currentSlot], 0);
+        }
+        return true;
+    }
+
+    /**
+     * 记录当前数据行的单元格
+     *
+     * @param column 列索引
+     * @param value 单元格值
+     */
+    public void accept(int column, Object value) {
+        if (currentSlot < 0 || column >= columnCount) {
+            return;
+        }
+        acceptWidth(column, calculateWidth(value));
+    }
+
+    /**
+     * 记录当前数据行已计算好的单元格宽度（类型化列直接由原始值计算，不装箱）
+     *
+     * @param column 列索引
+     * @param width 宽度（1/256字符）
+     */
+    public void acceptWidth(int column, int width) {
+        if (currentSlot < 0 || column >= columnCount) {
+            return;
+        }
+        if (samples == null) {
+            dataWidths[column] = Math.max(dataWidths[column], width);
+        } else {
+            samples[currentSlot][column] = Math.max(samples[currentSlot][column], width);
+        }
+    }
+
+    /**
+     * 获取估算列宽
+     *
+     * @param column 列索引
+     * @return 列宽（1/256字符）
+     */
+    public int getColumnWidth(int column) {
+        int width = headerWidths[column];
+        if (samples == null) {
+            width = Math.max(width, dataWidths[column]);
+        } else {
+            for (int[] sample : samples) {
+                if (sample != null) {
+                    width = Math.max(width, sample[column]);
+                }
+            }
+        }
+        return Math.min(width + PADDING, MAX_COLUMN_WIDTH);
+    }
+
+    /**
+     * 将估算列宽设置到Sheet
+     *
+     * @param sheet 工作表
+     */
+    public void applyTo(Sheet sheet) {
+        for (int i = 0; i < columnCount; i++) {
+            sheet.setColumnWidth(i, getColumnWidth(i));
+        }
+    }
+
+    /**
+     * 计算单元格值的显示宽度
+     *
+     * @param value 单元格值
+     * @return 宽度（1/256字符）
+     */
+    public static int calculateWidth(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Date) {
+            return DATE_WIDTH;
+        }
+        return calculateWidth(value.toString());
+    }
+
+    /**
+     * 计算整数的显示宽度（按位数计算，不创建字符串）
+     *
+     * @param value 整数
+     * @return 宽度（1/256字符）
+     */
+    public static int calculateWidth(long value) {
+        int length = value < 0 ? 2 : 1;
+        for (long remaining = value / 10; remaining != 0; remaining /= 10) {
+            length++;
+        }
+        return length * CHAR_WIDTH + 128;
+    }
+
+    /**
+     * 计算小数的显示宽度（与装箱后toString的宽度一致）
+     *
+     * @param value 小数
+     * @return 宽度（1/256字符）
+     */
+    public static int calculateWidth(double value) {
+        return calculateWidth(Double.toString(value));
+    }
+
+    /**
+     * 计算文本的显示宽度，全角字符按2个字符计算
+     *
+     * @param text 文本
+     * @return 宽度（1/256字符）
+     */
+    public static int calculateWidth(String text) {
+        int width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += isWideChar(text.charAt(i)) ? 2 * CHAR_WIDTH : CHAR_WIDTH;
+        }
+        return Math.min(width + 128, MAX_COLUMN_WIDTH); // 128 为缓冲
+    }
+
+    // 判断是否是全角字符（中日韩文字、全角标点）
+    private static boolean isWideChar(char c) {
+        return (c >= '\u4e00' && c <= '\u9fa5')
+            || (c >= '\u3000' && c <= '\u303f')
+            || (c >= '\uff00' && c <= '\uffef');
+    }
+}
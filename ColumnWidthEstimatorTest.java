@@ -0,0 +1,62 @@
+package com.ljn.demo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 列宽估算测试
+ */
+public class ColumnWidthEstimatorTest {
+
+    @Test
+    public void calculateWidthTest() {
+        // 半角字符按1个字符，中文按2个字符，外加128缓冲
+        assertEquals(3 * 256 + 128, ColumnWidthEstimator.calculateWidth("abc"));
+        assertEquals(4 * 256 + 128, ColumnWidthEstimator.calculateWidth("名称"));
+        assertEquals(0, ColumnWidthEstimator.calculateWidth((Object) null));
+    }
+
+    @Test
+    public void maxWidthTest() {
+        ColumnWidthEstimator estimator = new ColumnWidthEstimator(2);
+        estimator.acceptHeader(0, "编号");
+        estimator.acceptHeader(1, "name");
+        for (int i = 0; i < 100; i++) {
+            estimator.startRow();
+            estimator.accept(0, i);
+            estimator.accept(1, i == 50 ? "a much longer value" : "v");
+        }
+        assertEquals(ColumnWidthEstimator.calculateWidth("编号") + 256, estimator.getColumnWidth(0));
+        assertEquals(ColumnWidthEstimator.calculateWidth("a much longer value") + 256, estimator.getColumnWidth(1));
+    }
+
+    @Test
+    public void samplingTest() {
+        ColumnWidthEstimator estimator = new ColumnWidthEstimator(1, 10);
+        estimator.acceptHeader(0, "id");
+        int measured = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (estimator.startRow()) {
+                measured++;
+                estimator.accept(0, "12345");
+            }
+        }
+        // 抽样只测量少量行，宽度仍由样本决定
+        assertTrue(measured < 1000);
+        assertEquals(ColumnWidthEstimator.calculateWidth("12345") + 256, estimator.getColumnWidth(0));
+    }
+
+    @Test
+    public void maxColumnWidthTest() {
+        ColumnWidthEstimator estimator = new ColumnWidthEstimator(1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            text.append("超长文本");
+        }
+        estimator.acceptHeader(0, text.toString());
+        assertEquals(255 * 256, estimator.getColumnWidth(0));
+        assertEquals(255 * 256, ColumnWidthEstimator.calculateWidth(text.toString()));
+    }
+}
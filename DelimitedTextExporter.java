@@ -0,0 +1,790 @@
+package org.example;
+
+import com.ljn.demo.util.ExcelColumns;
+import com.ljn.demo.util.HeaderLayout;
+import com.ljn.demo.util.TitleDTO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * CSV/TSV分隔文本导出工具类
+ * 特点：
+ * 1. 表头和行映射与PoiMultiThreadExcelExporter一致：String[]表头 + dataMapper、类型化列定义（ExcelColumns），
+ *    或多级表头（TitleDTO）展开后的最低层级标题
+ * 2. 不受xlsx单Sheet 1,048,576行限制，所有数据写入同一个文件
+ * 3. 导出线程按块读取数据，多个线程并行把数据块经CharsetEncoder直接编码为UTF-8字节，写入进程内复用的堆外缓冲区段，
+ *    导出线程按读取顺序通过NIO通道写出，在途数据块数由舱壁的写入任务上限决定
+ * 4. 与Excel导出共用线程池、舱壁、导出句柄（取消/截止时间）和进度监听器
+ * 字段含分隔符、双引号或换行时按RFC 4180加双引号转义（TSV同样适用，Excel可直接打开）
+ */
+public class DelimitedTextExporter<T> {
+    // 每个数据块的行数
+    private static final int CHUNK_ROWS = 8192;
+
+    // 编码缓冲区段大小，数据块编码结果由若干段组成
+    private static final int SEGMENT_BYTES = 256 * 1024;
+
+    // 进程内最多分配的堆外缓冲区段数，写出后放回空闲池供后续数据块和导出复用，超出时使用堆内缓冲区
+    private static final int MAX_DIRECT_SEGMENTS = 64;
+
+    // 文本暂存超过该字符数时在行尾编码一次
+    private static final int ENCODE_THRESHOLD_CHARS = 32 * 1024;
+
+    // 空闲的堆外缓冲区段
+    private static final ConcurrentLinkedQueue<ByteBuffer> FREE_SEGMENTS = new ConcurrentLinkedQueue<>();
+
+    // 已分配的堆外缓冲区段数
+    private static final AtomicInteger DIRECT_SEGMENTS = new AtomicInteger();
+
+    // UTF-8 BOM，Excel据此识别编码
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    // 行分隔符（RFC 4180）
+    private static final String LINE_SEPARATOR = "\r\n";
+
+    // 日期输出格式，与内置日期样式一致
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+        .withZone(ZoneId.systemDefault());
+
+    private final String[] headers;
+
+    // 数据映射函数（使用类型化列定义时为null）
+    private final Function<T, Object[]> dataMapper;
+
+    // 类型化列定义编译后的行写入器（使用dataMapper时为null）
+    private final ExcelColumns.RowWriter<T> rowWriter;
+
+    private final Format format;
+
+    // 是否写入UTF-8 BOM
+    private boolean writeBom = true;
+
+    private ExecutorService executor = ExportExecutors.shared();
+
+    private ExportBulkhead bulkhead = ExportBulkhead.global();
+
+    private ExportListener listener = ExportListener.NONE;
+
+    // 单次导出的截止时间（毫秒），<=0 表示不限制
+    private long timeoutMillis;
+
+    /**
+     * 构造函数
+     *
+     * @param headers 表头数组
+     * @param dataMapper 数据映射函数，将T类型转换为Object数组
+     * @param format 文本格式
+     */
+    public DelimitedTextExporter(String[] headers, Function<T, Object[]> dataMapper, Format format) {
+        this(Objects.requireNonNull(headers, "表头不能为空"),
+            Objects.requireNonNull(dataMapper, "数据映射函数不能为空"), null, format);
+    }
+
+    /**
+     * 构造函数（多级表头，按最低层级标题输出一行表头）
+     *
+     * @param titles 多级表头
+     * @param dataMapper 数据映射函数，数组顺序与最低层级标题一致
+     * @param format 文本格式
+     */
+    public DelimitedTextExporter(List<TitleDTO> titles, Function<T, Object[]> dataMapper, Format format) {
+        this(flattenTitles(titles), dataMapper, format);
+    }
+
+    /**
+     * 构造函数（类型化列定义）
+     *
+     * @param columns 列定义
+     * @param format 文本格式
+     */
+    public DelimitedTextExporter(ExcelColumns<T> columns, Format format) {
+        this(Objects.requireNonNull(columns, "列定义不能为空").getHeaders(), null, columns.compile(), format);
+    }
+
+    private DelimitedTextExporter(String[] headers, Function<T, Object[]> dataMapper,
+        ExcelColumns.RowWriter<T> rowWriter, Format format) {
+        this.headers = Arrays.copyOf(headers, headers.length);
+        this.dataMapper = dataMapper;
+        this.rowWriter = rowWriter;
+        this.format = Objects.requireNonNull(format, "文本格式不能为空");
+    }
+
+    /**
+     * 多级表头展开为最低层级标题（从左到右）
+     *
+     * @param titles 多级表头
+     * @return 最低层级标题
+     */
+    public static String[] flattenTitles(List<TitleDTO> titles) {
+        Objects.requireNonNull(titles, "表头不能为空");
+        return HeaderLayout.of(titles).getColumnTitles();
+    }
+
+    /**
+     * 设置是否写入UTF-8 BOM（默认写入，Excel打开中文不乱码）
+     *
+     * @param writeBom 是否写入
+     */
+    public void setWriteBom(boolean writeBom) {
+        this.writeBom = writeBom;
+    }
+
+    /**
+     * 设置编码任务执行器（默认使用进程内共享线程池，与Excel导出共用）
+     *
+     * @param executor 执行器（由调用方负责关闭）
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = Objects.requireNonNull(executor, "执行器不能为空");
+    }
+
+    /**
+     * 设置舱壁（默认使用全局舱壁）
+     *
+     * @param bulkhead 舱壁
+     */
+    public void setBulkhead(ExportBulkhead bulkhead) {
+        this.bulkhead = Objects.requireNonNull(bulkhead, "舱壁不能为空");
+    }
+
+    /**
+     * 设置导出进度监听器
+     *
+     * @param listener 监听器
+     */
+    public void setListener(ExportListener listener) {
+        this.listener = listener != null ? listener : ExportListener.NONE;
+    }
+
+    /**
+     * 设置单次导出的截止时间，从开始导出计时，超时后自动取消
+     *
+     * @param timeoutMillis 截止时间（毫秒），<=0 表示不限制
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 导出到文件，失败或取消时删除未写完的文件
+     *
+     * @param dataList 完整数据列表
+     * @param filePath 目标文件路径
+     * @return 导出句柄
+     */
+    public ExportHandle export(List<T> dataList, String filePath) {
+        Objects.requireNonNull(dataList, "数据列表不能为空");
+        return start(dataList.size(), filePath, dataList::iterator);
+    }
+
+    /**
+     * 导出到输出流
+     *
+     * @param dataList 完整数据列表
+     * @param out 输出流（由调用方在导出结束后关闭）
+     * @return 导出句柄
+     */
+    public ExportHandle export(List<T> dataList, OutputStream out) {
+        Objects.requireNonNull(dataList, "数据列表不能为空");
+        return start(dataList.size(), out, dataList::iterator);
+    }
+
+    /**
+     * 导出到文件（流式数据源）
+     *
+     * @param dataStream 数据流（导出结束后关闭）
+     * @param filePath 目标文件路径
+     * @return 导出句柄
+     */
+    public ExportHandle export(Stream<T> dataStream, String filePath) {
+        Objects.requireNonNull(dataStream, "数据流不能为空");
+        return start(-1, filePath, new StreamSource<>(dataStream));
+    }
+
+    /**
+     * 导出到输出流（流式数据源）
+     *
+     * @param dataStream 数据流（导出结束后关闭）
+     * @param out 输出流（由调用方在导出结束后关闭）
+     * @return 导出句柄
+     */
+    public ExportHandle export(Stream<T> dataStream, OutputStream out) {
+        Objects.requireNonNull(dataStream, "数据流不能为空");
+        return start(-1, out, new StreamSource<>(dataStream));
+    }
+
+    /**
+     * 导出到文件（迭代器数据源）
+     *
+     * @param dataIterator 数据迭代器（在导出线程中读取）
+     * @param filePath 目标文件路径
+     * @return 导出句柄
+     */
+    public ExportHandle export(Iterator<T> dataIterator, String filePath) {
+        Objects.requireNonNull(dataIterator, "数据迭代器不能为空");
+        return start(-1, filePath, () -> dataIterator);
+    }
+
+    /**
+     * 导出到输出流（迭代器数据源）
+     *
+     * @param dataIterator 数据迭代器（在导出线程中读取）
+     * @param out 输出流（由调用方在导出结束后关闭）
+     * @return 导出句柄
+     */
+    public ExportHandle export(Iterator<T> dataIterator, OutputStream out) {
+        Objects.requireNonNull(dataIterator, "数据迭代器不能为空");
+        return start(-1, out, () -> dataIterator);
+    }
+
+    /**
+     * 导出到文件（分页数据源）
+     *
+     * @param pageLoader 分页加载函数，入参为页码（从1开始），返回null或空列表表示没有更多数据
+     * @param filePath 目标文件路径
+     * @return 导出句柄
+     */
+    public ExportHandle exportByPage(IntFunction<List<T>> pageLoader, String filePath) {
+        Objects.requireNonNull(pageLoader, "分页加载函数不能为空");
+        return start(-1, filePath, () -> new PoiMultiThreadExcelExporter.PageIterator<>(pageLoader));
+    }
+
+    /**
+     * 导出到输出流（分页数据源）
+     *
+     * @param pageLoader 分页加载函数，入参为页码（从1开始），返回null或空列表表示没有更多数据
+     * @param out 输出流（由调用方在导出结束后关闭）
+     * @return 导出句柄
+     */
+    public ExportHandle exportByPage(IntFunction<List<T>> pageLoader, OutputStream out) {
+        Objects.requireNonNull(pageLoader, "分页加载函数不能为空");
+        return start(-1, out, () -> new PoiMultiThreadExcelExporter.PageIterator<>(pageLoader));
+    }
+
+    private ExportHandle start(long totalRows, String filePath, DataSource<T> source) {
+        Objects.requireNonNull(filePath, "文件路径不能为空");
+        return start(totalRows, source, handle -> {
+            Path path = Paths.get(filePath);
+            boolean completed = false;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+                write(source, channel, handle);
+                completed = true;
+            } finally {
+                if (!completed) {
+                    deleteQuietly(path);
+                }
+            }
+        });
+    }
+
+    private ExportHandle start(long totalRows, OutputStream out, DataSource<T> source) {
+        Objects.requireNonNull(out, "输出流不能为空");
+        return start(totalRows, source, handle -> {
+            // 不关闭通道，输出流由调用方关闭
+            write(source, Channels.newChannel(out), handle);
+            out.flush();
+        });
+    }
+
+    private ExportHandle start(long totalRows, DataSource<T> source, ChannelTask task) {
+        ExportHandle handle = new ExportHandle(new ExportMetrics(totalRows), timeoutMillis);
+        handle.start(ExportExecutors.coordinator(), () -> {
+            try {
+                task.run(handle);
+            } catch (Exception ex) {
+                listener.onFailed(handle.getMetrics(), handle.translate(ex));
+                throw ex;
+            } finally {
+                source.close();
+            }
+        });
+        return handle;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            path.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * 按块读取数据并提交编码任务，按提交顺序写出编码结果
+     */
+    private void write(DataSource<T> source, WritableByteChannel channel, ExportHandle handle) throws Exception {
+        ExportMetrics metrics = handle.getMetrics();
+        // 舱壁许可全部用于编码时再多一个数据块，写出最早的数据块时其余许可仍在编码
+        int capacity = bulkhead.getMaxSheetWorkers() + 1;
+        // 编码器池：数量与在途数据块上限一致，写出后归还
+        BlockingQueue<ChunkEncoder> encoders = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            encoders.add(new ChunkEncoder());
+        }
+        Deque<Future<ChunkEncoder>> pending = new ArrayDeque<>();
+        Iterator<T> dataIterator = source.open();
+        try {
+            // 表头
+            ChunkEncoder headerEncoder = encoders.take();
+            headerEncoder.encodeHeader();
+            writeChunk(channel, headerEncoder, metrics);
+            encoders.add(headerEncoder);
+
+            while (true) {
+                handle.checkpoint();
+                // 补充在途数据块
+                while (pending.size() < capacity && dataIterator.hasNext()) {
+                    long readStart = System.nanoTime();
+                    List<T> chunk = new ArrayList<>(CHUNK_ROWS);
+                    while (chunk.size() < CHUNK_ROWS && dataIterator.hasNext()) {
+                        chunk.add(dataIterator.next());
+                    }
+                    metrics.addPhaseNanos(ExportMetrics.Phase.READ, System.nanoTime() - readStart);
+                    ChunkEncoder encoder = encoders.take();
+                    pending.add(submitEncode(() -> {
+                        encoder.encodeRows(chunk, metrics);
+                        return encoder;
+                    }, encoder, encoders, handle));
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+
+                // 按顺序写出最早的数据块
+                long waitStart = System.nanoTime();
+                ChunkEncoder encoder = pending.peekFirst().get();
+                pending.removeFirst();
+                metrics.addPhaseNanos(ExportMetrics.Phase.QUEUE_WAIT, System.nanoTime() - waitStart);
+                try {
+                    writeChunk(channel, encoder, metrics);
+                    metrics.addRows(encoder.rows);
+                } finally {
+                    encoders.add(encoder);
+                }
+                listener.onProgress(metrics);
+            }
+            metrics.sheetCompleted();
+            metrics.finish();
+            listener.onCompleted(metrics);
+        } finally {
+            // 已完成但未写出的数据块归还缓冲区段，运行中被取消的任务结束时自行归还
+            for (Future<ChunkEncoder> future : pending) {
+                if (!future.cancel(true) && !future.isCancelled()) {
+                    releaseCompleted(future);
+                }
+            }
+        }
+    }
+
+    private void releaseCompleted(Future<ChunkEncoder> future) throws InterruptedException {
+        try {
+            future.get().releaseSegments();
+        } catch (ExecutionException ex) {
+            // 编码失败时已归还
+        }
+    }
+
+    /**
+     * 提交编码任务，在途任务数受全局舱壁限制
+     */
+    private Future<ChunkEncoder> submitEncode(Callable<ChunkEncoder> task, ChunkEncoder encoder,
+        BlockingQueue<ChunkEncoder> encoders, ExportHandle handle) throws InterruptedException {
+        bulkhead.acquire();
+        EncodeTask worker = new EncodeTask(task, encoder, handle);
+        try {
+            handle.track(worker);
+            executor.execute(worker);
+        } catch (RuntimeException ex) {
+            handle.untrack(worker);
+            bulkhead.release();
+            encoders.add(encoder);
+            throw ex;
+        }
+        return worker;
+    }
+
+    private void writeChunk(WritableByteChannel channel, ChunkEncoder encoder, ExportMetrics metrics)
+        throws IOException {
+        long flushStart = System.nanoTime();
+        try {
+            for (ByteBuffer segment : encoder.segments) {
+                segment.flip();
+                while (segment.hasRemaining()) {
+                    channel.write(segment);
+                }
+            }
+        } finally {
+            encoder.releaseSegments();
+        }
+        metrics.addPhaseNanos(ExportMetrics.Phase.FLUSH, System.nanoTime() - flushStart);
+    }
+
+    /**
+     * 取一个编码缓冲区段：优先复用空闲的堆外缓冲区段，堆外缓冲区段数达到上限后使用堆内缓冲区
+     */
+    private static ByteBuffer takeSegment() {
+        ByteBuffer segment = FREE_SEGMENTS.poll();
+        if (segment != null) {
+            return segment;
+        }
+        if (DIRECT_SEGMENTS.incrementAndGet() <= MAX_DIRECT_SEGMENTS) {
+            return ByteBuffer.allocateDirect(SEGMENT_BYTES);
+        }
+        DIRECT_SEGMENTS.decrementAndGet();
+        return ByteBuffer.allocate(SEGMENT_BYTES);
+    }
+
+    /**
+     * 归还编码缓冲区段：堆外缓冲区段放回空闲池（不交给GC回收），堆内缓冲区直接丢弃
+     */
+    private static void recycleSegment(ByteBuffer segment) {
+        if (segment.isDirect()) {
+            segment.clear();
+            FREE_SEGMENTS.offer(segment);
+        }
+    }
+
+    /**
+     * 编码任务：由执行器运行结束（包括开始前已取消的任务）时归还舱壁许可，被取消时归还编码缓冲区段
+     */
+    private class EncodeTask extends FutureTask<ChunkEncoder> {
+        private final ChunkEncoder encoder;
+
+        private final ExportHandle handle;
+
+        EncodeTask(Callable<ChunkEncoder> task, ChunkEncoder encoder, ExportHandle handle) {
+            super(task);
+            this.encoder = encoder;
+            this.handle = handle;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                if (isCancelled()) {
+                    encoder.releaseSegments();
+                }
+                bulkhead.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            handle.untrack(this);
+        }
+    }
+
+    /**
+     * 数据块编码器：文本先拼接到复用的StringBuilder，每隔若干行由CharsetEncoder直接编码到缓冲区段，
+     * 不生成中间byte[]，通道写出时不再复制；同一时刻只被一个线程使用，写出后复用
+     */
+    private class ChunkEncoder implements ExcelColumns.TextSink {
+        private final StringBuilder text = new StringBuilder(ENCODE_THRESHOLD_CHARS * 2);
+
+        // 编码器（无法编码的孤立代理字符替换为?，与String.getBytes一致）
+        private final CharsetEncoder charsetEncoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        // 文本暂存的字符数组，使编码走数组快速路径
+        private char[] chars = new char[ENCODE_THRESHOLD_CHARS * 2];
+
+        // 当前数据块的编码结果
+        private final List<ByteBuffer> segments = new ArrayList<>();
+
+        private int rows;
+
+        void encodeHeader() {
+            text.setLength(0);
+            for (int j = 0; j < headers.length; j++) {
+                if (j > 0) {
+                    nextColumn();
+                }
+                text(headers[j]);
+            }
+            text.append(LINE_SEPARATOR);
+            if (writeBom) {
+                currentSegment(UTF8_BOM.length).put(UTF8_BOM);
+            }
+            encode();
+        }
+
+        void encodeRows(List<T> chunk, ExportMetrics metrics) {
+            try {
+                encodeRows(chunk, metrics, System.nanoTime());
+            } catch (RuntimeException | Error ex) {
+                releaseSegments();
+                throw ex;
+            }
+        }
+
+        private void encodeRows(List<T> chunk, ExportMetrics metrics, long start) {
+            text.setLength(0);
+            long mapNanos = 0L;
+            for (T data : chunk) {
+                if (rowWriter != null) {
+                    rowWriter.writeText(data, this);
+                } else {
+                    long mapStart = System.nanoTime();
+                    Object[] values = dataMapper.apply(data);
+                    mapNanos += System.nanoTime() - mapStart;
+                    for (int j = 0; j < headers.length; j++) {
+                        if (j > 0) {
+                            nextColumn();
+                        }
+                        value(values != null && j < values.length ? values[j] : null);
+                    }
+                }
+                text.append(LINE_SEPARATOR);
+                if (text.length() >= ENCODE_THRESHOLD_CHARS) {
+                    encode();
+                }
+            }
+            encode();
+            rows = chunk.size();
+            metrics.addPhaseNanos(ExportMetrics.Phase.MAP, mapNanos);
+            metrics.addPhaseNanos(ExportMetrics.Phase.WRITE, System.nanoTime() - start - mapNanos);
+        }
+
+        /**
+         * 把暂存的文本（总是在行尾，不会拆开代理对）编码到缓冲区段，当前段写满时追加新段
+         */
+        private void encode() {
+            int length = text.length();
+            if (length == 0) {
+                return;
+            }
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+            text.getChars(0, length, chars, 0);
+            text.setLength(0);
+            CharBuffer input = CharBuffer.wrap(chars, 0, length);
+            charsetEncoder.reset();
+            CoderResult result;
+            do {
+                result = charsetEncoder.encode(input, currentSegment(4), true);
+            } while (result.isOverflow());
+            while (charsetEncoder.flush(currentSegment(4)).isOverflow()) {
+                // 当前段写满，下一轮取新段
+            }
+        }
+
+        /**
+         * 当前可写的缓冲区段，剩余空间不足时追加新段
+         */
+        private ByteBuffer currentSegment(int minRemaining) {
+            ByteBuffer last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (last == null || last.remaining() < minRemaining) {
+                last = takeSegment();
+                segments.add(last);
+            }
+            return last;
+        }
+
+        void releaseSegments() {
+            for (ByteBuffer segment : segments) {
+                recycleSegment(segment);
+            }
+            segments.clear();
+        }
+
+        @Override
+        public void text(String value) {
+            if (value == null) {
+                return;
+            }
+            if (!needsQuote(value)) {
+                text.append(value);
+                return;
+            }
+            text.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    text.append('"');
+                }
+                text.append(c);
+            }
+            text.append('"');
+        }
+
+        @Override
+        public void number(long value) {
+            text.append(value);
+        }
+
+        @Override
+        public void number(double value) {
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                text.append(value);
+            } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+                // 整数值不输出 .0
+                text.append((long) value);
+            } else {
+                // 避免科学计数法
+                text.append(BigDecimal.valueOf(value).toPlainString());
+            }
+        }
+
+        /**
+         * float按自身的最短十进制表示输出，不扩展为double（0.1f不输出为0.10000000149011612）
+         */
+        private void number(float value) {
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                text.append(value);
+            } else {
+                text.append(new BigDecimal(Float.toString(value)).stripTrailingZeros().toPlainString());
+            }
+        }
+
+        @Override
+        public void bool(boolean value) {
+            text.append(value ? "TRUE" : "FALSE");
+        }
+
+        @Override
+        public void date(Date value) {
+            if (value != null) {
+                DATE_FORMATTER.formatTo(value.toInstant(), text);
+            }
+        }
+
+        @Override
+        public void value(Object value) {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof Double) {
+                number((Double) value);
+            } else if (value instanceof Float) {
+                number((Float) value);
+            } else if (value instanceof BigDecimal) {
+                // 保留原有精度，避免 1E+3 之类的科学计数法
+                text.append(((BigDecimal) value).toPlainString());
+            } else if (value instanceof Number) {
+                text.append(value);
+            } else if (value instanceof Boolean) {
+                bool((Boolean) value);
+            } else if (value instanceof Date) {
+                date((Date) value);
+            } else {
+                text(value.toString());
+            }
+        }
+
+        @Override
+        public void nextColumn() {
+            text.append(format.delimiter);
+        }
+
+        private boolean needsQuote(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == format.delimiter || c == '"' || c == '\n' || c == '\r') {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 数据源：导出线程中打开，导出结束后关闭
+     */
+    private interface DataSource<T> {
+        Iterator<T> open();
+
+        default void close() {
+        }
+    }
+
+    /**
+     * 流式数据源，导出结束后关闭数据流
+     */
+    private static class StreamSource<T> implements DataSource<T> {
+        private final Stream<T> stream;
+
+        StreamSource(Stream<T> stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public Iterator<T> open() {
+            return stream.iterator();
+        }
+
+        @Override
+        public void close() {
+            stream.close();
+        }
+    }
+
+    /**
+     * 在协调线程中执行的导出任务
+     */
+    private interface ChannelTask {
+        void run(ExportHandle handle) throws Exception;
+    }
+
+    /**
+     * 文本格式
+     */
+    public enum Format {
+        // 逗号分隔
+        CSV(','),
+
+        // 制表符分隔
+        TSV('\t');
+
+        private final char delimiter;
+
+        Format(char delimiter) {
+            this.delimiter = delimiter;
+        }
+
+        public char getDelimiter() {
+            return delimiter;
+        }
+    }
+}
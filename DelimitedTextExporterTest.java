@@ -0,0 +1,122 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * CSV/TSV分隔文本导出测试
+ */
+public class DelimitedTextExporterTest {
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    @Test
+    public void csvQuoteTest() throws Exception {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {"a,b", "说\"你好\"", "第一行\n第二行"});
+        rows.add(new Object[] {"tab\t不转义", null, "回车\r"});
+        rows.add(new Object[] {"emoji😀", "孤立\uD800", ""});
+        String text = export(rows, DelimitedTextExporter.Format.CSV, false);
+        assertEquals("列1,列2,列3\r\n"
+            + "\"a,b\",\"说\"\"你好\"\"\",\"第一行\n第二行\"\r\n"
+            + "tab\t不转义,,\"回车\r\"\r\n"
+            + "emoji😀,孤立?,\r\n", text);
+    }
+
+    @Test
+    public void tsvTest() throws Exception {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.MARCH, 5, 8, 9, 10);
+        List<Object[]> rows = Collections.singletonList(
+            new Object[] {"a,b", "制表\t符", calendar.getTime()});
+        String text = export(rows, DelimitedTextExporter.Format.TSV, false);
+        // TSV中逗号不需要转义，制表符需要
+        assertEquals("列1\t列2\t列3\r\na,b\t\"制表\t符\"\t2024-03-05 08:09:10\r\n", text);
+    }
+
+    @Test
+    public void numberTest() throws Exception {
+        List<Object[]> rows = Collections.singletonList(new Object[] {3.0d, 0.125d, 12345678901234L});
+        assertEquals("列1,列2,列3\r\n3,0.125,12345678901234\r\n",
+            export(rows, DelimitedTextExporter.Format.CSV, false));
+    }
+
+    @Test
+    public void floatAndDecimalTest() throws Exception {
+        // float不扩展为double，BigDecimal按原有精度输出且不使用科学计数法
+        List<Object[]> rows = Arrays.asList(
+            new Object[] {0.1f, new BigDecimal("1E+3"), new BigDecimal("1.50")},
+            new Object[] {3.0f, new BigDecimal("1.2E-7"), Float.NaN},
+            new Object[] {1.0E10f, -2.5f, new BigDecimal("-0")});
+        assertEquals("列1,列2,列3\r\n0.1,1000,1.50\r\n3,0.00000012,NaN\r\n10000000000,-2.5,0\r\n",
+            export(rows, DelimitedTextExporter.Format.CSV, false));
+    }
+
+    @Test
+    public void bomTest() throws Exception {
+        List<Object[]> rows = Collections.singletonList(new Object[] {"中文", "x", "y"});
+        DelimitedTextExporter<Object[]> exporter = exporter(DelimitedTextExporter.Format.CSV);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(rows, out).await();
+        byte[] bytes = out.toByteArray();
+        assertTrue(bytes.length > 3);
+        assertEquals(Arrays.toString(UTF8_BOM), Arrays.toString(Arrays.copyOf(bytes, 3)));
+        assertEquals("列1,列2,列3\r\n中文,x,y\r\n", new String(bytes, 3, bytes.length - 3, StandardCharsets.UTF_8));
+
+        exporter.setWriteBom(false);
+        out.reset();
+        exporter.export(rows, out).await();
+        assertEquals('列', new String(out.toByteArray(), StandardCharsets.UTF_8).charAt(0));
+    }
+
+    @Test
+    public void orderTest() throws Exception {
+        // 多个数据块由多个线程并行编码，写出顺序与读取顺序一致；长字段跨越多个缓冲区段
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 200000; i++) {
+            longValue.append((char) ('a' + i % 26)).append('中');
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            rows.add(new Object[] {i, i % 1000 == 0 ? longValue.toString() : "r" + i, null});
+        }
+        DelimitedTextExporter<Object[]> exporter = exporter(DelimitedTextExporter.Format.CSV);
+        exporter.setWriteBom(false);
+        exporter.setBulkhead(new ExportBulkhead(4));
+        exporter.setExecutor(ExportExecutors.newBoundedExecutor(4, "csv-test-"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportMetrics metrics = exporter.export(rows.iterator(), out).await();
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(50001, lines.length);
+        for (int i = 0; i < 50000; i++) {
+            String expected = i + "," + (i % 1000 == 0 ? longValue : "r" + i) + ",";
+            assertEquals(expected, lines[i + 1]);
+        }
+        assertEquals(50000, metrics.getRowsWritten());
+    }
+
+    private static String export(List<Object[]> rows, DelimitedTextExporter.Format format, boolean bom)
+        throws Exception {
+        DelimitedTextExporter<Object[]> exporter = exporter(format);
+        exporter.setWriteBom(bom);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.export(rows, out).await();
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static DelimitedTextExporter<Object[]> exporter(DelimitedTextExporter.Format format) {
+        return new DelimitedTextExporter<>(new String[] {"列1", "列2", "列3"}, row -> row, format);
+    }
+}
@@ -0,0 +1,338 @@
+package org.example;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 磁盘临时存储
+ * 特点：
+ * 1. 临时目录可配置，不必占用容量较小的系统临时目录
+ * 2. SXSSF溢出的行数据默认gzip压缩，通常只有原大小的十分之一左右
+ * 3. 临时xlsx和SXSSF溢出文件都计入配额，空间不足时等待，超时失败
+ * 4. 临时数据块关闭即删除，JVM退出时删除作为最后保障
+ * 5. 可按共享字符串字典把字符串单元格写为共享字符串引用
+ * 6. 可指定临时xlsx的压缩级别，流式拼装时直接拷贝已压缩的Sheet数据
+ * SXSSFWorkbook.write 时POI自身生成的模板文件（不含行数据，很小）仍使用POI的TempFile目录
+ */
+public class DiskTempStorage implements TempStorage {
+    // 临时目录（系统属性）
+    public static final String TEMP_DIR_PROPERTY = "excel.export.tempDir";
+
+    // 节点级临时空间配额字节数，<=0 表示不限制（系统属性）
+    public static final String QUOTA_BYTES_PROPERTY = "excel.export.tempQuotaBytes";
+
+    // 配额不足时的最长等待毫秒数（系统属性）
+    public static final String QUOTA_WAIT_MILLIS_PROPERTY = "excel.export.tempQuotaWaitMillis";
+
+    // 是否压缩SXSSF溢出文件（系统属性）
+    public static final String COMPRESS_PROPERTY = "excel.export.compressTemp";
+
+    private static final long DEFAULT_QUOTA_WAIT_MILLIS = 30000L;
+
+    private static final String BLOB_SUFFIX = ".xlsx";
+
+    private static final String SPILL_PREFIX = "poi-sxssf-sheet";
+
+    private final Path directory;
+
+    private final TempQuota quota;
+
+    private final boolean compressSpill;
+
+    /**
+     * 构造函数
+     *
+     * @param directory 临时目录（不存在时创建）
+     * @param quota 配额（多个存储可共享同一配额）
+     * @param compressSpill 是否gzip压缩SXSSF溢出文件
+     */
+    public DiskTempStorage(Path directory, TempQuota quota, boolean compressSpill) {
+        this.directory = directory;
+        this.quota = quota != null ? quota : new TempQuota(0L, 0L);
+        this.compressSpill = compressSpill;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("创建临时目录失败: " + directory, ex);
+        }
+    }
+
+    /**
+     * 获取按系统属性配置的默认磁盘存储（进程内共享，配额为节点级）
+     *
+     * @return 默认磁盘存储
+     */
+    public static DiskTempStorage defaultStorage() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    @Override
+    public TempBlob create(String prefix) throws IOException {
+        File file = Files.createTempFile(directory, prefix, BLOB_SUFFIX).toFile();
+        // 注册JVM退出时删除临时文件（作为最后保障）
+        file.deleteOnExit();
+        return new FileBlob(file, quota.newReservation());
+    }
+
+    @Override
+    public TempBudget admit(long estimatedBytes) throws IOException {
+        return quota.reserveBudget(estimatedBytes);
+    }
+
+    @Override
+    public TempBudget tryAdmit(long estimatedBytes) {
+        return quota.tryReserveBudget(estimatedBytes);
+    }
+
+    @Override
+    public SXSSFWorkbook createWorkbook(int rowAccessWindowSize) {
+        return new SpillWorkbook(rowAccessWindowSize, null, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    @Override
+    public SXSSFWorkbook createWorkbook(int rowAccessWindowSize, SharedStringDictionary sharedStrings) {
+        return new SpillWorkbook(rowAccessWindowSize, sharedStrings, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    @Override
+    public SXSSFWorkbook createWorkbook(int rowAccessWindowSize, SharedStringDictionary sharedStrings,
+        int compressionLevel) {
+        return new SpillWorkbook(rowAccessWindowSize, sharedStrings, compressionLevel);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public TempQuota getQuota() {
+        return quota;
+    }
+
+    private static void deleteFile(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            // 如果删除失败，标记为JVM退出时删除
+            file.deleteOnExit();
+        }
+    }
+
+    private static class DefaultHolder {
+        private static final DiskTempStorage INSTANCE = new DiskTempStorage(
+            Paths.get(System.getProperty(TEMP_DIR_PROPERTY, System.getProperty("java.io.tmpdir"))),
+            new TempQuota(Long.getLong(QUOTA_BYTES_PROPERTY, 0L),
+                Long.getLong(QUOTA_WAIT_MILLIS_PROPERTY, DEFAULT_QUOTA_WAIT_MILLIS)),
+            Boolean.parseBoolean(System.getProperty(COMPRESS_PROPERTY, "true")));
+    }
+
+    /**
+     * 磁盘临时文件
+     */
+    private static class FileBlob implements TempBlob {
+        private final File file;
+
+        private final TempQuota.Reservation reservation;
+
+        private volatile boolean closed;
+
+        FileBlob(File file, TempQuota.Reservation reservation) {
+            this.file = file;
+            this.reservation = reservation;
+        }
+
+        @Override
+        public OutputStream openOutputStream() throws IOException {
+            return reservation.track(new FileOutputStream(file));
+        }
+
+        @Override
+        public InputStream openInputStream() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        @Override
+        public SeekableByteChannel openChannel() throws IOException {
+            return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+
+        @Override
+        public long size() {
+            return file.length();
+        }
+
+        @Override
+        public String getName() {
+            return file.getName();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            deleteFile(file);
+            reservation.releaseAll();
+        }
+    }
+
+    /**
+     * 行数据溢出到本存储目录的SXSSFWorkbook
+     */
+    private class SpillWorkbook extends SXSSFWorkbook {
+        private final List<TempQuota.Reservation> reservations = new CopyOnWriteArrayList<>();
+
+        private final List<File> spillFiles = new CopyOnWriteArrayList<>();
+
+        // 共享字符串字典，为null时字符串全部内联
+        private final SharedStringDictionary sharedStrings;
+
+        // write时zip条目的压缩级别
+        private final int compressionLevel;
+
+        SpillWorkbook(int rowAccessWindowSize, SharedStringDictionary sharedStrings, int compressionLevel) {
+            super(rowAccessWindowSize);
+            this.sharedStrings = sharedStrings;
+            this.compressionLevel = compressionLevel;
+        }
+
+        @Override
+        protected SheetDataWriter createSheetDataWriter() throws IOException {
+            return new SpillDataWriter();
+        }
+
+        @Override
+        protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream stream) {
+            ZipArchiveOutputStream zipOut = super.createArchiveOutputStream(stream);
+            zipOut.setLevel(compressionLevel);
+            return zipOut;
+        }
+
+        @Override
+        public boolean dispose() {
+            try {
+                return super.dispose();
+            } finally {
+                // 刷新剩余行失败时POI不会删除溢出文件，这里兜底删除
+                for (File file : spillFiles) {
+                    deleteFile(file);
+                }
+                spillFiles.clear();
+                for (TempQuota.Reservation reservation : reservations) {
+                    reservation.releaseAll();
+                }
+                reservations.clear();
+            }
+        }
+
+        /**
+         * 溢出文件写入器
+         * 注意：父类构造函数中就会调用下面的方法，因此这里只能使用外部类的字段
+         */
+        private class SpillDataWriter extends SheetDataWriter {
+            // 列索引 -> 列名（A、B...），按需填充
+            private String[] columnNames = new String[16];
+
+            // 当前写入的行号
+            private int currentRow;
+
+            SpillDataWriter() throws IOException {
+                super(_sharedStringSource);
+            }
+
+            @Override
+            public void writeRow(int rownum, SXSSFRow row) throws IOException {
+                currentRow = rownum;
+                super.writeRow(rownum, row);
+            }
+
+            @Override
+            public void writeCell(int columnIndex, Cell cell) throws IOException {
+                if (sharedStrings != null && cell != null && cell.getCellType() == CellType.STRING) {
+                    int stringIndex = sharedStrings.encode(currentRow, columnIndex, cell.getStringCellValue());
+                    if (stringIndex >= 0) {
+                        writeSharedStringCell(columnIndex, cell.getCellStyle(), stringIndex);
+                        return;
+                    }
+                }
+                super.writeCell(columnIndex, cell);
+            }
+
+            /**
+             * 写入共享字符串单元格：<c r="A1" s="1" t="s"><v>索引</v></c>
+             */
+            private void writeSharedStringCell(int columnIndex, CellStyle style, int stringIndex) throws IOException {
+                _out.write("<c r=\"");
+                _out.write(columnName(columnIndex));
+                _out.write(Integer.toString(currentRow + 1));
+                _out.write('"');
+                if (style != null && style.getIndex() != 0) {
+                    _out.write(" s=\"");
+                    _out.write(Integer.toString(style.getIndex() & 0xffff));
+                    _out.write('"');
+                }
+                _out.write(" t=\"s\"><v>");
+                _out.write(Integer.toString(stringIndex));
+                _out.write("</v></c>");
+            }
+
+            private String columnName(int columnIndex) {
+                if (columnIndex >= columnNames.length) {
+                    columnNames = Arrays.copyOf(columnNames, Math.max(columnIndex + 1, columnNames.length * 2));
+                }
+                String name = columnNames[columnIndex];
+                if (name == null) {
+                    name = CellReference.convertNumToColString(columnIndex);
+                    columnNames[columnIndex] = name;
+                }
+                return name;
+            }
+
+            @Override
+            @SuppressWarnings("deprecation")
+            public File createTempFile() throws IOException {
+                File file = Files.createTempFile(directory, SPILL_PREFIX, compressSpill ? ".xml.gz" : ".xml").toFile();
+                file.deleteOnExit();
+                spillFiles.add(file);
+                return file;
+            }
+
+            @Override
+            protected OutputStream decorateOutputStream(FileOutputStream fos) throws IOException {
+                TempQuota.Reservation reservation = quota.newReservation();
+                reservations.add(reservation);
+                OutputStream tracked = reservation.track(fos);
+                return compressSpill ? new GZIPOutputStream(tracked) : tracked;
+            }
+
+            @Override
+            protected InputStream decorateInputStream(FileInputStream fis) throws IOException {
+                return compressSpill ? new GZIPInputStream(fis) : fis;
+            }
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.ljn.demo.util;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 类型化列定义
+ * 特点：
+ * 1. 按列声明取值函数，数值列使用ToDoubleFunction/ToLongFunction，写入时不创建Object[]、不装箱
+ * 2. 导出前编译为按列的写入器，逐行写入时直接调用对应类型的setCellValue，不做instanceof判断
+ * 3. 测量列宽时直接由原始值计算宽度
+ * 4. 同一列定义也可按原始类型输出为文本（CSV/TSV导出）
+ * 示例：
+ * <pre>
+ * ExcelColumns&lt;Employee&gt; columns = new ExcelColumns&lt;Employee&gt;()
+ *     .longColumn("工号", Employee::getId)
+ *     .column("姓名", Employee::getName)
+ *     .numberColumn("薪资", Employee::getSalary)
+ *     .dateColumn("入职日期", Employee::getHireDate);
+ * </pre>
+ * 定义完成后只读，可在多个导出和线程间共享
+ *
+ * @param <T> 行数据类型
+ */
+public class ExcelColumns<T> {
+    private final List<ColumnWriter<T>> columns = new ArrayList<>();
+
+    /**
+     * 文本列（返回null时单元格留空）
+     *
+     * @param header 表头
+     * @param getter 取值函数
+     * @return 当前列定义
+     */
+    public ExcelColumns<T> column(String header, Function<T, String> getter) {
+        Objects.requireNonNull(getter, "取值函数不能为空");
+        return add(new ColumnWriter<T>(header, ColumnType.TEXT) {
+            @Override
+            int write(Cell cell, T data, boolean measure) {
+                String value = getter.apply(data);
+                if (value == null) {
+                    return 0;
+                }
+                cell.setCellValue(value);
+                return measure ? ColumnWidthEstimator.calculateWidth(value) : 0;
+            }
+
+            @Override
+            void writeText(TextSink sink, T data) {
+                sink.text(getter.apply(data));
+            }
+        });
+    }
+
+    /**
+     * 数值列（double）
+     *
+     * @param header 表头
+     * @param getter 取值函数
+     * @return 当前列定义
+     */
+    public ExcelColumns<T> numberColumn(String header, ToDoubleFunction<T> getter) {
+        Objects.requireNonNull(getter, "取值函数不能为空");
+        return add(new ColumnWriter<T>(header, ColumnType.NUMBER) {
+            @Override
+            int write(Cell cell, T data, boolean measure) {
+                double value = getter.applyAsDouble(data);
+                cell.setCellValue(value);
+                return measure ? ColumnWidthEstimator.calculateWidth(value) : 0;
+            }
+
+            @Override
+            void writeText(TextSink sink, T data) {
+                sink.number(getter.applyAsDouble(data));
+            }
+        });
+    }
+
+    /**
+     * 整数列（long，写入Excel时为数值）
+     *
+     * @param header 表头
+     * @param getter 取值函数
+     * @return 当前列定义
+     */
+    public ExcelColumns<T> longColumn(String header, ToLongFunction<T> getter) {
+        Objects.requireNonNull(getter, "取值函数不能为空");
+        return add(new ColumnWriter<T>(header, ColumnType.NUMBER) {
+            @Override
+            int write(Cell cell, T data, boolean measure) {
+                long value = getter.applyAsLong(data);
+                cell.setCellValue((double) value);
+                return measure ? ColumnWidthEstimator.calculateWidth(value) : 0;
+            }
+
+            @Override
+            void writeText(TextSink sink, T data) {
+                sink.number(getter.applyAsLong(data));
+            }
+        });
+    }
+
+    /**
+     * 布尔列
+     *
+     * @param header 表头
+     * @param getter 取值函数
+     * @return 当前列定义
+     */
+    public ExcelColumns<T> booleanColumn(String header, Predicate<T> getter) {
+        Objects.requireNonNull(getter, "取值函数不能为空");
+        return add(new ColumnWriter<T>(header, ColumnType.BOOLEAN) {
+            @Override
+            int write(Cell cell, T data, boolean measure) {
+                boolean value = getter.test(data);
+                cell.setCellValue(value);
+                return measure ? ColumnWidthEstimator.calculateWidth(value ? "TRUE" : "FALSE") : 0;
+            }
+
+            @Override
+            void writeText(TextSink sink, T data) {
+                sink.bool(getter.test(data));
+            }
+        });
+    }
+
+    /**
+     * 日期列（返回null时单元格留空，需配合日期格式样式显示）
+     *
+     * @param header 表头
+     * @param getter 取值函数
+     * @return 当前列定义
+     */
+    public ExcelColumns<T> dateColumn(String header, Function<T, Date> getter) {
+        Objects.requireNonNull(getter, "取值函数不能为空");
+        return add(new ColumnWriter<T>(header, ColumnType.DATE) {
+            @Override
+            int write(Cell cell, T data, boolean measure) {
+                Date value = getter.apply(data);
+                if (value == null) {
+                    return 0;
+                }
+                cell.setCellValue(value);
+                return measure ? ColumnWidthEstimator.calculateWidth(value) : 0;
+            }
+
+            @Override
+            void writeText(TextSink sink, T data) {
+                sink.date(getter.apply(data));
+            }
+        });
+    }
+
+    /**
+     * 任意类型列（按值的实际类型写入，有装箱和类型判断，用于兼容旧的取值方式）
+     *
+     * @param header 表头
+     * @param getter 取值函数
+     * @return 当前列定义
+     */
+    public ExcelColumns<T> valueColumn(String header, Function<T, ?> getter) {
+        Objects.requireNonNull(getter, "取值函数不能为空");
+        return add(new ColumnWriter<T>(header, ColumnType.VALUE) {
+            @Override
+            int write(Cell cell, T data, boolean measure) {
+                Object value = getter.apply(data);
+                setCellValue(cell, value);
+                return measure ? ColumnWidthEstimator.calculateWidth(value) : 0;
+            }
+
+            @Override
+            void writeText(TextSink sink, T data) {
+                sink.value(getter.apply(data));
+            }
+        });
+    }
+
+    /**
+     * 列数
+     *
+     * @return 列数
+     */
+    public int size() {
+        return columns.size();
+    }
+
+    /**
+     * 表头数组
+     *
+     * @return 表头
+     */
+    public String[] getHeaders() {
+        String[] headers = new String[columns.size()];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = columns.get(i).header;
+        }
+        return headers;
+    }
+
+    /**
+     * 列类型
+     *
+     * @param column 列索引
+     * @return 列类型
+     */
+    public ColumnType getType(int column) {
+        return columns.get(column).type;
+    }
+
+    /**
+     * 编译为行写入器（每次导出编译一次）
+     *
+     * @return 行写入器
+     */
+    public RowWriter<T> compile() {
+        if (columns.isEmpty()) {
+            throw new IllegalStateException("列定义不能为空");
+        }
+        // 列定义都按T声明，泛型数组只能以通配类型创建
+        @SuppressWarnings("unchecked")
+        ColumnWriter<T>[] writers = (ColumnWriter<T>[]) columns.toArray(new ColumnWriter<?>[0]);
+        return new RowWriter<>(writers);
+    }
+
+    /**
+     * 按值的实际类型写入单元格（null不写入）
+     *
+     * @param cell 单元格
+     * @param value 值
+     */
+    public static void setCellValue(Cell cell, Object value) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof String) {
+            cell.setCellValue((String) value);
+        } else if (value instanceof Number) {
+            cell.setCellValue(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            cell.setCellValue((Boolean) value);
+        } else if (value instanceof Date) {
+            cell.setCellValue((Date) value);
+        } else {
+            cell.setCellValue(value.toString());
+        }
+    }
+
+    private ExcelColumns<T> add(ColumnWriter<T> column) {
+        Objects.requireNonNull(column.header, "表头不能为空");
+        columns.add(column);
+        return this;
+    }
+
+    /**
+     * 列类型
+     */
+    public enum ColumnType {
+        // 文本
+        TEXT,
+        // 数值（double或long）
+        NUMBER,
+        // 布尔
+        BOOLEAN,
+        // 日期
+        DATE,
+        // 任意类型
+        VALUE
+    }
+
+    /**
+     * 单列写入器
+     */
+    private abstract static class ColumnWriter<T> {
+        private final String header;
+
+        private final ColumnType type;
+
+        ColumnWriter(String header, ColumnType type) {
+            this.header = header;
+            this.type = type;
+        }
+
+        /**
+         * 写入单元格
+         *
+         * @return measure为true时返回显示宽度，否则返回0
+         */
+        abstract int write(Cell cell, T data, boolean measure);
+
+        /**
+         * 按原始类型输出文本
+         */
+        abstract void writeText(TextSink sink, T data);
+    }
+
+    /**
+     * 文本输出：按列的原始类型接收值，由实现负责格式化和转义
+     */
+    public interface TextSink {
+        /**
+         * 文本值（可能为null）
+         */
+        void text(String value);
+
+        /**
+         * 整数值
+         */
+        void number(long value);
+
+        /**
+         * 小数值
+         */
+        void number(double value);
+
+        /**
+         * 布尔值
+         */
+        void bool(boolean value);
+
+        /**
+         * 日期值（可能为null）
+         */
+        void date(Date value);
+
+        /**
+         * 任意类型的值（可能为null）
+         */
+        void value(Object value);
+
+        /**
+         * 开始下一列
+         */
+        void nextColumn();
+    }
+
+    /**
+     * 行写入器：按列数组顺序写入一行
+     *
+     * @param <T> 行数据类型
+     */
+    public static class RowWriter<T> {
+        private final ColumnWriter<T>[] writers;
+
+        RowWriter(ColumnWriter<T>[] writers) {
+            this.writers = writers;
+        }
+
+        /**
+         * 列数
+         *
+         * @return 列数
+         */
+        public int size() {
+            return writers.length;
+        }
+
+        /**
+         * 写入一行
+         *
+         * @param row 行
+         * @param data 行数据
+         * @param columnStyles 按列的单元格样式，为null时不设置样式
+         * @param widthEstimator 列宽估算器，为null时不测量（调用方已调用startRow()且返回true时传入）
+         */
+        public void write(Row row, T data, CellStyle[] columnStyles, ColumnWidthEstimator widthEstimator) {
+            boolean measure = widthEstimator != null;
+            for (int j = 0; j < writers.length; j++) {
+                Cell cell = row.createCell(j);
+                int width = writers[j].write(cell, data, measure);
+                if (columnStyles != null) {
+                    cell.setCellStyle(columnStyles[j]);
+                }
+                if (measure) {
+                    widthEstimator.acceptWidth(j, width);
+                }
+            }
+        }
+
+        /**
+         * 按列顺序输出一行文本
+         *
+         * @param data 行数据
+         * @param sink 文本输出
+         */
+        public void writeText(T data, TextSink sink) {
+            for (int j = 0; j < writers.length; j++) {
+                if (j > 0) {
+                    sink.nextColumn();
+                }
+                writers[j].writeText(sink, data);
+            }
+        }
+    }
+}
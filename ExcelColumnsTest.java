@@ -0,0 +1,103 @@
+package com.ljn.demo.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * 类型化列定义测试
+ */
+public class ExcelColumnsTest {
+
+    @Test
+    public void writeRowTest() throws IOException {
+        Date now = new Date();
+        ExcelColumns<Object[]> columns = new ExcelColumns<Object[]>()
+            .longColumn("编号", row -> (Long) row[0])
+            .column("名称", row -> (String) row[1])
+            .numberColumn("金额", row -> (Double) row[2])
+            .booleanColumn("有效", row -> (Boolean) row[3])
+            .dateColumn("日期", row -> (Date) row[4]);
+        assertArrayEquals(new String[] {"编号", "名称", "金额", "有效", "日期"}, columns.getHeaders());
+        assertEquals(ExcelColumns.ColumnType.DATE, columns.getType(4));
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Row row = workbook.createSheet().createRow(0);
+            ColumnWidthEstimator estimator = new ColumnWidthEstimator(5);
+            estimator.startRow();
+            columns.compile().write(row, new Object[] {12345L, null, 1.5D, true, now}, null, estimator);
+
+            assertEquals(12345D, row.getCell(0).getNumericCellValue(), 0D);
+            assertEquals(CellType.BLANK, row.getCell(1).getCellType());
+            assertEquals(1.5D, row.getCell(2).getNumericCellValue(), 0D);
+            assertEquals(true, row.getCell(3).getBooleanCellValue());
+            assertEquals(now, row.getCell(4).getDateCellValue());
+            assertEquals(ColumnWidthEstimator.calculateWidth("12345") + 256, estimator.getColumnWidth(0));
+        }
+    }
+
+    @Test
+    public void primitiveWidthTest() {
+        // 与装箱后toString的宽度一致
+        assertEquals(ColumnWidthEstimator.calculateWidth("0"), ColumnWidthEstimator.calculateWidth(0L));
+        assertEquals(ColumnWidthEstimator.calculateWidth("-9876"), ColumnWidthEstimator.calculateWidth(-9876L));
+        assertEquals(ColumnWidthEstimator.calculateWidth(String.valueOf(Long.MIN_VALUE)),
+            ColumnWidthEstimator.calculateWidth(Long.MIN_VALUE));
+        assertEquals(ColumnWidthEstimator.calculateWidth("2.5"), ColumnWidthEstimator.calculateWidth(2.5D));
+    }
+
+    @Test
+    public void writeTextTest() {
+        ExcelColumns<Object[]> columns = new ExcelColumns<Object[]>()
+            .longColumn("编号", row -> (Long) row[0])
+            .column("名称", row -> (String) row[1])
+            .numberColumn("金额", row -> (Double) row[2])
+            .booleanColumn("有效", row -> (Boolean) row[3]);
+        StringBuilder text = new StringBuilder();
+        columns.compile().writeText(new Object[] {7L, null, 0.5D, false}, new ExcelColumns.TextSink() {
+            @Override
+            public void text(String value) {
+                text.append("s:").append(value);
+            }
+
+            @Override
+            public void number(long value) {
+                text.append("l:").append(value);
+            }
+
+            @Override
+            public void number(double value) {
+                text.append("d:").append(value);
+            }
+
+            @Override
+            public void bool(boolean value) {
+                text.append("b:").append(value);
+            }
+
+            @Override
+            public void date(Date value) {
+                text.append("t:").append(value);
+            }
+
+            @Override
+            public void value(Object value) {
+                text.append("v:").append(value);
+            }
+
+            @Override
+            public void nextColumn() {
+                text.append('|');
+            }
+        });
+        // 按列的原始类型回调，不经过装箱
+        assertEquals("l:7|s:null|d:0.5|b:false", text.toString());
+    }
+}
@@ -0,0 +1,281 @@
+package org.example;
+
+import com.ljn.demo.util.ExcelColumns;
+import com.ljn.demo.util.MultiLevelHeaderExcelHelper;
+import com.ljn.demo.util.TitleDTO;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Excel导出基准测试（JMH）
+ * 覆盖 PoiMultiThreadExcelExporter、MultiLevelHeaderExcelExporter、MultiLevelHeaderExcelExporter2
+ * 和 MultiLevelHeaderExcelHelper，参数为行数、列数、表头层级、线程数和每个Sheet的数据量；
+ * 每个导出器只展开它用到的参数
+ * 报告：
+ * 1. 主结果为每秒导出次数，rows为每秒导出行数
+ * 2. GC profiler报告分配速率（gc.alloc.rate）和每次导出的分配量（gc.alloc.rate.norm）
+ * 3. PeakRssProfiler报告每轮迭代的峰值RSS（rss.peak）
+ * 编译时需要 jmh-generator-annprocess 注解处理器生成基准代码
+ * 运行：java -cp ... org.example.ExcelExportBenchmark [JMH参数，如 -p rowCount=100000 -p threads=4 -f 2]
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExcelExportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+            .parent(new CommandLineOptions(args))
+            .include(ExcelExportBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .addProfiler(PeakRssProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+
+    @Benchmark
+    public long poiMultiThread(DataState data, ExporterState exporter, RowCounter counter) throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        exporter.mapped.export(data.rows, out, exporter.sheetSize).await();
+        counter.rows += data.rows.size();
+        return out.count;
+    }
+
+    @Benchmark
+    public long poiMultiThreadTyped(DataState data, ExporterState exporter, RowCounter counter) throws Exception {
+        CountingOutputStream out = new CountingOutputStream();
+        exporter.typed.export(data.rows, out, exporter.sheetSize).await();
+        counter.rows += data.rows.size();
+        return out.count;
+    }
+
+    @Benchmark
+    public int multiLevelHeader(DataState data, HeaderState header, RowCounter counter) throws IOException {
+        byte[] bytes = new MultiLevelHeaderExcelExporter().exportExcel(header.titleVos, data.rowLists, "基准");
+        counter.rows += data.rows.size();
+        return bytes.length;
+    }
+
+    @Benchmark
+    public int multiLevelHeader2(DataState data, HeaderState header, RowCounter counter) throws IOException {
+        byte[] bytes = new MultiLevelHeaderExcelExporter2().exportExcel(header.titleVos, data.rowLists, "基准");
+        counter.rows += data.rows.size();
+        return bytes.length;
+    }
+
+    @Benchmark
+    public long multiLevelHeaderHelper(DataState data, HeaderState header, RowCounter counter) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        SXSSFWorkbook workbook = new SXSSFWorkbook(1000);
+        try {
+            Sheet sheet = workbook.createSheet("基准");
+            MultiLevelHeaderExcelHelper helper = new MultiLevelHeaderExcelHelper(header.titleDtos);
+            helper.createHeader(sheet);
+            helper.fillData(sheet, data.rows, data.columns);
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        counter.rows += data.rows.size();
+        return out.count;
+    }
+
+    /**
+     * 测试数据：按 PoiMultiThreadExcelExporterDemo 的员工数据生成，列数超过6时按相同类型循环扩展
+     */
+    @State(Scope.Benchmark)
+    public static class DataState {
+        // 基础列：ID、姓名、年龄、邮箱、部门、入职日期
+        private static final String[] BASE_HEADERS = {"ID", "姓名", "年龄", "邮箱", "部门", "入职日期"};
+
+        private static final String[] DEPARTMENTS = {"技术部", "市场部", "财务部", "人力资源部", "运营部"};
+
+        @Param({"10000", "100000"})
+        public int rowCount;
+
+        @Param({"6", "20"})
+        public int columnCount;
+
+        String[] headers;
+
+        List<Object[]> rows;
+
+        // 多级表头导出器使用的行数据
+        List<List<Object>> rowLists;
+
+        ExcelColumns<Object[]> columns;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            headers = new String[columnCount];
+            columns = new ExcelColumns<>();
+            for (int j = 0; j < columnCount; j++) {
+                int base = j % BASE_HEADERS.length;
+                headers[j] = BASE_HEADERS[base] + (j < BASE_HEADERS.length ? "" : "_" + j / BASE_HEADERS.length);
+                int column = j;
+                if (base == 0 || base == 2) {
+                    columns.longColumn(headers[j], row -> ((Number) row[column]).longValue());
+                } else if (base == 5) {
+                    columns.dateColumn(headers[j], row -> (Date) row[column]);
+                } else {
+                    columns.column(headers[j], row -> (String) row[column]);
+                }
+            }
+            long now = System.currentTimeMillis();
+            rows = new ArrayList<>(rowCount);
+            rowLists = new ArrayList<>(rowCount);
+            for (int i = 0; i < rowCount; i++) {
+                Object[] row = new Object[columnCount];
+                for (int j = 0; j < columnCount; j++) {
+                    row[j] = cellValue(j % BASE_HEADERS.length, i, now);
+                }
+                rows.add(row);
+                rowLists.add(Arrays.asList(row));
+            }
+        }
+
+        private static Object cellValue(int base, int i, long now) {
+            switch (base) {
+                case 0:
+                    return i + 10000L;
+                case 1:
+                    return "员工" + (i + 1);
+                case 2:
+                    return 22 + (i % 30);
+                case 3:
+                    return "emp" + (i + 1) + "@company.com";
+                case 4:
+                    return DEPARTMENTS[i % DEPARTMENTS.length];
+                default:
+                    return new Date(now - i * 86400000L * 30);
+            }
+        }
+    }
+
+    /**
+     * 多级表头：最低层级为数据列，上层每两个节点合并为一个分组
+     */
+    @State(Scope.Benchmark)
+    public static class HeaderState {
+        @Param({"1", "3"})
+        public int headerDepth;
+
+        List<TitleVO> titleVos;
+
+        List<TitleDTO> titleDtos;
+
+        @Setup(Level.Trial)
+        public void setup(DataState data) {
+            List<TitleVO> vos = new ArrayList<>();
+            List<TitleDTO> dtos = new ArrayList<>();
+            for (String header : data.headers) {
+                vos.add(titleVo(header, null));
+                dtos.add(new TitleDTO(header, header));
+            }
+            for (int level = 1; level < headerDepth; level++) {
+                List<TitleVO> parentVos = new ArrayList<>();
+                List<TitleDTO> parentDtos = new ArrayList<>();
+                for (int i = 0; i < vos.size(); i += 2) {
+                    int end = Math.min(i + 2, vos.size());
+                    String name = "分组" + level + "_" + i / 2;
+                    parentVos.add(titleVo(name, new ArrayList<>(vos.subList(i, end))));
+                    parentDtos.add(new TitleDTO(name, new ArrayList<>(dtos.subList(i, end))));
+                }
+                vos = parentVos;
+                dtos = parentDtos;
+            }
+            titleVos = vos;
+            titleDtos = dtos;
+        }
+
+        private static TitleVO titleVo(String name, List<TitleVO> children) {
+            TitleVO title = new TitleVO();
+            title.setTitleName(name);
+            title.setChildren(children);
+            return title;
+        }
+    }
+
+    /**
+     * 多Sheet导出器：sheetSize为0时自动分Sheet
+     */
+    @State(Scope.Benchmark)
+    public static class ExporterState {
+        @Param({"1", "4"})
+        public int threads;
+
+        @Param({"10000", "0"})
+        public int sheetSize;
+
+        PoiMultiThreadExcelExporter<Object[]> mapped;
+
+        PoiMultiThreadExcelExporter<Object[]> typed;
+
+        @Setup(Level.Trial)
+        public void setup(DataState data) {
+            mapped = new PoiMultiThreadExcelExporter<>(data.headers, row -> row, "基准", threads, null, null);
+            typed = new PoiMultiThreadExcelExporter<>(data.columns, "基准", threads, null, null);
+        }
+    }
+
+    /**
+     * 导出行数计数，按吞吐量报告为每秒行数
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RowCounter {
+        public long rows;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rows = 0;
+        }
+    }
+
+    /**
+     * 只统计字节数的输出流，避免磁盘写入影响结果
+     */
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
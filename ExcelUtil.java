@@ -32,6 +32,8 @@ import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.text.DecimalFormat;
@@ -63,6 +65,13 @@ public class ExcelUtil {
 
     private static final short DEFAULT_ROW_HEIGHT = 255; // 默认行高：12.75磅（255二十分之一磅）
 
+    private static final long DEFAULT_TEMPLATE_CACHE_BYTES = 32L * 1024 * 1024; // 模板缓存默认容量：32MB
+
+    /**
+     * 生成好的模板文件缓存（同一标题行和样式的模板内容不变，命中时不再经过POI）
+     */
+    private static final TemplateCache TEMPLATE_CACHE = new TemplateCache(DEFAULT_TEMPLATE_CACHE_BYTES);
+
     /**
      * 前1行为模板固定内容
      */
@@ -81,12 +90,10 @@ public class ExcelUtil {
             throw new IllegalArgumentException("titleNameList is null.");
         }
 
-        // 处理合并单元格
+        // 处理合并单元格（一次性校验后批量注册）
         List<CellRangeAddress> cellRangeAddressList = excelMultiHeadVO.getCellRangeAddressList();
         if (CollectionUtils.isNotEmpty(cellRangeAddressList)) {
-            for (CellRangeAddress cellAddresses : cellRangeAddressList) {
-                sheet.addMergedRegion(cellAddresses);
-            }
+            MergedRegions.addAll(sheet, cellRangeAddressList);
         }
 
         CellStyle headerStyle = workbook.createCellStyle();
@@ -139,6 +146,25 @@ public class ExcelUtil {
         }
     }
 
+    /**
+     * excel数据写入（类型化列定义，数值列按数值写入且不装箱）
+     *
+     * @param sheet sheet
+     * @param rows 行数据集(行有序)
+     * @param columns 列定义
+     * @param skipRowNum 跳过的行号
+     * @param <T> 行数据类型
+     */
+    public static <T> void writeRowData(Sheet sheet, List<T> rows, ExcelColumns<T> columns, int skipRowNum) {
+        if (CollectionUtils.isEmpty(rows)) {
+            return;
+        }
+        ExcelColumns.RowWriter<T> rowWriter = columns.compile();
+        for (int i = 0; i < rows.size(); i++) {
+            rowWriter.write(sheet.createRow(i + skipRowNum), rows.get(i), null, null);
+        }
+    }
+
     @Getter
     @Setter
     @Builder
@@ -162,20 +188,14 @@ public class ExcelUtil {
      */
     public static void exportExcelTemplate(HttpServletResponse response, String fileName, List<String> headers,
         Map<String, TitleStyle> headerStyles) {
-        XSSFWorkbook workbook = null;
         ServletOutputStream out = null;
         try {
-            workbook = new XSSFWorkbook();
-            XSSFSheet sheet = workbook.createSheet(SHEET1);
-            XSSFRow headerRow = sheet.createRow(0);
-            XSSFCellStyle stringCellStyle = workbook.createCellStyle();
-            stringCellStyle.setDataFormat(workbook.createDataFormat().getFormat("@"));
-            // 标题行初始化
-            int[] headerLen = initExcelHeaders(headers, headerStyles, headerRow, workbook);
-            // 可选：自动调整列宽
-            for (int i = 0; i < headers.size(); i++) {
-                sheet.setColumnWidth(i, headerLen[i]);
-                sheet.setDefaultColumnStyle(i, stringCellStyle); // 设置默认'单元格格式'为<文本>
+            // 模板内容只与标题行和样式有关，按缓存键复用生成好的xlsx
+            String cacheKey = templateCacheKey(headers, headerStyles);
+            byte[] content = TEMPLATE_CACHE.get(cacheKey);
+            if (content == null) {
+                content = createExcelTemplate(headers, headerStyles);
+                TEMPLATE_CACHE.put(cacheKey, content);
             }
 
             // 文件写出
@@ -184,15 +204,65 @@ public class ExcelUtil {
             response.setHeader("Content-Disposition",
                 "attachment; filename=" + URLEncoder.encode(fileName + ".xlsx", StandardCharsets.UTF_8.toString()));
             response.setCharacterEncoding("utf-8");
+            response.setContentLength(content.length);
             out = response.getOutputStream();
-            workbook.write(out);
+            out.write(content);
             out.flush();
         } catch (Exception ex) {
             log.error("ExcelUtil.exportExcelTemplate isErr, ex=", ex);
             throw new IllegalArgumentException("exportExcelTemplate isErr");
         } finally {
-            FileUtil.closeQuietly(workbook, out);
+            FileUtil.closeQuietly(out);
+        }
+    }
+
+    /**
+     * 模板文件缓存（可调整容量、清空或查看命中情况）
+     *
+     * @return 模板文件缓存
+     */
+    public static TemplateCache getTemplateCache() {
+        return TEMPLATE_CACHE;
+    }
+
+    /**
+     * 生成EXCEL模板文件内容(动态标题行)
+     */
+    private static byte[] createExcelTemplate(List<String> headers, Map<String, TitleStyle> headerStyles)
+        throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            XSSFSheet sheet = workbook.createSheet(SHEET1);
+            XSSFRow headerRow = sheet.createRow(0);
+            XSSFCellStyle stringCellStyle = workbook.createCellStyle();
+            stringCellStyle.setDataFormat(workbook.createDataFormat().getFormat("@"));
+            // 标题行初始化
+            int[] headerLen = initExcelHeaders(headers, headerStyles, headerRow, workbook);
+            // 可选：自动调整列宽
+            for (int i = 0; i < headers.size(); i++) {
+                sheet.setColumnWidth(i, headerLen[i]);
+                sheet.setDefaultColumnStyle(i, stringCellStyle); // 设置默认'单元格格式'为<文本>
+            }
+            workbook.write(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * 模板缓存键：按顺序拼接标题和标题对应style的全部属性（TitleStyle可修改，不能直接作为键）
+     */
+    private static String templateCacheKey(List<String> headers, Map<String, TitleStyle> headerStyles) {
+        StringBuilder key = new StringBuilder();
+        for (String header : headers) {
+            key.append(header == null ? "\u0000" : header).append('\u0001');
+            TitleStyle style = headerStyles != null ? headerStyles.get(header) : null;
+            if (headerStyles != null && headerStyles.containsKey(header)) {
+                key.append(style == null ? "-" : style.isHasStar() + "," + style.getFontColor() + ","
+                    + style.getBackgroundColor() + "," + style.isBold());
+            }
+            key.append('\u0002');
         }
+        return key.toString();
     }
 
     private static int[] initExcelHeaders(List<String> headers, Map<String, TitleStyle> headerStyles, XSSFRow headerRow,
@@ -217,7 +287,7 @@ public class ExcelUtil {
             }
             cell.setCellValue(richText);
             // 计算列宽
-            headerLen[i] = calculateColumnWidth(cellValue);
+            headerLen[i] = ColumnWidthEstimator.calculateWidth(cellValue);
 
             if (headerStyles != null && headerStyles.containsKey(header)) {
                 TitleStyle style = headerStyles.get(header);
@@ -244,23 +314,6 @@ public class ExcelUtil {
         return headerLen;
     }
 
-    private static int calculateColumnWidth(String text) {
-        int width = 0;
-        for (char c : text.toCharArray()) {
-            if (isChinese(c)) {
-                width += 2 * 256; // POI使用的是1/256个字符宽度作为单位, 2是系数
-            } else {
-                width += 1 * 256;
-            }
-        }
-        return Math.min(width + 128, 65535); // 128 为缓冲，65535 为最大列宽
-    }
-
-    // 判断是否是中文字符
-    private static boolean isChinese(char c) {
-        return c >= '\u4e00' && c <= '\u9fa5';
-    }
-
     /**
      * 给excel列限制下拉属性，不允许输入
      *
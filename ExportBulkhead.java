@@ -0,0 +1,66 @@
+package org.example;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 导出舱壁：限制同时运行的Sheet写入任务数
+ * 全局实例在进程内所有导出请求间共享，避免并发请求叠加导致线程、内存和临时文件失控
+ */
+public class ExportBulkhead {
+    // 全局最大Sheet写入任务数（系统属性）
+    public static final String MAX_SHEET_WORKERS_PROPERTY = "excel.export.maxSheetWorkers";
+
+    // 默认最大Sheet写入任务数
+    private static final int DEFAULT_MAX_SHEET_WORKERS = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+
+    private static final ExportBulkhead GLOBAL = new ExportBulkhead(
+        Integer.getInteger(MAX_SHEET_WORKERS_PROPERTY, DEFAULT_MAX_SHEET_WORKERS));
+
+    private final int maxSheetWorkers;
+
+    private final Semaphore permits;
+
+    /**
+     * 构造函数
+     *
+     * @param maxSheetWorkers 最大同时运行的Sheet写入任务数
+     */
+    public ExportBulkhead(int maxSheetWorkers) {
+        this.maxSheetWorkers = Math.max(1, maxSheetWorkers);
+        // 公平模式，先到的导出请求先获得许可
+        this.permits = new Semaphore(this.maxSheetWorkers, true);
+    }
+
+    /**
+     * 获取全局舱壁
+     *
+     * @return 全局舱壁
+     */
+    public static ExportBulkhead global() {
+        return GLOBAL;
+    }
+
+    /**
+     * 获取许可，没有空闲许可时阻塞
+     *
+     * @throws InterruptedException 等待时被中断
+     */
+    public void acquire() throws InterruptedException {
+        permits.acquire();
+    }
+
+    /**
+     * 归还许可
+     */
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxSheetWorkers() {
+        return maxSheetWorkers;
+    }
+
+    public int getAvailableSheetWorkers() {
+        return permits.availablePermits();
+    }
+}
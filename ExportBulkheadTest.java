@@ -0,0 +1,130 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 导出舱壁和导出线程池测试
+ */
+public class ExportBulkheadTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void concurrentExportsTest() throws Exception {
+        ExportBulkhead bulkhead = new ExportBulkhead(3);
+        // 线程池比舱壁大，同时运行的Sheet写入任务数只受舱壁限制
+        ExecutorService executor = ExportExecutors.newBoundedExecutor(8, "bulkhead-test-");
+        AtomicInteger mapping = new AtomicInteger();
+        AtomicInteger maxMapping = new AtomicInteger();
+        try {
+            List<ExportHandle> handles = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                // 每次导出各自4个线程，合计超过舱壁上限
+                PoiMultiThreadExcelExporter<Integer> exporter = new PoiMultiThreadExcelExporter<>(
+                    new String[] {"序号"}, value -> {
+                        // 每个写入任务同一时刻只映射一行，同时在映射中的行数即同时运行的任务数的下限
+                        maxMapping.accumulateAndGet(mapping.incrementAndGet(), Math::max);
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                        mapping.decrementAndGet();
+                        return new Object[] {value};
+                    }, "Sheet", 4, null, null);
+                exporter.setBulkhead(bulkhead);
+                exporter.setExecutor(executor);
+                handles.add(exporter.export(PoiMultiThreadExcelExporterTest.numbers(2000),
+                    folder.newFile("concurrent" + i + ".xlsx").getPath(), 250));
+            }
+            for (ExportHandle handle : handles) {
+                handle.await(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue("同时运行的写入任务数: " + maxMapping.get(), maxMapping.get() <= 3);
+        assertTrue("并发导出应占满舱壁: " + maxMapping.get(), maxMapping.get() >= 2);
+        assertEquals(3, bulkhead.getAvailableSheetWorkers());
+    }
+
+    @Test
+    public void releaseAfterFailureTest() throws Exception {
+        ExportBulkhead bulkhead = new ExportBulkhead(2);
+        PoiMultiThreadExcelExporter<Integer> failing = new PoiMultiThreadExcelExporter<>(new String[] {"序号"},
+            value -> {
+                if (value == 1500) {
+                    throw new IllegalStateException("映射失败");
+                }
+                return new Object[] {value};
+            }, "Sheet", 4, null, null);
+        failing.setBulkhead(bulkhead);
+        // 失败次数超过许可数，许可泄漏时后续导出会一直等待
+        for (int i = 0; i < 5; i++) {
+            try {
+                failing.export(PoiMultiThreadExcelExporterTest.numbers(4000),
+                    new File(folder.getRoot(), "failed" + i + ".xlsx").getPath(), 500).await(30, TimeUnit.SECONDS);
+                fail("映射异常应传递给调用方");
+            } catch (IllegalStateException ex) {
+                assertEquals("映射失败", ex.getMessage());
+            }
+            assertEquals(2, bulkhead.getAvailableSheetWorkers());
+        }
+
+        PoiMultiThreadExcelExporter<Integer> exporter = PoiMultiThreadExcelExporterTest.exporter();
+        exporter.setBulkhead(bulkhead);
+        exporter.export(PoiMultiThreadExcelExporterTest.numbers(4000), folder.newFile("ok.xlsx").getPath(), 500)
+            .await(30, TimeUnit.SECONDS);
+        assertEquals(2, bulkhead.getAvailableSheetWorkers());
+    }
+
+    @Test
+    public void boundedExecutorTest() throws Exception {
+        ExecutorService executor = ExportExecutors.newBoundedExecutor(2, "bounded-test-");
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(6);
+        List<Thread> threads = new ArrayList<>();
+        try {
+            // 超出线程数的任务排队等待，不会被拒绝
+            for (int i = 0; i < 6; i++) {
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    synchronized (threads) {
+                        threads.add(Thread.currentThread());
+                    }
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+                    running.decrementAndGet();
+                    finished.countDown();
+                });
+            }
+            assertTrue(finished.await(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, maxRunning.get());
+        for (Thread thread : threads) {
+            assertTrue(thread.getName().startsWith("bounded-test-"));
+            assertTrue(thread.isDaemon());
+        }
+
+        // 线程数不足1时按1个线程创建
+        ExecutorService single = ExportExecutors.newBoundedExecutor(0, "bounded-test-");
+        try {
+            assertEquals(1, single.submit(() -> 1).get().intValue());
+        } finally {
+            single.shutdownNow();
+        }
+    }
+}
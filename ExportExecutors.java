@@ -0,0 +1,143 @@
+package org.example;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Excel导出线程池
+ * 特点：
+ * 1. 进程内共享一个固定线程数的线程池，多次导出不再各自创建线程池，空闲线程自动回收
+ * 2. 提供虚拟线程执行器（JDK 21+），适合以临时文件读写为主的Sheet写入阶段
+ * 3. 排队任务数由ExportBulkhead限制，线程池本身不拒绝任务
+ * 4. 导出的协调线程（拆分数据、按顺序写出Sheet）使用单独的线程池，避免与Sheet写入任务互相等待
+ */
+public class ExportExecutors {
+    // 共享线程池线程数（系统属性）
+    public static final String THREADS_PROPERTY = "excel.export.threads";
+
+    // 默认线程数
+    private static final int DEFAULT_THREADS = Math.min(Runtime.getRuntime().availableProcessors() + 1, 10);
+
+    // 空闲线程存活时间
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private ExportExecutors() {
+    }
+
+    /**
+     * 获取共享线程池
+     *
+     * @return 共享线程池
+     */
+    public static ExecutorService shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * 获取虚拟线程执行器，JDK不支持虚拟线程时退回共享线程池
+     *
+     * @return 虚拟线程执行器
+     */
+    public static ExecutorService virtualThreads() {
+        return VirtualHolder.INSTANCE != null ? VirtualHolder.INSTANCE : shared();
+    }
+
+    /**
+     * 当前JDK是否支持虚拟线程
+     *
+     * @return 是否支持
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VirtualHolder.INSTANCE != null;
+    }
+
+    /**
+     * 获取导出协调线程池（每个进行中的导出占用一个线程，大部分时间在等待Sheet写入任务）
+     *
+     * @return 协调线程池
+     */
+    public static ExecutorService coordinator() {
+        return CoordinatorHolder.INSTANCE;
+    }
+
+    /**
+     * 获取导出截止时间等定时任务使用的调度器
+     *
+     * @return 调度器
+     */
+    public static ScheduledExecutorService scheduler() {
+        return SchedulerHolder.INSTANCE;
+    }
+
+    /**
+     * 创建固定线程数的导出线程池（守护线程，空闲时回收）
+     *
+     * @param threads 线程数
+     * @param namePrefix 线程名前缀
+     * @return 线程池
+     */
+    public static ExecutorService newBoundedExecutor(int threads, String namePrefix) {
+        int poolSize = Math.max(1, threads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, KEEP_ALIVE_SECONDS,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<>(), daemonThreadFactory(namePrefix));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory daemonThreadFactory(String namePrefix) {
+        return new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, namePrefix + counter.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private static class SharedHolder {
+        private static final ExecutorService INSTANCE = newBoundedExecutor(
+            Integer.getInteger(THREADS_PROPERTY, DEFAULT_THREADS), "excel-export-thread-");
+    }
+
+    private static class CoordinatorHolder {
+        private static final ExecutorService INSTANCE = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(),
+            daemonThreadFactory("excel-export-coordinator-"));
+    }
+
+    private static class SchedulerHolder {
+        private static final ScheduledExecutorService INSTANCE = createScheduler();
+
+        private static ScheduledExecutorService createScheduler() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1,
+                daemonThreadFactory("excel-export-scheduler-"));
+            // 导出提前结束时取消的定时任务立即移出队列
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+
+    private static class VirtualHolder {
+        private static final ExecutorService INSTANCE = createVirtualThreadExecutor();
+
+        // 通过反射创建，兼容JDK 21以下的编译和运行环境
+        private static ExecutorService createVirtualThreadExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException ex) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package org.example;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 导出句柄
+ * 导出在后台线程中执行，通过句柄等待结果、取消导出或设置截止时间：
+ * 1. cancel() 中断正在执行的Sheet写入任务，写入线程每写一批行检查一次，退出后立即释放SXSSF和临时文件
+ * 2. 超过截止时间按取消处理，await() 抛出 TimeoutException
+ * 3. 导出失败时 await() 抛出原始异常，不再吞掉异常
+ */
+public class ExportHandle {
+    private final ExportMetrics metrics;
+
+    private final long timeoutMillis;
+
+    private final CompletableFuture<ExportMetrics> result = new CompletableFuture<>();
+
+    // 在途的工作任务，取消时一并中断
+    private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+
+    // 取消原因，非空表示已取消
+    private volatile Exception cancelCause;
+
+    // 执行导出的协调线程
+    private Thread coordinator;
+
+    private ScheduledFuture<?> deadlineTimer;
+
+    ExportHandle(ExportMetrics metrics, long timeoutMillis) {
+        this.metrics = metrics;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 取消导出
+     *
+     * @return 是否成功取消（导出已结束时返回false）
+     */
+    public boolean cancel() {
+        return cancel(new CancellationException("导出已取消"));
+    }
+
+    /**
+     * 是否已取消（包括超过截止时间）
+     *
+     * @return 是否已取消
+     */
+    public boolean isCancelled() {
+        return cancelCause != null;
+    }
+
+    /**
+     * 导出是否已结束（成功、失败或取消，且资源已释放）
+     *
+     * @return 是否已结束
+     */
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * 获取导出指标（导出过程中可随时读取）
+     *
+     * @return 导出指标
+     */
+    public ExportMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 等待导出结束
+     *
+     * @return 导出指标
+     * @throws Exception 导出失败的原始异常；取消时为 CancellationException，超时为 TimeoutException
+     */
+    public ExportMetrics await() throws Exception {
+        try {
+            return result.get();
+        } catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        }
+    }
+
+    /**
+     * 在指定时间内等待导出结束，等待超时不会取消导出
+     *
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 导出指标
+     * @throws Exception 导出失败的原始异常，或等待超时的 TimeoutException
+     */
+    public ExportMetrics await(long timeout, TimeUnit unit) throws Exception {
+        try {
+            return result.get(timeout, unit);
+        } catch (ExecutionException ex) {
+            throw rethrow(ex.getCause());
+        }
+    }
+
+    /**
+     * 在协调线程中执行导出，超过截止时间自动取消
+     */
+    void start(Executor coordinatorExecutor, Task task) {
+        if (timeoutMillis > 0) {
+            deadlineTimer = ExportExecutors.scheduler().schedule(
+                () -> cancel(new TimeoutException("导出超过截止时间: " + timeoutMillis + "ms")),
+                timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        try {
+            coordinatorExecutor.execute(() -> run(task));
+        } catch (RuntimeException ex) {
+            finish(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * 检查是否已取消，写入线程每写一批行调用一次
+     * 当前任务被单独取消（如同一导出的其他Sheet失败）时线程被中断，同样停止写入
+     *
+     * @throws CancellationException 已取消、超过截止时间或当前线程被中断
+     */
+    void checkpoint() {
+        Exception cause = cancelCause;
+        if (cause != null) {
+            throw new CancellationException(cause.getMessage());
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("导出任务被中断");
+        }
+    }
+
+    /**
+     * 登记工作任务，已取消时立即取消该任务
+     */
+    void track(Future<?> task) {
+        tasks.add(task);
+        if (cancelCause != null) {
+            task.cancel(true);
+        }
+    }
+
+    void untrack(Future<?> task) {
+        tasks.remove(task);
+    }
+
+    /**
+     * 转换导出异常：已取消时统一为取消原因，并去掉任务执行异常的包装
+     */
+    Exception translate(Throwable ex) {
+        Exception cause = cancelCause;
+        if (cause != null) {
+            return cause;
+        }
+        Throwable current = ex;
+        while ((current instanceof ExecutionException || current instanceof CompletionException)
+            && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current instanceof Exception ? (Exception) current : new ExecutionException(current);
+    }
+
+    private boolean cancel(Exception cause) {
+        synchronized (this) {
+            if (result.isDone() || cancelCause != null) {
+                return false;
+            }
+            cancelCause = cause;
+            if (coordinator != null) {
+                coordinator.interrupt();
+            }
+        }
+        for (Future<?> task : tasks) {
+            task.cancel(true);
+        }
+        return true;
+    }
+
+    private void run(Task task) {
+        synchronized (this) {
+            coordinator = Thread.currentThread();
+        }
+        Throwable failure = null;
+        try {
+            checkpoint();
+            task.run();
+        } catch (Throwable ex) {
+            failure = ex;
+        } finally {
+            synchronized (this) {
+                coordinator = null;
+            }
+            // 清除取消时设置的中断标记，避免影响线程池中的下一个任务
+            Thread.interrupted();
+        }
+        finish(failure);
+    }
+
+    private void finish(Throwable failure) {
+        if (deadlineTimer != null) {
+            deadlineTimer.cancel(false);
+        }
+        if (failure == null) {
+            result.complete(metrics);
+        } else if (failure instanceof Error) {
+            result.completeExceptionally(failure);
+        } else {
+            result.completeExceptionally(translate(failure));
+        }
+    }
+
+    private static Exception rethrow(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return (Exception) cause;
+    }
+
+    /**
+     * 导出任务
+     */
+    interface Task {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,44 @@
+package org.example;
+
+/**
+ * 导出进度监听器
+ * 回调可能来自多个Sheet写入线程，实现需要线程安全且尽量轻量
+ */
+public interface ExportListener {
+    // 不做任何处理的监听器
+    ExportListener NONE = new ExportListener() {
+    };
+
+    /**
+     * 进度更新（每写入一批行回调一次）
+     *
+     * @param metrics 当前导出指标
+     */
+    default void onProgress(ExportMetrics metrics) {
+    }
+
+    /**
+     * 单个Sheet写入完成
+     *
+     * @param sheetMetrics Sheet指标
+     */
+    default void onSheetCompleted(ExportMetrics.SheetMetrics sheetMetrics) {
+    }
+
+    /**
+     * 导出完成
+     *
+     * @param metrics 导出指标
+     */
+    default void onCompleted(ExportMetrics metrics) {
+    }
+
+    /**
+     * 导出失败
+     *
+     * @param metrics 失败时的导出指标
+     * @param cause 失败原因
+     */
+    default void onFailed(ExportMetrics metrics, Throwable cause) {
+    }
+}
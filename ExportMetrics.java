@@ -0,0 +1,236 @@
+package org.example;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 导出指标
+ * 按阶段累计耗时（多个Sheet并行时为各线程耗时之和），并记录写入行数、临时文件字节数和进度；
+ * 可在导出过程中由多个线程并发更新和读取
+ */
+public class ExportMetrics {
+    private final Map<Phase, LongAdder> phaseNanos = new EnumMap<>(Phase.class);
+
+    private final LongAdder rowsWritten = new LongAdder();
+
+    private final LongAdder tempBytesWritten = new LongAdder();
+
+    private final AtomicInteger sheetsCompleted = new AtomicInteger();
+
+    // 总行数，-1 表示未知（流式数据源）
+    private final long totalRows;
+
+    private final long startNanos = System.nanoTime();
+
+    private volatile long endNanos;
+
+    /**
+     * 构造函数
+     *
+     * @param totalRows 总行数，未知时传 -1
+     */
+    public ExportMetrics(long totalRows) {
+        this.totalRows = totalRows;
+        for (Phase phase : Phase.values()) {
+            phaseNanos.put(phase, new LongAdder());
+        }
+    }
+
+    void addPhaseNanos(Phase phase, long nanos) {
+        phaseNanos.get(phase).add(nanos);
+    }
+
+    void addRows(long rows) {
+        rowsWritten.add(rows);
+    }
+
+    void addTempBytes(long bytes) {
+        tempBytesWritten.add(bytes);
+    }
+
+    void sheetCompleted() {
+        sheetsCompleted.incrementAndGet();
+    }
+
+    void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    /**
+     * 获取阶段累计耗时（毫秒）
+     *
+     * @param phase 阶段
+     * @return 耗时
+     */
+    public long getPhaseMillis(Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(phaseNanos.get(phase).sum());
+    }
+
+    /**
+     * 获取耗时最多的阶段
+     *
+     * @return 阶段
+     */
+    public Phase getHotPhase() {
+        Phase hotPhase = Phase.WRITE;
+        long maxNanos = -1;
+        for (Map.Entry<Phase, LongAdder> entry : phaseNanos.entrySet()) {
+            long nanos = entry.getValue().sum();
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+                hotPhase = entry.getKey();
+            }
+        }
+        return hotPhase;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.sum();
+    }
+
+    public long getTempBytesWritten() {
+        return tempBytesWritten.sum();
+    }
+
+    public int getSheetsCompleted() {
+        return sheetsCompleted.get();
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * 获取导出耗时（毫秒），未结束时为已用时间
+     *
+     * @return 耗时
+     */
+    public long getElapsedMillis() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * 获取整体写入速度（行/秒）
+     *
+     * @return 行/秒
+     */
+    public long getRowsPerSecond() {
+        return perSecond(getRowsWritten(), Math.max(1L, getElapsedMillis()));
+    }
+
+    /**
+     * 获取进度百分比，总行数未知时返回 -1，导出结束后为 100
+     *
+     * @return 进度百分比
+     */
+    public int getProgressPercent() {
+        if (endNanos != 0) {
+            return 100;
+        }
+        if (totalRows <= 0) {
+            return -1;
+        }
+        // 行写完后还有合并阶段，未结束前最多到 99
+        return (int) Math.min(99L, getRowsWritten() * 100L / totalRows);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ExportMetrics{rows=").append(getRowsWritten())
+            .append(", sheets=").append(getSheetsCompleted())
+            .append(", tempBytes=").append(getTempBytesWritten())
+            .append(", elapsedMs=").append(getElapsedMillis())
+            .append(", rowsPerSecond=").append(getRowsPerSecond());
+        for (Phase phase : Phase.values()) {
+            builder.append(", ").append(phase).append("Ms=").append(getPhaseMillis(phase));
+        }
+        return builder.append('}').toString();
+    }
+
+    private static long perSecond(long count, long millis) {
+        return count * 1000L / millis;
+    }
+
+    /**
+     * 导出阶段
+     */
+    public enum Phase {
+        // Sheet任务等待许可和执行线程的时间
+        QUEUE_WAIT,
+        // Sheet写入线程等待数据源（流式数据源的读取线程）的时间
+        READ,
+        // dataMapper 数据映射
+        MAP,
+        // 创建行和单元格（包含SXSSF超出窗口时把行刷到磁盘）
+        WRITE,
+        // 列宽计算
+        COLUMN_WIDTH,
+        // 把Sheet写成xlsx（临时文件或字节数组）
+        FLUSH,
+        // 把各Sheet合并写入最终文件
+        MERGE
+    }
+
+    /**
+     * 单个Sheet的指标
+     */
+    public static class SheetMetrics {
+        private final int sheetIndex;
+
+        private final String workerName;
+
+        private final long rows;
+
+        private final long writeNanos;
+
+        private final long tempBytes;
+
+        SheetMetrics(int sheetIndex, String workerName, long rows, long writeNanos, long tempBytes) {
+            this.sheetIndex = sheetIndex;
+            this.workerName = workerName;
+            this.rows = rows;
+            this.writeNanos = writeNanos;
+            this.tempBytes = tempBytes;
+        }
+
+        public int getSheetIndex() {
+            return sheetIndex;
+        }
+
+        public String getWorkerName() {
+            return workerName;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getWriteMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(writeNanos);
+        }
+
+        public long getTempBytes() {
+            return tempBytes;
+        }
+
+        /**
+         * 获取该Sheet写入线程的速度（行/秒，不含等待数据的时间）
+         *
+         * @return 行/秒
+         */
+        public long getRowsPerSecond() {
+            return perSecond(rows, Math.max(1L, getWriteMillis()));
+        }
+
+        @Override
+        public String toString() {
+            return "SheetMetrics{sheetIndex=" + sheetIndex + ", worker=" + workerName + ", rows=" + rows
+                + ", writeMs=" + getWriteMillis() + ", rowsPerSecond=" + getRowsPerSecond() + ", tempBytes="
+                + tempBytes + '}';
+        }
+    }
+}
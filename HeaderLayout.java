@@ -0,0 +1,481 @@
+package com.ljn.demo.util;
+
+import com.alibaba.fastjson.TypeReference;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 编译后的多级表头布局（不可变，可在线程间共享）
+ * 特点：
+ * 1. 一次深度优先遍历算出表头层级、最低层级列顺序、每个标题单元格的位置和合并区域、字段到列索引的映射
+ * 2. 按表头树的结构哈希缓存（标题、字段和层级结构都相同才复用），同一报表重复导出时不再重新计算
+ * 3. 表头JSON按原文缓存解析结果，命中时不再解析
+ * 4. 与具体的标题类无关，通过取值函数适配 TitleDTO、TitleVO 等树形标题
+ * 5. writeTo 把表头写入Sheet，不修改布局也不使用静态可变状态，多个线程可以用同一布局并发写各自的Sheet
+ * 缓存无锁读取，超过上限时淘汰任意条目；标题对象在编译后被修改时，下次获取会按新结构重新编译
+ */
+public class HeaderLayout {
+    // 缓存的最多布局数
+    private static final int MAX_CACHE_ENTRIES = 256;
+
+    private static final HeaderLayout EMPTY = new HeaderLayout(0, 0, new ArrayList<>(), new int[0]);
+
+    // 结构哈希 -> 布局
+    private static final Map<Long, HeaderLayout> LAYOUT_CACHE = new ConcurrentHashMap<>();
+
+    // 表头JSON -> 布局
+    private static final Map<String, HeaderLayout> JSON_CACHE = new ConcurrentHashMap<>();
+
+    // 表头行数（最大层级）
+    private final int depth;
+
+    // 总列数（最低层级标题数）
+    private final int columnCount;
+
+    // 全部标题单元格（先序，父标题在子标题之前，同级按声明顺序）
+    private final List<HeaderCell> cells;
+
+    // 需要合并的标题单元格
+    private final List<HeaderCell> mergedCells;
+
+    // 最低层级标题（按列顺序）
+    private final List<HeaderCell> columns;
+
+    // 字段名 -> 列索引（字段重复时取第一列）
+    private final Map<String, Integer> fieldIndex;
+
+    // 先序下每个标题的子标题数，用于校验缓存的布局与标题树一致
+    private final int[] childCounts;
+
+    private HeaderLayout(int depth, int columnCount, List<HeaderCell> cells, int[] childCounts) {
+        this.depth = depth;
+        this.columnCount = columnCount;
+        this.cells = Collections.unmodifiableList(cells);
+        this.childCounts = childCounts;
+        List<HeaderCell> merged = new ArrayList<>();
+        List<HeaderCell> leaves = new ArrayList<>(columnCount);
+        Map<String, Integer> fields = new HashMap<>(columnCount * 2);
+        for (HeaderCell cell : cells) {
+            if (cell.isMerged()) {
+                merged.add(cell);
+            }
+            if (cell.leaf) {
+                leaves.add(cell);
+                if (cell.field != null) {
+                    fields.putIfAbsent(cell.field, cell.firstColumn);
+                }
+            }
+        }
+        this.mergedCells = Collections.unmodifiableList(merged);
+        this.columns = Collections.unmodifiableList(leaves);
+        this.fieldIndex = Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * 获取TitleDTO表头的布局（命中缓存时不重新编译）
+     *
+     * @param titles 第一层标题
+     * @return 表头布局
+     */
+    public static HeaderLayout of(List<TitleDTO> titles) {
+        return of(titles, TitleDTO::getTitle, TitleDTO::getField, TitleDTO::getChildren);
+    }
+
+    /**
+     * 获取任意树形标题的布局（命中缓存时不重新编译）
+     *
+     * @param titles 第一层标题
+     * @param titleGetter 标题显示名称
+     * @param fieldGetter 字段名（没有字段时返回null）
+     * @param childrenGetter 子标题（为null或空时是最低层级标题）
+     * @param <N> 标题类型
+     * @return 表头布局
+     */
+    public static <N> HeaderLayout of(List<N> titles, Function<N, String> titleGetter,
+        Function<N, String> fieldGetter, Function<N, List<N>> childrenGetter) {
+        if (titles == null || titles.isEmpty()) {
+            return EMPTY;
+        }
+        long hash = structuralHash(titles, titleGetter, fieldGetter, childrenGetter);
+        HeaderLayout cached = LAYOUT_CACHE.get(hash);
+        if (cached != null && cached.matches(titles, titleGetter, fieldGetter, childrenGetter)) {
+            return cached;
+        }
+        HeaderLayout layout = compile(titles, titleGetter, fieldGetter, childrenGetter);
+        cache(LAYOUT_CACHE, hash, layout);
+        return layout;
+    }
+
+    /**
+     * 获取TitleVO表头的布局
+     *
+     * @param titles 第一层标题
+     * @return 表头布局
+     */
+    public static HeaderLayout ofTitleVO(List<TitleVO> titles) {
+        return of(titles, TitleVO::getTitle, TitleVO::getField, TitleVO::getChildren);
+    }
+
+    /**
+     * 解析表头JSON（TitleDTO数组）并获取布局，相同JSON只解析一次
+     *
+     * @param json 表头JSON
+     * @return 表头布局
+     */
+    public static HeaderLayout fromJson(String json) {
+        Objects.requireNonNull(json, "表头JSON不能为空");
+        HeaderLayout cached = JSON_CACHE.get(json);
+        if (cached != null) {
+            return cached;
+        }
+        HeaderLayout layout = of(JsonUtils.convert(json, new TitleDTOListType()));
+        cache(JSON_CACHE, json, layout);
+        return layout;
+    }
+
+    /**
+     * 把表头写入Sheet：写入标题单元格，批量注册合并区域，按需为合并单元格加框线
+     * 只读取布局，多个线程可以同时向各自的Sheet写入
+     *
+     * @param sheet 工作表
+     * @param rowOffset 表头起始行
+     * @param style 标题单元格样式
+     * @param border 是否为合并单元格的四周单元格设置样式（样式带边框时即为加框线）
+     * @return 表头之后的第一行行索引
+     */
+    public int writeTo(Sheet sheet, int rowOffset, CellStyle style, boolean border) {
+        for (HeaderCell headerCell : cells) {
+            int rowIndex = headerCell.firstRow + rowOffset;
+            Row row = sheet.getRow(rowIndex);
+            if (row == null) {
+                row = sheet.createRow(rowIndex);
+            }
+            Cell cell = row.createCell(headerCell.firstColumn);
+            cell.setCellValue(headerCell.title);
+            cell.setCellStyle(style);
+        }
+
+        // 布局内的合并区域互不重叠，一次性注册
+        List<CellRangeAddress> regions = MergedRegions.addAll(sheet, this, rowOffset);
+        if (border) {
+            MergedRegions.styleBorders(sheet, regions, style);
+        }
+        return rowOffset + depth;
+    }
+
+    /**
+     * 表头行数（最大层级）
+     *
+     * @return 表头行数
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 总列数
+     *
+     * @return 最低层级标题数
+     */
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    /**
+     * 全部标题单元格（父标题在子标题之前）
+     *
+     * @return 标题单元格
+     */
+    public List<HeaderCell> getCells() {
+        return cells;
+    }
+
+    /**
+     * 需要合并的标题单元格（行跨度或列跨度大于1）
+     *
+     * @return 标题单元格
+     */
+    public List<HeaderCell> getMergedCells() {
+        return mergedCells;
+    }
+
+    /**
+     * 最低层级标题，按列顺序
+     *
+     * @return 标题单元格
+     */
+    public List<HeaderCell> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 最低层级标题的显示名称，按列顺序
+     *
+     * @return 标题数组（新数组）
+     */
+    public String[] getColumnTitles() {
+        String[] titles = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            titles[i] = columns.get(i).title;
+        }
+        return titles;
+    }
+
+    /**
+     * 字段对应的列索引
+     *
+     * @param field 字段名
+     * @return 列索引，字段重复时返回第一列，不存在时返回-1
+     */
+    public int getColumnIndex(String field) {
+        Integer index = fieldIndex.get(field);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * 一次先序遍历编译布局：进入标题时记录起始列，最低层级标题占一列；
+     * 结束后按逆序由最后一个子标题得到父标题的结束列，并按最大层级补齐最低层级标题的行跨度
+     */
+    private static <N> HeaderLayout compile(List<N> titles, Function<N, String> titleGetter,
+        Function<N, String> fieldGetter, Function<N, List<N>> childrenGetter) {
+        List<String> titleNames = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        List<int[]> positions = new ArrayList<>();
+        Deque<PendingTitle<N>> stack = new ArrayDeque<>();
+        for (int i = titles.size() - 1; i >= 0; i--) {
+            stack.push(new PendingTitle<>(titles.get(i), 0, -1));
+        }
+
+        int depth = 0;
+        int column = 0;
+        while (!stack.isEmpty()) {
+            PendingTitle<N> pending = stack.pop();
+            N title = pending.title;
+            int index = positions.size();
+            List<N> children = childrenGetter.apply(title);
+            int childCount = children == null ? 0 : children.size();
+            titleNames.add(titleGetter.apply(title));
+            fields.add(fieldGetter.apply(title));
+            // 行, 起始列, 子标题数, 最后一个子标题的索引
+            positions.add(new int[] {pending.row, childCount == 0 ? column++ : column, childCount, -1});
+            if (pending.parent >= 0) {
+                // 同级按声明顺序出栈，最后一次赋值即最后一个子标题
+                positions.get(pending.parent)[3] = index;
+            }
+            depth = Math.max(depth, pending.row + 1);
+            for (int i = childCount - 1; i >= 0; i--) {
+                stack.push(new PendingTitle<>(children.get(i), pending.row + 1, index));
+            }
+        }
+
+        int size = positions.size();
+        int[] lastColumns = new int[size];
+        int[] childCounts = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            int[] position = positions.get(i);
+            childCounts[i] = position[2];
+            lastColumns[i] = position[2] == 0 ? position[1] : lastColumns[position[3]];
+        }
+        List<HeaderCell> cells = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int[] position = positions.get(i);
+            boolean leaf = position[2] == 0;
+            cells.add(new HeaderCell(titleNames.get(i), fields.get(i), position[0], leaf ? depth - 1 : position[0],
+                position[1], lastColumns[i], leaf));
+        }
+        return new HeaderLayout(depth, column, cells, childCounts);
+    }
+
+    /**
+     * 放入缓存，超过上限时先淘汰任意条目（无锁，并发时可能短暂超过上限）
+     */
+    private static <K> void cache(Map<K, HeaderLayout> cache, K key, HeaderLayout layout) {
+        if (cache.size() >= MAX_CACHE_ENTRIES) {
+            Iterator<K> keys = cache.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        cache.put(key, layout);
+    }
+
+    /**
+     * 表头树的结构哈希（标题、字段和子标题数按先序参与计算）
+     */
+    private static <N> long structuralHash(List<N> titles, Function<N, String> titleGetter,
+        Function<N, String> fieldGetter, Function<N, List<N>> childrenGetter) {
+        long hash = titles.size();
+        Deque<N> stack = new ArrayDeque<>();
+        for (int i = titles.size() - 1; i >= 0; i--) {
+            stack.push(titles.get(i));
+        }
+        while (!stack.isEmpty()) {
+            N title = stack.pop();
+            List<N> children = childrenGetter.apply(title);
+            int childCount = children == null ? 0 : children.size();
+            hash = hash * 31 + Objects.hashCode(titleGetter.apply(title));
+            hash = hash * 31 + Objects.hashCode(fieldGetter.apply(title));
+            hash = hash * 31 + childCount;
+            for (int i = childCount - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * 校验布局与标题树一致（排除哈希冲突）
+     */
+    private <N> boolean matches(List<N> titles, Function<N, String> titleGetter, Function<N, String> fieldGetter,
+        Function<N, List<N>> childrenGetter) {
+        Deque<N> stack = new ArrayDeque<>();
+        for (int i = titles.size() - 1; i >= 0; i--) {
+            stack.push(titles.get(i));
+        }
+        int index = 0;
+        while (!stack.isEmpty()) {
+            N title = stack.pop();
+            if (index >= cells.size()) {
+                return false;
+            }
+            HeaderCell cell = cells.get(index);
+            List<N> children = childrenGetter.apply(title);
+            int childCount = children == null ? 0 : children.size();
+            if (childCount != childCounts[index] || !Objects.equals(cell.title, titleGetter.apply(title))
+                || !Objects.equals(cell.field, fieldGetter.apply(title))) {
+                return false;
+            }
+            for (int i = childCount - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+            index++;
+        }
+        return index == cells.size() && cellsAtRootLevel(titles.size());
+    }
+
+    private boolean cellsAtRootLevel(int rootCount) {
+        int roots = 0;
+        for (HeaderCell cell : cells) {
+            if (cell.firstRow == 0) {
+                roots++;
+            }
+        }
+        return roots == rootCount;
+    }
+
+    /**
+     * 表头单元格（行列索引从0开始）
+     */
+    public static class HeaderCell {
+        private final String title;
+
+        private final String field;
+
+        private final int firstRow;
+
+        private final int lastRow;
+
+        private final int firstColumn;
+
+        private final int lastColumn;
+
+        private final boolean leaf;
+
+        HeaderCell(String title, String field, int firstRow, int lastRow, int firstColumn, int lastColumn,
+            boolean leaf) {
+            this.title = title;
+            this.field = field;
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+            this.leaf = leaf;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public int getFirstRow() {
+            return firstRow;
+        }
+
+        public int getLastRow() {
+            return lastRow;
+        }
+
+        public int getFirstColumn() {
+            return firstColumn;
+        }
+
+        public int getLastColumn() {
+            return lastColumn;
+        }
+
+        /**
+         * 是否最低层级标题（占一列）
+         *
+         * @return 是否最低层级
+         */
+        public boolean isLeaf() {
+            return leaf;
+        }
+
+        /**
+         * 是否需要合并（行跨度或列跨度大于1）
+         *
+         * @return 是否合并
+         */
+        public boolean isMerged() {
+            return lastRow > firstRow || lastColumn > firstColumn;
+        }
+
+        @Override
+        public String toString() {
+            return "HeaderCell{" + title + ", rows=" + firstRow + "-" + lastRow + ", columns=" + firstColumn + "-"
+                + lastColumn + "}";
+        }
+    }
+
+    /**
+     * 待处理的标题（先序遍历用）
+     */
+    private static class PendingTitle<N> {
+        final N title;
+
+        final int row;
+
+        // 父标题在先序中的索引，-1 表示第一层
+        final int parent;
+
+        PendingTitle(N title, int row, int parent) {
+            this.title = title;
+            this.row = row;
+            this.parent = parent;
+        }
+    }
+
+    private static class TitleDTOListType extends TypeReference<List<TitleDTO>> {
+    }
+}
@@ -0,0 +1,129 @@
+package com.ljn.demo.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 表头布局编译和缓存测试
+ */
+public class HeaderLayoutTest {
+
+    @Test
+    public void compileTest() {
+        // 基本信息(姓名, 联系方式(电话, 邮箱)), 部门
+        List<TitleDTO> titles = titles();
+        HeaderLayout layout = HeaderLayout.of(titles);
+        assertEquals(3, layout.getDepth());
+        assertEquals(4, layout.getColumnCount());
+        assertArrayEquals(new String[] {"姓名", "电话", "邮箱", "部门"}, layout.getColumnTitles());
+        assertEquals(2, layout.getColumnIndex("email"));
+        assertEquals(-1, layout.getColumnIndex("none"));
+
+        // 标题单元格：父标题在子标题之前，同级按声明顺序
+        assertCell(layout.getCells().get(0), "基本信息", 0, 0, 0, 2);
+        assertCell(layout.getCells().get(1), "姓名", 1, 2, 0, 0);
+        assertCell(layout.getCells().get(2), "联系方式", 1, 1, 1, 2);
+        assertCell(layout.getCells().get(3), "电话", 2, 2, 1, 1);
+        assertCell(layout.getCells().get(4), "邮箱", 2, 2, 2, 2);
+        assertCell(layout.getCells().get(5), "部门", 0, 2, 3, 3);
+
+        // 电话、邮箱不需要合并
+        assertEquals(4, layout.getMergedCells().size());
+        assertFalse(layout.getCells().get(3).isMerged());
+    }
+
+    @Test
+    public void cacheTest() {
+        HeaderLayout layout = HeaderLayout.of(titles());
+        // 结构相同的另一棵标题树复用同一布局
+        assertSame(layout, HeaderLayout.of(titles()));
+
+        // 标题修改后重新编译
+        List<TitleDTO> changed = titles();
+        changed.get(1).setTitle("所属部门");
+        HeaderLayout changedLayout = HeaderLayout.of(changed);
+        assertNotSame(layout, changedLayout);
+        assertEquals("所属部门", changedLayout.getColumnTitles()[3]);
+    }
+
+    @Test
+    public void jsonTest() {
+        String json = "[{\"title\":\"基本信息\",\"children\":[{\"title\":\"姓名\",\"field\":\"name\"},"
+            + "{\"title\":\"年龄\",\"field\":\"age\"}]},{\"title\":\"部门\",\"field\":\"dept\"}]";
+        HeaderLayout layout = HeaderLayout.fromJson(json);
+        assertSame(layout, HeaderLayout.fromJson(json));
+        assertEquals(2, layout.getDepth());
+        assertEquals(1, layout.getColumnIndex("age"));
+        assertTrue(HeaderLayout.of(new ArrayList<>()).getCells().isEmpty());
+    }
+
+    @Test
+    public void concurrentWriteTest() throws Exception {
+        // 多个线程用同一布局并发写各自的Sheet
+        HeaderLayout layout = HeaderLayout.of(titles());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> {
+                    try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+                        Sheet sheet = workbook.createSheet();
+                        assertEquals(3, layout.writeTo(sheet, 0, workbook.createCellStyle(), true));
+                        assertEquals("邮箱", sheet.getRow(2).getCell(2).getStringCellValue());
+                        return sheet.getNumMergedRegions();
+                    }
+                }));
+            }
+            for (Future<Integer> future : futures) {
+                assertEquals(4, (int) future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void titleVoTest() {
+        TitleVO leaf = new TitleVO();
+        leaf.setTitle("姓名");
+        leaf.setField("name");
+        TitleVO group = new TitleVO();
+        group.setTitle("基本信息");
+        group.setChildren(Arrays.asList(leaf));
+        HeaderLayout layout = HeaderLayout.ofTitleVO(Arrays.asList(group));
+        assertEquals(2, layout.getDepth());
+        assertEquals(0, layout.getColumnIndex("name"));
+    }
+
+    private static List<TitleDTO> titles() {
+        TitleDTO contact = new TitleDTO("联系方式",
+            new ArrayList<>(Arrays.asList(new TitleDTO("电话", "phone"), new TitleDTO("邮箱", "email"))));
+        TitleDTO basic = new TitleDTO("基本信息",
+            new ArrayList<>(Arrays.asList(new TitleDTO("姓名", "name"), contact)));
+        return new ArrayList<>(Arrays.asList(basic, new TitleDTO("部门", "dept")));
+    }
+
+    private static void assertCell(HeaderLayout.HeaderCell cell, String title, int firstRow, int lastRow,
+        int firstColumn, int lastColumn) {
+        assertEquals(title, cell.getTitle());
+        assertEquals(firstRow, cell.getFirstRow());
+        assertEquals(lastRow, cell.getLastRow());
+        assertEquals(firstColumn, cell.getFirstColumn());
+        assertEquals(lastColumn, cell.getLastColumn());
+    }
+}
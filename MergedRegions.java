@@ -0,0 +1,148 @@
+package com.ljn.demo.util;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 合并区域批量处理工具类
+ * 特点：
+ * 1. sheet.addMergedRegion 每次都与已有的全部合并区域比较，宽表头下为O(n²)；
+ *    这里一次性校验全部区域（按行记录已占用的列），再用 addMergedRegionUnsafe 注册
+ * 2. 由表头布局生成的区域按树结构天然不重叠，Sheet上没有其他合并区域时不再逐个校验
+ * 3. 合并区域的边框样式按行一次设置，每个单元格只创建和设置一次
+ */
+public class MergedRegions {
+    /**
+     * 表头布局的合并区域
+     *
+     * @param layout 表头布局
+     * @param rowOffset 表头起始行
+     * @return 合并区域
+     */
+    public static List<CellRangeAddress> of(HeaderLayout layout, int rowOffset) {
+        List<CellRangeAddress> regions = new ArrayList<>(layout.getMergedCells().size());
+        for (HeaderLayout.HeaderCell cell : layout.getMergedCells()) {
+            regions.add(new CellRangeAddress(cell.getFirstRow() + rowOffset, cell.getLastRow() + rowOffset,
+                cell.getFirstColumn(), cell.getLastColumn()));
+        }
+        return regions;
+    }
+
+    /**
+     * 注册表头布局的合并区域（布局内的区域互不重叠，只在Sheet已有合并区域时校验）
+     *
+     * @param sheet 工作表
+     * @param layout 表头布局
+     * @param rowOffset 表头起始行
+     * @return 注册的合并区域
+     */
+    public static List<CellRangeAddress> addAll(Sheet sheet, HeaderLayout layout, int rowOffset) {
+        List<CellRangeAddress> regions = of(layout, rowOffset);
+        if (sheet.getNumMergedRegions() > 0) {
+            validate(sheet, regions);
+        }
+        for (CellRangeAddress region : regions) {
+            sheet.addMergedRegionUnsafe(region);
+        }
+        return regions;
+    }
+
+    /**
+     * 批量注册合并区域（一次性校验后注册）
+     *
+     * @param sheet 工作表
+     * @param regions 合并区域
+     * @throws IllegalArgumentException 区域少于2个单元格
+     * @throws IllegalStateException 区域之间或与Sheet已有合并区域重叠
+     */
+    public static void addAll(Sheet sheet, Collection<CellRangeAddress> regions) {
+        validate(sheet, regions);
+        for (CellRangeAddress region : regions) {
+            sheet.addMergedRegionUnsafe(region);
+        }
+    }
+
+    /**
+     * 校验合并区域：至少2个单元格，且互不重叠、不与Sheet已有合并区域重叠
+     *
+     * @param sheet 工作表
+     * @param regions 合并区域
+     */
+    public static void validate(Sheet sheet, Collection<CellRangeAddress> regions) {
+        // 行 -> 已占用的列
+        Map<Integer, BitSet> occupied = new TreeMap<>();
+        for (CellRangeAddress existing : sheet.getMergedRegions()) {
+            mark(occupied, existing);
+        }
+        for (CellRangeAddress region : regions) {
+            if (region.getNumberOfCells() < 2) {
+                throw new IllegalArgumentException("合并区域至少包含2个单元格: " + region.formatAsString());
+            }
+            for (int row = region.getFirstRow(); row <= region.getLastRow(); row++) {
+                BitSet columns = occupied.get(row);
+                if (columns == null) {
+                    continue;
+                }
+                int hit = columns.nextSetBit(region.getFirstColumn());
+                if (hit >= 0 && hit <= region.getLastColumn()) {
+                    throw new IllegalStateException("合并区域 " + region.formatAsString() + " 与其他合并区域重叠");
+                }
+            }
+            mark(occupied, region);
+        }
+    }
+
+    /**
+     * 为合并区域的四周单元格设置样式（带边框的样式即为合并单元格加框线），按行一次设置
+     *
+     * @param sheet 工作表
+     * @param regions 合并区域
+     * @param style 单元格样式
+     */
+    public static void styleBorders(Sheet sheet, Collection<CellRangeAddress> regions, CellStyle style) {
+        // 行 -> 需要设置样式的列
+        Map<Integer, BitSet> borderCells = new TreeMap<>();
+        for (CellRangeAddress region : regions) {
+            for (int row = region.getFirstRow(); row <= region.getLastRow(); row++) {
+                BitSet columns = borderCells.computeIfAbsent(row, key -> new BitSet());
+                if (row == region.getFirstRow() || row == region.getLastRow()) {
+                    columns.set(region.getFirstColumn(), region.getLastColumn() + 1);
+                } else {
+                    columns.set(region.getFirstColumn());
+                    columns.set(region.getLastColumn());
+                }
+            }
+        }
+        for (Map.Entry<Integer, BitSet> entry : borderCells.entrySet()) {
+            Row row = sheet.getRow(entry.getKey());
+            if (row == null) {
+                row = sheet.createRow(entry.getKey());
+            }
+            BitSet columns = entry.getValue();
+            for (int col = columns.nextSetBit(0); col >= 0; col = columns.nextSetBit(col + 1)) {
+                Cell cell = row.getCell(col);
+                if (cell == null) {
+                    cell = row.createCell(col);
+                }
+                cell.setCellStyle(style);
+            }
+        }
+    }
+
+    private static void mark(Map<Integer, BitSet> occupied, CellRangeAddress region) {
+        for (int row = region.getFirstRow(); row <= region.getLastRow(); row++) {
+            occupied.computeIfAbsent(row, key -> new BitSet()).set(region.getFirstColumn(),
+                region.getLastColumn() + 1);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.ljn.demo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 合并区域批量处理测试
+ */
+public class MergedRegionsTest {
+
+    @Test
+    public void addAllTest() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            MergedRegions.addAll(sheet, Arrays.asList(CellRangeAddress.valueOf("A1:C1"),
+                CellRangeAddress.valueOf("D1:D3"), CellRangeAddress.valueOf("A2:B3")));
+            assertEquals(3, sheet.getNumMergedRegions());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void overlapTest() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            sheet.addMergedRegion(CellRangeAddress.valueOf("C1:C3"));
+            MergedRegions.addAll(sheet, Arrays.asList(CellRangeAddress.valueOf("A1:B1"),
+                CellRangeAddress.valueOf("A2:C2")));
+        }
+    }
+
+    @Test
+    public void styleBordersTest() throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet();
+            CellStyle style = workbook.createCellStyle();
+            MergedRegions.styleBorders(sheet, Arrays.asList(CellRangeAddress.valueOf("A1:C3")), style);
+            // 四周的单元格设置样式，中间的单元格不创建
+            assertEquals(style, sheet.getRow(0).getCell(1).getCellStyle());
+            assertEquals(style, sheet.getRow(1).getCell(2).getCellStyle());
+            assertNotNull(sheet.getRow(2).getCell(1));
+            assertNull(sheet.getRow(1).getCell(1));
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package org.example;
 
+import com.ljn.demo.util.ColumnWidthEstimator;
+import com.ljn.demo.util.MergedRegions;
+
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.example.TitleVO;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -14,6 +22,36 @@ import java.util.List;
  */
 public class MultiLevelHeaderExcelExporter {
 
+    // 导出进度监听器
+    private ExportListener listener = ExportListener.NONE;
+
+    // 每写入多少行汇总一次指标并回调进度
+    private static final int PROGRESS_INTERVAL_ROWS = 1000;
+
+    // 输出流模式下SXSSF内存中保留的数据行数
+    private int rowAccessWindowSize = 1000;
+
+    /**
+     * 设置导出进度监听器（回调阶段耗时和进度）
+     *
+     * @param listener 监听器
+     */
+    public void setListener(ExportListener listener) {
+        this.listener = listener != null ? listener : ExportListener.NONE;
+    }
+
+    /**
+     * 设置输出流模式下SXSSF内存中保留的数据行数（表头行不计入）
+     *
+     * @param rowAccessWindowSize 行数
+     */
+    public void setRowAccessWindowSize(int rowAccessWindowSize) {
+        if (rowAccessWindowSize <= 0) {
+            throw new IllegalArgumentException("行窗口大小必须大于0");
+        }
+        this.rowAccessWindowSize = rowAccessWindowSize;
+    }
+
     /**
      * 导出多级表头Excel
      *
@@ -24,6 +62,7 @@ public class MultiLevelHeaderExcelExporter {
      * @throws IOException IO异常
      */
     public byte[] exportExcel(List<TitleVO> titles, List<List<Object>> data, String sheetName) throws IOException {
+        ExportMetrics metrics = new ExportMetrics(data == null ? 0 : data.size());
         // 创建工作簿
         try (Workbook workbook = new XSSFWorkbook()) {
             // 创建工作表
@@ -36,19 +75,84 @@ public class MultiLevelHeaderExcelExporter {
             int totalColumnCount = getTotalColumnCount(titles);
 
             // 创建表头行
-            createHeaderRows(sheet, titles, headerMaxLevel, 0, 0);
+            createHeader(sheet, titles, headerMaxLevel);
 
             // 填充数据
-            fillData(sheet, data, headerMaxLevel, totalColumnCount);
+            fillData(sheet, data, headerMaxLevel, totalColumnCount, null, metrics);
 
-            // 自动调整列宽
-            autoSizeColumns(sheet, totalColumnCount);
+            // 按内容估算列宽
+            long phaseStart = System.nanoTime();
+            autoSizeColumns(sheet, headerMaxLevel, totalColumnCount, data);
+            metrics.addPhaseNanos(ExportMetrics.Phase.COLUMN_WIDTH, System.nanoTime() - phaseStart);
 
             // 将工作簿写入字节数组
+            phaseStart = System.nanoTime();
+            byte[] bytes;
             try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
                 workbook.write(outputStream);
-                return outputStream.toByteArray();
+                bytes = outputStream.toByteArray();
             }
+            metrics.addPhaseNanos(ExportMetrics.Phase.FLUSH, System.nanoTime() - phaseStart);
+            metrics.sheetCompleted();
+            metrics.finish();
+            listener.onCompleted(metrics);
+            return bytes;
+        } catch (IOException | RuntimeException ex) {
+            listener.onFailed(metrics, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * 导出多级表头Excel到输出流（SXSSF流式写出，内存占用与数据行数无关）
+     * 表头行创建完成后立即刷出到临时文件，不占用数据行的行窗口；列宽在写入数据行时同步估算
+     *
+     * @param titles 表头结构定义
+     * @param data 表格数据（可以是按需生成数据的数据源，只遍历一次）
+     * @param sheetName 工作表名称
+     * @param out 输出流（不关闭）
+     * @throws IOException IO异常
+     */
+    public void exportExcel(List<TitleVO> titles, Iterable<? extends List<Object>> data, String sheetName,
+        OutputStream out) throws IOException {
+        ExportMetrics metrics = new ExportMetrics(data instanceof Collection ? ((Collection<?>) data).size() : -1);
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowAccessWindowSize);
+        try {
+            SXSSFSheet sheet = workbook.createSheet(sheetName);
+
+            // 计算表头的最大层级和总列数
+            int headerMaxLevel = getHeaderMaxLevel(titles);
+            int totalColumnCount = getTotalColumnCount(titles);
+
+            // 创建表头行（行窗口不限制，递归创建时需要回头访问上层表头行）
+            sheet.setRandomAccessWindowSize(-1);
+            createHeader(sheet, titles, headerMaxLevel);
+
+            // 表头列宽在刷出前估算
+            ColumnWidthEstimator estimator = new ColumnWidthEstimator(totalColumnCount);
+            estimateHeaderWidths(sheet, headerMaxLevel, estimator);
+            sheet.flushRows();
+            sheet.setRandomAccessWindowSize(rowAccessWindowSize);
+
+            // 填充数据
+            fillData(sheet, data, headerMaxLevel, totalColumnCount, estimator, metrics);
+
+            long phaseStart = System.nanoTime();
+            estimator.applyTo(sheet);
+            metrics.addPhaseNanos(ExportMetrics.Phase.COLUMN_WIDTH, System.nanoTime() - phaseStart);
+
+            phaseStart = System.nanoTime();
+            workbook.write(out);
+            metrics.addPhaseNanos(ExportMetrics.Phase.FLUSH, System.nanoTime() - phaseStart);
+            metrics.sheetCompleted();
+            metrics.finish();
+            listener.onCompleted(metrics);
+        } catch (IOException | RuntimeException ex) {
+            listener.onFailed(metrics, ex);
+            throw ex;
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
     }
 
@@ -83,10 +187,20 @@ public class MultiLevelHeaderExcelExporter {
         return count;
     }
 
+    /**
+     * 创建表头（合并区域在表头创建完成后一次性校验并注册）
+     */
+    private void createHeader(Sheet sheet, List<TitleVO> titles, int maxLevel) {
+        List<CellRangeAddress> regions = new ArrayList<>();
+        createHeaderRows(sheet, titles, maxLevel, 0, 0, regions);
+        MergedRegions.addAll(sheet, regions);
+    }
+
     /**
      * 创建表头行
      */
-    private int createHeaderRows(Sheet sheet, List<TitleVO> titles, int maxLevel, int currentRow, int currentCol) {
+    private int createHeaderRows(Sheet sheet, List<TitleVO> titles, int maxLevel, int currentRow, int currentCol,
+        List<CellRangeAddress> regions) {
         // 创建当前行
         Row row = sheet.getRow(currentRow);
         if (row == null) {
@@ -115,12 +229,13 @@ public class MultiLevelHeaderExcelExporter {
                     currentCol,
                     currentCol + colSpan - 1
                 );
-                sheet.addMergedRegion(region);
+                regions.add(region);
             }
 
             // 如果有子标题，递归创建
             if (title.getChildren() != null && !title.getChildren().isEmpty()) {
-                currentCol = createHeaderRows(sheet, title.getChildren(), maxLevel, currentRow + 1, currentCol);
+                currentCol = createHeaderRows(sheet, title.getChildren(), maxLevel, currentRow + 1, currentCol,
+                    regions);
             } else {
                 currentCol += colSpan;
             }
@@ -170,21 +285,27 @@ public class MultiLevelHeaderExcelExporter {
     }
 
     /**
-     * 填充数据到表格
+     * 填充数据到表格（每写入PROGRESS_INTERVAL_ROWS行回调一次进度，WRITE阶段只统计数据行，不含表头）
      */
-    private void fillData(Sheet sheet, List<List<Object>> data, int headerRowCount, int totalColumnCount) {
-        if (data == null || data.isEmpty()) {
-            return;
+    private long fillData(Sheet sheet, Iterable<? extends List<Object>> data, int headerRowCount,
+        int totalColumnCount, ColumnWidthEstimator estimator, ExportMetrics metrics) {
+        if (data == null) {
+            listener.onProgress(metrics);
+            return 0;
         }
 
         CellStyle dataCellStyle = createDataCellStyle(sheet.getWorkbook());
 
         // 从表头下方开始填充数据
-        int startRow = headerRowCount;
-
-        for (int i = 0; i < data.size(); i++) {
-            List<Object> rowData = data.get(i);
-            Row row = sheet.createRow(startRow + i);
+        int rowIndex = headerRowCount;
+        long reportedRows = 0;
+        long phaseStart = System.nanoTime();
+
+        for (List<Object> rowData : data) {
+            Row row = sheet.createRow(rowIndex++);
+            if (estimator != null) {
+                estimator.startRow();
+            }
 
             // 使用表头总列数作为基准，确保数据列数与表头一致
             for (int j = 0; j < totalColumnCount; j++) {
@@ -193,6 +314,9 @@ public class MultiLevelHeaderExcelExporter {
 
                 if (j < rowData.size()) {
                     Object value = rowData.get(j);
+                    if (estimator != null) {
+                        estimator.accept(j, value);
+                    }
                     if (value != null) {
                         if (value instanceof Number) {
                             cell.setCellValue(((Number) value).doubleValue());
@@ -204,7 +328,22 @@ public class MultiLevelHeaderExcelExporter {
                     }
                 }
             }
+
+            // 按固定行数汇总指标并回调进度，与多线程导出的进度粒度一致
+            long rows = rowIndex - headerRowCount;
+            if (rows - reportedRows >= PROGRESS_INTERVAL_ROWS) {
+                metrics.addPhaseNanos(ExportMetrics.Phase.WRITE, System.nanoTime() - phaseStart);
+                metrics.addRows(rows - reportedRows);
+                reportedRows = rows;
+                listener.onProgress(metrics);
+                phaseStart = System.nanoTime();
+            }
         }
+        long rows = rowIndex - headerRowCount;
+        metrics.addPhaseNanos(ExportMetrics.Phase.WRITE, System.nanoTime() - phaseStart);
+        metrics.addRows(rows - reportedRows);
+        listener.onProgress(metrics);
+        return rows;
     }
 
     /**
@@ -239,14 +378,34 @@ public class MultiLevelHeaderExcelExporter {
     }
 
     /**
-     * 自动调整列宽
+     * 按表头和数据内容估算列宽（不使用autoSizeColumn的字体排版）
+     */
+    private void autoSizeColumns(Sheet sheet, int headerRowCount, int columnCount, List<List<Object>> data) {
+        ColumnWidthEstimator estimator = new ColumnWidthEstimator(columnCount);
+        estimateHeaderWidths(sheet, headerRowCount, estimator);
+        if (data != null) {
+            for (List<Object> rowData : data) {
+                estimator.startRow();
+                for (int j = 0; j < rowData.size(); j++) {
+                    estimator.accept(j, rowData.get(j));
+                }
+            }
+        }
+        estimator.applyTo(sheet);
+    }
+
+    /**
+     * 估算表头列宽
      */
-    private void autoSizeColumns(Sheet sheet, int columnCount) {
-        for (int i = 0; i < columnCount; i++) {
-            sheet.autoSizeColumn(i);
-            // 适当调整自动计算的列宽，避免过窄
-            int width = sheet.getColumnWidth(i) + 256;
-            sheet.setColumnWidth(i, Math.min(width, 65535)); // 最大列宽限制
+    private void estimateHeaderWidths(Sheet sheet, int headerRowCount, ColumnWidthEstimator estimator) {
+        for (int i = 0; i < headerRowCount; i++) {
+            Row row = sheet.getRow(i);
+            if (row == null) {
+                continue;
+            }
+            for (Cell cell : row) {
+                estimator.acceptHeader(cell.getColumnIndex(), cell.getStringCellValue());
+            }
         }
     }
 }
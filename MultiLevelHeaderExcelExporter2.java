@@ -1,12 +1,17 @@
 package org.example;
 
+import com.ljn.demo.util.ColumnWidthEstimator;
+import com.ljn.demo.util.HeaderLayout;
+
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.example.TitleVO;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
 
 /**
@@ -14,6 +19,36 @@ import java.util.*;
  */
 public class MultiLevelHeaderExcelExporter2 {
 
+    // 导出进度监听器
+    private ExportListener listener = ExportListener.NONE;
+
+    // 每写入多少行汇总一次指标并回调进度
+    private static final int PROGRESS_INTERVAL_ROWS = 1000;
+
+    // 输出流模式下SXSSF内存中保留的数据行数
+    private int rowAccessWindowSize = 1000;
+
+    /**
+     * 设置导出进度监听器（回调阶段耗时和进度）
+     *
+     * @param listener 监听器
+     */
+    public void setListener(ExportListener listener) {
+        this.listener = listener != null ? listener : ExportListener.NONE;
+    }
+
+    /**
+     * 设置输出流模式下SXSSF内存中保留的数据行数（表头行不计入）
+     *
+     * @param rowAccessWindowSize 行数
+     */
+    public void setRowAccessWindowSize(int rowAccessWindowSize) {
+        if (rowAccessWindowSize <= 0) {
+            throw new IllegalArgumentException("行窗口大小必须大于0");
+        }
+        this.rowAccessWindowSize = rowAccessWindowSize;
+    }
+
     /**
      * 导出多级表头Excel
      *
@@ -24,249 +59,139 @@ public class MultiLevelHeaderExcelExporter2 {
      * @throws IOException IO异常
      */
     public byte[] exportExcel(List<TitleVO> titles, List<List<Object>> data, String sheetName) throws IOException {
+        ExportMetrics metrics = new ExportMetrics(data == null ? 0 : data.size());
         // 创建工作簿
         try (Workbook workbook = new XSSFWorkbook()) {
             // 创建工作表
             Sheet sheet = workbook.createSheet(sheetName);
 
-            // 计算表头的最大层级和总列数
-            int headerMaxLevel = getHeaderMaxLevel(titles);
-            int totalColumnCount = getTotalColumnCount(titles);
+            // 表头布局（最大层级、总列数和合并区域）按结构缓存，同一报表重复导出时不重新计算
+            HeaderLayout layout = HeaderLayout.of(titles, TitleVO::getTitleName, title -> null,
+                TitleVO::getChildren);
+            int headerMaxLevel = layout.getDepth();
+            int totalColumnCount = layout.getColumnCount();
 
-            // 创建表头行（使用循环方式替代递归）
-            createHeaderRowsWithLoop(sheet, titles, headerMaxLevel, totalColumnCount, workbook);
+            // 创建表头行
+            createHeaderRows(sheet, layout, workbook);
 
             // 填充数据
-            fillData(sheet, data, headerMaxLevel, totalColumnCount, workbook);
+            fillData(sheet, data, headerMaxLevel, totalColumnCount, workbook, null, metrics);
 
             // 优化列宽调整，根据内容长度大致估算
+            long phaseStart = System.nanoTime();
             optimizeColumnWidths(sheet, headerMaxLevel, totalColumnCount, data);
+            metrics.addPhaseNanos(ExportMetrics.Phase.COLUMN_WIDTH, System.nanoTime() - phaseStart);
 
             // 将工作簿写入字节数组
+            phaseStart = System.nanoTime();
+            byte[] bytes;
             try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
                 workbook.write(outputStream);
-                return outputStream.toByteArray();
-            }
-        }
-    }
-
-    /**
-     * 计算表头的最大层级（使用循环实现）
-     */
-    private int getHeaderMaxLevel(List<TitleVO> titles) {
-        if (titles == null || titles.isEmpty()) {
-            return 0;
-        }
-
-        int maxLevel = 0;
-        Queue<Map.Entry<TitleVO, Integer>> queue = new LinkedList<>();
-
-        for (TitleVO title : titles) {
-            queue.add(new AbstractMap.SimpleEntry<>(title, 1));
-        }
-
-        while (!queue.isEmpty()) {
-            Map.Entry<TitleVO, Integer> entry = queue.poll();
-            TitleVO title = entry.getKey();
-            int currentLevel = entry.getValue();
-
-            if (currentLevel > maxLevel) {
-                maxLevel = currentLevel;
-            }
-
-            if (title.getChildren() != null && !title.getChildren().isEmpty()) {
-                for (TitleVO child : title.getChildren()) {
-                    queue.add(new AbstractMap.SimpleEntry<>(child, currentLevel + 1));
-                }
+                bytes = outputStream.toByteArray();
             }
+            metrics.addPhaseNanos(ExportMetrics.Phase.FLUSH, System.nanoTime() - phaseStart);
+            metrics.sheetCompleted();
+            metrics.finish();
+            listener.onCompleted(metrics);
+            return bytes;
+        } catch (IOException | RuntimeException ex) {
+            listener.onFailed(metrics, ex);
+            throw ex;
         }
-
-        return maxLevel;
     }
 
     /**
-     * 计算总列数（使用循环实现）
+     * 导出多级表头Excel到输出流（SXSSF流式写出，内存占用与数据行数无关）
+     * 表头行创建完成后立即刷出到临时文件，不占用数据行的行窗口；列宽在写入数据行时同步估算
+     *
+     * @param titles 表头结构定义
+     * @param data 表格数据（可以是按需生成数据的数据源，只遍历一次）
+     * @param sheetName 工作表名称
+     * @param out 输出流（不关闭）
+     * @throws IOException IO异常
      */
-    private int getTotalColumnCount(List<TitleVO> titles) {
-        if (titles == null || titles.isEmpty()) {
-            return 0;
-        }
+    public void exportExcel(List<TitleVO> titles, Iterable<? extends List<Object>> data, String sheetName,
+        OutputStream out) throws IOException {
+        ExportMetrics metrics = new ExportMetrics(data instanceof Collection ? ((Collection<?>) data).size() : -1);
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowAccessWindowSize);
+        try {
+            SXSSFSheet sheet = workbook.createSheet(sheetName);
+
+            // 表头布局（最大层级、总列数和合并区域）按结构缓存，同一报表重复导出时不重新计算
+            HeaderLayout layout = HeaderLayout.of(titles, TitleVO::getTitleName, title -> null,
+                TitleVO::getChildren);
+            int headerMaxLevel = layout.getDepth();
+            int totalColumnCount = layout.getColumnCount();
+
+            // 创建表头行（行窗口不限制，合并区域设置边框时需要回头访问表头行）
+            sheet.setRandomAccessWindowSize(-1);
+            createHeaderRows(sheet, layout, workbook);
+
+            // 表头列宽在刷出前估算
+            ColumnWidthEstimator estimator = new ColumnWidthEstimator(totalColumnCount);
+            estimateHeaderWidths(sheet, headerMaxLevel, totalColumnCount, estimator);
+            sheet.flushRows();
+            sheet.setRandomAccessWindowSize(rowAccessWindowSize);
 
-        int totalCount = 0;
-        Stack<TitleVO> stack = new Stack<>();
-
-        for (int i = titles.size() - 1; i >= 0; i--) {
-            stack.push(titles.get(i));
-        }
-
-        while (!stack.isEmpty()) {
-            TitleVO title = stack.pop();
-
-            if (title.getChildren() != null && !title.getChildren().isEmpty()) {
-                for (int i = title.getChildren().size() - 1; i >= 0; i--) {
-                    stack.push(title.getChildren().get(i));
-                }
-            } else {
-                totalCount++;
-            }
+            // 填充数据
+            fillData(sheet, data, headerMaxLevel, totalColumnCount, workbook, estimator, metrics);
+
+            long phaseStart = System.nanoTime();
+            estimator.applyTo(sheet);
+            metrics.addPhaseNanos(ExportMetrics.Phase.COLUMN_WIDTH, System.nanoTime() - phaseStart);
+
+            phaseStart = System.nanoTime();
+            workbook.write(out);
+            metrics.addPhaseNanos(ExportMetrics.Phase.FLUSH, System.nanoTime() - phaseStart);
+            metrics.sheetCompleted();
+            metrics.finish();
+            listener.onCompleted(metrics);
+        } catch (IOException | RuntimeException ex) {
+            listener.onFailed(metrics, ex);
+            throw ex;
+        } finally {
+            workbook.dispose();
+            workbook.close();
         }
-
-        return totalCount;
     }
 
     /**
-     * 使用循环方式创建表头行（替代递归）
+     * 按编译后的表头布局创建表头行
      */
-    private void createHeaderRowsWithLoop(Sheet sheet, List<TitleVO> titles, int maxLevel,
-        int totalColumnCount, Workbook workbook) {
+    private void createHeaderRows(Sheet sheet, HeaderLayout layout, Workbook workbook) {
         CellStyle headerCellStyle = createHeaderCellStyle(workbook);
-        Stack<HeaderNode> stack = new Stack<>();
-
-        int currentCol = 0;
-        for (TitleVO title : titles) {
-            stack.push(new HeaderNode(title, 0, currentCol));
-            currentCol += calculateColSpan(title);
-        }
-
-        while (!stack.isEmpty()) {
-            HeaderNode node = stack.pop();
-            TitleVO title = node.title;
-            int rowIndex = node.rowIndex;
-            int colIndex = node.colIndex;
-
-            Row row = sheet.getRow(rowIndex);
-            if (row == null) {
-                row = sheet.createRow(rowIndex);
-            }
-
-            int rowSpan = calculateRowSpan(title, maxLevel - rowIndex);
-            int colSpan = calculateColSpan(title);
 
-            Cell cell = row.createCell(colIndex);
-            cell.setCellValue(title.getTitleName());
-            cell.setCellStyle(headerCellStyle);
-
-            if (rowSpan > 1 || colSpan > 1) {
-                CellRangeAddress region = new CellRangeAddress(
-                    rowIndex,
-                    rowIndex + rowSpan - 1,
-                    colIndex,
-                    colIndex + colSpan - 1
-                );
-                sheet.addMergedRegion(region);
-
-                // 为合并单元格设置边框
-                setMergedRegionBorders(region, sheet, headerCellStyle);
-            }
-
-            if (title.getChildren() != null && !title.getChildren().isEmpty()) {
-                int childCol = colIndex;
-                for (int i = title.getChildren().size() - 1; i >= 0; i--) {
-                    TitleVO child = title.getChildren().get(i);
-                    stack.push(new HeaderNode(child, rowIndex + 1, childCol));
-                    childCol += calculateColSpan(child);
-                }
-            }
-        }
+        layout.writeTo(sheet, 0, headerCellStyle, true);
     }
 
     /**
-     * 为合并单元格设置边框
+     * 优化列宽调整，根据内容长度估算（全角字符按2个字符宽度计算，不使用autoSizeColumn的字体排版）
      */
-    private void setMergedRegionBorders(CellRangeAddress region, Sheet sheet, CellStyle style) {
-        // 顶部边框
-        for (int col = region.getFirstColumn(); col <= region.getLastColumn(); col++) {
-            Cell cell = getOrCreateCell(sheet, region.getFirstRow(), col);
-            cell.setCellStyle(style);
-        }
-
-        // 底部边框
-        for (int col = region.getFirstColumn(); col <= region.getLastColumn(); col++) {
-            Cell cell = getOrCreateCell(sheet, region.getLastRow(), col);
-            cell.setCellStyle(style);
-        }
-
-        // 左边框
-        for (int row = region.getFirstRow(); row <= region.getLastRow(); row++) {
-            Cell cell = getOrCreateCell(sheet, row, region.getFirstColumn());
-            cell.setCellStyle(style);
-        }
-
-        // 右边框
-        for (int row = region.getFirstRow(); row <= region.getLastRow(); row++) {
-            Cell cell = getOrCreateCell(sheet, row, region.getLastColumn());
-            cell.setCellStyle(style);
-        }
-    }
-
-    /**
-     * 获取或创建单元格
-     */
-    private Cell getOrCreateCell(Sheet sheet, int rowIndex, int colIndex) {
-        Row row = sheet.getRow(rowIndex);
-        if (row == null) {
-            row = sheet.createRow(rowIndex);
-        }
-        Cell cell = row.getCell(colIndex);
-        if (cell == null) {
-            cell = row.createCell(colIndex);
-        }
-        return cell;
-    }
-
-    /**
-     * 计算行跨度
-     */
-    private int calculateRowSpan(TitleVO title, int remainingLevels) {
-        if (title.getChildren() == null || title.getChildren().isEmpty()) {
-            return remainingLevels;
-        }
-        return 1;
-    }
-
-    /**
-     * 计算列跨度（使用循环实现）
-     */
-    private int calculateColSpan(TitleVO title) {
-        if (title.getChildren() == null || title.getChildren().isEmpty()) {
-            return 1;
-        }
-
-        int colSpan = 0;
-        Stack<TitleVO> stack = new Stack<>();
-        stack.push(title);
+    private void optimizeColumnWidths(Sheet sheet, int headerRowCount, int totalColumnCount, List<List<Object>> data) {
+        ColumnWidthEstimator estimator = new ColumnWidthEstimator(totalColumnCount);
 
-        while (!stack.isEmpty()) {
-            TitleVO current = stack.pop();
+        // 检查表头内容
+        estimateHeaderWidths(sheet, headerRowCount, totalColumnCount, estimator);
 
-            if (current.getChildren() != null && !current.getChildren().isEmpty()) {
-                for (int i = current.getChildren().size() - 1; i >= 0; i--) {
-                    stack.push(current.getChildren().get(i));
+        // 检查数据内容
+        if (data != null && !data.isEmpty()) {
+            for (List<Object> rowData : data) {
+                estimator.startRow();
+                for (int j = 0; j < rowData.size() && j < totalColumnCount; j++) {
+                    estimator.accept(j, rowData.get(j));
                 }
-            } else {
-                colSpan++;
             }
         }
 
-        return colSpan;
+        // 根据估算宽度设置列宽（不超过Excel最大限制）
+        estimator.applyTo(sheet);
     }
 
     /**
-     * 优化列宽调整，根据内容长度大致估算
+     * 估算表头列宽
      */
-    private void optimizeColumnWidths(Sheet sheet, int headerRowCount, int totalColumnCount, List<List<Object>> data) {
-        // 基础字符宽度系数（根据经验值设定）
-        final int BASE_CHAR_WIDTH = 256 * 2; // 每个字符的大致宽度
-
-        // 先让POI自动调整一次作为基础
-        for (int i = 0; i < totalColumnCount; i++) {
-            sheet.autoSizeColumn(i);
-        }
-
-        // 计算每列的最大内容长度
-        int[] maxContentLengths = new int[totalColumnCount];
-
-        // 检查表头内容
+    private void estimateHeaderWidths(Sheet sheet, int headerRowCount, int totalColumnCount,
+        ColumnWidthEstimator estimator) {
         for (int row = 0; row < headerRowCount; row++) {
             Row currentRow = sheet.getRow(row);
             if (currentRow == null) continue;
@@ -275,37 +200,9 @@ public class MultiLevelHeaderExcelExporter2 {
                 Cell cell = currentRow.getCell(col);
                 if (cell == null) continue;
 
-                String content = getCellContent(cell);
-                maxContentLengths[col] = Math.max(maxContentLengths[col], content.length());
-            }
-        }
-
-        // 检查数据内容
-        if (data != null && !data.isEmpty()) {
-            int startRow = headerRowCount;
-            for (int i = 0; i < data.size(); i++) {
-                List<Object> rowData = data.get(i);
-                for (int j = 0; j < rowData.size() && j < totalColumnCount; j++) {
-                    Object value = rowData.get(j);
-                    if (value == null) continue;
-
-                    String content = value.toString();
-                    maxContentLengths[j] = Math.max(maxContentLengths[j], content.length());
-                }
+                estimator.acceptHeader(col, getCellContent(cell));
             }
         }
-
-        // 根据最大长度设置列宽
-        for (int col = 0; col < totalColumnCount; col++) {
-            // 计算宽度：基础宽度 + 字符数 * 字符宽度 + 适当缓冲
-            int estimatedWidth = BASE_CHAR_WIDTH * (maxContentLengths[col] + 2);
-            // 确保不小于自动调整的宽度，不超过Excel最大限制
-            int autoSizeWidth = sheet.getColumnWidth(col);
-            int finalWidth = Math.max(estimatedWidth, autoSizeWidth);
-            finalWidth = Math.min(finalWidth, 65535);
-
-            sheet.setColumnWidth(col, finalWidth);
-        }
     }
 
     /**
@@ -362,20 +259,28 @@ public class MultiLevelHeaderExcelExporter2 {
     }
 
     /**
-     * 填充数据到表格
+     * 填充数据到表格（estimator不为null时同步估算数据列宽）
+     * 每写入PROGRESS_INTERVAL_ROWS行回调一次进度，WRITE阶段只统计数据行，不含表头
+     *
+     * @return 数据行数
      */
-    private void fillData(Sheet sheet, List<List<Object>> data, int headerRowCount,
-        int totalColumnCount, Workbook workbook) {
-        if (data == null || data.isEmpty()) {
-            return;
+    private long fillData(Sheet sheet, Iterable<? extends List<Object>> data, int headerRowCount,
+        int totalColumnCount, Workbook workbook, ColumnWidthEstimator estimator, ExportMetrics metrics) {
+        if (data == null) {
+            listener.onProgress(metrics);
+            return 0;
         }
 
         // 数据行不设置样式，使用默认样式
-        int startRow = headerRowCount;
-
-        for (int i = 0; i < data.size(); i++) {
-            List<Object> rowData = data.get(i);
-            Row row = sheet.createRow(startRow + i);
+        int rowIndex = headerRowCount;
+        long reportedRows = 0;
+        long phaseStart = System.nanoTime();
+
+        for (List<Object> rowData : data) {
+            Row row = sheet.createRow(rowIndex++);
+            if (estimator != null) {
+                estimator.startRow();
+            }
 
             for (int j = 0; j < totalColumnCount; j++) {
                 Cell cell = row.createCell(j);
@@ -383,6 +288,9 @@ public class MultiLevelHeaderExcelExporter2 {
                 // 不设置单元格样式，使用默认样式
                 if (j < rowData.size()) {
                     Object value = rowData.get(j);
+                    if (estimator != null) {
+                        estimator.accept(j, value);
+                    }
                     if (value != null) {
                         if (value instanceof Number) {
                             cell.setCellValue(((Number) value).doubleValue());
@@ -396,21 +304,21 @@ public class MultiLevelHeaderExcelExporter2 {
                     }
                 }
             }
-        }
-    }
 
-    /**
-     * 辅助类：存储表头节点信息（用于循环处理）
-     */
-    private static class HeaderNode {
-        TitleVO title;
-        int rowIndex;
-        int colIndex;
-
-        HeaderNode(TitleVO title, int rowIndex, int colIndex) {
-            this.title = title;
-            this.rowIndex = rowIndex;
-            this.colIndex = colIndex;
+            // 按固定行数汇总指标并回调进度，与多线程导出的进度粒度一致
+            long rows = rowIndex - headerRowCount;
+            if (rows - reportedRows >= PROGRESS_INTERVAL_ROWS) {
+                metrics.addPhaseNanos(ExportMetrics.Phase.WRITE, System.nanoTime() - phaseStart);
+                metrics.addRows(rows - reportedRows);
+                reportedRows = rows;
+                listener.onProgress(metrics);
+                phaseStart = System.nanoTime();
+            }
         }
+        long rows = rowIndex - headerRowCount;
+        metrics.addPhaseNanos(ExportMetrics.Phase.WRITE, System.nanoTime() - phaseStart);
+        metrics.addRows(rows - reportedRows);
+        listener.onProgress(metrics);
+        return rows;
     }
 }
@@ -1,9 +1,10 @@
 package com.ljn.demo.util;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.poi.ss.usermodel.BorderStyle;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
@@ -15,20 +16,21 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 
 import java.io.IOException;
-import java.util.AbstractMap;
+import java.io.OutputStream;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.LinkedList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.Stack;
+import java.util.function.Function;
 
 /**
  * Excel多级表头导出工具类
+ * 表头布局、排序的标题、层级和列数在设置标题行时一次算出且不可变，
+ * 设置好标题行后同一实例可以在多个线程中并发创建表头和写入数据（每个线程使用自己的Sheet）
  */
 @Slf4j
 @Data
@@ -36,13 +38,20 @@ public class MultiLevelHeaderExcelHelper {
     // 标题行
     private List<TitleDTO> titles;
 
-    // 排序的IT字段名(与标题行的最低层级对应, 用于映射数据行)
-    private List<TitleDTO> sortedTitles = new ArrayList<>();
+    // 编译后的表头布局(不可变)
+    @Setter(AccessLevel.NONE)
+    private HeaderLayout headerLayout = HeaderLayout.of(null);
+
+    // 排序的IT字段名(与标题行的最低层级对应, 用于映射数据行, 只读)
+    @Setter(AccessLevel.NONE)
+    private List<TitleDTO> sortedTitles = Collections.emptyList();
 
     // 标题行最大层级
+    @Setter(AccessLevel.NONE)
     private int headerMaxLevel;
 
     // 总列数
+    @Setter(AccessLevel.NONE)
     private int totalColumnCount;
 
     // 标题的单元格格式
@@ -53,85 +62,69 @@ public class MultiLevelHeaderExcelHelper {
 
     private boolean isInitCellTextFlag = true;
 
+    // 流式导出时SXSSF内存中保留的行数(默认:1000)
+    private int rowAccessWindowSize = 1000;
+
     public MultiLevelHeaderExcelHelper() {
     }
 
     public MultiLevelHeaderExcelHelper(List<TitleDTO> titles) {
+        setTitles(titles);
+    }
+
+    /**
+     * 设置标题行，同时重新计算表头布局、排序的标题、层级和列数
+     *
+     * @param titles 标题行
+     */
+    public void setTitles(List<TitleDTO> titles) {
+        // 表头布局按结构缓存，同一报表重复导出时不重新计算
+        HeaderLayout layout = HeaderLayout.of(titles);
+        List<TitleDTO> columns = new ArrayList<>(layout.getColumnCount());
+        for (HeaderLayout.HeaderCell column : layout.getColumns()) {
+            columns.add(new TitleDTO(column.getTitle(), column.getField()));
+        }
         this.titles = titles;
-        this.headerMaxLevel = getHeaderMaxLevel(titles);
-        this.totalColumnCount = getTotalColumnCount(titles);
+        this.headerLayout = layout;
+        this.sortedTitles = Collections.unmodifiableList(columns);
+        this.headerMaxLevel = layout.getDepth();
+        this.totalColumnCount = layout.getColumnCount();
     }
 
     public void createHeader(Sheet sheet) throws IOException {
         try {
-            // 创建表头行
-            createHeaderRows(sheet, titles);
-
-            // 设置单元格格式
-            setCellStyle(sheet);
-
-            // 优化列宽调整
-            optimizeColumnWidths(sheet, headerMaxLevel, totalColumnCount);
+            writeHeader(sheet);
         } catch (Exception ex) {
             log.error("MultiLevelHeaderExcelExporter3.exportExcel isErr, ex=", ex);
         }
     }
 
     /**
-     * 使用循环方式创建表头行（替代递归）
+     * 创建表头，失败时抛出异常（流式导出不能生成缺少表头的文件）
      */
-    private void createHeaderRows(Sheet sheet, List<TitleDTO> titles) {
-        CellStyle headerCellStyle = createHeaderCellStyle(sheet.getWorkbook());
+    private void writeHeader(Sheet sheet) {
+        HeaderLayout layout = headerLayout;
 
-        Stack<HeaderNode> stack = new Stack<>();
-        int currentCol = 0;
-        for (TitleDTO title : titles) {
-            stack.push(new HeaderNode(title, 0, currentCol));
-            currentCol += calcColSpan(title);
-        }
+        // 创建表头行
+        createHeaderRows(sheet, layout);
 
-        while (!stack.isEmpty()) {
-            HeaderNode node = stack.pop();
-            TitleDTO title = node.title;
-            int rowIndex = node.rowIndex;
-            int colIndex = node.colIndex;
+        // 设置单元格格式
+        setCellStyle(sheet, layout.getColumnCount());
 
-            Row row = sheet.getRow(rowIndex);
-            if (row == null) {
-                row = sheet.createRow(rowIndex);
-            }
-            // 设置单元格
-            Cell cell = row.createCell(colIndex);
-            cell.setCellValue(title.getTitle());
-            cell.setCellStyle(headerCellStyle);
-
-            // 行跨度
-            int rowSpan = calcRowSpan(title, headerMaxLevel - rowIndex);
-            // 列跨度
-            int colSpan = calcColSpan(title);
-            if (rowSpan > 1 || colSpan > 1) {
-                int lastRow = rowIndex + rowSpan - 1;
-                int lastCol = colIndex + colSpan - 1;
-                CellRangeAddress region = new CellRangeAddress(rowIndex, lastRow, colIndex, lastCol);
-                sheet.addMergedRegion(region);
-
-                // 为合并单元格设置边框
-                setMergedRegionBorders(region, sheet, headerCellStyle);
-            }
+        // 优化列宽调整
+        optimizeColumnWidths(sheet, layout.getDepth(), layout.getColumnCount());
+    }
 
-            // 处理孩子节点
-            List<TitleDTO> children = title.getChildren();
-            if (CollectionUtils.isNotEmpty(children)) {
-                int childCol = colIndex;
-                for (TitleDTO child : children) {
-                    stack.push(new HeaderNode(child, rowIndex + 1, childCol));
-                    childCol += calcColSpan(child); // 每遍历一个 ->其'colIndex'需要加上'前列跨度'
-                }
-            }
-        }
+    /**
+     * 按编译后的表头布局创建表头行
+     */
+    private void createHeaderRows(Sheet sheet, HeaderLayout layout) {
+        CellStyle headerCellStyle = createHeaderCellStyle(sheet.getWorkbook());
+
+        layout.writeTo(sheet, 0, headerCellStyle, hasBorder);
     }
 
-    private void setCellStyle(Sheet sheet) {
+    private void setCellStyle(Sheet sheet, int totalColumnCount) {
         Workbook workbook = sheet.getWorkbook();
         CellStyle cellStyle = workbook.createCellStyle();// '常规'格式
         if (isInitCellTextFlag) {
@@ -145,166 +138,10 @@ public class MultiLevelHeaderExcelHelper {
     }
 
     /**
-     * 计算表头的最大层级
-     */
-    private int getHeaderMaxLevel(List<TitleDTO> titles) {
-        if (CollectionUtils.isEmpty(titles)) {
-            return 0;
-        }
-
-        int maxLevel = 0;
-        Queue<Map.Entry<TitleDTO, Integer>> queue = new LinkedList<>();
-
-        for (TitleDTO title : titles) {
-            queue.add(new AbstractMap.SimpleEntry<>(title, 1)); // 第一层的深度就等于: 1
-        }
-
-        while (!queue.isEmpty()) {
-            Map.Entry<TitleDTO, Integer> entry = queue.poll();
-            TitleDTO title = entry.getKey();
-            int currentLevel = entry.getValue();
-
-            maxLevel = Math.max(maxLevel, currentLevel);
-
-            List<TitleDTO> children;
-            if (CollectionUtils.isNotEmpty(children = title.getChildren())) {
-                for (TitleDTO child : children) { // 孩子节点level == 父节点level + 1
-                    queue.add(new AbstractMap.SimpleEntry<>(child, currentLevel + 1));
-                }
-            }
-        }
-
-        return maxLevel;
-    }
-
-    /**
-     * 计算总列数
-     */
-    private int getTotalColumnCount(List<TitleDTO> titles) {
-        if (CollectionUtils.isEmpty(titles)) {
-            return 0;
-        }
-
-        int totalCount = 0;
-        Stack<TitleDTO> stack = new Stack<>();
-
-        for (int i = titles.size() - 1; i >= 0; i--) {
-            stack.push(titles.get(i));
-        }
-
-        while (!stack.isEmpty()) {
-            TitleDTO currTitle = stack.pop();
-
-            List<TitleDTO> children;
-            if (CollectionUtils.isNotEmpty(children = currTitle.getChildren())) {
-                for (int i = children.size() - 1; i >= 0; i--) {
-                    stack.push(children.get(i));
-                }
-            } else {
-                totalCount++;
-                sortedTitles.add(new TitleDTO(currTitle.getTitle(), currTitle.getField()));
-            }
-        }
-        return totalCount;
-    }
-
-    /**
-     * 为合并单元格设置边框
-     */
-    private void setMergedRegionBorders(CellRangeAddress region, Sheet sheet, CellStyle style) {
-        if (!hasBorder) {
-            return;
-        }
-
-        // 顶部边框
-        for (int col = region.getFirstColumn(); col <= region.getLastColumn(); col++) {
-            Cell cell = getOrCreateCell(sheet, region.getFirstRow(), col);
-            cell.setCellStyle(style);
-        }
-
-        // 底部边框
-        for (int col = region.getFirstColumn(); col <= region.getLastColumn(); col++) {
-            Cell cell = getOrCreateCell(sheet, region.getLastRow(), col);
-            cell.setCellStyle(style);
-        }
-
-        // 左边框
-        for (int row = region.getFirstRow(); row <= region.getLastRow(); row++) {
-            Cell cell = getOrCreateCell(sheet, row, region.getFirstColumn());
-            cell.setCellStyle(style);
-        }
-
-        // 右边框
-        for (int row = region.getFirstRow(); row <= region.getLastRow(); row++) {
-            Cell cell = getOrCreateCell(sheet, row, region.getLastColumn());
-            cell.setCellStyle(style);
-        }
-    }
-
-    /**
-     * 获取或创建单元格
-     */
-    private Cell getOrCreateCell(Sheet sheet, int rowIndex, int colIndex) {
-        Row row = sheet.getRow(rowIndex);
-        if (row == null) {
-            row = sheet.createRow(rowIndex);
-        }
-        Cell cell = row.getCell(colIndex);
-        if (cell == null) {
-            cell = row.createCell(colIndex);
-        }
-        return cell;
-    }
-
-    /**
-     * 计算行跨度
-     */
-    private int calcRowSpan(TitleDTO title, int remainingLevels) {
-        if (CollectionUtils.isEmpty(title.getChildren())) {
-            return remainingLevels;
-        }
-        return 1; // 跨度==1 -> 表示不需要合并
-    }
-
-    /**
-     * 计算列跨度
-     */
-    private int calcColSpan(TitleDTO title) {
-        if (title.getChildren() == null || title.getChildren().isEmpty()) {
-            return 1; // 跨度==1 -> 表示不需要合并
-        }
-
-        int colSpan = 0;
-        Stack<TitleDTO> stack = new Stack<>();
-        stack.push(title);
-
-        while (!stack.isEmpty()) {
-            TitleDTO current = stack.pop();
-
-            List<TitleDTO> children;
-            if (CollectionUtils.isNotEmpty(children = current.getChildren())) {
-                children.forEach(stack::push);
-            } else {
-                colSpan++;
-            }
-        }
-        return colSpan;
-    }
-
-    /**
-     * 优化列宽调整，根据内容长度大致估算
+     * 优化列宽调整，根据内容长度估算（全角字符按2个字符宽度计算，不使用autoSizeColumn的字体排版）
      */
     private void optimizeColumnWidths(Sheet sheet, int headerRowCount, int totalColumnCount) {
-        // 基础字符宽度系数（根据经验值设定）
-        final int BASE_CHAR_WIDTH = 256 * 2; // 每个字符的大致宽度
-
-        // 先让POI自动调整一次作为基础
-        for (int i = 0; i < totalColumnCount; i++) {
-            sheet.autoSizeColumn(i);
-        }
-
-        // 计算每列的最大内容长度
-        int[] maxContentLengths = new int[totalColumnCount];
+        ColumnWidthEstimator estimator = new ColumnWidthEstimator(totalColumnCount);
 
         // 检查表头内容
         for (int row = 0; row < headerRowCount; row++) {
@@ -319,21 +156,11 @@ public class MultiLevelHeaderExcelHelper {
                     continue;
                 }
 
-                String content = getCellContent(cell);
-                maxContentLengths[col] = Math.max(maxContentLengths[col], content.length());
+                estimator.acceptHeader(col, getCellContent(cell));
             }
         }
-        // 根据最大长度设置列宽
-        for (int col = 0; col < totalColumnCount; col++) {
-            // 计算宽度：基础宽度 + 字符数 * 字符宽度 + 适当缓冲
-            int estimatedWidth = BASE_CHAR_WIDTH * (maxContentLengths[col] + 2);
-            // 确保不小于自动调整的宽度，不超过Excel最大限制
-            int autoSizeWidth = sheet.getColumnWidth(col);
-            int finalWidth = Math.max(estimatedWidth, autoSizeWidth);
-            finalWidth = Math.min(finalWidth, 65535);
-
-            sheet.setColumnWidth(col, finalWidth);
-        }
+        // 根据估算宽度设置列宽（不超过Excel最大限制）
+        estimator.applyTo(sheet);
     }
 
     /**
@@ -395,6 +222,169 @@ public class MultiLevelHeaderExcelHelper {
         return style;
     }
 
+    /**
+     * 按类型化列定义填充数据（表头之后开始，数值列按数值写入且不装箱）
+     * 列顺序需与最低层级标题一致
+     *
+     * @param sheet 工作表
+     * @param data 数据
+     * @param columns 列定义
+     * @param <T> 行数据类型
+     */
+    public <T> void fillData(Sheet sheet, List<T> data, ExcelColumns<T> columns) {
+        if (data == null || data.isEmpty()) {
+            return;
+        }
+        ExcelColumns.RowWriter<T> rowWriter = columns.compile();
+        for (int i = 0; i < data.size(); i++) {
+            rowWriter.write(sheet.createRow(headerMaxLevel + i), data.get(i), null, null);
+        }
+    }
+
+    /**
+     * 流式追加Map数据行（按最低层级标题的字段取值，数据不需要预先排序和整体加载）
+     * 到达Excel行数上限时停止，剩余数据留在迭代器中
+     *
+     * @param sheet 工作表
+     * @param startRow 起始行索引（通常为表头行数）
+     * @param rows 数据行（字段名 -> 值）
+     * @return 下一行的行索引
+     */
+    public int appendRows(Sheet sheet, int startRow, Iterator<? extends Map<String, ?>> rows) {
+        return appendRows(sheet, startRow, rows, mapAccessors());
+    }
+
+    /**
+     * 流式追加JavaBean数据行（按最低层级标题的字段名读取属性）
+     * 到达Excel行数上限时停止，剩余数据留在迭代器中
+     *
+     * @param sheet 工作表
+     * @param startRow 起始行索引（通常为表头行数）
+     * @param rows 数据行
+     * @param type 数据行类型
+     * @param <T> 数据行类型
+     * @return 下一行的行索引
+     */
+    public <T> int appendBeans(Sheet sheet, int startRow, Iterator<? extends T> rows, Class<T> type) {
+        return appendRows(sheet, startRow, rows, beanAccessors(type));
+    }
+
+    /**
+     * 流式导出Map数据（SXSSF按行窗口写出，超过Excel行数上限时新建Sheet并重复表头）
+     * 后续Sheet名称为 工作表名称_序号，超过31个字符时截断工作表名称
+     *
+     * @param sheetName 工作表名称
+     * @param rows 数据行（字段名 -> 值）
+     * @param out 输出流（不关闭）
+     * @return 导出的数据行数
+     * @throws IOException IO异常
+     */
+    public long exportStreaming(String sheetName, Iterator<? extends Map<String, ?>> rows, OutputStream out)
+        throws IOException {
+        return exportStreaming(sheetName, rows, mapAccessors(), out);
+    }
+
+    /**
+     * 流式导出JavaBean数据（SXSSF按行窗口写出，超过Excel行数上限时新建Sheet并重复表头）
+     * 后续Sheet名称为 工作表名称_序号，超过31个字符时截断工作表名称
+     *
+     * @param sheetName 工作表名称
+     * @param rows 数据行
+     * @param type 数据行类型
+     * @param out 输出流（不关闭）
+     * @param <T> 数据行类型
+     * @return 导出的数据行数
+     * @throws IOException IO异常
+     */
+    public <T> long exportStreaming(String sheetName, Iterator<? extends T> rows, Class<T> type, OutputStream out)
+        throws IOException {
+        return exportStreaming(sheetName, rows, beanAccessors(type), out);
+    }
+
+    private <R> long exportStreaming(String sheetName, Iterator<? extends R> rows, Function<R, Object>[] accessors,
+        OutputStream out) throws IOException {
+        // 行窗口至少容纳全部表头行，创建表头时需要回头访问合并区域内的行
+        SXSSFWorkbook workbook = new SXSSFWorkbook(Math.max(rowAccessWindowSize, headerMaxLevel + 1));
+        try {
+            long rowCount = 0;
+            int sheetIndex = 0;
+            do {
+                Sheet sheet = workbook.createSheet(streamingSheetName(sheetName, sheetIndex));
+                writeHeader(sheet);
+                rowCount += appendRows(sheet, headerMaxLevel, rows, accessors) - headerMaxLevel;
+                sheetIndex++;
+            } while (rows.hasNext());
+            workbook.write(out);
+            return rowCount;
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * 流式导出的Sheet名称：第一个Sheet为工作表名称，之后追加 _序号；
+     * 超过Excel的31个字符限制时截断工作表名称部分（否则POI截断后缀，各Sheet重名）
+     */
+    static String streamingSheetName(String sheetName, int sheetIndex) {
+        String suffix = sheetIndex > 0 ? "_" + (sheetIndex + 1) : "";
+        int maxLength = Workbook.MAX_SENSITIVE_SHEET_NAME_LEN - suffix.length();
+        String name = sheetName;
+        if (name.length() > maxLength) {
+            // 不拆开代理对
+            int end = Character.isHighSurrogate(name.charAt(maxLength - 1)) ? maxLength - 1 : maxLength;
+            name = name.substring(0, end);
+        }
+        return name + suffix;
+    }
+
+    private <R> int appendRows(Sheet sheet, int startRow, Iterator<? extends R> rows,
+        Function<R, Object>[] accessors) {
+        int rowIndex = startRow;
+        while (rowIndex < SheetPartitioner.EXCEL_MAX_ROWS && rows.hasNext()) {
+            R rowData = rows.next();
+            Row row = sheet.createRow(rowIndex++);
+            for (int j = 0; j < accessors.length; j++) {
+                if (accessors[j] == null) {
+                    continue;
+                }
+                Object value = accessors[j].apply(rowData);
+                if (value != null) {
+                    ExcelColumns.setCellValue(row.createCell(j), value);
+                }
+            }
+        }
+        return rowIndex;
+    }
+
+    /**
+     * 按列顺序的Map取值函数（最低层级标题没有字段时为null）
+     */
+    private Function<Map<String, ?>, Object>[] mapAccessors() {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Function<Map<String, ?>, Object>[] accessors = new Function[sortedTitles.size()];
+        for (int j = 0; j < accessors.length; j++) {
+            String field = sortedTitles.get(j).getField();
+            if (field != null) {
+                accessors[j] = row -> row.get(field);
+            }
+        }
+        return accessors;
+    }
+
+    /**
+     * 按列顺序的JavaBean属性读取函数（编译后的getter，按类型和字段顺序缓存；最低层级标题没有字段时为null）
+     */
+    private <T> Function<T, Object>[] beanAccessors(Class<T> type) {
+        BeanAccessors<T> beanAccessors = BeanAccessors.ofTitles(type, sortedTitles);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Function<T, Object>[] accessors = new Function[beanAccessors.size()];
+        for (int j = 0; j < accessors.length; j++) {
+            accessors[j] = beanAccessors.getter(j);
+        }
+        return accessors;
+    }
+
     /**
      * 填充数据到表格
      */
@@ -416,37 +406,9 @@ public class MultiLevelHeaderExcelHelper {
 
                 // 不设置单元格样式，使用默认样式
                 if (j < rowData.size()) {
-                    Object value = rowData.get(j);
-                    if (value != null) {
-                        if (value instanceof Number) {
-                            cell.setCellValue(((Number) value).doubleValue());
-                        } else if (value instanceof Boolean) {
-                            cell.setCellValue((Boolean) value);
-                        } else if (value instanceof Date) {
-                            cell.setCellValue((Date) value);
-                        } else {
-                            cell.setCellValue(value.toString());
-                        }
-                    }
+                    ExcelColumns.setCellValue(cell, rowData.get(j));
                 }
             }
         }
     }
-
-    /**
-     * 辅助类：存储表头节点信息（用于循环处理）
-     */
-    private static class HeaderNode {
-        TitleDTO title;
-
-        int rowIndex;
-
-        int colIndex;
-
-        HeaderNode(TitleDTO title, int rowIndex, int colIndex) {
-            this.title = title;
-            this.rowIndex = rowIndex;
-            this.colIndex = colIndex;
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,200 @@
+package com.ljn.demo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 多级表头流式写入测试
+ */
+public class MultiLevelHeaderExcelHelperTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendRowsTest() throws Exception {
+        MultiLevelHeaderExcelHelper helper = new MultiLevelHeaderExcelHelper(titles());
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try {
+            Sheet sheet = workbook.createSheet("数据");
+            List<Map<String, Object>> data = new ArrayList<>();
+            data.add(row("张三", 30));
+            Map<String, Object> missing = new HashMap<>();
+            missing.put("name", "李四");
+            data.add(missing);
+            Iterator<Map<String, Object>> rows = data.iterator();
+
+            assertEquals(4, helper.appendRows(sheet, 2, rows));
+            Row first = sheet.getRow(2);
+            assertEquals("张三", first.getCell(0).getStringCellValue());
+            // 没有字段的列、缺少键的列不创建单元格
+            assertNull(first.getCell(1));
+            assertEquals(30.0, first.getCell(2).getNumericCellValue(), 0.0);
+            assertEquals("李四", sheet.getRow(3).getCell(0).getStringCellValue());
+            assertNull(sheet.getRow(3).getCell(2));
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    @Test
+    public void appendRowsLimitTest() throws Exception {
+        MultiLevelHeaderExcelHelper helper = new MultiLevelHeaderExcelHelper(titles());
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try {
+            Sheet sheet = workbook.createSheet("数据");
+            Iterator<Person> rows = people(5);
+            // 到达Excel行数上限时停止，剩余数据留在迭代器中
+            int next = helper.appendBeans(sheet, SheetPartitioner.EXCEL_MAX_ROWS - 2, rows, Person.class);
+            assertEquals(SheetPartitioner.EXCEL_MAX_ROWS, next);
+            assertEquals("p1", sheet.getRow(SheetPartitioner.EXCEL_MAX_ROWS - 1).getCell(0).getStringCellValue());
+            assertEquals("p2", rows.next().getName());
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    @Test
+    public void exportStreamingRolloverTest() throws Exception {
+        int firstSheetRows = SheetPartitioner.EXCEL_MAX_ROWS - 2;
+        File file = folder.newFile("rollover.xlsx");
+        MultiLevelHeaderExcelHelper helper = new MultiLevelHeaderExcelHelper(titles());
+        try (OutputStream out = new FileOutputStream(file)) {
+            assertEquals(firstSheetRows + 3L,
+                helper.exportStreaming("一个很长的工作表名称用于测试Excel工作表名称的三十一个字符限制", people(firstSheetRows + 3),
+                    Person.class, out));
+        }
+
+        // 每个Sheet都带表头（按期望表头校验），第二个Sheet从第一个Sheet剩余的数据继续
+        Map<String, List<Object>> sheets = new LinkedHashMap<>();
+        BigExcelImportUtil.importExcel(file.getPath(), titles(), new BigExcelImportUtil.DataHandler() {
+            private List<Object> current;
+
+            @Override
+            public void onSheetStart(String sheetName) {
+                current = new ArrayList<>(Collections.singletonList(0));
+                sheets.put(sheetName, current);
+            }
+
+            @Override
+            public Object convertCellValue(String cellValue, int columnIndex) {
+                return cellValue;
+            }
+
+            @Override
+            public boolean handleRowData(List<Object> rowData, int rowNum) {
+                current.set(0, (Integer) current.get(0) + 1);
+                if (current.size() < 3) {
+                    current.add(rowData.get(0));
+                }
+                return true;
+            }
+        });
+        List<String> names = new ArrayList<>(sheets.keySet());
+        assertEquals(2, names.size());
+        assertEquals(31, names.get(0).length());
+        assertEquals(31, names.get(1).length());
+        assertTrue(names.get(1).endsWith("_2"));
+        assertEquals(Arrays.asList(firstSheetRows, "p0", "p1"), sheets.get(names.get(0)));
+        assertEquals(Arrays.asList(3, "p" + firstSheetRows, "p" + (firstSheetRows + 1)), sheets.get(names.get(1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void exportStreamingHeaderFailureTest() throws Exception {
+        // 列数超过Excel上限，表头创建失败时抛出异常，而不是生成没有表头的文件
+        List<TitleDTO> titles = new ArrayList<>();
+        for (int i = 0; i <= 16384; i++) {
+            titles.add(new TitleDTO("列" + i, "f" + i));
+        }
+        new MultiLevelHeaderExcelHelper(titles).exportStreaming("数据",
+            Collections.<Map<String, Object>>emptyIterator(), new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void streamingSheetNameTest() {
+        assertEquals("数据", MultiLevelHeaderExcelHelper.streamingSheetName("数据", 0));
+        assertEquals("数据_12", MultiLevelHeaderExcelHelper.streamingSheetName("数据", 11));
+        String longName = "abcdefghijklmnopqrstuvwxyz0123456789";
+        assertEquals(longName.substring(0, 31), MultiLevelHeaderExcelHelper.streamingSheetName(longName, 0));
+        assertEquals(longName.substring(0, 28) + "_10", MultiLevelHeaderExcelHelper.streamingSheetName(longName, 9));
+        // 截断位置不拆开代理对
+        String emoji = "abcdefghijklmnopqrstuvwxyz01😀😀";
+        assertEquals("abcdefghijklmnopqrstuvwxyz01_2", MultiLevelHeaderExcelHelper.streamingSheetName(emoji, 1));
+    }
+
+    private static List<TitleDTO> titles() {
+        TitleDTO basic = new TitleDTO("基本信息",
+            new ArrayList<>(Arrays.asList(new TitleDTO("姓名", "name"), new TitleDTO("备注"))));
+        return new ArrayList<>(Arrays.asList(basic, new TitleDTO("年龄", "age")));
+    }
+
+    private static Map<String, Object> row(String name, int age) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("name", name);
+        row.put("age", age);
+        return row;
+    }
+
+    private static Iterator<Person> people(int count) {
+        return new Iterator<Person>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Person next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                Person person = new Person("p" + next, next);
+                next++;
+                return person;
+            }
+        };
+    }
+
+    public static class Person {
+        private final String name;
+
+        private final int age;
+
+        public Person(String name, int age) {
+            this.name = name;
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getAge() {
+            return age;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 多级表头导出到输出流（SXSSF流式写出）测试：表头在刷出和切换行窗口后保持完整
+ */
+public class MultiLevelHeaderStreamingExportTest {
+    private static final int ROWS = 100;
+
+    @Test
+    public void exporterTest() throws IOException {
+        MultiLevelHeaderExcelExporter exporter = new MultiLevelHeaderExcelExporter();
+        exporter.setRowAccessWindowSize(10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.exportExcel(titles(), data(), "员工", out);
+        verify(out.toByteArray());
+    }
+
+    @Test
+    public void exporter2Test() throws IOException {
+        MultiLevelHeaderExcelExporter2 exporter = new MultiLevelHeaderExcelExporter2();
+        exporter.setRowAccessWindowSize(10);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exporter.exportExcel(titles(), data(), "员工", out);
+        verify(out.toByteArray());
+    }
+
+    @Test
+    public void progressTest() throws IOException {
+        // 每写满1000行回调一次进度，写完后再回调剩余行数
+        List<Long> progress = new ArrayList<>();
+        ExportListener listener = new ExportListener() {
+            @Override
+            public void onProgress(ExportMetrics metrics) {
+                progress.add(metrics.getRowsWritten());
+            }
+        };
+        List<Long> expected = Arrays.asList(1000L, 2000L, 2500L);
+
+        MultiLevelHeaderExcelExporter exporter = new MultiLevelHeaderExcelExporter();
+        exporter.setListener(listener);
+        exporter.exportExcel(titles(), data(2500), "员工", new ByteArrayOutputStream());
+        assertEquals(expected, progress);
+
+        progress.clear();
+        exporter.exportExcel(titles(), data(2500), "员工");
+        assertEquals(expected, progress);
+
+        MultiLevelHeaderExcelExporter2 exporter2 = new MultiLevelHeaderExcelExporter2();
+        exporter2.setListener(listener);
+        progress.clear();
+        exporter2.exportExcel(titles(), data(2500), "员工", new ByteArrayOutputStream());
+        assertEquals(expected, progress);
+
+        progress.clear();
+        exporter2.exportExcel(titles(), data(2500), "员工");
+        assertEquals(expected, progress);
+    }
+
+    private static void verify(byte[] bytes) throws IOException {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(bytes))) {
+            XSSFSheet sheet = workbook.getSheet("员工");
+
+            // 合并区域和表头单元格在表头行刷出后仍然存在
+            Set<String> merged = new HashSet<>();
+            for (CellRangeAddress region : sheet.getMergedRegions()) {
+                merged.add(region.formatAsString());
+            }
+            assertEquals(new HashSet<>(Arrays.asList("A1:C1", "B2:C2", "A2:A3", "D1:D3")), merged);
+            assertEquals("基本信息", text(sheet, 0, 0));
+            assertEquals("部门", text(sheet, 0, 3));
+            assertEquals("姓名", text(sheet, 1, 0));
+            assertEquals("联系方式", text(sheet, 1, 1));
+            assertEquals("电话", text(sheet, 2, 1));
+            assertEquals("邮箱", text(sheet, 2, 2));
+
+            // 数据行紧接表头，窗口切换后不丢行
+            assertEquals("员工0", text(sheet, 3, 0));
+            assertEquals(1380000.0, sheet.getRow(3).getCell(1).getNumericCellValue(), 0.0);
+            assertEquals("员工" + (ROWS - 1), text(sheet, 3 + ROWS - 1, 0));
+            assertEquals(3 + ROWS - 1, sheet.getLastRowNum());
+
+            // 列宽按表头和数据估算：长邮箱列比电话列宽
+            assertTrue(sheet.getColumnWidth(2) > sheet.getColumnWidth(1));
+            assertTrue(sheet.getColumnWidth(0) != sheet.getDefaultColumnWidth() * 256);
+        }
+    }
+
+    private static String text(XSSFSheet sheet, int row, int column) {
+        return sheet.getRow(row).getCell(column).getStringCellValue();
+    }
+
+    private static List<TitleVO> titles() {
+        TitleVO contact = title("联系方式", title("电话"), title("邮箱"));
+        return Arrays.asList(title("基本信息", title("姓名"), contact), title("部门"));
+    }
+
+    private static TitleVO title(String name, TitleVO... children) {
+        TitleVO title = new TitleVO();
+        title.setTitleName(name);
+        title.setChildren(children.length > 0 ? new ArrayList<>(Arrays.asList(children)) : null);
+        return title;
+    }
+
+    private static List<List<Object>> data() {
+        return data(ROWS);
+    }
+
+    private static List<List<Object>> data(int rows) {
+        List<List<Object>> data = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            data.add(Arrays.<Object>asList("员工" + i, 1380000 + i,
+                "employee.with.a.rather.long.mailbox" + i + "@example.com", "研发"));
+        }
+        return data;
+    }
+}
@@ -0,0 +1,340 @@
+package org.example;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 堆外内存临时存储
+ * 每个Sheet生成的临时xlsx保存在堆外内存（DirectByteBuffer）中，不占用磁盘也不增加GC压力，适合中小数据量导出；
+ * 内存总量受配额限制，SXSSF溢出的行数据仍写入溢出存储（通常为压缩的磁盘存储）
+ * 堆外内存按固定大小分块，数据块关闭后内存块回到空闲池供后续数据块复用（DirectByteBuffer要等GC才能释放，
+ * 因此不交还给GC）；只有空闲池为空时才新分配，已分配的堆外内存总量始终不超过上限
+ */
+public class OffHeapTempStorage implements TempStorage {
+    // 内存块大小
+    private static final int CHUNK_SIZE = 256 * 1024;
+
+    private final TempQuota quota;
+
+    private final TempStorage spillStorage;
+
+    // 空闲内存块
+    private final Deque<ByteBuffer> freeChunks = new ArrayDeque<>();
+
+    // 已分配的内存块数
+    private int allocatedChunks;
+
+    /**
+     * 构造函数
+     *
+     * @param maxBytes 堆外内存上限
+     * @param waitMillis 内存不足时的最长等待时间
+     * @param spillStorage SXSSF行数据溢出使用的存储
+     */
+    public OffHeapTempStorage(long maxBytes, long waitMillis, TempStorage spillStorage) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("堆外内存上限必须大于0");
+        }
+        this.quota = new TempQuota(maxBytes, waitMillis);
+        this.spillStorage = spillStorage != null ? spillStorage : DiskTempStorage.defaultStorage();
+    }
+
+    @Override
+    public TempBlob create(String prefix) {
+        return new OffHeapBlob(prefix, quota.newReservation());
+    }
+
+    /**
+     * 同时获取堆外内存预算（临时xlsx）和溢出存储的预算（SXSSF行数据）
+     */
+    @Override
+    public TempBudget admit(long estimatedBytes) throws IOException {
+        TempBudget memory = quota.reserveBudget(estimatedBytes);
+        try {
+            return combine(memory, spillStorage.admit(estimatedBytes));
+        } catch (IOException | RuntimeException ex) {
+            memory.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public TempBudget tryAdmit(long estimatedBytes) {
+        TempBudget memory = quota.tryReserveBudget(estimatedBytes);
+        if (memory == null) {
+            return null;
+        }
+        TempBudget spill = spillStorage.tryAdmit(estimatedBytes);
+        if (spill == null) {
+            memory.close();
+            return null;
+        }
+        return combine(memory, spill);
+    }
+
+    @Override
+    public SXSSFWorkbook createWorkbook(int rowAccessWindowSize) {
+        return spillStorage.createWorkbook(rowAccessWindowSize);
+    }
+
+    @Override
+    public SXSSFWorkbook createWorkbook(int rowAccessWindowSize, SharedStringDictionary sharedStrings) {
+        return spillStorage.createWorkbook(rowAccessWindowSize, sharedStrings);
+    }
+
+    @Override
+    public SXSSFWorkbook createWorkbook(int rowAccessWindowSize, SharedStringDictionary sharedStrings,
+        int compressionLevel) {
+        return spillStorage.createWorkbook(rowAccessWindowSize, sharedStrings, compressionLevel);
+    }
+
+    public TempQuota getQuota() {
+        return quota;
+    }
+
+    /**
+     * 已分配的堆外内存字节数（使用中 + 空闲池）
+     */
+    public synchronized long getAllocatedBytes() {
+        return (long) allocatedChunks * CHUNK_SIZE;
+    }
+
+    private static TempBudget combine(TempBudget memory, TempBudget spill) {
+        return new TempBudget() {
+            @Override
+            public void bind() {
+                memory.bind();
+                spill.bind();
+            }
+
+            @Override
+            public void close() {
+                try {
+                    spill.close();
+                } finally {
+                    memory.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * 取一个内存块：优先复用空闲块，没有时新分配（调用前已占用配额，因此分配总量不超过上限）
+     */
+    private synchronized ByteBuffer takeChunk() {
+        ByteBuffer chunk = freeChunks.pollFirst();
+        if (chunk == null) {
+            chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            allocatedChunks++;
+        }
+        chunk.clear();
+        return chunk;
+    }
+
+    private synchronized void recycleChunks(List<ByteBuffer> chunks) {
+        for (ByteBuffer chunk : chunks) {
+            freeChunks.addFirst(chunk);
+        }
+    }
+
+    /**
+     * 堆外内存数据块，由若干固定大小的内存块组成
+     */
+    private class OffHeapBlob implements TempBlob {
+        private final String name;
+
+        private final TempQuota.Reservation reservation;
+
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+
+        // 数据总字节数（只由写入线程修改）
+        private volatile long size;
+
+        private volatile boolean closed;
+
+        OffHeapBlob(String name, TempQuota.Reservation reservation) {
+            this.name = name;
+            this.reservation = reservation;
+        }
+
+        @Override
+        public OutputStream openOutputStream() throws IOException {
+            ensureOpen();
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    writableChunk().put((byte) b);
+                    size++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    while (len > 0) {
+                        ByteBuffer chunk = writableChunk();
+                        int length = Math.min(len, chunk.remaining());
+                        chunk.put(b, off, length);
+                        off += length;
+                        len -= length;
+                        size += length;
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream openInputStream() throws IOException {
+            return Channels.newInputStream(openChannel());
+        }
+
+        /**
+         * 打开只读通道（数据块关闭后内存块会被复用，读取需在关闭数据块之前完成）
+         */
+        @Override
+        public synchronized SeekableByteChannel openChannel() throws IOException {
+            ensureOpen();
+            List<ByteBuffer> content = new ArrayList<>(chunks.size());
+            for (ByteBuffer chunk : chunks) {
+                ByteBuffer view = chunk.duplicate();
+                view.flip();
+                content.add(view);
+            }
+            return new ReadOnlyChunkChannel(content, size);
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            // 内存块回到空闲池后再归还配额，配额始终覆盖正在使用的堆外内存
+            recycleChunks(chunks);
+            chunks.clear();
+            reservation.releaseAll();
+        }
+
+        /**
+         * 返回有剩余空间的内存块，最后一块写满时占用配额后追加新块
+         */
+        private synchronized ByteBuffer writableChunk() throws IOException {
+            ensureOpen();
+            ByteBuffer last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (last == null || !last.hasRemaining()) {
+                reservation.use(CHUNK_SIZE);
+                last = takeChunk();
+                chunks.add(last);
+            }
+            return last;
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("临时数据块已关闭: " + name);
+            }
+        }
+    }
+
+    /**
+     * 基于多个ByteBuffer的只读通道
+     */
+    private static class ReadOnlyChunkChannel implements SeekableByteChannel {
+        private final List<ByteBuffer> chunks;
+
+        private final long size;
+
+        private long position;
+
+        private boolean open = true;
+
+        ReadOnlyChunkChannel(List<ByteBuffer> chunks, long size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            ensureOpen();
+            if (position >= size) {
+                return -1;
+            }
+            int total = 0;
+            while (dst.hasRemaining() && position < size) {
+                ByteBuffer slice = chunks.get((int) (position / CHUNK_SIZE)).duplicate();
+                slice.position((int) (position % CHUNK_SIZE));
+                int length = Math.min(dst.remaining(), slice.remaining());
+                slice.limit(slice.position() + length);
+                dst.put(slice);
+                position += length;
+                total += length;
+            }
+            return total;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public long position() throws IOException {
+            ensureOpen();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            ensureOpen();
+            position = Math.min(newPosition, size);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            ensureOpen();
+            return size;
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        private void ensureOpen() throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.example;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * 堆外内存临时存储测试
+ */
+public class OffHeapTempStorageTest {
+    private static final long MB = 1024L * 1024L;
+
+    @Test
+    public void roundTripTest() throws IOException {
+        OffHeapTempStorage storage = new OffHeapTempStorage(4 * MB, 0L, null);
+        byte[] data = new byte[700 * 1024 + 3];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+        try (TempBlob blob = storage.create("t")) {
+            try (OutputStream out = blob.openOutputStream()) {
+                out.write(data[0]);
+                out.write(data, 1, data.length - 1);
+            }
+            assertEquals(data.length, blob.size());
+            ByteArrayOutputStream read = new ByteArrayOutputStream();
+            try (InputStream in = blob.openInputStream()) {
+                byte[] buffer = new byte[100000];
+                int length;
+                while ((length = in.read(buffer)) != -1) {
+                    read.write(buffer, 0, length);
+                }
+            }
+            assertArrayEquals(data, read.toByteArray());
+
+            // 跨内存块随机读取
+            try (SeekableByteChannel channel = blob.openChannel()) {
+                channel.position(256 * 1024 - 2);
+                ByteBuffer four = ByteBuffer.allocate(4);
+                channel.read(four);
+                for (int i = 0; i < 4; i++) {
+                    assertEquals(data[256 * 1024 - 2 + i], four.get(i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void reuseChunksTest() throws IOException {
+        OffHeapTempStorage storage = new OffHeapTempStorage(2 * MB, 0L, null);
+        byte[] data = new byte[(int) MB];
+        for (int round = 0; round < 5; round++) {
+            try (TempBlob blob = storage.create("t" + round)) {
+                try (OutputStream out = blob.openOutputStream()) {
+                    out.write(data);
+                }
+            }
+            // 关闭后配额归还，内存块回到空闲池复用，已分配的堆外内存不随导出次数增长
+            assertEquals(0L, storage.getQuota().getUsedBytes());
+            assertEquals(MB, storage.getAllocatedBytes());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * JMH峰值RSS采集（仅Linux）
+ * 每轮迭代开始前重置进程的内存高水位（/proc/self/clear_refs），结束后读取 /proc/self/status 的 VmHWM，
+ * 报告该轮迭代期间的峰值常驻内存，包含堆、堆外缓冲区和线程栈
+ * 使用方式：-prof org.example.PeakRssProfiler
+ */
+public class PeakRssProfiler implements InternalProfiler {
+    private static final Path STATUS = Paths.get("/proc/self/status");
+
+    private static final Path CLEAR_REFS = Paths.get("/proc/self/clear_refs");
+
+    // 写入5表示重置VmHWM
+    private static final byte[] RESET_PEAK = "5".getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    public String getDescription() {
+        return "每轮迭代的峰值RSS（VmHWM，仅Linux）";
+    }
+
+    @Override
+    public void beforeIteration(BenchmarkParams benchmarkParams, IterationParams iterationParams) {
+        try {
+            Files.write(CLEAR_REFS, RESET_PEAK);
+        } catch (IOException | SecurityException ex) {
+            // 无法重置时报告进程启动以来的峰值
+        }
+    }
+
+    @Override
+    public Collection<? extends Result<?>> afterIteration(BenchmarkParams benchmarkParams,
+        IterationParams iterationParams, IterationResult result) {
+        long peakKb = readPeakKb();
+        if (peakKb < 0) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(
+            new ScalarResult("rss.peak", peakKb / 1024.0, "MB", AggregationPolicy.MAX));
+    }
+
+    /**
+     * 读取VmHWM（KB），不可用时返回-1
+     */
+    private static long readPeakKb() {
+        if (!Files.isReadable(STATUS)) {
+            return -1L;
+        }
+        try {
+            for (String line : Files.readAllLines(STATUS, StandardCharsets.US_ASCII)) {
+                if (line.startsWith("VmHWM:")) {
+                    return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | NumberFormatException ex) {
+            // 忽略，视为不可用
+        }
+        return -1L;
+    }
+}
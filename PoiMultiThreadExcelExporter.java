@@ -1,71 +1,179 @@
 package org.example;
 
-import org.apache.poi.ss.usermodel.BorderStyle;
+import com.ljn.demo.util.ColumnWidthEstimator;
+import com.ljn.demo.util.ExcelColumns;
+import com.ljn.demo.util.SheetPartitioner;
+
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.DateUtil;
-import org.apache.poi.ss.usermodel.Font;
-import org.apache.poi.ss.usermodel.HorizontalAlignment;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.VerticalAlignment;
-import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.function.BiConsumer;
+import java.util.RandomAccess;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 /**
  * POI多线程Excel导出通用工具类
  * 特点：
  * 1. 多线程并行处理不同Sheet，每个线程独立操作自己的Workbook
  * 2. 支持大数据量导出，采用SXSSFWorkbook减少内存占用
- * 3. 提供灵活的样式定制和数据映射接口
+ * 3. 提供灵活的样式定制和数据映射接口，样式按key注册，每个Workbook按列只创建一次
  * 4. 自动清理临时文件，避免磁盘空间占用
  * 5. 跨平台兼容Windows和Linux系统
+ * 6. 支持List、Iterator、Stream和分页加载等数据源，流式数据源按页分发，峰值内存与数据总量无关
+ * 7. 默认采用流式拼装合并临时文件，Sheet XML直接拷贝到最终文件，合并阶段不在内存中构建Sheet；
+ *    Sheet数据在各写入线程中按可配置的级别并行压缩，拼装时按已压缩的数据拷贝，不再单线程重新压缩
+ * 8. 列宽在写入时按字符估算（可抽样），不依赖autoSizeColumn的字体排版
+ * 9. 支持直接导出到输出流（如HTTP响应），Sheet按顺序边生成边写出，不需要先落地完整文件
+ * 10. 默认使用进程内共享线程池（可注入执行器或使用虚拟线程），全局舱壁限制所有请求同时运行的Sheet写入任务数
+ * 11. 可通过ExportListener获取各阶段耗时、写入速度、临时文件大小和进度
+ * 12. 单Sheet流水线模式：多线程并行读取/映射数据，单线程按顺序写入，大数据量单Sheet也能利用多核
+ * 13. 临时数据统一经TempStorage读写：临时目录可配置、溢出行数据压缩、节点级空间配额，也可放在堆外内存
+ * 14. 导出在后台执行并返回ExportHandle，支持取消和截止时间，失败时抛出原始异常
+ * 15. 支持类型化列定义（ExcelColumns），数值列直接写入原始类型，不创建Object[]、不装箱
+ * 16. sheetDataSize传入AUTO_SHEET_SIZE时自动分Sheet：按行数上限和抽样估算的Sheet大小切分，并按线程数均衡
+ * 17. 可按列把重复值多的字符串写入有界共享字符串表（指定或按基数自动判断），减小文件体积
+ * 18. 可选原始写入引擎（WriterEngine.RAW）：不创建Row/Cell对象，直接按类型写出Sheet XML，适合只用内置样式的大数据量导出
  */
 public class PoiMultiThreadExcelExporter<T> {
+    // 自动分Sheet：按行数上限、目标Sheet大小和线程数规划每个Sheet的数据量
+    // （取一个此前就会被拒绝的值，0和负数仍按非法参数拒绝）
+    public static final int AUTO_SHEET_SIZE = Integer.MIN_VALUE;
+
     // 内存中保留的行数，超过则写入临时文件
     private static final int ROW_ACCESS_WINDOW_SIZE = 1000;
 
-    // 默认线程池大小
+    // 默认单次导出并行Sheet数
     private static final int DEFAULT_THREAD_POOL_SIZE = Math.min(Runtime.getRuntime().availableProcessors() + 1, 10);
 
     // 临时文件前缀
     private static final String TEMP_FILE_PREFIX = "poi_excel_temp_";
 
-    // 临时文件后缀
-    private static final String TEMP_FILE_SUFFIX = ".xlsx";
+    // 流式数据源：每页交给Sheet写入线程的行数
+    private static final int FEED_PAGE_SIZE = 1000;
+
+    // 流式数据源：每个Sheet数据通道中最多缓存的页数
+    private static final int FEED_CAPACITY = 4;
+
+    // 列宽估算默认抽样行数
+    private static final int DEFAULT_WIDTH_SAMPLE_SIZE = 1000;
+
+    // 每写入多少行汇总一次指标并回调进度
+    private static final int PROGRESS_INTERVAL_ROWS = 1000;
+
+    // 每写入多少行检查一次是否已取消
+    private static final int CANCEL_CHECK_INTERVAL_ROWS = 128;
+
+    // 自动分Sheet时估算行大小的抽样行数
+    private static final int PARTITION_SAMPLE_ROWS = 200;
+
+    // 原始写入引擎生成的临时xlsx中的部件（与XlsxPackageAssembler读取的部件一致）
+    private static final String RAW_SHEET_ENTRY = "xl/worksheets/sheet1.xml";
+
+    private static final String RAW_STYLES_ENTRY = "xl/styles.xml";
 
     private final String[] headers;
 
+    // 数据映射函数（使用类型化列定义时为null）
     private final Function<T, Object[]> dataMapper;
 
+    // 类型化列定义编译后的行写入器（使用dataMapper时为null）
+    private final ExcelColumns.RowWriter<T> rowWriter;
+
     private final String baseSheetName;
 
     private final int threadPoolSize;
 
-    private final BiConsumer<Sheet, Integer> headerStyleConsumer;
+    // 表头样式选择：列索引 -> 样式key
+    private final IntFunction<String> headerStyleKeySelector;
+
+    // 单元格样式选择：列索引 -> 样式key
+    private final IntFunction<String> cellStyleKeySelector;
+
+    private final CellStyleRegistry styleRegistry = new CellStyleRegistry();
+
+    // 临时文件合并方式
+    private MergeMode mergeMode = MergeMode.STREAMING;
+
+    // 多Sheet导出时Sheet数据的写入引擎
+    private WriterEngine writerEngine = WriterEngine.SXSSF;
+
+    // xlsx的zip压缩级别
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+
+    // 列宽估算抽样行数，<=0 表示全量测量
+    private int widthSampleSize = DEFAULT_WIDTH_SAMPLE_SIZE;
 
-    private final BiConsumer<Cell, Integer> cellStyleConsumer;
+    // Sheet写入任务执行器，默认使用进程内共享线程池
+    private ExecutorService executor = ExportExecutors.shared();
+
+    // 限制进程内同时运行的Sheet写入任务数
+    private ExportBulkhead bulkhead = ExportBulkhead.global();
+
+    // 导出进度监听器
+    private ExportListener listener = ExportListener.NONE;
+
+    // 临时数据存储，默认使用按系统属性配置的磁盘存储
+    private TempStorage tempStorage = DiskTempStorage.defaultStorage();
+
+    // 单次导出的截止时间（毫秒），<=0 表示不限制
+    private long timeoutMillis;
+
+    // 自动分Sheet规划
+    private SheetPartitioner sheetPartitioner = new SheetPartitioner();
+
+    // 字符串默认编码方式
+    private SharedStringDictionary.Encoding stringEncoding = SharedStringDictionary.Encoding.INLINE;
+
+    // 按列指定的字符串编码方式，元素为null时使用默认编码方式
+    private final SharedStringDictionary.Encoding[] columnStringEncodings;
+
+    // 共享字符串表最多条目数
+    private int sharedStringsMaxEntries = SharedStringDictionary.DEFAULT_MAX_ENTRIES;
+
+    // 共享字符串表估算内存上限
+    private long sharedStringsMaxBytes = SharedStringDictionary.DEFAULT_MAX_BYTES;
+
+    // AUTO列的基数上限
+    private int sharedStringsCardinalityLimit = SharedStringDictionary.DEFAULT_CARDINALITY_LIMIT;
 
     /**
      * 构造函数
@@ -84,163 +192,1136 @@ public class PoiMultiThreadExcelExporter<T> {
      * @param headers 表头数组
      * @param dataMapper 数据映射函数
      * @param baseSheetName Sheet基础名称
-     * @param threadPoolSize 线程池大小
-     * @param headerStyleConsumer 表头样式消费者
-     * @param cellStyleConsumer 单元格样式消费者
+     * @param threadPoolSize 单次导出同时写入的Sheet数（线程由执行器提供）
+     * @param headerStyleKeySelector 表头样式选择（列索引 -> 样式key），为null时使用内置表头样式
+     * @param cellStyleKeySelector 单元格样式选择（列索引 -> 样式key），为null时使用内置数据样式
      */
     public PoiMultiThreadExcelExporter(String[] headers, Function<T, Object[]> dataMapper, String baseSheetName,
-        int threadPoolSize, BiConsumer<Sheet, Integer> headerStyleConsumer,
-        BiConsumer<Cell, Integer> cellStyleConsumer) {
+        int threadPoolSize, IntFunction<String> headerStyleKeySelector, IntFunction<String> cellStyleKeySelector) {
+        this(headers, Objects.requireNonNull(dataMapper, "数据映射函数不能为空"), null, baseSheetName, threadPoolSize,
+            headerStyleKeySelector, cellStyleKeySelector);
+    }
+
+    /**
+     * 构造函数（类型化列定义）
+     *
+     * @param columns 列定义
+     * @param baseSheetName Sheet基础名称
+     */
+    public PoiMultiThreadExcelExporter(ExcelColumns<T> columns, String baseSheetName) {
+        this(columns, baseSheetName, DEFAULT_THREAD_POOL_SIZE, null, null);
+    }
+
+    /**
+     * 构造函数（类型化列定义，全参数）
+     * 列定义在构造时编译，之后再修改列定义不影响本导出器
+     *
+     * @param columns 列定义
+     * @param baseSheetName Sheet基础名称
+     * @param threadPoolSize 单次导出同时写入的Sheet数（线程由执行器提供）
+     * @param headerStyleKeySelector 表头样式选择（列索引 -> 样式key），为null时使用内置表头样式
+     * @param cellStyleKeySelector 单元格样式选择（列索引 -> 样式key），为null时日期列使用内置日期样式，其余列使用内置数据样式
+     */
+    public PoiMultiThreadExcelExporter(ExcelColumns<T> columns, String baseSheetName, int threadPoolSize,
+        IntFunction<String> headerStyleKeySelector, IntFunction<String> cellStyleKeySelector) {
+        this(Objects.requireNonNull(columns, "列定义不能为空").getHeaders(), null, columns.compile(), baseSheetName,
+            threadPoolSize, headerStyleKeySelector,
+            cellStyleKeySelector != null ? cellStyleKeySelector : defaultCellStyleKeySelector(columns));
+    }
+
+    private PoiMultiThreadExcelExporter(String[] headers, Function<T, Object[]> dataMapper,
+        ExcelColumns.RowWriter<T> rowWriter, String baseSheetName, int threadPoolSize,
+        IntFunction<String> headerStyleKeySelector, IntFunction<String> cellStyleKeySelector) {
         Objects.requireNonNull(headers, "表头不能为空");
-        Objects.requireNonNull(dataMapper, "数据映射函数不能为空");
         Objects.requireNonNull(baseSheetName, "Sheet基础名称不能为空");
 
         this.headers = Arrays.copyOf(headers, headers.length);
+        this.columnStringEncodings = new SharedStringDictionary.Encoding[headers.length];
         this.dataMapper = dataMapper;
+        this.rowWriter = rowWriter;
         this.baseSheetName = baseSheetName;
         this.threadPoolSize = Math.max(1, threadPoolSize);
-        this.headerStyleConsumer = headerStyleConsumer != null ? headerStyleConsumer : this::defaultHeaderStyle;
-        this.cellStyleConsumer = cellStyleConsumer != null ? cellStyleConsumer : this::defaultCellStyle;
+        this.headerStyleKeySelector = headerStyleKeySelector != null
+            ? headerStyleKeySelector
+            : columnIndex -> CellStyleRegistry.HEADER;
+        this.cellStyleKeySelector = cellStyleKeySelector != null
+            ? cellStyleKeySelector
+            : columnIndex -> CellStyleRegistry.BODY;
+    }
+
+    /**
+     * 类型化列的默认单元格样式：日期列使用日期格式
+     */
+    private static IntFunction<String> defaultCellStyleKeySelector(ExcelColumns<?> columns) {
+        String[] styleKeys = new String[columns.size()];
+        for (int i = 0; i < styleKeys.length; i++) {
+            styleKeys[i] = columns.getType(i) == ExcelColumns.ColumnType.DATE
+                ? CellStyleRegistry.DATE
+                : CellStyleRegistry.BODY;
+        }
+        return columnIndex -> columnIndex < styleKeys.length ? styleKeys[columnIndex] : CellStyleRegistry.BODY;
+    }
+
+    /**
+     * 注册（或覆盖）样式，供样式选择函数按key引用
+     * 样式在每个Sheet的Workbook中只创建一次
+     *
+     * @param key 样式key
+     * @param definition 样式定义
+     */
+    public void registerStyle(String key, CellStyleRegistry.StyleDefinition definition) {
+        styleRegistry.register(key, definition);
+    }
+
+    /**
+     * 设置临时文件合并方式
+     *
+     * @param mergeMode 合并方式
+     */
+    public void setMergeMode(MergeMode mergeMode) {
+        this.mergeMode = Objects.requireNonNull(mergeMode, "合并方式不能为空");
+    }
+
+    /**
+     * 设置多Sheet导出时Sheet数据的写入引擎
+     * RAW引擎只支持内置样式（CellStyleRegistry.HEADER、BODY、DATE，registerStyle覆盖内置样式不生效），
+     * 不支持POI_COPY合并方式，列宽按每个Sheet的前widthSampleSize行估算；单Sheet流水线模式始终使用SXSSF
+     *
+     * @param writerEngine 写入引擎
+     */
+    public void setWriterEngine(WriterEngine writerEngine) {
+        this.writerEngine = Objects.requireNonNull(writerEngine, "写入引擎不能为空");
+    }
+
+    /**
+     * 设置xlsx的zip压缩级别
+     * Sheet数据在各写入线程中按此级别压缩，流式拼装时直接拷贝；级别越低写入越快、文件越大
+     * POI_COPY合并方式的最终文件由POI按默认级别压缩
+     *
+     * @param compressionLevel 压缩级别（Deflater.DEFAULT_COMPRESSION 或 0-9）
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+            && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("压缩级别无效: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * 设置字符串默认编码方式（未单独指定的列使用）
+     * 共享字符串只在流式拼装和流水线模式下生效，POI_COPY合并方式下全部内联
+     *
+     * @param encoding 编码方式
+     */
+    public void setStringEncoding(SharedStringDictionary.Encoding encoding) {
+        this.stringEncoding = Objects.requireNonNull(encoding, "编码方式不能为空");
+    }
+
+    /**
+     * 指定某列的字符串编码方式（如已知国家、城市、部门等列重复值多时指定为SHARED）
+     *
+     * @param column 列索引
+     * @param encoding 编码方式，为null时恢复默认
+     */
+    public void setStringEncoding(int column, SharedStringDictionary.Encoding encoding) {
+        if (column < 0 || column >= columnStringEncodings.length) {
+            throw new IllegalArgumentException("列索引超出范围: " + column);
+        }
+        columnStringEncodings[column] = encoding;
+    }
+
+    /**
+     * 设置共享字符串表上限（单次导出）
+     *
+     * @param maxEntries 最多条目数
+     * @param maxBytes 估算内存上限
+     * @param cardinalityLimit AUTO列的基数上限，超过后该列改为内联
+     */
+    public void setSharedStringsLimits(int maxEntries, long maxBytes, int cardinalityLimit) {
+        if (maxEntries <= 0 || maxBytes <= 0 || cardinalityLimit <= 0) {
+            throw new IllegalArgumentException("共享字符串上限必须大于0");
+        }
+        this.sharedStringsMaxEntries = maxEntries;
+        this.sharedStringsMaxBytes = maxBytes;
+        this.sharedStringsCardinalityLimit = cardinalityLimit;
+    }
+
+    /**
+     * 设置列宽估算的抽样行数（每个Sheet），<=0 表示测量全部数据行
+     *
+     * @param widthSampleSize 抽样行数
+     */
+    public void setWidthSampleSize(int widthSampleSize) {
+        this.widthSampleSize = widthSampleSize;
+    }
+
+    /**
+     * 设置Sheet写入任务执行器（由调用方管理生命周期），
+     * 例如 ExportExecutors.virtualThreads() 使用虚拟线程
+     *
+     * @param executor 执行器
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = Objects.requireNonNull(executor, "执行器不能为空");
+    }
+
+    /**
+     * 设置导出舱壁，默认使用进程内全局舱壁
+     *
+     * @param bulkhead 导出舱壁
+     */
+    public void setBulkhead(ExportBulkhead bulkhead) {
+        this.bulkhead = Objects.requireNonNull(bulkhead, "导出舱壁不能为空");
+    }
+
+    /**
+     * 设置导出进度监听器（回调阶段耗时、写入速度和进度）
+     *
+     * @param listener 监听器
+     */
+    public void setListener(ExportListener listener) {
+        this.listener = listener != null ? listener : ExportListener.NONE;
+    }
+
+    /**
+     * 设置临时数据存储（如指定目录和配额的DiskTempStorage，或OffHeapTempStorage）
+     *
+     * @param tempStorage 临时存储
+     */
+    public void setTempStorage(TempStorage tempStorage) {
+        this.tempStorage = Objects.requireNonNull(tempStorage, "临时存储不能为空");
+    }
+
+    /**
+     * 设置单次导出的截止时间，从开始导出计时，超时后自动取消
+     *
+     * @param timeoutMillis 截止时间（毫秒），<=0 表示不限制
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * 设置自动分Sheet规划（sheetDataSize为AUTO_SHEET_SIZE时使用）
+     *
+     * @param sheetPartitioner 分Sheet规划
+     */
+    public void setSheetPartitioner(SheetPartitioner sheetPartitioner) {
+        this.sheetPartitioner = Objects.requireNonNull(sheetPartitioner, "分Sheet规划不能为空");
     }
 
     /**
      * 导出Excel文件
+     * 导出在后台执行，通过返回的句柄等待完成（await）或取消；失败或取消时删除未写完的文件
+     *
+     * @param dataList 完整数据列表
+     * @param filePath 目标文件路径
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle export(List<T> dataList, String filePath, int sheetDataSize) {
+        validateList(dataList, sheetDataSize);
+        return start(dataList.size(), filePath, (out, handle) -> writeList(dataList, out, sheetDataSize, handle));
+    }
+
+    /**
+     * 导出Excel到输出流（如 HttpServletResponse.getOutputStream()）
+     * 第一个Sheet写完即开始向输出流写入，之后的Sheet边生成边写出；输出流写入慢时会反压Sheet生成。
+     * 输出流由调用方在导出结束（await返回）后关闭；客户端断开时调用句柄的cancel()停止导出
      *
      * @param dataList 完整数据列表
+     * @param out 输出流
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle export(List<T> dataList, OutputStream out, int sheetDataSize) {
+        validateList(dataList, sheetDataSize);
+        return start(dataList.size(), out, (target, handle) -> writeList(dataList, target, sheetDataSize, handle));
+    }
+
+    /**
+     * 导出Excel文件（流式数据源）
+     * 数据按页分发给各Sheet写入线程，内存中只保留正在写入的Sheet的少量数据页
+     *
+     * @param dataStream 数据流（导出结束后关闭）
+     * @param filePath 目标文件路径
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle export(Stream<T> dataStream, String filePath, int sheetDataSize) {
+        Objects.requireNonNull(dataStream, "数据流不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, filePath, (out, handle) -> writeStream(dataStream, out, sheetDataSize, handle));
+    }
+
+    /**
+     * 导出Excel到输出流（流式数据源）
+     *
+     * @param dataStream 数据流（导出结束后关闭）
+     * @param out 输出流（由调用方关闭）
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle export(Stream<T> dataStream, OutputStream out, int sheetDataSize) {
+        Objects.requireNonNull(dataStream, "数据流不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, out, (target, handle) -> writeStream(dataStream, target, sheetDataSize, handle));
+    }
+
+    /**
+     * 导出Excel文件（分页数据源）
+     *
+     * @param pageLoader 分页加载函数，入参为页码（从1开始），返回null或空列表表示没有更多数据
+     * @param filePath 目标文件路径
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle exportByPage(IntFunction<List<T>> pageLoader, String filePath, int sheetDataSize) {
+        Objects.requireNonNull(pageLoader, "分页加载函数不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, filePath,
+            (out, handle) -> writeIterator(new PageIterator<>(pageLoader), out, sheetDataSize, handle));
+    }
+
+    /**
+     * 导出Excel到输出流（分页数据源）
+     *
+     * @param pageLoader 分页加载函数，入参为页码（从1开始），返回null或空列表表示没有更多数据
+     * @param out 输出流（由调用方关闭）
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle exportByPage(IntFunction<List<T>> pageLoader, OutputStream out, int sheetDataSize) {
+        Objects.requireNonNull(pageLoader, "分页加载函数不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, out,
+            (target, handle) -> writeIterator(new PageIterator<>(pageLoader), target, sheetDataSize, handle));
+    }
+
+    /**
+     * 导出Excel文件（迭代器数据源）
+     *
+     * @param dataIterator 数据迭代器
+     * @param filePath 目标文件路径
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle export(Iterator<T> dataIterator, String filePath, int sheetDataSize) {
+        Objects.requireNonNull(dataIterator, "数据迭代器不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, filePath, (out, handle) -> writeIterator(dataIterator, out, sheetDataSize, handle));
+    }
+
+    /**
+     * 导出Excel到输出流（迭代器数据源）
+     * 读取线程逐页把数据交给当前Sheet的写入线程，写满一个Sheet后再启动下一个，
+     * 在途的Sheet数不超过线程池大小，峰值内存只取决于在途的数据页
+     *
+     * @param dataIterator 数据迭代器（在导出线程中读取）
+     * @param out 输出流（由调用方关闭）
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle export(Iterator<T> dataIterator, OutputStream out, int sheetDataSize) {
+        Objects.requireNonNull(dataIterator, "数据迭代器不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, out, (target, handle) -> writeIterator(dataIterator, target, sheetDataSize, handle));
+    }
+
+    /**
+     * 单Sheet流水线导出到文件（迭代器数据源）
+     *
+     * @param dataIterator 数据迭代器
      * @param filePath 目标文件路径
-     * @param sheetDataSize 每个Sheet的数据量
-     * @throws Exception 可能抛出的异常
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
      */
-    public void export(List<T> dataList, String filePath, int sheetDataSize) throws Exception {
+    public ExportHandle exportPipelined(Iterator<T> dataIterator, String filePath, int sheetDataSize) {
+        Objects.requireNonNull(dataIterator, "数据迭代器不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, filePath,
+            (out, handle) -> writePipelined(iteratorBatchSource(dataIterator), out, sheetDataSize, handle));
+    }
+
+    /**
+     * 单Sheet流水线导出到输出流（迭代器数据源）
+     * 导出线程按批读取数据，多个线程并行执行dataMapper，导出线程按读取顺序把映射结果追加到同一个Workbook；
+     * 在途批次有上限，写入跟不上时读取等待。适合一个Sheet数据量很大、dataMapper较重的场景，
+     * 超过每个Sheet的数据量时在同一个Workbook中续写下一个Sheet，不需要临时文件合并
+     * 使用类型化列定义时取值在写入线程中与写入一起完成，并行部分只有数据读取
+     *
+     * @param dataIterator 数据迭代器（List、Stream可传入其iterator()）
+     * @param out 输出流（由调用方关闭）
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle exportPipelined(Iterator<T> dataIterator, OutputStream out, int sheetDataSize) {
+        Objects.requireNonNull(dataIterator, "数据迭代器不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, out,
+            (target, handle) -> writePipelined(iteratorBatchSource(dataIterator), target, sheetDataSize, handle));
+    }
+
+    /**
+     * 单Sheet流水线导出到文件（分页数据源）
+     *
+     * @param pageLoader 分页加载函数，入参为页码（从1开始），返回null或空列表表示没有更多数据
+     * @param filePath 目标文件路径
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle exportByPagePipelined(IntFunction<List<T>> pageLoader, String filePath, int sheetDataSize) {
+        Objects.requireNonNull(pageLoader, "分页加载函数不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, filePath,
+            (out, handle) -> writePipelined(pageBatchSource(pageLoader), out, sheetDataSize, handle));
+    }
+
+    /**
+     * 单Sheet流水线导出到输出流（分页数据源）
+     * 多个线程并行加载后续页并执行dataMapper，导出线程按页码顺序写入；
+     * pageLoader会被并发调用，且可能预取到最后一页之后的页码
+     *
+     * @param pageLoader 分页加载函数（需线程安全），入参为页码（从1开始），返回null或空列表表示没有更多数据
+     * @param out 输出流（由调用方关闭）
+     * @param sheetDataSize 每个Sheet的数据量，AUTO_SHEET_SIZE 表示自动分Sheet
+     * @return 导出句柄
+     */
+    public ExportHandle exportByPagePipelined(IntFunction<List<T>> pageLoader, OutputStream out, int sheetDataSize) {
+        Objects.requireNonNull(pageLoader, "分页加载函数不能为空");
+        validateSheetDataSize(sheetDataSize);
+        return start(-1, out,
+            (target, handle) -> writePipelined(pageBatchSource(pageLoader), target, sheetDataSize, handle));
+    }
+
+    private void validateList(List<T> dataList, int sheetDataSize) {
         if (dataList == null || dataList.isEmpty()) {
             throw new IllegalArgumentException("数据列表不能为空");
         }
-        if (sheetDataSize <= 0) {
-            throw new IllegalArgumentException("每个Sheet的数据量必须大于0");
+        validateSheetDataSize(sheetDataSize);
+    }
+
+    private void validateSheetDataSize(int sheetDataSize) {
+        if (sheetDataSize != AUTO_SHEET_SIZE) {
+            SheetPartitioner.Plan.fixed(sheetDataSize);
         }
+    }
 
-        // 数据分片
-        List<List<T>> dataChunks = splitDataIntoChunks(dataList, sheetDataSize);
-        int chunkCount = dataChunks.size();
+    /**
+     * 在协调线程中导出到文件，失败或取消时删除未写完的文件
+     */
+    private ExportHandle start(long totalRows, String filePath, ExportBody body) {
+        Objects.requireNonNull(filePath, "文件路径不能为空");
+        return start(totalRows, handle -> {
+            File file = new File(filePath);
+            boolean completed = false;
+            try (OutputStream out = new FileOutputStream(file)) {
+                body.write(out, handle);
+                completed = true;
+            } finally {
+                if (!completed && file.exists() && !file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        });
+    }
 
-        ThreadPoolExecutor executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS,
-            new LinkedBlockingQueue<>(), new ThreadFactory() {
-            private int counter = 0;
+    /**
+     * 在协调线程中导出到输出流
+     */
+    private ExportHandle start(long totalRows, OutputStream out, ExportBody body) {
+        Objects.requireNonNull(out, "输出流不能为空");
+        return start(totalRows, handle -> body.write(out, handle));
+    }
 
-            @Override
-            public Thread newThread(Runnable r) {
-                Thread thread = new Thread(r, "excel-export-thread-" + counter++);
-                thread.setDaemon(true);
-                return thread;
+    private ExportHandle start(long totalRows, HandleTask task) {
+        ExportHandle handle = new ExportHandle(new ExportMetrics(totalRows), timeoutMillis);
+        handle.start(ExportExecutors.coordinator(), () -> {
+            try {
+                task.run(handle);
+            } catch (Exception ex) {
+                listener.onFailed(handle.getMetrics(), handle.translate(ex));
+                throw ex;
             }
-        }, new ThreadPoolExecutor.CallerRunsPolicy() // 当线程池满时，让提交任务的线程执行任务
-        );
+        });
+        return handle;
+    }
 
-        // 创建线程池
-        try {
-            // 提交任务
-            List<Future<File>> futures = new ArrayList<>(chunkCount);
-            for (int i = 0; i < chunkCount; i++) {
+    /**
+     * 多Sheet并行导出（列表数据源）
+     */
+    private void writeList(List<T> dataList, OutputStream out, int sheetDataSize, ExportHandle handle)
+        throws Exception {
+        SheetPartitioner.Plan plan;
+        long rowBytes;
+        if (sheetDataSize == AUTO_SHEET_SIZE) {
+            rowBytes = sampleRowBytes(sampleList(dataList));
+            plan = sheetPartitioner.plan(dataList.size(), rowBytes, threadPoolSize);
+        } else {
+            rowBytes = SheetPartitioner.RowSizeSampler.estimateRowBytes(headers.length);
+            plan = SheetPartitioner.Plan.fixed(sheetDataSize);
+        }
+        // 数据分片（subList视图，不复制数据）
+        List<List<T>> dataChunks = splitDataIntoChunks(dataList, plan);
+
+        try (SheetPipeline pipeline = new SheetPipeline(out, handle)) {
+            // 提交任务（同一请求在途的Sheet数受线程池大小限制）
+            for (int i = 0; i < dataChunks.size(); i++) {
                 final int sheetIndex = i;
                 List<T> chunk = dataChunks.get(i);
-                futures.add(executor.submit(() -> createSheetTempFile(chunk, sheetIndex)));
+                pipeline.submit(
+                    () -> createSheetTempFile(chunk.iterator(), sheetIndex, pipeline.sharedStrings, handle),
+                    estimateSheetBytes(chunk.size(), rowBytes));
             }
 
-            // 收集临时文件并合并
-            List<File> tempFiles = new ArrayList<>(chunkCount);
-            try {
-                for (Future<File> future : futures) {
-                    tempFiles.add(future.get());
+            // 按顺序写出剩余Sheet
+            pipeline.finish();
+        }
+    }
+
+    /**
+     * 多Sheet并行导出（流式数据源）
+     */
+    private void writeStream(Stream<T> dataStream, OutputStream out, int sheetDataSize, ExportHandle handle)
+        throws Exception {
+        try (Stream<T> stream = dataStream) {
+            // 数据量已知（如集合的流）时自动分Sheet可按总行数均衡
+            Spliterator<T> spliterator = stream.spliterator();
+            writeIterator(Spliterators.iterator(spliterator), spliterator.getExactSizeIfKnown(), out, sheetDataSize,
+                handle);
+        }
+    }
+
+    /**
+     * 多Sheet并行导出（迭代器数据源）
+     */
+    private void writeIterator(Iterator<T> dataIterator, OutputStream out, int sheetDataSize, ExportHandle handle)
+        throws Exception {
+        writeIterator(dataIterator, -1, out, sheetDataSize, handle);
+    }
+
+    /**
+     * 多Sheet并行导出（迭代器数据源，totalRows<0 表示总行数未知）
+     */
+    private void writeIterator(Iterator<T> source, long totalRows, OutputStream out, int sheetDataSize,
+        ExportHandle handle) throws Exception {
+        if (!source.hasNext()) {
+            throw new IllegalArgumentException("数据列表不能为空");
+        }
+        Iterator<T> dataIterator = source;
+        SheetPartitioner.Plan plan;
+        long rowBytes;
+        if (sheetDataSize == AUTO_SHEET_SIZE) {
+            // 预读抽样行估算行大小，抽样行随后照常写入
+            List<T> sample = new ArrayList<>(PARTITION_SAMPLE_ROWS);
+            while (sample.size() < PARTITION_SAMPLE_ROWS && source.hasNext()) {
+                sample.add(source.next());
+            }
+            rowBytes = sampleRowBytes(sample);
+            plan = sheetPartitioner.plan(totalRows, rowBytes, threadPoolSize);
+            dataIterator = new PrefetchedIterator<>(sample, source);
+        } else {
+            rowBytes = SheetPartitioner.RowSizeSampler.estimateRowBytes(headers.length);
+            plan = SheetPartitioner.Plan.fixed(sheetDataSize);
+        }
+        try (SheetPipeline pipeline = new SheetPipeline(out, handle)) {
+            int sheetIndex = 0;
+            while (dataIterator.hasNext()) {
+                SheetDataFeed<T> feed = new SheetDataFeed<>(FEED_CAPACITY);
+                final int currentSheetIndex = sheetIndex++;
+                pipeline.submit(() -> {
+                    try {
+                        return createSheetTempFile(feed, currentSheetIndex, pipeline.sharedStrings, handle);
+                    } catch (Exception | Error ex) {
+                        feed.abort();
+                        throw ex;
+                    }
+                }, estimateSheetBytes(plan.sheetRows(currentSheetIndex), rowBytes));
+                try {
+                    feedSheetData(dataIterator, feed, plan.sheetRows(currentSheetIndex), handle);
+                } catch (Exception | Error ex) {
+                    feed.abort();
+                    throw ex;
                 }
-                mergeTempFiles(tempFiles, filePath);
-            } finally {
-                // 确保临时文件被清理
-                cleanupTempFiles(tempFiles);
             }
-        } catch (Exception ex) {
-            ex.printStackTrace();
+
+            // 按顺序写出剩余Sheet
+            pipeline.finish();
         }
     }
 
+    /**
+     * 迭代器批次来源：导出线程按批读取，映射任务并行执行
+     */
+    private Function<ExportMetrics, Callable<Object[]>> iteratorBatchSource(Iterator<T> dataIterator) {
+        return metrics -> {
+            if (!dataIterator.hasNext()) {
+                return null;
+            }
+            long readStart = System.nanoTime();
+            List<T> batch = new ArrayList<>(FEED_PAGE_SIZE);
+            while (batch.size() < FEED_PAGE_SIZE && dataIterator.hasNext()) {
+                batch.add(dataIterator.next());
+            }
+            metrics.addPhaseNanos(ExportMetrics.Phase.READ, System.nanoTime() - readStart);
+            return () -> mapBatch(batch, metrics);
+        };
+    }
+
+    /**
+     * 分页批次来源：加载和映射都在映射任务中并行执行
+     */
+    private Function<ExportMetrics, Callable<Object[]>> pageBatchSource(IntFunction<List<T>> pageLoader) {
+        int[] pageNo = {0};
+        return metrics -> {
+            int currentPageNo = ++pageNo[0];
+            return () -> {
+                long readStart = System.nanoTime();
+                List<T> page = pageLoader.apply(currentPageNo);
+                metrics.addPhaseNanos(ExportMetrics.Phase.READ, System.nanoTime() - readStart);
+                return mapBatch(page, metrics);
+            };
+        };
+    }
+
+    /**
+     * 从数据源读取一个Sheet的数据，按页放入数据通道
+     */
+    private void feedSheetData(Iterator<T> dataIterator, SheetDataFeed<T> feed, int sheetDataSize,
+        ExportHandle handle) throws InterruptedException {
+        int remaining = sheetDataSize;
+        List<T> page = new ArrayList<>(Math.min(FEED_PAGE_SIZE, remaining));
+        while (remaining > 0 && dataIterator.hasNext()) {
+            page.add(dataIterator.next());
+            remaining--;
+            if (page.size() >= FEED_PAGE_SIZE) {
+                handle.checkpoint();
+                feed.put(page);
+                page = new ArrayList<>(Math.min(FEED_PAGE_SIZE, remaining));
+            }
+        }
+        feed.put(page);
+        feed.close();
+    }
+
     /**
      * 每个线程创建一个包含单个Sheet的临时文件
      */
-    private File createSheetTempFile(List<T> dataChunk, int sheetIndex) throws IOException {
-        // 创建临时文件，使用try-with-resources确保资源释放
-        File tempFile = File.createTempFile(TEMP_FILE_PREFIX + sheetIndex + "_", TEMP_FILE_SUFFIX);
-        // 注册JVM退出时删除临时文件（作为最后保障）
-        tempFile.deleteOnExit();
+    private TempBlob createSheetTempFile(Iterator<T> dataChunk, int sheetIndex,
+        SharedStringDictionary sharedStrings, ExportHandle handle) throws IOException {
+        if (writerEngine == WriterEngine.RAW) {
+            return createRawSheetTempFile(dataChunk, sheetIndex, sharedStrings, handle);
+        }
+        ExportMetrics metrics = handle.getMetrics();
+        // 创建临时数据块（关闭即删除）
+        TempBlob tempBlob = tempStorage.create(TEMP_FILE_PREFIX + sheetIndex + "_");
 
-        // 使用SXSSFWorkbook处理大数据
-        try (SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE)) {
-            // 创建Sheet
-            String sheetName = baseSheetName + (sheetIndex > 0 ? "_" + (sheetIndex + 1) : "");
-            Sheet sheet = workbook.createSheet(sheetName);
+        // 使用SXSSFWorkbook处理大数据，行数据溢出到临时存储
+        SXSSFWorkbook workbook = tempStorage.createWorkbook(ROW_ACCESS_WINDOW_SIZE, sharedStrings, compressionLevel);
+        try {
+            // 创建Sheet（每个临时文件中唯一的Sheet默认选中，拼装后只保留第一个Sheet选中，
+            // 否则Excel打开时所有Sheet处于成组编辑状态）
+            Sheet sheet = workbook.createSheet(buildSheetName(sheetIndex));
+            if (sheetIndex > 0) {
+                sheet.setSelected(false);
+            }
+
+            // 创建样式池（每个Workbook只创建一次）
+            CellStyleRegistry.StylePool stylePool = styleRegistry.bind(workbook);
+
+            // 写入时按列估算列宽
+            ColumnWidthEstimator widthEstimator = new ColumnWidthEstimator(headers.length, widthSampleSize);
 
             // 创建表头
-            createHeader(sheet, workbook);
+            createHeader(sheet, stylePool, widthEstimator);
 
             // 写入数据
-            writeSheetData(sheet, dataChunk);
+            SheetWriteStats stats = writeSheetData(sheet, dataChunk,
+                stylePool.resolveColumns(headers.length, cellStyleKeySelector), widthEstimator, handle);
 
             // 调整列宽
-            autoSizeColumns(sheet);
+            long phaseStart = System.nanoTime();
+            widthEstimator.applyTo(sheet);
+            stats.columnWidthNanos += System.nanoTime() - phaseStart;
+            metrics.addPhaseNanos(ExportMetrics.Phase.COLUMN_WIDTH, stats.columnWidthNanos);
 
             // 写入临时文件
-            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-                workbook.write(fos);
+            phaseStart = System.nanoTime();
+            try (OutputStream os = tempBlob.openOutputStream()) {
+                workbook.write(os);
             }
+            long flushNanos = System.nanoTime() - phaseStart;
+            metrics.addPhaseNanos(ExportMetrics.Phase.FLUSH, flushNanos);
 
-            // 清理SXSSF的临时文件
+            long tempBytes = tempBlob.size();
+            metrics.addTempBytes(tempBytes);
+            metrics.sheetCompleted();
+            listener.onSheetCompleted(new ExportMetrics.SheetMetrics(sheetIndex, Thread.currentThread().getName(),
+                stats.rows, stats.mapNanos + stats.writeNanos + stats.columnWidthNanos + flushNanos, tempBytes));
+        } catch (IOException | RuntimeException ex) {
+            tempBlob.close();
+            throw ex;
+        } finally {
+            // 清理SXSSF的溢出文件并归还配额（异常时同样需要）
             workbook.dispose();
+            workbook.close();
         }
 
-        return tempFile;
+        return tempBlob;
+    }
+
+    /**
+     * 原始写入引擎：Sheet XML和固定的styles.xml直接写入临时zip包，供流式拼装读取
+     */
+    private TempBlob createRawSheetTempFile(Iterator<T> dataChunk, int sheetIndex,
+        SharedStringDictionary sharedStrings, ExportHandle handle) throws IOException {
+        ExportMetrics metrics = handle.getMetrics();
+        int[] headerStyles = resolveRawStyles(headerStyleKeySelector);
+        int[] columnStyles = resolveRawStyles(cellStyleKeySelector);
+        int widthSampleRows = (widthSampleSize > 0 ? widthSampleSize : DEFAULT_WIDTH_SAMPLE_SIZE) + 1;
+        TempBlob tempBlob = tempStorage.create(TEMP_FILE_PREFIX + sheetIndex + "_");
+        try (ZipOutputStream zipOut = new ZipOutputStream(
+            new BufferedOutputStream(tempBlob.openOutputStream(), 64 * 1024))) {
+            // 拼装时直接拷贝已压缩的数据，这里即按最终文件的压缩级别压缩
+            zipOut.setLevel(compressionLevel);
+            zipOut.putNextEntry(new ZipEntry(RAW_SHEET_ENTRY));
+            RawSheetWriter writer = new RawSheetWriter(zipOut, headers.length, widthSampleRows, sharedStrings);
+            writer.writeRow(headers, headerStyles);
+            SheetWriteStats stats = writeRawSheetData(writer, dataChunk, columnStyles, handle);
+
+            long phaseStart = System.nanoTime();
+            writer.finish();
+            zipOut.closeEntry();
+            zipOut.putNextEntry(new ZipEntry(RAW_STYLES_ENTRY));
+            RawSheetWriter.writeStyles(zipOut);
+            zipOut.closeEntry();
+            zipOut.finish();
+            zipOut.flush();
+            long flushNanos = System.nanoTime() - phaseStart;
+            metrics.addPhaseNanos(ExportMetrics.Phase.FLUSH, flushNanos);
+
+            long tempBytes = tempBlob.size();
+            metrics.addTempBytes(tempBytes);
+            metrics.sheetCompleted();
+            listener.onSheetCompleted(new ExportMetrics.SheetMetrics(sheetIndex, Thread.currentThread().getName(),
+                stats.rows, stats.mapNanos + stats.writeNanos + flushNanos, tempBytes));
+        } catch (UncheckedIOException ex) {
+            tempBlob.close();
+            throw ex.getCause();
+        } catch (IOException | RuntimeException ex) {
+            tempBlob.close();
+            throw ex;
+        }
+        return tempBlob;
+    }
+
+    /**
+     * 按列解析原始写入引擎的样式索引
+     */
+    private int[] resolveRawStyles(IntFunction<String> keySelector) {
+        int[] styles = new int[headers.length];
+        for (int i = 0; i < styles.length; i++) {
+            styles[i] = RawSheetWriter.styleOf(keySelector.apply(i));
+        }
+        return styles;
+    }
+
+    /**
+     * 原始写入引擎写入Sheet数据，指标统计与writeSheetData一致（列宽在写入时测量，计入写入阶段）
+     */
+    private SheetWriteStats writeRawSheetData(RawSheetWriter writer, Iterator<T> dataChunk, int[] columnStyles,
+        ExportHandle handle) {
+        ExportMetrics metrics = handle.getMetrics();
+        SheetWriteStats stats = new SheetWriteStats();
+        long readNanos = 0L;
+        long reportedRows = 0L;
+        long phaseStart = System.nanoTime();
+        while (dataChunk.hasNext()) {
+            T data = dataChunk.next();
+            long mapStart = System.nanoTime();
+            readNanos += mapStart - phaseStart;
+
+            if (rowWriter != null) {
+                writer.startRow(columnStyles);
+                rowWriter.writeText(data, writer);
+                writer.endRow();
+                phaseStart = System.nanoTime();
+                stats.writeNanos += phaseStart - mapStart;
+            } else {
+                Object[] values = dataMapper.apply(data);
+                long writeStart = System.nanoTime();
+                stats.mapNanos += writeStart - mapStart;
+
+                writer.writeRow(values, columnStyles);
+                phaseStart = System.nanoTime();
+                stats.writeNanos += phaseStart - writeStart;
+            }
+
+            if (++stats.rows % CANCEL_CHECK_INTERVAL_ROWS == 0) {
+                handle.checkpoint();
+            }
+            if (stats.rows - reportedRows >= PROGRESS_INTERVAL_ROWS) {
+                metrics.addRows(stats.rows - reportedRows);
+                reportedRows = stats.rows;
+                listener.onProgress(metrics);
+            }
+        }
+        readNanos += System.nanoTime() - phaseStart;
+
+        metrics.addRows(stats.rows - reportedRows);
+        metrics.addPhaseNanos(ExportMetrics.Phase.READ, readNanos);
+        metrics.addPhaseNanos(ExportMetrics.Phase.MAP, stats.mapNanos);
+        metrics.addPhaseNanos(ExportMetrics.Phase.WRITE, stats.writeNanos);
+        listener.onProgress(metrics);
+        return stats;
     }
 
     /**
      * 创建表头
      */
-    private void createHeader(Sheet sheet, Workbook workbook) {
+    private void createHeader(Sheet sheet, CellStyleRegistry.StylePool stylePool,
+        ColumnWidthEstimator widthEstimator) {
+        CellStyle[] headerStyles = stylePool.resolveColumns(headers.length, headerStyleKeySelector);
         Row headerRow = sheet.createRow(0);
         for (int i = 0; i < headers.length; i++) {
             Cell cell = headerRow.createCell(i);
             cell.setCellValue(headers[i]);
             // 应用表头样式
-            headerStyleConsumer.accept(sheet, i);
+            cell.setCellStyle(headerStyles[i]);
+            widthEstimator.acceptHeader(i, headers[i]);
+        }
+    }
+
+    /**
+     * 写入Sheet数据，按阶段统计耗时，每写入一批行汇总到导出指标并回调进度，同时检查是否已取消
+     */
+    private SheetWriteStats writeSheetData(Sheet sheet, Iterator<T> dataChunk, CellStyle[] columnStyles,
+        ColumnWidthEstimator widthEstimator, ExportHandle handle) {
+        ExportMetrics metrics = handle.getMetrics();
+        SheetWriteStats stats = new SheetWriteStats();
+        long readNanos = 0L;
+        long reportedRows = 0L;
+        int rowIndex = 1; // 从1开始，0是表头
+        long phaseStart = System.nanoTime();
+        while (dataChunk.hasNext()) {
+            T data = dataChunk.next();
+            long mapStart = System.nanoTime();
+            readNanos += mapStart - phaseStart;
+
+            if (rowWriter != null) {
+                // 类型化列：取值、写入和测量列宽一次完成，计入写入阶段
+                boolean measure = widthEstimator.startRow();
+                rowWriter.write(sheet.createRow(rowIndex++), data, columnStyles, measure ? widthEstimator : null);
+                phaseStart = System.nanoTime();
+                stats.writeNanos += phaseStart - mapStart;
+            } else {
+                Object[] values = dataMapper.apply(data);
+                long writeStart = System.nanoTime();
+                stats.mapNanos += writeStart - mapStart;
+
+                writeRowCells(sheet.createRow(rowIndex++), values, columnStyles);
+                phaseStart = System.nanoTime();
+                stats.writeNanos += phaseStart - writeStart;
+
+                if (widthEstimator.startRow() && values != null) {
+                    for (int j = 0; j < values.length && j < headers.length; j++) {
+                        widthEstimator.accept(j, values[j]);
+                    }
+                    long widthEnd = System.nanoTime();
+                    stats.columnWidthNanos += widthEnd - phaseStart;
+                    phaseStart = widthEnd;
+                }
+            }
+
+            if (++stats.rows % CANCEL_CHECK_INTERVAL_ROWS == 0) {
+                handle.checkpoint();
+            }
+            if (stats.rows - reportedRows >= PROGRESS_INTERVAL_ROWS) {
+                metrics.addRows(stats.rows - reportedRows);
+                reportedRows = stats.rows;
+                listener.onProgress(metrics);
+            }
+        }
+        readNanos += System.nanoTime() - phaseStart;
+
+        metrics.addRows(stats.rows - reportedRows);
+        metrics.addPhaseNanos(ExportMetrics.Phase.READ, readNanos);
+        metrics.addPhaseNanos(ExportMetrics.Phase.MAP, stats.mapNanos);
+        metrics.addPhaseNanos(ExportMetrics.Phase.WRITE, stats.writeNanos);
+        listener.onProgress(metrics);
+        return stats;
+    }
+
+    /**
+     * 写入一行的单元格
+     */
+    private void writeRowCells(Row row, Object[] values, CellStyle[] columnStyles) {
+        if (values == null) {
+            return;
+        }
+        for (int j = 0; j < values.length && j < headers.length; j++) {
+            Cell cell = row.createCell(j);
+            setCellValue(cell, values[j]);
+            // 应用单元格样式
+            cell.setCellStyle(columnStyles[j]);
         }
     }
 
     /**
-     * 写入Sheet数据
+     * 流水线写入：映射任务并行执行，当前线程按提交顺序取回结果写入同一个Workbook
+     * 批次来源返回null表示没有更多数据；映射结果为空表示数据结束（分页数据源），其后预取的批次被丢弃
      */
-    private void writeSheetData(Sheet sheet, List<T> dataChunk) {
-        for (int i = 0; i < dataChunk.size(); i++) {
-            Row row = sheet.createRow(i + 1); // 从1开始，0是表头
-            T data = dataChunk.get(i);
-            Object[] values = dataMapper.apply(data);
+    private void writePipelined(Function<ExportMetrics, Callable<Object[]>> batchSource, OutputStream out,
+        int sheetDataSize, ExportHandle handle) throws Exception {
+        ExportMetrics metrics = handle.getMetrics();
+        Deque<WorkerTask<Object[]>> pending = new ArrayDeque<>();
+        int capacity = threadPoolSize * 2;
+
+        SharedStringDictionary sharedStrings = newSharedStrings();
+        SXSSFWorkbook workbook = tempStorage.createWorkbook(ROW_ACCESS_WINDOW_SIZE, sharedStrings, compressionLevel);
+        try {
+            CellStyleRegistry.StylePool stylePool = styleRegistry.bind(workbook);
+            CellStyle[] columnStyles = stylePool.resolveColumns(headers.length, cellStyleKeySelector);
+            Sheet sheet = null;
+            ColumnWidthEstimator widthEstimator = null;
+            int rowIndex = 0;
+            int sheetRows = 0;
+            boolean drained = false;
+            // 自动分Sheet时按第一批数据规划（单线程写入，不需要按线程数均衡）
+            SheetPartitioner.Plan plan = sheetDataSize == AUTO_SHEET_SIZE ? null
+                : SheetPartitioner.Plan.fixed(sheetDataSize);
+
+            while (true) {
+                handle.checkpoint();
+                // 补充在途批次
+                while (!drained && pending.size() < capacity) {
+                    Callable<Object[]> task = batchSource.apply(metrics);
+                    if (task == null) {
+                        drained = true;
+                    } else {
+                        pending.add(submitWorker(task, handle));
+                    }
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
 
-            if (values != null) {
-                for (int j = 0; j < values.length && j < headers.length; j++) {
-                    Cell cell = row.createCell(j);
-                    setCellValue(cell, values[j]);
-                    // 应用单元格样式
-                    cellStyleConsumer.accept(cell, j);
+                // 按顺序取回最早的批次
+                long waitStart = System.nanoTime();
+                Object[] rows = pending.removeFirst().get();
+                metrics.addPhaseNanos(ExportMetrics.Phase.QUEUE_WAIT, System.nanoTime() - waitStart);
+                if (rows == null || rows.length == 0) {
+                    break;
                 }
+
+                if (plan == null) {
+                    plan = sheetPartitioner.plan(-1, sampleBatchRowBytes(rows), 1);
+                }
+
+                long writeStart = System.nanoTime();
+                long widthNanos = 0L;
+                for (Object item : rows) {
+                    if (sheet == null || rowIndex > sheetRows) {
+                        if (sheet != null) {
+                            widthEstimator.applyTo(sheet);
+                            metrics.sheetCompleted();
+                        }
+                        int sheetIndex = workbook.getNumberOfSheets();
+                        sheetRows = plan.sheetRows(sheetIndex);
+                        sheet = workbook.createSheet(buildSheetName(sheetIndex));
+                        widthEstimator = new ColumnWidthEstimator(headers.length, widthSampleSize);
+                        createHeader(sheet, stylePool, widthEstimator);
+                        rowIndex = 1;
+                    }
+                    Row row = sheet.createRow(rowIndex++);
+                    if (rowWriter != null) {
+                        @SuppressWarnings("unchecked")
+                        T data = (T) item;
+                        rowWriter.write(row, data, columnStyles, widthEstimator.startRow() ? widthEstimator : null);
+                        continue;
+                    }
+                    Object[] values = (Object[]) item;
+                    writeRowCells(row, values, columnStyles);
+                    if (widthEstimator.startRow() && values != null) {
+                        long widthStart = System.nanoTime();
+                        for (int j = 0; j < values.length && j < headers.length; j++) {
+                            widthEstimator.accept(j, values[j]);
+                        }
+                        widthNanos += System.nanoTime() - widthStart;
+                    }
+                }
+                metrics.addPhaseNanos(ExportMetrics.Phase.WRITE, System.nanoTime() - writeStart - widthNanos);
+                metrics.addPhaseNanos(ExportMetrics.Phase.COLUMN_WIDTH, widthNanos);
+                metrics.addRows(rows.length);
+                listener.onProgress(metrics);
+            }
+            if (sheet == null) {
+                throw new IllegalArgumentException("数据列表不能为空");
+            }
+            widthEstimator.applyTo(sheet);
+            metrics.sheetCompleted();
+
+            // 写出最终文件（共享字符串按字典索引写入工作簿自身的共享字符串表）
+            long flushStart = System.nanoTime();
+            if (sharedStrings != null) {
+                sharedStrings.copyTo(workbook.getXSSFWorkbook().getSharedStringSource());
+            }
+            workbook.write(new NonClosingOutputStream(out));
+            out.flush();
+            metrics.addPhaseNanos(ExportMetrics.Phase.FLUSH, System.nanoTime() - flushStart);
+            metrics.finish();
+            listener.onCompleted(metrics);
+        } finally {
+            // 取消数据结束后预取的批次或异常时未完成的批次，并等待已开始的映射任务退出后再结束导出
+            for (WorkerTask<Object[]> worker : pending) {
+                worker.cancel(true);
+            }
+            for (WorkerTask<Object[]> worker : pending) {
+                worker.awaitStopped();
+            }
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException ex) {
+                // 忽略关闭异常
+            }
+        }
+    }
+
+    /**
+     * 提交工作任务，在途任务数受全局舱壁限制；任务登记到导出句柄，取消导出时一并中断
+     */
+    private <V> WorkerTask<V> submitWorker(Callable<V> task, ExportHandle handle) throws InterruptedException {
+        return submitWorker(task, TempBudget.NONE, handle);
+    }
+
+    /**
+     * 提交工作任务，任务在写入线程中绑定临时存储预算，结束时归还未用完的预算
+     */
+    private <V> WorkerTask<V> submitWorker(Callable<V> task, TempBudget budget, ExportHandle handle)
+        throws InterruptedException {
+        bulkhead.acquire();
+        WorkerTask<V> worker = new WorkerTask<>(task, budget, handle);
+        try {
+            handle.track(worker);
+            executor.execute(worker);
+        } catch (RuntimeException ex) {
+            handle.untrack(worker);
+            bulkhead.release();
+            throw ex;
+        }
+        return worker;
+    }
+
+    /**
+     * 批量执行dataMapper，结果的每个元素为一行的Object[]
+     * 类型化列定义直接返回原始数据，由写入线程取值写入
+     */
+    private Object[] mapBatch(List<T> batch, ExportMetrics metrics) {
+        if (batch == null || batch.isEmpty()) {
+            return null;
+        }
+        if (rowWriter != null) {
+            return batch.toArray();
+        }
+        long mapStart = System.nanoTime();
+        Object[] rows = new Object[batch.size()];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = dataMapper.apply(batch.get(i));
+        }
+        metrics.addPhaseNanos(ExportMetrics.Phase.MAP, System.nanoTime() - mapStart);
+        return rows;
+    }
+
+    /**
+     * 创建单次导出的共享字符串字典，全部列内联或POI_COPY合并方式时返回null
+     */
+    private SharedStringDictionary newSharedStrings() {
+        if (mergeMode == MergeMode.POI_COPY
+            || !SharedStringDictionary.isEnabled(columnStringEncodings, stringEncoding, headers.length)) {
+            return null;
+        }
+        SharedStringDictionary sharedStrings = new SharedStringDictionary(columnStringEncodings, stringEncoding,
+            sharedStringsMaxEntries, sharedStringsMaxBytes, sharedStringsCardinalityLimit);
+        sharedStrings.setHeaderRows(1);
+        return sharedStrings;
+    }
+
+    /**
+     * 自动分Sheet抽样：随机访问列表均匀抽样，否则取前面的行
+     */
+    private List<T> sampleList(List<T> dataList) {
+        int size = dataList.size();
+        if (size <= PARTITION_SAMPLE_ROWS || !(dataList instanceof RandomAccess)) {
+            return dataList.subList(0, Math.min(size, PARTITION_SAMPLE_ROWS));
+        }
+        List<T> sample = new ArrayList<>(PARTITION_SAMPLE_ROWS);
+        int step = size / PARTITION_SAMPLE_ROWS;
+        for (int i = 0; i < PARTITION_SAMPLE_ROWS; i++) {
+            sample.add(dataList.get(i * step));
+        }
+        return sample;
+    }
+
+    /**
+     * 估算一个Sheet的临时数据字节数（按未压缩的行XML计算，通常不小于临时xlsx和压缩的溢出文件）
+     */
+    private static long estimateSheetBytes(long rows, long rowBytes) {
+        return rows * rowBytes;
+    }
+
+    /**
+     * 估算抽样行的平均XML大小
+     */
+    private long sampleRowBytes(List<T> sample) {
+        SheetPartitioner.RowSizeSampler sampler = new SheetPartitioner.RowSizeSampler();
+        for (T data : sample) {
+            if (rowWriter != null) {
+                rowWriter.writeText(data, sampler);
+                sampler.endRow();
+            } else {
+                sampler.sample(dataMapper.apply(data));
+            }
+        }
+        return sampler.averageRowBytes();
+    }
+
+    /**
+     * 估算流水线批次（mapBatch的结果）中前若干行的平均XML大小
+     */
+    private long sampleBatchRowBytes(Object[] rows) {
+        SheetPartitioner.RowSizeSampler sampler = new SheetPartitioner.RowSizeSampler();
+        for (int i = 0; i < rows.length && i < PARTITION_SAMPLE_ROWS; i++) {
+            if (rowWriter != null) {
+                @SuppressWarnings("unchecked")
+                T data = (T) rows[i];
+                rowWriter.writeText(data, sampler);
+                sampler.endRow();
+            } else {
+                sampler.sample((Object[]) rows[i]);
             }
         }
+        return sampler.averageRowBytes();
+    }
+
+    /**
+     * Sheet名称：第一个为基础名称，之后依次追加序号
+     */
+    private String buildSheetName(int sheetIndex) {
+        return baseSheetName + (sheetIndex > 0 ? "_" + (sheetIndex + 1) : "");
     }
 
     /**
-     * 合并所有临时文件到最终Excel
+     * 逐单元格复制：重新解析每个临时文件并复制数据和样式（兼容模式，内存占用高）
      */
-    private void mergeTempFiles(List<File> tempFiles, String targetFilePath) throws IOException {
+    private void mergeTempFilesByCopy(List<TempBlob> tempBlobs, OutputStream out) throws IOException {
         try (SXSSFWorkbook targetWorkbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE)) {
             // 用于复制样式的映射表
             Map<Integer, CellStyle> styleMap = new HashMap<>();
 
-            for (File tempFile : tempFiles) {
-                try (InputStream is = new FileInputStream(tempFile); XSSFWorkbook tempWorkbook = new XSSFWorkbook(is)) {
+            for (TempBlob tempBlob : tempBlobs) {
+                try (InputStream is = tempBlob.openInputStream(); XSSFWorkbook tempWorkbook = new XSSFWorkbook(is)) {
 
                     // 复制临时文件中的第一个Sheet
                     Sheet tempSheet = tempWorkbook.getSheetAt(0);
@@ -252,9 +1333,7 @@ public class PoiMultiThreadExcelExporter<T> {
             }
 
             // 写入最终文件
-            try (FileOutputStream fos = new FileOutputStream(targetFilePath)) {
-                targetWorkbook.write(fos);
-            }
+            targetWorkbook.write(out);
 
             // 清理临时资源
             targetWorkbook.dispose();
@@ -362,33 +1441,16 @@ public class PoiMultiThreadExcelExporter<T> {
     }
 
     /**
-     * 自动调整列宽
+     * 数据分片（返回subList视图，不复制数据）
      */
-    private void autoSizeColumns(Sheet sheet) {
-        Row headerRow = sheet.getRow(0);
-        if (headerRow == null) {
-            return;
-        }
-
-        for (int i = 0; i < headerRow.getLastCellNum(); i++) {
-            sheet.autoSizeColumn(i);
-            // 适当增加宽度，避免内容被截断
-            int width = sheet.getColumnWidth(i) + 256;
-            sheet.setColumnWidth(i, Math.min(width, 65535)); // 最大列宽限制
-        }
-    }
-
-    /**
-     * 数据分片
-     */
-    private List<List<T>> splitDataIntoChunks(List<T> dataList, int chunkSize) {
+    private List<List<T>> splitDataIntoChunks(List<T> dataList, SheetPartitioner.Plan plan) {
         List<List<T>> chunks = new ArrayList<>();
         int totalSize = dataList.size();
         int index = 0;
 
         while (index < totalSize) {
-            int end = Math.min(index + chunkSize, totalSize);
-            chunks.add(new ArrayList<>(dataList.subList(index, end)));
+            int end = Math.min(index + plan.sheetRows(chunks.size()), totalSize);
+            chunks.add(dataList.subList(index, end));
             index = end;
         }
 
@@ -398,53 +1460,409 @@ public class PoiMultiThreadExcelExporter<T> {
     /**
      * 清理临时文件
      */
-    private void cleanupTempFiles(List<File> tempFiles) {
-        if (tempFiles == null) {
+    private void cleanupTempFiles(List<TempBlob> tempBlobs) {
+        if (tempBlobs == null) {
             return;
         }
 
-        for (File file : tempFiles) {
-            if (file != null && file.exists() && !file.delete()) {
-                // 如果删除失败，标记为JVM退出时删除
-                file.deleteOnExit();
+        for (TempBlob tempBlob : tempBlobs) {
+            if (tempBlob != null) {
+                tempBlob.close();
             }
         }
     }
 
     /**
-     * 默认表头样式
+     * Sheet流水线：按Sheet顺序等待写入任务完成，完成一个写出一个
+     * 流式拼装模式下临时文件写出后立即删除；每个Sheet从提交到写出期间占用一个许可，
+     * 输出流写入慢时提交线程等待，已生成但未写出的临时文件不超过线程池大小
      */
-    private void defaultHeaderStyle(Sheet sheet, int columnIndex) {
-        Workbook workbook = sheet.getWorkbook();
-        Cell cell = sheet.getRow(0).getCell(columnIndex);
+    private class SheetPipeline implements Closeable {
+        private final Deque<WorkerTask<TempBlob>> pending = new ArrayDeque<>();
+
+        private final Semaphore sheetPermits = new Semaphore(threadPoolSize);
+
+        // 流式拼装模式使用
+        private final XlsxPackageAssembler assembler;
+
+        // 各Sheet共享的字符串字典，为null时全部内联
+        private final SharedStringDictionary sharedStrings = newSharedStrings();
+
+        // 兼容模式下收集的临时文件，最后统一合并
+        private final List<TempBlob> collectedFiles = new ArrayList<>();
+
+        private final OutputStream out;
+
+        private final ExportHandle handle;
 
-        CellStyle style = workbook.createCellStyle();
-        Font font = workbook.createFont();
-        font.setBold(true);
-        style.setFont(font);
-        style.setAlignment(HorizontalAlignment.CENTER);
-        style.setVerticalAlignment(VerticalAlignment.CENTER);
-        style.setBorderTop(BorderStyle.THIN);
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBorderLeft(BorderStyle.THIN);
-        style.setBorderRight(BorderStyle.THIN);
+        private final ExportMetrics metrics;
 
-        cell.setCellStyle(style);
+        private int sheetCount;
+
+        private boolean finished;
+
+        SheetPipeline(OutputStream out, ExportHandle handle) {
+            this.out = out;
+            this.handle = handle;
+            this.metrics = handle.getMetrics();
+            if (writerEngine == WriterEngine.RAW && mergeMode == MergeMode.POI_COPY) {
+                throw new IllegalStateException("原始写入引擎不支持POI_COPY合并方式");
+            }
+            this.assembler = mergeMode == MergeMode.POI_COPY
+                ? null
+                : new XlsxPackageAssembler(new BufferedOutputStream(new NonClosingOutputStream(out)));
+            if (assembler != null) {
+                assembler.setSharedStrings(sharedStrings);
+                assembler.setCompressionLevel(compressionLevel);
+            }
+        }
+
+        /**
+         * 提交Sheet写入任务
+         * 没有许可时先写出最早的Sheet；全局舱壁许可和临时存储预算都在提交线程中获取，排队等待不会占用执行器线程，
+         * 写入线程开始后不再等待临时存储空间
+         *
+         * @param task 写入任务
+         * @param estimatedBytes 该Sheet临时数据的估算字节数
+         */
+        void submit(Callable<TempBlob> task, long estimatedBytes) throws Exception {
+            long submitNanos = System.nanoTime();
+            while (!sheetPermits.tryAcquire()) {
+                writeNext();
+            }
+            TempBudget budget;
+            try {
+                budget = admit(estimatedBytes);
+            } catch (Exception | Error ex) {
+                sheetPermits.release();
+                throw ex;
+            }
+            try {
+                pending.add(submitWorker(() -> {
+                    metrics.addPhaseNanos(ExportMetrics.Phase.QUEUE_WAIT, System.nanoTime() - submitNanos);
+                    return task.call();
+                }, budget, handle));
+            } catch (InterruptedException | RuntimeException ex) {
+                budget.close();
+                sheetPermits.release();
+                throw ex;
+            }
+        }
+
+        /**
+         * 获取临时存储预算：空间不足时先写出本次导出已完成的Sheet释放空间，没有在途的Sheet时才等待其他导出释放
+         */
+        private TempBudget admit(long estimatedBytes) throws Exception {
+            TempBudget budget = tempStorage.tryAdmit(estimatedBytes);
+            while (budget == null && !pending.isEmpty()) {
+                writeNext();
+                budget = tempStorage.tryAdmit(estimatedBytes);
+            }
+            return budget != null ? budget : tempStorage.admit(estimatedBytes);
+        }
+
+        /**
+         * 写出全部剩余Sheet并完成文件
+         */
+        void finish() throws Exception {
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            long mergeStart = System.nanoTime();
+            if (assembler != null) {
+                assembler.finish();
+            } else {
+                mergeTempFilesByCopy(collectedFiles, out);
+            }
+            out.flush();
+            metrics.addPhaseNanos(ExportMetrics.Phase.MERGE, System.nanoTime() - mergeStart);
+            finished = true;
+            metrics.finish();
+            listener.onCompleted(metrics);
+        }
+
+        private void writeNext() throws Exception {
+            // 取到结果后再移出队列，等待被中断时该任务仍由close()取消和清理
+            TempBlob tempBlob = pending.peekFirst().get();
+            pending.removeFirst();
+            if (assembler == null) {
+                collectedFiles.add(tempBlob);
+                sheetPermits.release();
+                return;
+            }
+            long mergeStart = System.nanoTime();
+            try (SeekableByteChannel channel = tempBlob.openChannel()) {
+                assembler.addSheet(buildSheetName(sheetCount++), channel, tempBlob.getName());
+                metrics.addPhaseNanos(ExportMetrics.Phase.MERGE, System.nanoTime() - mergeStart);
+            } finally {
+                tempBlob.close();
+                sheetPermits.release();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                // 异常结束：取消未完成的任务，清理已生成的临时文件
+                for (WorkerTask<TempBlob> worker : pending) {
+                    if (!worker.cancel(true) && !worker.isCancelled()) {
+                        try {
+                            worker.get().close();
+                        } catch (Exception ex) {
+                            // 任务本身失败，没有临时文件需要清理
+                        }
+                    }
+                }
+                // 等待已开始的任务退出，保证导出结束时SXSSF和临时文件都已释放
+                for (WorkerTask<TempBlob> worker : pending) {
+                    worker.awaitStopped();
+                }
+                pending.clear();
+                if (assembler != null) {
+                    assembler.close();
+                }
+            }
+            cleanupTempFiles(collectedFiles);
+        }
     }
 
     /**
-     * 默认单元格样式
+     * 工作任务：运行结束或开始前被取消时归还舱壁许可（只归还一次），
+     * 取消时已生成的临时数据块由任务自行关闭
      */
-    private void defaultCellStyle(Cell cell, int columnIndex) {
-        Workbook workbook = cell.getSheet().getWorkbook();
-        CellStyle style = workbook.createCellStyle();
+    private class WorkerTask<V> extends FutureTask<V> {
+        private final ExportHandle handle;
+
+        private final CountDownLatch stopped = new CountDownLatch(1);
 
-        style.setBorderTop(BorderStyle.THIN);
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBorderLeft(BorderStyle.THIN);
-        style.setBorderRight(BorderStyle.THIN);
-        style.setVerticalAlignment(VerticalAlignment.CENTER);
+        // 由执行器线程或开始前的取消方占有，占有方负责归还许可
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private final TempBudget budget;
+
+        WorkerTask(Callable<V> task, TempBudget budget, ExportHandle handle) {
+            super(task);
+            this.budget = budget;
+            this.handle = handle;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                // 开始前已取消，许可已由取消方归还
+                return;
+            }
+            try {
+                budget.bind();
+                super.run();
+            } finally {
+                stop();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            // 尚未开始的任务不必等执行器排到它才归还许可，导出结束时许可已全部归还
+            if (cancelled && claimed.compareAndSet(false, true)) {
+                stop();
+            }
+            return cancelled;
+        }
+
+        private void stop() {
+            releasePermit();
+            stopped.countDown();
+        }
+
+        /**
+         * 归还许可和未用完的临时存储预算（只归还一次）。在结果对等待方可见之前调用，
+         * 取回结果的导出结束时许可已全部归还
+         */
+        private void releasePermit() {
+            if (released.compareAndSet(false, true)) {
+                budget.close();
+                bulkhead.release();
+            }
+        }
+
+        /**
+         * 等待任务退出（取消后任务在下一批行写入前退出）
+         */
+        void awaitStopped() {
+            if (!claimed.get()) {
+                return;
+            }
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    stopped.await();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            releasePermit();
+            super.setException(t);
+        }
+
+        @Override
+        protected void set(V value) {
+            releasePermit();
+            super.set(value);
+            // 任务完成前已被取消，结果不会再被取走
+            if (isCancelled() && value instanceof TempBlob) {
+                ((TempBlob) value).close();
+            }
+            // 清理完成后才算退出，awaitStopped返回时临时数据块已删除
+            stopped.countDown();
+        }
+
+        @Override
+        protected void done() {
+            handle.untrack(this);
+        }
+    }
+
+    /**
+     * 导出主体：写入指定输出流
+     */
+    private interface ExportBody {
+        void write(OutputStream out, ExportHandle handle) throws Exception;
+    }
+
+    /**
+     * 在协调线程中执行的导出任务
+     */
+    private interface HandleTask {
+        void run(ExportHandle handle) throws Exception;
+    }
+
+    /**
+     * 单个Sheet写入过程的统计
+     */
+    private static class SheetWriteStats {
+        long rows;
+
+        long mapNanos;
+
+        long writeNanos;
+
+        long columnWidthNanos;
+    }
+
+    /**
+     * 关闭时只刷新、不关闭下层的输出流（下层输出流由调用方关闭）
+     */
+    private static class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * 分页数据源迭代器：按需加载下一页
+     */
+    static class PageIterator<T> implements Iterator<T> {
+        private final IntFunction<List<T>> pageLoader;
+
+        private int pageNo = 0;
+
+        private Iterator<T> currentPage = Collections.emptyIterator();
+
+        private boolean lastPageLoaded;
+
+        PageIterator(IntFunction<List<T>> pageLoader) {
+            this.pageLoader = pageLoader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentPage.hasNext()) {
+                if (lastPageLoaded) {
+                    return false;
+                }
+                List<T> page = pageLoader.apply(++pageNo);
+                if (page == null || page.isEmpty()) {
+                    lastPageLoaded = true;
+                    return false;
+                }
+                currentPage = page.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentPage.next();
+        }
+    }
+
+    /**
+     * 预读迭代器：先返回已预读的行，再继续读取原数据源
+     */
+    private static class PrefetchedIterator<T> implements Iterator<T> {
+        private final Iterator<T> prefetched;
+
+        private final Iterator<T> source;
+
+        PrefetchedIterator(List<T> prefetched, Iterator<T> source) {
+            this.prefetched = prefetched.iterator();
+            this.source = source;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return prefetched.hasNext() || source.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return prefetched.hasNext() ? prefetched.next() : source.next();
+        }
+    }
+
+    /**
+     * 临时文件合并方式
+     */
+    public enum MergeMode {
+        // 流式拼装zip包部件（默认）
+        STREAMING,
+
+        // 重新解析临时文件并逐单元格复制
+        POI_COPY
+    }
+
+    /**
+     * Sheet数据写入引擎
+     */
+    public enum WriterEngine {
+        // SXSSF（默认）：支持任意注册样式
+        SXSSF,
 
-        cell.setCellStyle(style);
+        // 直接写出Sheet XML：不创建Row/Cell对象，只支持内置样式
+        RAW
     }
 }
@@ -35,7 +35,8 @@ public class PoiMultiThreadExcelExporterDemo {
         try {
             // 4. 执行导出
             // 每个Sheet存放10000条数据，最终会生成10个Sheet（100000/10000）
-            exporter.export(dataList, "D:/员工信息汇总.xlsx", 10000);
+            // 导出在后台执行，await()等待完成并在失败时抛出异常（可调用cancel()取消）
+            exporter.export(dataList, "D:/员工信息汇总.xlsx", 10000).await();
             System.out.println("Excel导出成功！文件路径：D:/员工信息汇总.xlsx");
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,365 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.ljn.demo.util.SheetPartitioner;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * 多线程Excel导出测试
+ */
+public class PoiMultiThreadExcelExporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sheetDataSizeTest() throws Exception {
+        PoiMultiThreadExcelExporter<Integer> exporter = exporter();
+        File file = folder.newFile("size.xlsx");
+        // 0和负数仍按非法参数拒绝，不会被当作自动分Sheet
+        for (int sheetDataSize : new int[] {0, -1, SheetPartitioner.MAX_SHEET_ROWS + 1}) {
+            try {
+                exporter.export(numbers(10), file.getPath(), sheetDataSize);
+                fail("非法的Sheet数据量: " + sheetDataSize);
+            } catch (IllegalArgumentException ex) {
+                // 预期
+            }
+        }
+
+        exporter.export(numbers(10), file.getPath(), PoiMultiThreadExcelExporter.AUTO_SHEET_SIZE).await();
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+            assertEquals(1, workbook.getNumberOfSheets());
+            assertEquals(11, workbook.getSheetAt(0).getPhysicalNumberOfRows());
+        }
+    }
+
+    @Test
+    public void longValueColumnWidthTest() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            text.append('x');
+        }
+        String longValue = text.toString();
+        // 超过255个字符的单元格按Excel最大列宽设置，不中断导出
+        for (PoiMultiThreadExcelExporter.WriterEngine engine : PoiMultiThreadExcelExporter.WriterEngine.values()) {
+            PoiMultiThreadExcelExporter<Integer> exporter = new PoiMultiThreadExcelExporter<>(
+                new String[] {"序号", "内容"}, value -> new Object[] {value, longValue}, "Sheet");
+            exporter.setWriterEngine(engine);
+            File file = folder.newFile("long-" + engine + ".xlsx");
+            exporter.export(numbers(3), file.getPath(), 10).await();
+            try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+                Sheet sheet = workbook.getSheetAt(0);
+                assertEquals(engine.name(), 255 * 256, sheet.getColumnWidth(1));
+                assertEquals(longValue, sheet.getRow(1).getCell(1).getStringCellValue());
+            }
+        }
+    }
+
+    @Test
+    public void cancelDuringWriteTest() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        AtomicReference<ExportHandle> current = new AtomicReference<>();
+        Fixture fixture = new Fixture(value -> {
+            if (value == 3000) {
+                blocked.countDown();
+                parkUntilCancelled(current);
+            }
+            return new Object[] {value};
+        });
+        ExportHandle handle = fixture.exporter.export(numbers(20000), fixture.file.getPath(), 5000);
+        current.set(handle);
+        assertTrue(blocked.await(30, TimeUnit.SECONDS));
+        // 等待超时不会取消导出
+        try {
+            handle.await(50, TimeUnit.MILLISECONDS);
+            fail("导出未结束时应等待超时");
+        } catch (TimeoutException ex) {
+            assertFalse(handle.isCancelled());
+        }
+
+        assertTrue(handle.cancel());
+        try {
+            handle.await();
+            fail("取消后应抛出CancellationException");
+        } catch (CancellationException ex) {
+            // 预期
+        }
+        assertTrue(handle.isCancelled());
+        assertFalse(handle.cancel());
+        fixture.assertReleased();
+    }
+
+    @Test
+    public void deadlineTest() throws Exception {
+        AtomicReference<ExportHandle> current = new AtomicReference<>();
+        Fixture fixture = new Fixture(value -> {
+            if (value == 10) {
+                parkUntilCancelled(current);
+            }
+            return new Object[] {value};
+        });
+        fixture.exporter.setTimeoutMillis(200L);
+        ExportHandle handle = fixture.exporter.export(numbers(20000), fixture.file.getPath(), 5000);
+        current.set(handle);
+        try {
+            handle.await(30, TimeUnit.SECONDS);
+            fail("超过截止时间应抛出TimeoutException");
+        } catch (TimeoutException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("截止时间"));
+        }
+        assertTrue(handle.isCancelled());
+        assertTrue(handle.isDone());
+        fixture.assertReleased();
+    }
+
+    @Test
+    public void pipelinedOrderTest() throws Exception {
+        // 部分批次映射较慢，后提交的批次先完成，写入仍按读取顺序
+        PoiMultiThreadExcelExporter<Integer> exporter = slowBatchExporter();
+        File file = folder.newFile("iterator.xlsx");
+        exporter.exportPipelined(numbers(12500).iterator(), file.getPath(), 5000).await();
+        assertSequence(file, 12500, 5000);
+
+        File pageFile = folder.newFile("page.xlsx");
+        exporter.exportByPagePipelined(pageNo -> {
+            if (pageNo % 2 == 1) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(30));
+            }
+            // 每页1000行，共7页，之后的页码返回空列表
+            return pageNo > 7 ? new ArrayList<>() : numbers(1000 * (pageNo - 1), 1000);
+        }, pageFile.getPath(), 3000).await();
+        assertSequence(pageFile, 7000, 3000);
+    }
+
+    @Test
+    public void pipelinedBackpressureTest() throws Exception {
+        PoiMultiThreadExcelExporter<Integer> exporter = new PoiMultiThreadExcelExporter<>(new String[] {"序号"},
+            value -> new Object[] {value}, "Sheet", 2, null, null);
+        AtomicLong read = new AtomicLong();
+        AtomicLong maxAhead = new AtomicLong();
+        // 写入慢于读取和映射：每写完一批停顿一下，记录读取领先于写入的行数
+        exporter.setListener(new ExportListener() {
+            @Override
+            public void onProgress(ExportMetrics metrics) {
+                maxAhead.accumulateAndGet(read.get() - metrics.getRowsWritten(), Math::max);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+            }
+        });
+        Iterator<Integer> source = numbers(30000).iterator();
+        Iterator<Integer> counting = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public Integer next() {
+                read.incrementAndGet();
+                return source.next();
+            }
+        };
+        File file = folder.newFile("backpressure.xlsx");
+        exporter.exportPipelined(counting, file.getPath(), 100000).await();
+
+        // 在途批次不超过线程数的2倍（每批1000行），读取不会一次读完全部数据
+        assertTrue("读取领先写入 " + maxAhead.get() + " 行", maxAhead.get() <= 4000);
+        assertEquals(30000, read.get());
+        assertSequence(file, 30000, 100000);
+    }
+
+    @Test
+    public void pipelinedFailureTest() throws Exception {
+        Fixture fixture = new Fixture(value -> {
+            if (value == 2500) {
+                throw new IllegalStateException("映射失败: " + value);
+            }
+            return new Object[] {value};
+        });
+        ExportHandle handle = fixture.exporter.exportPipelined(numbers(20000).iterator(), fixture.file.getPath(),
+            5000);
+        try {
+            handle.await();
+            fail("映射异常应传递给调用方");
+        } catch (IllegalStateException ex) {
+            assertEquals("映射失败: 2500", ex.getMessage());
+        }
+        assertFalse(handle.isCancelled());
+        fixture.assertReleased();
+
+        Fixture pageFixture = new Fixture(value -> new Object[] {value});
+        handle = pageFixture.exporter.exportByPagePipelined(pageNo -> {
+            if (pageNo == 3) {
+                throw new IllegalStateException("加载失败: " + pageNo);
+            }
+            return numbers(1000 * (pageNo - 1), 1000);
+        }, pageFixture.file.getPath(), 5000);
+        try {
+            handle.await();
+            fail("分页加载异常应传递给调用方");
+        } catch (IllegalStateException ex) {
+            assertEquals("加载失败: 3", ex.getMessage());
+        }
+        pageFixture.assertReleased();
+    }
+
+    /**
+     * 检查各Sheet的数据按顺序连续（每个Sheet第一行为表头）
+     */
+    @Test
+    public void iteratorExportTest() throws Exception {
+        PoiMultiThreadExcelExporter<Integer> exporter = slowBatchExporter();
+        File file = folder.newFile("iterator.xlsx");
+        exporter.export(numbers(12500).iterator(), file.getPath(), 5000).await();
+        assertSequence(file, 12500, 5000);
+
+        // 数据量正好是Sheet容量的整数倍时不多出空Sheet
+        File exactFile = folder.newFile("exact.xlsx");
+        exporter.export(numbers(10000).iterator(), exactFile.getPath(), 5000).await();
+        assertSequence(exactFile, 10000, 5000);
+    }
+
+    @Test
+    public void streamExportTest() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        File file = folder.newFile("stream.xlsx");
+        slowBatchExporter().export(numbers(7000).stream().onClose(() -> closed.set(true)), file.getPath(), 3000)
+            .await();
+        assertSequence(file, 7000, 3000);
+        // 导出结束后关闭数据流
+        assertTrue(closed.get());
+    }
+
+    @Test
+    public void exportByPageTest() throws Exception {
+        PoiMultiThreadExcelExporter<Integer> exporter = slowBatchExporter();
+
+        // 返回null结束：每页1000行，共7页
+        List<Integer> requested = new ArrayList<>();
+        File nullFile = folder.newFile("page-null.xlsx");
+        exporter.exportByPage(pageNo -> {
+            requested.add(pageNo);
+            return pageNo > 7 ? null : numbers(1000 * (pageNo - 1), 1000);
+        }, nullFile.getPath(), 3000).await();
+        assertSequence(nullFile, 7000, 3000);
+        // 页码从1开始，返回null后不再加载
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8), requested);
+
+        // 返回空列表结束：页大小与Sheet容量不对齐，一页数据跨两个Sheet
+        requested.clear();
+        File emptyFile = folder.newFile("page-empty.xlsx");
+        exporter.exportByPage(pageNo -> {
+            requested.add(pageNo);
+            return pageNo > 10 ? Collections.emptyList() : numbers(700 * (pageNo - 1), 700);
+        }, emptyFile.getPath(), 3000).await();
+        assertSequence(emptyFile, 7000, 3000);
+        assertEquals(11, requested.size());
+    }
+
+    private static void assertSequence(File file, int total, int sheetRows) throws Exception {
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+            assertEquals((total + sheetRows - 1) / sheetRows, workbook.getNumberOfSheets());
+            int expected = 0;
+            for (Sheet sheet : workbook) {
+                // 除最后一个Sheet外每个Sheet正好写满，数据行不跨Sheet重复或丢失
+                assertEquals(Math.min(sheetRows, total - expected), sheet.getLastRowNum());
+                for (int r = 1; r <= sheet.getLastRowNum(); r++) {
+                    assertEquals(expected++, (int) sheet.getRow(r).getCell(0).getNumericCellValue());
+                }
+            }
+            assertEquals(total, expected);
+        }
+    }
+
+    /**
+     * 模拟卡住的数据映射，直到导出被取消（不依赖中断标记，中断可能已被写入线程中的其他代码清除），
+     * 之后由写入线程的检查点停止写入
+     */
+    private static void parkUntilCancelled(AtomicReference<ExportHandle> current) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline && (current.get() == null || !current.get().isCancelled())) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * 使用独立临时目录和舱壁的导出器，便于检查结束后资源是否归还
+     */
+    private class Fixture {
+        private final PoiMultiThreadExcelExporter<Integer> exporter;
+
+        private final ExportBulkhead bulkhead = new ExportBulkhead(2);
+
+        private final Path tempDirectory;
+
+        private final File file;
+
+        Fixture(Function<Integer, Object[]> mapper) throws Exception {
+            exporter = new PoiMultiThreadExcelExporter<>(new String[] {"序号"}, mapper, "Sheet");
+            tempDirectory = folder.newFolder().toPath();
+            exporter.setTempStorage(new DiskTempStorage(tempDirectory, null, true));
+            exporter.setBulkhead(bulkhead);
+            file = new File(folder.newFolder(), "export.xlsx");
+        }
+
+        void assertReleased() {
+            // 未写完的目标文件被删除
+            assertFalse(file.exists());
+            // 导出结束前写入任务已退出：舱壁许可全部归还，临时xlsx和SXSSF溢出文件已删除
+            assertEquals(2, bulkhead.getAvailableSheetWorkers());
+            assertEquals(0, tempDirectory.toFile().list().length);
+        }
+    }
+
+    /**
+     * 部分数据映射较慢的导出器，使各Sheet写入线程的完成顺序与提交顺序不同
+     */
+    private static PoiMultiThreadExcelExporter<Integer> slowBatchExporter() {
+        return new PoiMultiThreadExcelExporter<>(new String[] {"序号"}, value -> {
+            if (value % 1000 == 0 && value / 1000 % 3 == 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(30));
+            }
+            return new Object[] {value};
+        }, "Sheet", 4, null, null);
+    }
+
+    static PoiMultiThreadExcelExporter<Integer> exporter() {
+        return new PoiMultiThreadExcelExporter<>(new String[] {"序号"}, value -> new Object[] {value}, "Sheet");
+    }
+
+    static List<Integer> numbers(int count) {
+        return numbers(0, count);
+    }
+
+    static List<Integer> numbers(int start, int count) {
+        List<Integer> data = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            data.add(start + i);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,621 @@
+package org.example;
+
+import com.ljn.demo.util.ColumnWidthEstimator;
+import com.ljn.demo.util.ExcelColumns;
+import com.ljn.demo.util.SheetPartitioner;
+
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.LocaleUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * 原始SpreadsheetML写入器：不经过POI的Row/Cell对象，直接把Sheet XML编码为UTF-8写入字节缓冲区
+ * 特点：
+ * 1. 单元格按原始类型写出（文本、整数、小数、日期、布尔），整数和整日期直接写数字，不创建字符串
+ * 2. 样式只有固定的几种（与CellStyleRegistry的内置样式一致），对应的styles.xml由 writeStyles 输出
+ * 3. 前 widthSampleRows 行先留在缓冲区中测量列宽，写出 &lt;cols&gt; 后再开始流式写出，之后缓冲区写满即刷新
+ * 4. 字符串可引用共享字符串字典，未进入字典的内联写入，转义规则与POI SheetDataWriter一致
+ * 用法：startRow → 按列写值（列之间调用nextColumn）→ endRow，全部行写完后调用 finish
+ * 写出失败时抛出 UncheckedIOException；非线程安全，每个Sheet使用一个实例
+ */
+public class RawSheetWriter implements ExcelColumns.TextSink {
+    // 默认样式
+    public static final int STYLE_DEFAULT = 0;
+
+    // 表头样式（加粗、居中、细边框）
+    public static final int STYLE_HEADER = 1;
+
+    // 数据样式（细边框、垂直居中）
+    public static final int STYLE_BODY = 2;
+
+    // 日期数据样式（数据样式 + yyyy-MM-dd HH:mm:ss）
+    public static final int STYLE_DATE = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final long DAY_MILLIS = 86400000L;
+
+    // 1970-01-01 的Excel日期序列值（1900日期系统）
+    private static final int EPOCH_SERIAL = 25569;
+
+    // 1900-03-01 的序列值，之前的日期受Excel 1900-02-29的历史问题影响需减1
+    private static final int LEAP_BUG_SERIAL = 61;
+
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String NS_RELATIONSHIPS =
+        "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final byte[] STYLES = ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+        + "<styleSheet xmlns=\"" + NS_MAIN + "\">"
+        + "<numFmts count=\"1\"><numFmt numFmtId=\"164\" formatCode=\"yyyy-MM-dd HH:mm:ss\"/></numFmts>"
+        + "<fonts count=\"2\">"
+        + "<font><sz val=\"11\"/><color indexed=\"8\"/><name val=\"Calibri\"/><family val=\"2\"/>"
+        + "<scheme val=\"minor\"/></font>"
+        + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+        + "</fonts>"
+        + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+        + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+        + "<borders count=\"2\"><border><left/><right/><top/><bottom/><diagonal/></border>"
+        + "<border><left style=\"thin\"/><right style=\"thin\"/><top style=\"thin\"/><bottom style=\"thin\"/>"
+        + "<diagonal/></border></borders>"
+        + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+        + "<cellXfs count=\"4\">"
+        + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+        + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyFont=\"1\" applyBorder=\"1\""
+        + " applyAlignment=\"1\"><alignment horizontal=\"center\" vertical=\"center\"/></xf>"
+        + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyBorder=\"1\""
+        + " applyAlignment=\"1\"><alignment vertical=\"center\"/></xf>"
+        + "<xf numFmtId=\"164\" fontId=\"0\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyNumberFormat=\"1\""
+        + " applyBorder=\"1\" applyAlignment=\"1\"><alignment vertical=\"center\"/></xf>"
+        + "</cellXfs>"
+        + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+        + "</styleSheet>").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ROW_START = ascii("<row r=\"");
+
+    private static final byte[] ROW_END = ascii("</row>");
+
+    private static final byte[] CELL_START = ascii("<c r=\"");
+
+    private static final byte[] STYLE_ATTRIBUTE = ascii("\" s=\"");
+
+    private static final byte[] INLINE_STRING_START = ascii("\" t=\"inlineStr\"><is><t>");
+
+    private static final byte[] INLINE_STRING_PRESERVE_START =
+        ascii("\" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+
+    private static final byte[] INLINE_STRING_END = ascii("</t></is></c>");
+
+    private static final byte[] SHARED_STRING_START = ascii("\" t=\"s\"><v>");
+
+    private static final byte[] NUMBER_START = ascii("\"><v>");
+
+    private static final byte[] BOOLEAN_START = ascii("\" t=\"b\"><v>");
+
+    private static final byte[] VALUE_END = ascii("</v></c>");
+
+    private static final byte[] BLANK_END = ascii("\"/>");
+
+    private static final byte[] ESCAPED_LT = ascii("&lt;");
+
+    private static final byte[] ESCAPED_GT = ascii("&gt;");
+
+    private static final byte[] ESCAPED_AMP = ascii("&amp;");
+
+    private static final byte[] ESCAPED_QUOT = ascii("&quot;");
+
+    private static final byte[] ESCAPED_LF = ascii("&#xa;");
+
+    private static final byte[] ESCAPED_CR = ascii("&#xd;");
+
+    private static final byte[] ESCAPED_TAB = ascii("&#x9;");
+
+    private static final byte[] ESCAPED_NBSP = ascii("&#xa0;");
+
+    private final OutputStream out;
+
+    private final int columnCount;
+
+    private final int widthSampleRows;
+
+    private final SharedStringDictionary sharedStrings;
+
+    private final TimeZone timeZone = LocaleUtil.getUserTimeZone();
+
+    // 列字母（A、B、...、AA），按列缓存
+    private final byte[][] columnNames;
+
+    // 列宽测量，开始流式写出后置为null
+    private ColumnWidthEstimator widthEstimator;
+
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int position;
+
+    // 已写出 <cols> 等前导部分，缓冲区写满时直接刷新
+    private boolean streaming;
+
+    // 已开始的行数（当前行的行号，从1开始）
+    private int rowNumber;
+
+    private int column;
+
+    private int[] rowStyles;
+
+    private boolean inRow;
+
+    private boolean finished;
+
+    /**
+     * 构造函数
+     *
+     * @param out 输出流（由调用方关闭）
+     * @param columnCount 列数
+     * @param widthSampleRows 用于测量列宽的前几行（含表头），期间这些行留在缓冲区中
+     * @param sharedStrings 共享字符串字典，为null时全部内联
+     */
+    public RawSheetWriter(OutputStream out, int columnCount, int widthSampleRows,
+        SharedStringDictionary sharedStrings) {
+        if (columnCount <= 0) {
+            throw new IllegalArgumentException("列数必须大于0");
+        }
+        this.out = out;
+        this.columnCount = columnCount;
+        this.widthSampleRows = Math.max(1, widthSampleRows);
+        this.sharedStrings = sharedStrings;
+        this.widthEstimator = new ColumnWidthEstimator(columnCount);
+        this.columnNames = new byte[columnCount][];
+        for (int i = 0; i < columnCount; i++) {
+            columnNames[i] = ascii(CellReference.convertNumToColString(i));
+        }
+    }
+
+    /**
+     * 内置样式key对应的样式索引
+     *
+     * @param styleKey 样式key（CellStyleRegistry.HEADER、BODY、DATE）
+     * @return 样式索引
+     */
+    public static int styleOf(String styleKey) {
+        if (CellStyleRegistry.HEADER.equals(styleKey)) {
+            return STYLE_HEADER;
+        }
+        if (CellStyleRegistry.BODY.equals(styleKey)) {
+            return STYLE_BODY;
+        }
+        if (CellStyleRegistry.DATE.equals(styleKey)) {
+            return STYLE_DATE;
+        }
+        throw new IllegalStateException("原始写入引擎只支持内置样式: " + styleKey);
+    }
+
+    /**
+     * 输出与样式索引对应的 xl/styles.xml（不关闭输出流）
+     *
+     * @param out 输出流
+     * @throws IOException IO异常
+     */
+    public static void writeStyles(OutputStream out) throws IOException {
+        out.write(STYLES);
+    }
+
+    /**
+     * 开始一行
+     *
+     * @param columnStyles 按列的样式索引，为null或超出数组长度的列使用默认样式
+     */
+    public void startRow(int[] columnStyles) {
+        if (inRow || finished) {
+            throw new IllegalStateException(finished ? "Sheet已结束" : "上一行尚未结束");
+        }
+        if (rowNumber >= SheetPartitioner.EXCEL_MAX_ROWS) {
+            throw new IllegalStateException("超过Excel单个Sheet的最大行数");
+        }
+        rowNumber++;
+        column = 0;
+        rowStyles = columnStyles;
+        inRow = true;
+        if (widthEstimator != null) {
+            widthEstimator.startRow();
+        }
+        ensure(ROW_START.length + 12);
+        put(ROW_START);
+        putLong(rowNumber);
+        buffer[position++] = '"';
+        buffer[position++] = '>';
+    }
+
+    /**
+     * 结束当前行，测量列宽的行写满后写出前导部分并开始流式写出
+     */
+    public void endRow() {
+        if (!inRow) {
+            throw new IllegalStateException("当前没有进行中的行");
+        }
+        inRow = false;
+        ensure(ROW_END.length);
+        put(ROW_END);
+        if (!streaming && rowNumber >= widthSampleRows) {
+            startStreaming();
+        }
+    }
+
+    /**
+     * 写入映射后的一行（值按实际类型写入，null写为空字符串，超出列数的值忽略）
+     *
+     * @param values 单元格值
+     * @param columnStyles 按列的样式索引
+     */
+    public void writeRow(Object[] values, int[] columnStyles) {
+        startRow(columnStyles);
+        if (values != null) {
+            int count = Math.min(values.length, columnCount);
+            for (int j = 0; j < count; j++) {
+                column = j;
+                if (values[j] == null) {
+                    // 与SXSSF引擎写入映射行的结果一致
+                    text("");
+                } else {
+                    value(values[j]);
+                }
+            }
+        }
+        endRow();
+    }
+
+    /**
+     * 结束Sheet：写出结束标签并刷新（不关闭输出流）
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        if (inRow) {
+            endRow();
+        }
+        if (!streaming) {
+            startStreaming();
+        }
+        putAscii("</sheetData>");
+        putAscii("<pageMargins left=\"0.7\" right=\"0.7\" top=\"0.75\" bottom=\"0.75\" header=\"0.3\""
+            + " footer=\"0.3\"/></worksheet>");
+        flushBuffer();
+        finished = true;
+    }
+
+    /**
+     * 已开始的行数
+     *
+     * @return 行数
+     */
+    public int getRowCount() {
+        return rowNumber;
+    }
+
+    @Override
+    public void text(String value) {
+        if (value == null) {
+            blank();
+            return;
+        }
+        if (widthEstimator != null) {
+            widthEstimator.acceptWidth(column, ColumnWidthEstimator.calculateWidth(value));
+        }
+        int index = sharedStrings != null ? sharedStrings.encode(rowNumber - 1, column, value) : -1;
+        cellStart();
+        if (index >= 0) {
+            put(SHARED_STRING_START);
+            putLong(index);
+            put(VALUE_END);
+            return;
+        }
+        boolean preserve = !value.isEmpty() && (Character.isWhitespace(value.charAt(0))
+            || Character.isWhitespace(value.charAt(value.length() - 1)));
+        put(preserve ? INLINE_STRING_PRESERVE_START : INLINE_STRING_START);
+        putEscaped(value);
+        ensure(INLINE_STRING_END.length);
+        put(INLINE_STRING_END);
+    }
+
+    @Override
+    public void number(long value) {
+        if (widthEstimator != null) {
+            widthEstimator.acceptWidth(column, ColumnWidthEstimator.calculateWidth(value));
+        }
+        cellStart();
+        put(NUMBER_START);
+        putLong(value);
+        put(VALUE_END);
+    }
+
+    @Override
+    public void number(double value) {
+        if (widthEstimator != null) {
+            widthEstimator.acceptWidth(column, ColumnWidthEstimator.calculateWidth(value));
+        }
+        cellStart();
+        put(NUMBER_START);
+        putDouble(value);
+        put(VALUE_END);
+    }
+
+    @Override
+    public void bool(boolean value) {
+        if (widthEstimator != null) {
+            widthEstimator.acceptWidth(column, ColumnWidthEstimator.calculateWidth(value ? "TRUE" : "FALSE"));
+        }
+        cellStart();
+        put(BOOLEAN_START);
+        buffer[position++] = (byte) (value ? '1' : '0');
+        put(VALUE_END);
+    }
+
+    @Override
+    public void date(Date value) {
+        if (value == null) {
+            blank();
+            return;
+        }
+        if (widthEstimator != null) {
+            widthEstimator.accept(column, value);
+        }
+        cellStart();
+        put(NUMBER_START);
+        // 按POI的本地时区换算为1900日期系统的序列值，1900年之前的日期写为-1
+        long millis = value.getTime();
+        long localMillis = millis + timeZone.getOffset(millis);
+        long days = Math.floorDiv(localMillis, DAY_MILLIS) + EPOCH_SERIAL;
+        long dayMillis = Math.floorMod(localMillis, DAY_MILLIS);
+        if (days < LEAP_BUG_SERIAL) {
+            days--;
+        }
+        if (days < 1) {
+            putLong(-1L);
+        } else if (dayMillis == 0) {
+            putLong(days);
+        } else {
+            putDouble(days + (double) dayMillis / DAY_MILLIS);
+        }
+        put(VALUE_END);
+    }
+
+    @Override
+    public void value(Object value) {
+        if (value == null) {
+            blank();
+        } else if (value instanceof String) {
+            text((String) value);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+            || value instanceof Byte) {
+            number(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            number(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            bool((Boolean) value);
+        } else if (value instanceof Date) {
+            date((Date) value);
+        } else {
+            text(value.toString());
+        }
+    }
+
+    @Override
+    public void nextColumn() {
+        column++;
+    }
+
+    /**
+     * 空单元格：只有非默认样式时写出（保留边框等样式）
+     */
+    private void blank() {
+        if (styleAt(column) == STYLE_DEFAULT) {
+            return;
+        }
+        cellStart();
+        put(BLANK_END);
+    }
+
+    /**
+     * 写出 &lt;c r="A1" s="2，类型和值由调用方继续写出
+     */
+    private void cellStart() {
+        if (!inRow) {
+            throw new IllegalStateException("当前没有进行中的行");
+        }
+        if (column >= columnCount) {
+            throw new IllegalStateException("列索引超出范围: " + column);
+        }
+        // 单元格固定部分的最大长度，值部分较长时（文本）另行检查
+        ensure(96);
+        put(CELL_START);
+        put(columnNames[column]);
+        putLong(rowNumber);
+        int style = styleAt(column);
+        if (style != STYLE_DEFAULT) {
+            put(STYLE_ATTRIBUTE);
+            putLong(style);
+        }
+    }
+
+    private int styleAt(int columnIndex) {
+        return rowStyles != null && columnIndex < rowStyles.length ? rowStyles[columnIndex] : STYLE_DEFAULT;
+    }
+
+    /**
+     * 写出XML声明、列宽和 &lt;sheetData&gt;，再写出缓冲区中的测量行
+     */
+    private void startStreaming() {
+        StringBuilder prolog = new StringBuilder(128 + columnCount * 64);
+        prolog.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<worksheet xmlns=\"").append(NS_MAIN)
+            .append("\" xmlns:r=\"").append(NS_RELATIONSHIPS).append("\"><cols>");
+        for (int i = 0; i < columnCount; i++) {
+            prolog.append("<col min=\"").append(i + 1).append("\" max=\"").append(i + 1).append("\" width=\"")
+                .append(widthEstimator.getColumnWidth(i) / 256.0).append("\" customWidth=\"1\"/>");
+        }
+        prolog.append("</cols><sheetData>");
+        try {
+            out.write(prolog.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        widthEstimator = null;
+        streaming = true;
+        flushBuffer();
+        if (buffer.length > BUFFER_SIZE) {
+            // 测量期间扩容的缓冲区不再需要
+            buffer = new byte[BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * 保证缓冲区有 length 字节的空间：流式写出后刷新，测量期间扩容
+     */
+    private void ensure(int length) {
+        if (position + length <= buffer.length) {
+            return;
+        }
+        if (streaming) {
+            flushBuffer();
+            if (length <= buffer.length) {
+                return;
+            }
+        }
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+    }
+
+    private void flushBuffer() {
+        if (position == 0) {
+            return;
+        }
+        try {
+            out.write(buffer, 0, position);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        position = 0;
+    }
+
+    private void put(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void putAscii(String value) {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    /**
+     * 写出整数（调用方已保证20字节空间）
+     */
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            putAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long remaining = value / 10; remaining != 0; remaining /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    /**
+     * 写出小数：整数值按整数写出，其余与POI一致使用Double.toString
+     */
+    private void putDouble(double value) {
+        if (value == (long) value && Math.abs(value) < 1e15) {
+            putLong((long) value);
+        } else {
+            putAscii(Double.toString(value));
+        }
+    }
+
+    /**
+     * 按POI SheetDataWriter的规则转义并编码为UTF-8：XML特殊字符转义，换行和制表符用字符引用，
+     * 其余控制字符和不成对的代理字符替换为?
+     */
+    private void putEscaped(String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (position + 8 > buffer.length) {
+                ensure(8);
+            }
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    put(ESCAPED_LT);
+                    break;
+                case '>':
+                    put(ESCAPED_GT);
+                    break;
+                case '&':
+                    put(ESCAPED_AMP);
+                    break;
+                case '"':
+                    put(ESCAPED_QUOT);
+                    break;
+                case '\n':
+                    put(ESCAPED_LF);
+                    break;
+                case '\r':
+                    put(ESCAPED_CR);
+                    break;
+                case '\t':
+                    put(ESCAPED_TAB);
+                    break;
+                case '\u00A0':
+                    put(ESCAPED_NBSP);
+                    break;
+                default:
+                    if (c < 0x80) {
+                        buffer[position++] = (byte) (c < ' ' ? '?' : c);
+                    } else if (c < 0x800) {
+                        buffer[position++] = (byte) (0xC0 | (c >> 6));
+                        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                    } else if (Character.isSurrogate(c)) {
+                        if (Character.isHighSurrogate(c) && i + 1 < length
+                            && Character.isLowSurrogate(value.charAt(i + 1))) {
+                            int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                        } else {
+                            buffer[position++] = '?';
+                        }
+                    } else if (c >= '\uFFFE') {
+                        buffer[position++] = '?';
+                    } else {
+                        buffer[position++] = (byte) (0xE0 | (c >> 12));
+                        buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
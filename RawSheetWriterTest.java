@@ -0,0 +1,177 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 原始SpreadsheetML写入器测试（写出后经流式拼装，再用XSSFWorkbook读回）
+ */
+public class RawSheetWriterTest {
+    private static final int[] STYLES = {RawSheetWriter.STYLE_BODY, RawSheetWriter.STYLE_BODY};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void escapeTest() throws IOException {
+        String[] values = {"<a & \"b\">", "第一行\n第二行\r\t结束", "\u0001控制\u001f", " 前后空格 ", "emoji😀",
+            "孤立\uD800代理", " nbsp"};
+        try (XSSFWorkbook workbook = write(writer -> {
+            for (String value : values) {
+                writer.writeRow(new Object[] {value}, STYLES);
+            }
+        }, null)) {
+            XSSFSheet sheet = workbook.getSheetAt(0);
+            assertEquals("<a & \"b\">", text(sheet, 0, 0));
+            assertEquals("第一行\n第二行\r\t结束", text(sheet, 1, 0));
+            assertEquals("?控制?", text(sheet, 2, 0));
+            assertEquals(" 前后空格 ", text(sheet, 3, 0));
+            assertEquals("emoji😀", text(sheet, 4, 0));
+            assertEquals("孤立?代理", text(sheet, 5, 0));
+            assertEquals(" nbsp", text(sheet, 6, 0));
+        }
+    }
+
+    @Test
+    public void numberAndBooleanTest() throws IOException {
+        try (XSSFWorkbook workbook = write(writer -> {
+            writer.writeRow(new Object[] {123456789012L, -5}, STYLES);
+            writer.writeRow(new Object[] {3.25d, 1e20d}, STYLES);
+            writer.writeRow(new Object[] {Long.MIN_VALUE, (short) 7}, STYLES);
+            writer.writeRow(new Object[] {true, false}, STYLES);
+        }, null)) {
+            XSSFSheet sheet = workbook.getSheetAt(0);
+            assertEquals(123456789012d, number(sheet, 0, 0), 0.0);
+            assertEquals(-5d, number(sheet, 0, 1), 0.0);
+            assertEquals(3.25d, number(sheet, 1, 0), 0.0);
+            assertEquals(1e20d, number(sheet, 1, 1), 0.0);
+            assertEquals((double) Long.MIN_VALUE, number(sheet, 2, 0), 0.0);
+            assertEquals(7d, number(sheet, 2, 1), 0.0);
+            assertEquals(CellType.BOOLEAN, sheet.getRow(3).getCell(0).getCellType());
+            assertTrue(sheet.getRow(3).getCell(0).getBooleanCellValue());
+            assertEquals(false, sheet.getRow(3).getCell(1).getBooleanCellValue());
+        }
+    }
+
+    @Test
+    public void dateTest() throws IOException {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(2024, Calendar.FEBRUARY, 29, 13, 45, 30);
+        Date dateTime = calendar.getTime();
+        calendar.clear();
+        calendar.set(1900, Calendar.JANUARY, 15);
+        Date early = calendar.getTime();
+        int[] dateStyles = {RawSheetWriter.STYLE_DATE, RawSheetWriter.STYLE_DATE};
+        try (XSSFWorkbook workbook = write(writer -> {
+            writer.startRow(dateStyles);
+            writer.date(dateTime);
+            writer.nextColumn();
+            writer.date(early);
+            writer.endRow();
+        }, null)) {
+            XSSFCell cell = workbook.getSheetAt(0).getRow(0).getCell(0);
+            assertTrue(DateUtil.isCellDateFormatted(cell));
+            assertEquals("yyyy-MM-dd HH:mm:ss", cell.getCellStyle().getDataFormatString());
+            assertEquals(dateTime, cell.getDateCellValue());
+            // 1900-03-01之前的日期按Excel的1900闰年问题换算
+            assertEquals(early, workbook.getSheetAt(0).getRow(0).getCell(1).getDateCellValue());
+        }
+    }
+
+    @Test
+    public void sharedStringTest() throws IOException {
+        SharedStringDictionary sharedStrings = new SharedStringDictionary(new SharedStringDictionary.Encoding[] {
+            SharedStringDictionary.Encoding.SHARED, SharedStringDictionary.Encoding.INLINE},
+            SharedStringDictionary.Encoding.INLINE, 100, 1024 * 1024, 10);
+        sharedStrings.setHeaderRows(1);
+        try (XSSFWorkbook workbook = write(writer -> {
+            writer.writeRow(new Object[] {"城市", "备注"}, new int[] {RawSheetWriter.STYLE_HEADER,
+                RawSheetWriter.STYLE_HEADER});
+            writer.writeRow(new Object[] {"北京", "a&b"}, STYLES);
+            writer.writeRow(new Object[] {"北京", "c"}, STYLES);
+            writer.writeRow(new Object[] {"上海", null}, STYLES);
+        }, sharedStrings)) {
+            XSSFSheet sheet = workbook.getSheetAt(0);
+            // 表头和INLINE列内联，SHARED列引用共享字符串表
+            assertEquals(STCellType.INLINE_STR, sheet.getRow(0).getCell(0).getCTCell().getT());
+            assertEquals(STCellType.S, sheet.getRow(1).getCell(0).getCTCell().getT());
+            assertEquals(STCellType.INLINE_STR, sheet.getRow(1).getCell(1).getCTCell().getT());
+            assertEquals("北京", text(sheet, 2, 0));
+            assertEquals("上海", text(sheet, 3, 0));
+            assertEquals("a&b", text(sheet, 1, 1));
+            assertEquals("", text(sheet, 3, 1));
+            assertEquals(2, workbook.getSharedStringSource().getUniqueCount());
+            assertEquals(1, sheet.getRow(0).getCell(0).getCellStyle().getIndex());
+        }
+    }
+
+    @Test
+    public void columnWidthTest() throws IOException {
+        try (XSSFWorkbook workbook = write(writer -> {
+            writer.writeRow(new Object[] {"短", "一个比较长的中文标题用于测量列宽"}, STYLES);
+        }, null)) {
+            XSSFSheet sheet = workbook.getSheetAt(0);
+            assertTrue(sheet.getColumnWidth(1) > sheet.getColumnWidth(0));
+        }
+    }
+
+    /**
+     * 按原始写入引擎的方式生成临时zip，再经XlsxPackageAssembler拼装后读回
+     */
+    private XSSFWorkbook write(Consumer<RawSheetWriter> rows, SharedStringDictionary sharedStrings)
+        throws IOException {
+        File temp = folder.newFile();
+        try (ZipOutputStream zipOut = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            zipOut.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+            RawSheetWriter writer = new RawSheetWriter(zipOut, 2, 1, sharedStrings);
+            rows.accept(writer);
+            writer.finish();
+            zipOut.closeEntry();
+            zipOut.putNextEntry(new ZipEntry("xl/styles.xml"));
+            RawSheetWriter.writeStyles(zipOut);
+            zipOut.closeEntry();
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxPackageAssembler assembler = new XlsxPackageAssembler(out)) {
+            assembler.setSharedStrings(sharedStrings);
+            assembler.addSheet("数据", temp);
+            assembler.finish();
+        }
+        return new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    private static String text(XSSFSheet sheet, int row, int column) {
+        return sheet.getRow(row).getCell(column).getStringCellValue();
+    }
+
+    private static double number(XSSFSheet sheet, int row, int column) {
+        XSSFRow sheetRow = sheet.getRow(row);
+        assertEquals(CellType.NUMERIC, sheetRow.getCell(column).getCellType());
+        return sheetRow.getCell(column).getNumericCellValue();
+    }
+}
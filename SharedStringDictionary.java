@@ -0,0 +1,357 @@
+package org.example;
+
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有界共享字符串字典（单次导出内所有Sheet写入线程共享）
+ * 特点：
+ * 1. 按列选择编码方式：INLINE 内联写入；SHARED 写入共享字符串表；AUTO 试用期内先内联写入并缓存该列的候选值，
+ *    重复出现足够多次（判定为低基数列）后候选值才进入共享字符串表，不同值达到基数上限则判定为高基数列，
+ *    丢弃候选值并一直内联，不会占用其他列的字典条目
+ * 2. 条目数和估算内存都有上限，字典写满后新值内联写入，已有值仍引用字典，不会像XSSF的共享字符串表那样无限增长
+ * 3. 字典索引在整个导出内全局唯一，拼装最终文件时输出为 xl/sharedStrings.xml
+ * 线程安全
+ */
+public class SharedStringDictionary {
+    // 默认最多条目数
+    public static final int DEFAULT_MAX_ENTRIES = 65536;
+
+    // 默认估算内存上限
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    // AUTO列默认的基数上限
+    public static final int DEFAULT_CARDINALITY_LIMIT = 1024;
+
+    // 每个条目除字符外的估算开销（HashMap节点、Integer、String对象头）
+    private static final int ENTRY_OVERHEAD_BYTES = 64;
+
+    // AUTO列判定为低基数至少需要的取值次数
+    private static final int PROMOTE_MIN_OBSERVATIONS = 32;
+
+    // AUTO列判定为低基数时取值次数与不同值个数的最小比例（平均每个值至少重复出现的次数）
+    private static final int PROMOTE_REPEAT_RATIO = 4;
+
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private final Encoding[] columnEncodings;
+
+    private final Encoding defaultEncoding;
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private final int cardinalityLimit;
+
+    private final ConcurrentHashMap<String, Integer> index = new ConcurrentHashMap<>();
+
+    // 按索引顺序的条目（新增时加锁）
+    private final List<String> entries = new ArrayList<>();
+
+    // 每列新增的条目数
+    private final AtomicIntegerArray columnEntries;
+
+    // AUTO列的试用状态（与columnEntries使用相同的下标）
+    private final AutoColumn[] autoColumns;
+
+    // 引用次数（sst的count属性）
+    private final LongAdder references = new LongAdder();
+
+    // 表头行数，表头单元格内联写入，不占用字典条目
+    private volatile int headerRows;
+
+    private long estimatedBytes;
+
+    private volatile boolean full;
+
+    /**
+     * 构造函数
+     *
+     * @param columnEncodings 按列的编码方式，元素为null或超出数组长度的列使用默认编码方式
+     * @param defaultEncoding 默认编码方式
+     * @param maxEntries 最多条目数
+     * @param maxBytes 估算内存上限
+     * @param cardinalityLimit AUTO列的基数上限
+     */
+    public SharedStringDictionary(Encoding[] columnEncodings, Encoding defaultEncoding, int maxEntries, long maxBytes,
+        int cardinalityLimit) {
+        if (maxEntries <= 0 || maxBytes <= 0 || cardinalityLimit <= 0) {
+            throw new IllegalArgumentException("共享字符串上限必须大于0");
+        }
+        this.columnEncodings = columnEncodings != null ? Arrays.copyOf(columnEncodings, columnEncodings.length)
+            : new Encoding[0];
+        this.defaultEncoding = defaultEncoding != null ? defaultEncoding : Encoding.INLINE;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.cardinalityLimit = cardinalityLimit;
+        this.columnEntries = new AtomicIntegerArray(this.columnEncodings.length + 1);
+        this.autoColumns = new AutoColumn[this.columnEncodings.length + 1];
+        for (int i = 0; i < autoColumns.length; i++) {
+            autoColumns[i] = new AutoColumn();
+        }
+    }
+
+    /**
+     * 是否有列可能使用共享字符串
+     *
+     * @param columnEncodings 按列的编码方式
+     * @param defaultEncoding 默认编码方式
+     * @param columnCount 列数
+     * @return 全部列内联时返回false
+     */
+    public static boolean isEnabled(Encoding[] columnEncodings, Encoding defaultEncoding, int columnCount) {
+        for (int i = 0; i < columnCount; i++) {
+            Encoding encoding = columnEncodings != null && i < columnEncodings.length && columnEncodings[i] != null
+                ? columnEncodings[i]
+                : defaultEncoding;
+            if (encoding != null && encoding != Encoding.INLINE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 设置表头行数（表头单元格内联写入）
+     *
+     * @param headerRows 表头行数
+     */
+    public void setHeaderRows(int headerRows) {
+        this.headerRows = Math.max(0, headerRows);
+    }
+
+    /**
+     * 编码单元格字符串
+     *
+     * @param row 行索引
+     * @param column 列索引
+     * @param value 字符串
+     * @return 共享字符串索引，-1 表示内联写入
+     */
+    public int encode(int row, int column, String value) {
+        if (row < headerRows) {
+            return -1;
+        }
+        Encoding encoding = encoding(column);
+        if (encoding == Encoding.INLINE || value == null) {
+            return -1;
+        }
+        int counter = Math.min(column, columnEncodings.length);
+        AutoColumn auto = encoding == Encoding.AUTO ? autoColumns[counter] : null;
+        if (auto != null && (auto.demoted || columnEntries.get(counter) >= cardinalityLimit)) {
+            return -1;
+        }
+        Integer existing = index.get(value);
+        if (existing != null) {
+            references.increment();
+            return existing;
+        }
+        if (auto != null && !auto.promoted && !auto.observe(counter, value)) {
+            return -1;
+        }
+        if (full) {
+            return -1;
+        }
+        return insert(counter, value, true);
+    }
+
+    /**
+     * 条目数
+     *
+     * @return 条目数
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 输出 xl/sharedStrings.xml（不关闭输出流）
+     *
+     * @param out 输出流
+     * @throws IOException IO异常
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        List<String> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries);
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        writer.write("<sst xmlns=\"" + NS_MAIN + "\" count=\"" + references.sum() + "\" uniqueCount=\""
+            + snapshot.size() + "\">");
+        for (String value : snapshot) {
+            writer.write("<si><t");
+            if (!value.isEmpty() && (Character.isWhitespace(value.charAt(0))
+                || Character.isWhitespace(value.charAt(value.length() - 1)))) {
+                writer.write(" xml:space=\"preserve\"");
+            }
+            writer.write('>');
+            writeEscaped(writer, value);
+            writer.write("</t></si>");
+        }
+        writer.write("</sst>");
+        writer.flush();
+    }
+
+    /**
+     * 把字典条目按索引顺序写入工作簿自身的共享字符串表（单工作簿直接写出时使用，表必须为空）
+     *
+     * @param sharedStringsTable 工作簿的共享字符串表
+     */
+    public void copyTo(SharedStringsTable sharedStringsTable) {
+        List<String> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(entries);
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            int added = sharedStringsTable.addSharedStringItem(new XSSFRichTextString(snapshot.get(i)));
+            if (added != i) {
+                throw new IllegalStateException("共享字符串表不为空，无法按字典索引写入");
+            }
+        }
+    }
+
+    private Encoding encoding(int column) {
+        if (column < columnEncodings.length && columnEncodings[column] != null) {
+            return columnEncodings[column];
+        }
+        return defaultEncoding;
+    }
+
+    private synchronized int insert(int counter, String value, boolean reference) {
+        Integer existing = index.get(value);
+        if (existing != null) {
+            if (reference) {
+                references.increment();
+            }
+            return existing;
+        }
+        long bytes = estimatedBytes + value.length() * 2L + ENTRY_OVERHEAD_BYTES;
+        if (entries.size() >= maxEntries || bytes > maxBytes) {
+            full = true;
+            return -1;
+        }
+        int newIndex = entries.size();
+        entries.add(value);
+        index.put(value, newIndex);
+        estimatedBytes = bytes;
+        columnEntries.incrementAndGet(counter);
+        if (reference) {
+            references.increment();
+        }
+        return newIndex;
+    }
+
+    /**
+     * AUTO列的试用状态：试用期内缓存不同的候选值，判定为低基数后一次性写入字典，判定为高基数后丢弃
+     */
+    private final class AutoColumn {
+        // 候选值（按出现顺序，最多cardinalityLimit个）
+        private LinkedHashSet<String> candidates = new LinkedHashSet<>();
+
+        // 试用期内的取值次数
+        private long observations;
+
+        private volatile boolean promoted;
+
+        private volatile boolean demoted;
+
+        /**
+         * 记录试用期内的一次取值
+         *
+         * @return 该列已判定为低基数（候选值已写入字典）时返回true
+         */
+        synchronized boolean observe(int counter, String value) {
+            if (promoted || demoted) {
+                return promoted;
+            }
+            observations++;
+            if (candidates.add(value) && candidates.size() >= cardinalityLimit) {
+                demoted = true;
+                candidates = null;
+                return false;
+            }
+            if (observations < PROMOTE_MIN_OBSERVATIONS
+                || observations < (long) candidates.size() * PROMOTE_REPEAT_RATIO) {
+                return false;
+            }
+            for (String candidate : candidates) {
+                insert(counter, candidate, false);
+            }
+            candidates = null;
+            promoted = true;
+            return true;
+        }
+    }
+
+    /**
+     * 按POI SheetDataWriter的规则转义：XML特殊字符转义，换行和制表符用字符引用，其余控制字符替换为?
+     */
+    private static void writeEscaped(Writer writer, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                case '"':
+                    writer.write("&quot;");
+                    break;
+                case '\n':
+                    writer.write("&#xa;");
+                    break;
+                case '\r':
+                    writer.write("&#xd;");
+                    break;
+                case '\t':
+                    writer.write("&#x9;");
+                    break;
+                case '\u00A0':
+                    writer.write("&#xa0;");
+                    break;
+                default:
+                    if (c < ' ' || c >= '\uFFFE') {
+                        writer.write('?');
+                    } else {
+                        writer.write(c);
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 字符串编码方式
+     */
+    public enum Encoding {
+        // 内联写入（SXSSF默认方式）
+        INLINE,
+
+        // 写入共享字符串表（字典写满后内联）
+        SHARED,
+
+        // 自动判断：重复出现足够多次后写入共享字符串表，基数达到上限后一直内联
+        AUTO
+    }
+}
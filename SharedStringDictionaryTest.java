@@ -0,0 +1,112 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * 有界共享字符串字典测试
+ */
+public class SharedStringDictionaryTest {
+    private static final SharedStringDictionary.Encoding SHARED = SharedStringDictionary.Encoding.SHARED;
+
+    private static final SharedStringDictionary.Encoding AUTO = SharedStringDictionary.Encoding.AUTO;
+
+    @Test
+    public void autoDemotionTest() {
+        SharedStringDictionary dictionary = new SharedStringDictionary(
+            new SharedStringDictionary.Encoding[] {AUTO, SHARED}, SharedStringDictionary.Encoding.INLINE, 100,
+            1024 * 1024, 10);
+        // 高基数AUTO列：试用期内全部内联，降级后不在字典中留下任何条目
+        for (int row = 0; row < 50; row++) {
+            assertEquals(-1, dictionary.encode(row, 0, "id-" + row));
+        }
+        assertEquals(0, dictionary.size());
+        // 降级后即使重复也内联
+        assertEquals(-1, dictionary.encode(50, 0, "id-1"));
+
+        // 其他列仍可使用全部字典条目
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, dictionary.encode(i, 1, "v" + i));
+        }
+    }
+
+    @Test
+    public void autoPromotionTest() {
+        SharedStringDictionary dictionary = new SharedStringDictionary(
+            new SharedStringDictionary.Encoding[] {AUTO}, SharedStringDictionary.Encoding.INLINE, 100,
+            1024 * 1024, 10);
+        String[] values = {"男", "女", "未知"};
+        int row = 0;
+        // 试用期内内联
+        for (; row < 31; row++) {
+            assertEquals(-1, dictionary.encode(row, 0, values[row % 3]));
+        }
+        assertEquals(0, dictionary.size());
+        // 第32次取值判定为低基数，候选值按出现顺序写入字典
+        assertEquals(row % 3, dictionary.encode(row, 0, values[row % 3]));
+        assertEquals(3, dictionary.size());
+        for (row++; row < 40; row++) {
+            assertEquals(row % 3, dictionary.encode(row, 0, values[row % 3]));
+        }
+        // 晋升后新增的值继续受基数上限约束
+        for (int i = 0; i < 20; i++) {
+            dictionary.encode(row++, 0, "新值" + i);
+        }
+        assertEquals(10, dictionary.size());
+    }
+
+    @Test
+    public void boundsTest() {
+        SharedStringDictionary dictionary = new SharedStringDictionary(null, SHARED, 3, 1024 * 1024, 10);
+        dictionary.setHeaderRows(1);
+        // 表头内联
+        assertEquals(-1, dictionary.encode(0, 0, "标题"));
+        assertEquals(0, dictionary.encode(1, 0, "a"));
+        assertEquals(1, dictionary.encode(1, 1, "b"));
+        assertEquals(2, dictionary.encode(1, 2, "c"));
+        // 条目数达到上限后新值内联，已有值仍引用字典
+        assertEquals(-1, dictionary.encode(2, 0, "d"));
+        assertEquals(1, dictionary.encode(2, 1, "b"));
+        assertEquals(3, dictionary.size());
+
+        // 估算内存上限：每个条目 64 + 2 * 字符数
+        SharedStringDictionary small = new SharedStringDictionary(null, SHARED, 100, 200, 10);
+        assertEquals(0, small.encode(0, 0, "0123456789"));
+        assertEquals(1, small.encode(0, 0, "abcdefghij"));
+        assertEquals(-1, small.encode(0, 0, "ABCDEFGHIJ"));
+        assertEquals(-1, small.encode(0, 0, "x"));
+    }
+
+    @Test
+    public void writeToTest() throws IOException {
+        SharedStringDictionary dictionary = new SharedStringDictionary(null, SHARED, 100, 1024 * 1024, 10);
+        dictionary.encode(0, 0, "<a & \"b\">");
+        dictionary.encode(1, 0, " 前后空格 ");
+        dictionary.encode(2, 0, "换行\n制表\t");
+        dictionary.encode(3, 0, "控制\u0001");
+        dictionary.encode(4, 0, "<a & \"b\">");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        dictionary.writeTo(out);
+        String xml = out.toString("UTF-8");
+        assertTrue(xml.contains("count=\"5\" uniqueCount=\"4\""));
+        assertTrue(xml.contains("<t xml:space=\"preserve\"> 前后空格 </t>"));
+
+        try (SharedStringsTable table = new SharedStringsTable()) {
+            table.readFrom(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(4, table.getUniqueCount());
+            assertEquals(5, table.getCount());
+            assertEquals("<a & \"b\">", table.getItemAt(0).getString());
+            assertEquals(" 前后空格 ", table.getItemAt(1).getString());
+            assertEquals("换行\n制表\t", table.getItemAt(2).getString());
+            assertEquals("控制?", table.getItemAt(3).getString());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个Sheet的数据通道
+ * 生产者（读取数据源的线程）按页放入数据，Sheet写入线程以迭代器方式逐行消费；
+ * 通道容量有限，内存中最多只保留 容量 x 每页行数 条数据
+ *
+ * @param <T> 数据类型
+ */
+public class SheetDataFeed<T> implements Iterator<T> {
+    // 数据结束标记
+    private static final List<Object> END_OF_DATA = Collections.emptyList();
+
+    // 阻塞等待时检查通道状态的间隔
+    private static final long WAIT_INTERVAL_MILLIS = 100L;
+
+    private final BlockingQueue<List<?>> pages;
+
+    private volatile boolean aborted;
+
+    private Iterator<T> currentPage = Collections.emptyIterator();
+
+    private boolean finished;
+
+    /**
+     * 构造函数
+     *
+     * @param capacity 通道中最多缓存的页数
+     */
+    public SheetDataFeed(int capacity) {
+        this.pages = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    /**
+     * 放入一页数据，通道已满时阻塞
+     *
+     * @param page 一页数据
+     * @throws InterruptedException 等待时被中断
+     */
+    public void put(List<T> page) throws InterruptedException {
+        if (page == null || page.isEmpty()) {
+            return;
+        }
+        offer(page);
+    }
+
+    /**
+     * 标记数据结束
+     *
+     * @throws InterruptedException 等待时被中断
+     */
+    public void close() throws InterruptedException {
+        offer(END_OF_DATA);
+    }
+
+    /**
+     * 异常终止：丢弃缓存数据，并让阻塞中的生产者或消费者尽快失败
+     */
+    public void abort() {
+        aborted = true;
+        pages.clear();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentPage.hasNext()) {
+            if (finished) {
+                return false;
+            }
+            List<?> page = take();
+            if (page == END_OF_DATA) {
+                finished = true;
+                return false;
+            }
+            currentPage = castPage(page).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.next();
+    }
+
+    private void offer(List<?> page) throws InterruptedException {
+        do {
+            if (aborted) {
+                throw new IllegalStateException("Sheet写入已终止");
+            }
+        } while (!pages.offer(page, WAIT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private List<?> take() {
+        try {
+            List<?> page;
+            do {
+                if (aborted) {
+                    throw new IllegalStateException("Sheet数据读取已终止");
+                }
+                page = pages.poll(WAIT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            } while (page == null);
+            return page;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待Sheet数据时被中断", ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<T> castPage(List<?> page) {
+        return (List<T>) page;
+    }
+}
@@ -0,0 +1,298 @@
+package com.ljn.demo.util;
+
+import java.util.Date;
+
+/**
+ * 自动分Sheet规划
+ * 特点：
+ * 1. 每个Sheet的数据行数不超过Excel上限（1048576行，扣除表头）
+ * 2. 按抽样估算的行XML大小，使每个Sheet的未压缩数据接近目标字节数，避免单个Sheet过大或生成大量小Sheet
+ * 3. 已知总行数时按并行度均衡：Sheet数取并行度的整数倍，行数平均分配，各Sheet行数最多相差1
+ * 规划结果只读，可在线程间共享
+ */
+public class SheetPartitioner {
+    // Excel单个Sheet的最大行数
+    public static final int EXCEL_MAX_ROWS = 1048576;
+
+    // 扣除表头后每个Sheet最多的数据行数
+    public static final int MAX_SHEET_ROWS = EXCEL_MAX_ROWS - 1;
+
+    // 默认每个Sheet的目标未压缩大小
+    private static final long DEFAULT_TARGET_SHEET_BYTES = 64L * 1024 * 1024;
+
+    // 默认每个Sheet的最少数据行数（均衡时不会拆得比这更小）
+    private static final int DEFAULT_MIN_SHEET_ROWS = 10000;
+
+    // 每个Sheet的目标未压缩大小（字节）
+    private long targetSheetBytes = DEFAULT_TARGET_SHEET_BYTES;
+
+    // 每个Sheet的最少数据行数
+    private int minSheetRows = DEFAULT_MIN_SHEET_ROWS;
+
+    /**
+     * 设置每个Sheet的目标未压缩大小
+     *
+     * @param targetSheetBytes 目标字节数
+     */
+    public void setTargetSheetBytes(long targetSheetBytes) {
+        if (targetSheetBytes <= 0) {
+            throw new IllegalArgumentException("目标大小必须大于0");
+        }
+        this.targetSheetBytes = targetSheetBytes;
+    }
+
+    /**
+     * 设置每个Sheet的最少数据行数
+     *
+     * @param minSheetRows 最少行数
+     */
+    public void setMinSheetRows(int minSheetRows) {
+        if (minSheetRows <= 0 || minSheetRows > MAX_SHEET_ROWS) {
+            throw new IllegalArgumentException("最少行数必须在1到" + MAX_SHEET_ROWS + "之间");
+        }
+        this.minSheetRows = minSheetRows;
+    }
+
+    /**
+     * 规划Sheet边界
+     *
+     * @param totalRows 总行数，<0 表示未知（只按行数上限和目标大小切分）
+     * @param rowBytes 估算的每行未压缩字节数
+     * @param parallelism 并行写入的Sheet数
+     * @return 规划结果
+     */
+    public Plan plan(long totalRows, long rowBytes, int parallelism) {
+        int maxRows = maxSheetRows(rowBytes);
+        if (totalRows < 0) {
+            return new Plan(-1, maxRows, 0);
+        }
+        if (totalRows == 0) {
+            return new Plan(1, 0, 0);
+        }
+        int threads = Math.max(1, parallelism);
+        long sheets = (totalRows + maxRows - 1) / maxRows;
+        if (sheets < threads) {
+            // 数据量小于一轮并行时，在每个Sheet不少于最少行数的前提下拆到并行度
+            sheets = Math.max(sheets, Math.min(threads, totalRows / minSheetRows));
+        } else if (sheets % threads != 0) {
+            // 补齐为并行度的整数倍，最后一轮不会只有少数线程在工作
+            sheets = (sheets + threads - 1) / threads * threads;
+        }
+        if (sheets > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("数据量过大，Sheet数超过上限: " + totalRows);
+        }
+        int sheetCount = (int) sheets;
+        return new Plan(sheetCount, (int) (totalRows / sheetCount), (int) (totalRows % sheetCount));
+    }
+
+    /**
+     * 按目标大小计算每个Sheet的最大行数
+     */
+    private int maxSheetRows(long rowBytes) {
+        long byBytes = targetSheetBytes / Math.max(1L, rowBytes);
+        return (int) Math.min(MAX_SHEET_ROWS, Math.max(minSheetRows, byBytes));
+    }
+
+    /**
+     * 分Sheet规划结果
+     */
+    public static class Plan {
+        private final int sheetCount;
+
+        private final int baseRows;
+
+        // 前remainder个Sheet多分配1行
+        private final int remainder;
+
+        Plan(int sheetCount, int baseRows, int remainder) {
+            this.sheetCount = sheetCount;
+            this.baseRows = baseRows;
+            this.remainder = remainder;
+        }
+
+        /**
+         * 固定每个Sheet的行数
+         *
+         * @param sheetRows 每个Sheet的数据行数
+         * @return 规划结果
+         */
+        public static Plan fixed(int sheetRows) {
+            if (sheetRows <= 0 || sheetRows > MAX_SHEET_ROWS) {
+                throw new IllegalArgumentException("每个Sheet的数据量必须在1到" + MAX_SHEET_ROWS + "之间");
+            }
+            return new Plan(-1, sheetRows, 0);
+        }
+
+        /**
+         * Sheet数
+         *
+         * @return Sheet数，总行数未知时返回-1
+         */
+        public int getSheetCount() {
+            return sheetCount;
+        }
+
+        /**
+         * 指定Sheet的数据行数
+         *
+         * @param sheetIndex Sheet索引
+         * @return 数据行数
+         */
+        public int sheetRows(int sheetIndex) {
+            return sheetIndex < remainder ? baseRows + 1 : baseRows;
+        }
+
+        @Override
+        public String toString() {
+            return "Plan{sheets=" + sheetCount + ", rows=" + baseRows + (remainder > 0 ? "+1" : "") + "}";
+        }
+    }
+
+    /**
+     * 行大小抽样：按SXSSF写出的行XML估算每行未压缩字节数
+     * 可直接接收类型化列的文本输出，也可接收dataMapper映射后的Object[]
+     * 非线程安全
+     */
+    public static class RowSizeSampler implements ExcelColumns.TextSink {
+        // <row r="1048576"></row>
+        private static final int ROW_OVERHEAD = 24;
+
+        // <c r="XFD1048576" s="1" t="inlineStr"><is><t></t></is></c>
+        private static final int TEXT_CELL_OVERHEAD = 52;
+
+        // <c r="XFD1048576" s="1" t="n"><v></v></c>
+        private static final int NUMBER_CELL_OVERHEAD = 38;
+
+        // 日期按序列值写出，如 45123.541666666664
+        private static final int DATE_VALUE_LENGTH = 18;
+
+        private long rows;
+
+        private long bytes;
+
+        // 未抽样时按每个单元格一个该长度的内联字符串估算
+        private static final int DEFAULT_TEXT_LENGTH = 16;
+
+        /**
+         * 未抽样时按列数估算每行字节数（不调用数据映射）
+         *
+         * @param columnCount 列数
+         * @return 估算的每行字节数
+         */
+        public static long estimateRowBytes(int columnCount) {
+            return ROW_OVERHEAD + (long) columnCount * (TEXT_CELL_OVERHEAD + DEFAULT_TEXT_LENGTH);
+        }
+
+        /**
+         * 记录映射后的一行
+         *
+         * @param values 一行的单元格值
+         */
+        public void sample(Object[] values) {
+            if (values != null) {
+                for (Object value : values) {
+                    value(value);
+                }
+            }
+            endRow();
+        }
+
+        /**
+         * 结束一行（使用TextSink输出时每行调用一次）
+         */
+        public void endRow() {
+            rows++;
+            bytes += ROW_OVERHEAD;
+        }
+
+        /**
+         * 已抽样的行数
+         *
+         * @return 行数
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * 平均每行字节数
+         *
+         * @return 平均字节数，未抽样时返回0
+         */
+        public long averageRowBytes() {
+            return rows == 0 ? 0L : (bytes + rows - 1) / rows;
+        }
+
+        @Override
+        public void text(String value) {
+            if (value != null) {
+                bytes += TEXT_CELL_OVERHEAD + utf8Length(value);
+            }
+        }
+
+        @Override
+        public void number(long value) {
+            bytes += NUMBER_CELL_OVERHEAD + Long.toString(value).length();
+        }
+
+        @Override
+        public void number(double value) {
+            bytes += NUMBER_CELL_OVERHEAD + Double.toString(value).length();
+        }
+
+        @Override
+        public void bool(boolean value) {
+            bytes += NUMBER_CELL_OVERHEAD + 1;
+        }
+
+        @Override
+        public void date(Date value) {
+            if (value != null) {
+                bytes += NUMBER_CELL_OVERHEAD + DATE_VALUE_LENGTH;
+            }
+        }
+
+        @Override
+        public void value(Object value) {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof String) {
+                text((String) value);
+            } else if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+                number(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                number(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                bool((Boolean) value);
+            } else if (value instanceof Date) {
+                date((Date) value);
+            } else {
+                text(value.toString());
+            }
+        }
+
+        @Override
+        public void nextColumn() {
+            // 单元格开销已在取值时计入
+        }
+
+        /**
+         * UTF-8编码后的字节数（不实际编码）
+         */
+        private static int utf8Length(String value) {
+            int length = value.length();
+            int bytes = length;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x800) {
+                    // 代理对按两个char各计2字节，合计4字节
+                    bytes += Character.isSurrogate(c) ? 1 : 2;
+                } else if (c >= 0x80) {
+                    bytes += 1;
+                }
+            }
+            return bytes;
+        }
+    }
+}
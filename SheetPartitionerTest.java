@@ -0,0 +1,61 @@
+package com.ljn.demo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 自动分Sheet规划测试
+ */
+public class SheetPartitionerTest {
+
+    @Test
+    public void rowLimitTest() {
+        // 行很小时也不超过Excel行数上限
+        SheetPartitioner partitioner = new SheetPartitioner();
+        partitioner.setTargetSheetBytes(Long.MAX_VALUE);
+        SheetPartitioner.Plan plan = partitioner.plan(3000000L, 10, 1);
+        assertEquals(3, plan.getSheetCount());
+        assertEquals(1000000, plan.sheetRows(0));
+        assertTrue(plan.sheetRows(0) <= SheetPartitioner.MAX_SHEET_ROWS);
+    }
+
+    @Test
+    public void byteBudgetAndBalanceTest() {
+        SheetPartitioner partitioner = new SheetPartitioner();
+        partitioner.setTargetSheetBytes(1000L * 100);
+        partitioner.setMinSheetRows(100);
+        // 按大小需要11个Sheet，补齐为4线程的整数倍，行数平均分配
+        SheetPartitioner.Plan plan = partitioner.plan(10001L, 100, 4);
+        assertEquals(12, plan.getSheetCount());
+        int total = 0;
+        for (int i = 0; i < plan.getSheetCount(); i++) {
+            assertTrue(plan.sheetRows(i) <= 1000);
+            assertTrue(plan.sheetRows(0) - plan.sheetRows(i) <= 1);
+            total += plan.sheetRows(i);
+        }
+        assertEquals(10001, total);
+    }
+
+    @Test
+    public void smallDataTest() {
+        SheetPartitioner partitioner = new SheetPartitioner();
+        partitioner.setMinSheetRows(1000);
+        // 数据量小于一轮并行时按最少行数拆分
+        assertEquals(2, partitioner.plan(2500L, 100, 4).getSheetCount());
+        assertEquals(1, partitioner.plan(500L, 100, 4).getSheetCount());
+        // 总行数未知时只按上限切分
+        assertEquals(-1, partitioner.plan(-1L, 100, 4).getSheetCount());
+    }
+
+    @Test
+    public void rowSizeSamplerTest() {
+        // 中文按UTF-8的3字节计算，空值不计单元格
+        SheetPartitioner.RowSizeSampler single = new SheetPartitioner.RowSizeSampler();
+        single.sample(new Object[] {"名称", null});
+        SheetPartitioner.RowSizeSampler ascii = new SheetPartitioner.RowSizeSampler();
+        ascii.sample(new Object[] {"ab"});
+        assertEquals(4, single.averageRowBytes() - ascii.averageRowBytes());
+    }
+}
@@ -0,0 +1,53 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * 临时数据块：先顺序写入一次，之后可多次读取；关闭时删除数据并归还配额（可重复关闭）
+ */
+public interface TempBlob extends Closeable {
+    /**
+     * 打开输出流写入数据
+     *
+     * @return 输出流
+     * @throws IOException IO异常
+     */
+    OutputStream openOutputStream() throws IOException;
+
+    /**
+     * 打开顺序读取的输入流
+     *
+     * @return 输入流
+     * @throws IOException IO异常
+     */
+    InputStream openInputStream() throws IOException;
+
+    /**
+     * 打开可随机读取的通道（用于读取zip目录）
+     *
+     * @return 只读通道
+     * @throws IOException IO异常
+     */
+    SeekableByteChannel openChannel() throws IOException;
+
+    /**
+     * 已写入的字节数
+     *
+     * @return 字节数
+     */
+    long size();
+
+    /**
+     * 名称（用于日志和错误信息）
+     *
+     * @return 名称
+     */
+    String getName();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,32 @@
+package org.example;
+
+import java.io.Closeable;
+
+/**
+ * 临时存储预算：写入一个Sheet前按估算大小一次性占用的配额
+ * 协调线程在提交写入任务前获取（空间不足时在这里排队），写入线程绑定后，临时数据从预算中扣除，不再等待；
+ * 写入结束后关闭，未用完的部分归还配额，已写入临时数据块的部分随数据块关闭归还（可重复关闭）
+ */
+public interface TempBudget extends Closeable {
+    // 不限制配额时使用的空预算
+    TempBudget NONE = new TempBudget() {
+        @Override
+        public void bind() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    /**
+     * 绑定到当前线程，之后当前线程写入的临时数据从预算中扣除
+     */
+    void bind();
+
+    /**
+     * 归还未使用的预算，并解除与当前线程的绑定
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,281 @@
+package org.example;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+/**
+ * 临时存储配额
+ * 写入临时数据前按块预占配额，空间不足时等待其他导出释放，超时后失败（而不是写满磁盘后ENOSPC）；
+ * 同一个实例在进程内所有导出间共享即为节点级配额
+ * 多线程导出在写入一个Sheet之前按估算大小获取预算（见reserveBudget），排队等待只发生在这一次；
+ * 绑定预算的写入线程从预算中扣除，超出预算的部分只在有空闲配额时占用，不再等待，
+ * 避免多个线程各自占着一部分配额互相等待（占有并等待导致的死锁）
+ */
+public class TempQuota {
+    // 每次预占的字节数，减少并发写入时的锁竞争
+    private static final long RESERVE_CHUNK_BYTES = 1024L * 1024L;
+
+    // 从预算中每次扣除的字节数（预算只由一个写入线程使用，按小块扣除以免一个预占记录占掉整个预算）
+    private static final long BUDGET_CHUNK_BYTES = 64L * 1024L;
+
+    private final long capacityBytes;
+
+    private final long waitMillis;
+
+    private long usedBytes;
+
+    // 当前线程绑定的预算
+    private final ThreadLocal<Budget> threadBudget = new ThreadLocal<>();
+
+    /**
+     * 构造函数
+     *
+     * @param capacityBytes 配额字节数，<=0 表示不限制
+     * @param waitMillis 空间不足时的最长等待时间
+     */
+    public TempQuota(long capacityBytes, long waitMillis) {
+        this.capacityBytes = capacityBytes > 0 ? capacityBytes : Long.MAX_VALUE;
+        this.waitMillis = Math.max(0L, waitMillis);
+    }
+
+    /**
+     * 占用配额，空间不足时等待（调用方不能在占用其他配额的同时调用）
+     *
+     * @param bytes 字节数
+     * @throws IOException 超过配额上限或等待超时
+     */
+    public void acquire(long bytes) throws IOException {
+        acquire(bytes, waitMillis);
+    }
+
+    /**
+     * 获取预算，空间不足时等待其他导出释放（调用方不能在占用其他配额的同时调用）
+     *
+     * @param estimatedBytes 估算字节数，超过配额上限时按上限获取
+     * @return 预算
+     * @throws IOException 等待超时
+     */
+    public Budget reserveBudget(long estimatedBytes) throws IOException {
+        long bytes = budgetBytes(estimatedBytes);
+        acquire(bytes, waitMillis);
+        return new Budget(bytes);
+    }
+
+    /**
+     * 尝试获取预算，空间不足时不等待
+     *
+     * @param estimatedBytes 估算字节数，超过配额上限时按上限获取
+     * @return 预算，空间不足时返回null
+     */
+    public synchronized Budget tryReserveBudget(long estimatedBytes) {
+        long bytes = budgetBytes(estimatedBytes);
+        if (usedBytes + bytes > capacityBytes) {
+            return null;
+        }
+        usedBytes += bytes;
+        return new Budget(bytes);
+    }
+
+    private long budgetBytes(long estimatedBytes) {
+        return Math.min(Math.max(0L, estimatedBytes), capacityBytes == Long.MAX_VALUE ? 0L : capacityBytes);
+    }
+
+    private synchronized void acquire(long bytes, long waitMillis) throws IOException {
+        if (bytes > capacityBytes) {
+            throw new IOException("临时数据超过存储配额: " + bytes + " > " + capacityBytes);
+        }
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (usedBytes + bytes > capacityBytes) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("临时存储空间不足，已用 " + usedBytes + " / " + capacityBytes + " 字节");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("等待临时存储空间时被中断");
+            }
+        }
+        usedBytes += bytes;
+    }
+
+    private synchronized boolean tryAcquire(long bytes) {
+        if (usedBytes + bytes > capacityBytes) {
+            return false;
+        }
+        usedBytes += bytes;
+        return true;
+    }
+
+    /**
+     * 释放配额
+     *
+     * @param bytes 字节数
+     */
+    public synchronized void release(long bytes) {
+        usedBytes = Math.max(0L, usedBytes - bytes);
+        notifyAll();
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    /**
+     * 创建一个预占记录（对应一个临时文件或内存块）
+     *
+     * @return 预占记录
+     */
+    public Reservation newReservation() {
+        return new Reservation();
+    }
+
+    /**
+     * 预占记录：按块预占，释放时一次性归还
+     * 当前线程绑定了预算时先从预算中扣除，超出预算的部分只在有空闲配额时占用；未绑定预算时空间不足会等待
+     */
+    public class Reservation {
+        private long reservedBytes;
+
+        private long usedBytes;
+
+        /**
+         * 增加使用量，超出已预占部分时继续预占
+         *
+         * @param bytes 新增字节数
+         * @throws IOException 配额不足（绑定预算的线程超出预算时不等待）
+         */
+        public synchronized void use(long bytes) throws IOException {
+            long required = usedBytes + bytes - reservedBytes;
+            if (required > 0) {
+                Budget budget = threadBudget.get();
+                if (budget == null) {
+                    long chunk = Math.max(required, Math.min(RESERVE_CHUNK_BYTES, capacityBytes - reservedBytes));
+                    acquire(chunk, waitMillis);
+                    reservedBytes += chunk;
+                } else {
+                    reservedBytes += reserveWithBudget(budget, required, Math.max(required, BUDGET_CHUNK_BYTES));
+                }
+            }
+            usedBytes += bytes;
+        }
+
+        /**
+         * 先从预算中扣除，不足部分只占用空闲配额（优先按块占用，空间不足时只占用所需部分）
+         *
+         * @return 实际预占的字节数
+         */
+        private long reserveWithBudget(Budget budget, long required, long chunk) throws IOException {
+            long taken = budget.take(chunk);
+            if (taken >= required || tryAcquire(chunk - taken)) {
+                return taken >= required ? taken : chunk;
+            }
+            try {
+                acquire(required - taken, 0L);
+            } catch (IOException ex) {
+                budget.refund(taken);
+                throw ex;
+            }
+            return required;
+        }
+
+        /**
+         * 归还全部预占
+         */
+        public synchronized void releaseAll() {
+            release(reservedBytes);
+            reservedBytes = 0L;
+            usedBytes = 0L;
+        }
+
+        /**
+         * 包装输出流，写入前先计入配额
+         *
+         * @param out 输出流
+         * @return 计入配额的输出流
+         */
+        public OutputStream track(OutputStream out) {
+            return new FilterOutputStream(out) {
+                @Override
+                public void write(int b) throws IOException {
+                    use(1);
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    use(len);
+                    out.write(b, off, len);
+                }
+            };
+        }
+    }
+
+    /**
+     * 预算：已计入配额、尚未分配给预占记录的字节数
+     */
+    public class Budget implements TempBudget {
+        private long remainingBytes;
+
+        private boolean closed;
+
+        Budget(long bytes) {
+            this.remainingBytes = bytes;
+        }
+
+        @Override
+        public void bind() {
+            threadBudget.set(this);
+        }
+
+        /**
+         * 从预算中扣除
+         *
+         * @return 实际扣除的字节数（预算不足时少于请求的字节数）
+         */
+        synchronized long take(long bytes) {
+            long taken = Math.min(bytes, remainingBytes);
+            remainingBytes -= taken;
+            return taken;
+        }
+
+        /**
+         * 退回扣除的字节数，预算已关闭时直接归还配额
+         */
+        synchronized void refund(long bytes) {
+            if (closed) {
+                release(bytes);
+            } else {
+                remainingBytes += bytes;
+            }
+        }
+
+        public synchronized long getRemainingBytes() {
+            return remainingBytes;
+        }
+
+        @Override
+        public void close() {
+            if (threadBudget.get() == this) {
+                threadBudget.remove();
+            }
+            long unused;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                unused = remainingBytes;
+                remainingBytes = 0L;
+            }
+            release(unused);
+        }
+    }
+}
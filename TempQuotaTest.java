@@ -0,0 +1,191 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 临时存储配额测试
+ */
+public class TempQuotaTest {
+    private static final long MB = 1024L * 1024L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void waitWhenHoldingNothingTest() throws Exception {
+        TempQuota quota = new TempQuota(2 * MB, 5000L);
+        TempQuota.Reservation first = quota.newReservation();
+        first.use(2 * MB);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 其他线程未占用配额，等待第一个预占归还后成功
+            Future<Long> waiting = executor.submit(() -> {
+                TempQuota.Reservation second = quota.newReservation();
+                second.use(MB);
+                return quota.getUsedBytes();
+            });
+            Thread.sleep(100L);
+            first.releaseAll();
+            assertEquals(MB, (long) waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void budgetTest() throws Exception {
+        TempQuota quota = new TempQuota(4 * MB, 0L);
+        TempQuota.Budget budget = quota.reserveBudget(3 * MB);
+        assertEquals(3 * MB, quota.getUsedBytes());
+        // 空间不足时不等待，返回null
+        assertNull(quota.tryReserveBudget(2 * MB));
+
+        budget.bind();
+        TempQuota.Reservation reservation = quota.newReservation();
+        reservation.use(2 * MB);
+        // 从预算中扣除，不再另外占用配额
+        assertEquals(3 * MB, quota.getUsedBytes());
+        assertEquals(MB, budget.getRemainingBytes());
+
+        // 未用完的预算关闭时归还，预占记录的部分随预占记录归还
+        budget.close();
+        assertEquals(2 * MB, quota.getUsedBytes());
+        budget.close();
+        assertEquals(2 * MB, quota.getUsedBytes());
+        reservation.releaseAll();
+        assertEquals(0L, quota.getUsedBytes());
+
+        // 估算值超过配额时按配额上限获取
+        try (TempQuota.Budget whole = quota.reserveBudget(100 * MB)) {
+            assertEquals(4 * MB, quota.getUsedBytes());
+            assertEquals(4 * MB, whole.getRemainingBytes());
+        }
+        assertEquals(0L, quota.getUsedBytes());
+    }
+
+    @Test
+    public void budgetWaitTest() throws Exception {
+        TempQuota quota = new TempQuota(2 * MB, 5000L);
+        TempQuota.Budget first = quota.reserveBudget(2 * MB);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 获取预算时排队等待其他导出释放
+            Future<Long> waiting = executor.submit(() -> {
+                try (TempQuota.Budget second = quota.reserveBudget(MB)) {
+                    return second.getRemainingBytes();
+                }
+            });
+            Thread.sleep(100L);
+            assertFalse(waiting.isDone());
+            first.close();
+            assertEquals(MB, (long) waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0L, quota.getUsedBytes());
+    }
+
+    @Test
+    public void overBudgetFailFastTest() throws Exception {
+        TempQuota quota = new TempQuota(2 * MB, 60000L);
+        CountDownLatch held = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // 两个线程各持有一半配额的预算，用完后继续增长：超出预算的部分不等待，不会互相等到超时
+            Future<?>[] futures = new Future<?>[2];
+            for (int i = 0; i < 2; i++) {
+                futures[i] = executor.submit(() -> {
+                    try (TempQuota.Budget budget = quota.reserveBudget(MB)) {
+                        budget.bind();
+                        TempQuota.Reservation reservation = quota.newReservation();
+                        reservation.use(MB);
+                        held.countDown();
+                        held.await();
+                        reservation.use(1);
+                    }
+                    return null;
+                });
+            }
+            long start = System.currentTimeMillis();
+            for (Future<?> future : futures) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                    fail("超出预算且配额不足时应立即失败");
+                } catch (ExecutionException ex) {
+                    assertTrue(ex.getCause() instanceof IOException);
+                }
+            }
+            assertTrue(System.currentTimeMillis() - start < 10000L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentExportsTest() throws Exception {
+        // 配额小于两个导出临时数据的总和：获取预算时排队，而不是写入中途失败
+        TempQuota quota = new TempQuota(128 * 1024L, 60000L);
+        DiskTempStorage storage = new DiskTempStorage(folder.newFolder().toPath(), quota, true);
+        List<ExportHandle> handles = new ArrayList<>();
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            PoiMultiThreadExcelExporter<Integer> exporter = new PoiMultiThreadExcelExporter<>(
+                new String[] {"序号", "名称", "备注"}, value -> new Object[] {value, "名称" + value, "备注" + value},
+                "Sheet", 4, null, null);
+            exporter.setTempStorage(storage);
+            File file = folder.newFile("quota" + i + ".xlsx");
+            files.add(file);
+            handles.add(exporter.export(PoiMultiThreadExcelExporterTest.numbers(8000), file.getPath(), 2000));
+        }
+        for (ExportHandle handle : handles) {
+            handle.await(120, TimeUnit.SECONDS);
+        }
+        long exportedBytes = 0L;
+        for (File file : files) {
+            exportedBytes += file.length();
+            try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+                assertEquals(4, workbook.getNumberOfSheets());
+                assertEquals("名称7999", workbook.getSheetAt(3).getRow(2000).getCell(1).getStringCellValue());
+            }
+        }
+        // 各Sheet的临时xlsx合计不小于导出文件，超过配额
+        assertTrue(exportedBytes > quota.getCapacityBytes());
+        assertEquals(0L, quota.getUsedBytes());
+        assertEquals(0, storage.getDirectory().toFile().list().length);
+    }
+
+    @Test
+    public void releaseAllTest() throws IOException {
+        TempQuota quota = new TempQuota(0L, 0L);
+        TempQuota.Reservation reservation = quota.newReservation();
+        reservation.use(10);
+        reservation.use(MB);
+        assertTrue(quota.getUsedBytes() >= MB + 10);
+        reservation.releaseAll();
+        assertEquals(0L, quota.getUsedBytes());
+        // 未绑定预算时按需占用
+        TempQuota small = new TempQuota(MB, 0L);
+        small.newReservation().use(MB);
+    }
+}
@@ -0,0 +1,76 @@
+package org.example;
+
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+
+/**
+ * 导出临时存储
+ * 统一管理导出过程中的两类临时数据：每个Sheet生成的临时xlsx，以及SXSSF超出内存窗口后溢出的行数据
+ */
+public interface TempStorage {
+    /**
+     * 创建临时数据块
+     *
+     * @param prefix 名称前缀
+     * @return 临时数据块（关闭即删除）
+     * @throws IOException 创建失败或配额不足
+     */
+    TempBlob create(String prefix) throws IOException;
+
+    /**
+     * 获取写入一个Sheet的临时存储预算，空间不足时等待其他导出释放
+     * 默认实现不限制配额
+     *
+     * @param estimatedBytes 估算字节数
+     * @return 预算
+     * @throws IOException 等待超时或被中断
+     */
+    default TempBudget admit(long estimatedBytes) throws IOException {
+        return TempBudget.NONE;
+    }
+
+    /**
+     * 尝试获取写入一个Sheet的临时存储预算，空间不足时不等待
+     *
+     * @param estimatedBytes 估算字节数
+     * @return 预算，空间不足时返回null
+     */
+    default TempBudget tryAdmit(long estimatedBytes) {
+        return TempBudget.NONE;
+    }
+
+    /**
+     * 创建行数据溢出到本存储的SXSSFWorkbook，使用完毕需调用dispose()
+     *
+     * @param rowAccessWindowSize 内存中保留的行数
+     * @return 工作簿
+     */
+    SXSSFWorkbook createWorkbook(int rowAccessWindowSize);
+
+    /**
+     * 创建行数据溢出到本存储的SXSSFWorkbook，按列把字符串写为共享字符串
+     * 默认实现不支持共享字符串，字符串全部内联写入
+     *
+     * @param rowAccessWindowSize 内存中保留的行数
+     * @param sharedStrings 共享字符串字典，为null时全部内联
+     * @return 工作簿
+     */
+    default SXSSFWorkbook createWorkbook(int rowAccessWindowSize, SharedStringDictionary sharedStrings) {
+        return createWorkbook(rowAccessWindowSize);
+    }
+
+    /**
+     * 创建行数据溢出到本存储的SXSSFWorkbook，write时按指定级别压缩zip条目
+     * 默认实现忽略压缩级别，使用POI的默认级别
+     *
+     * @param rowAccessWindowSize 内存中保留的行数
+     * @param sharedStrings 共享字符串字典，为null时全部内联
+     * @param compressionLevel 压缩级别（Deflater.DEFAULT_COMPRESSION 或 0-9）
+     * @return 工作簿
+     */
+    default SXSSFWorkbook createWorkbook(int rowAccessWindowSize, SharedStringDictionary sharedStrings,
+        int compressionLevel) {
+        return createWorkbook(rowAccessWindowSize, sharedStrings);
+    }
+}
@@ -0,0 +1,120 @@
+package com.ljn.demo.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 生成好的文件内容缓存（如Excel模板的xlsx字节），按字节数限制容量，超出时淘汰最久未访问的内容
+ * 特点：
+ * 1. 内容生成后不再修改，命中时直接写出，不再经过POI
+ * 2. 容量按内容字节数 + 键的字符数计算；单个内容超过容量时不缓存
+ * 3. 缓存键由调用方按全部影响内容的参数拼接，键相同即内容相同
+ * 线程安全
+ */
+public class TemplateCache {
+    // 键 -> 内容，按访问顺序排列（最久未访问的在前）
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long maxBytes;
+
+    private long totalBytes;
+
+    private long hitCount;
+
+    private long missCount;
+
+    /**
+     * 构造方法
+     *
+     * @param maxBytes 最大缓存字节数，为0时不缓存
+     */
+    public TemplateCache(long maxBytes) {
+        setMaxBytes(maxBytes);
+    }
+
+    /**
+     * 获取缓存的内容（不可修改返回的数组）
+     *
+     * @param key 缓存键
+     * @return 内容，未缓存时返回null
+     */
+    public synchronized byte[] get(String key) {
+        byte[] content = entries.get(key);
+        if (content != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return content;
+    }
+
+    /**
+     * 缓存内容（缓存后不可再修改数组）
+     *
+     * @param key 缓存键
+     * @param content 内容
+     */
+    public synchronized void put(String key, byte[] content) {
+        long size = sizeOf(key, content);
+        if (size > maxBytes) {
+            return;
+        }
+        byte[] previous = entries.put(key, content);
+        if (previous != null) {
+            totalBytes -= sizeOf(key, previous);
+        }
+        totalBytes += size;
+        evict();
+    }
+
+    /**
+     * 设置最大缓存字节数（变小时立即淘汰）
+     *
+     * @param maxBytes 最大缓存字节数，为0时不缓存
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("缓存容量不能小于0");
+        }
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * 清空缓存（模板生成逻辑变化时调用）
+     */
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, byte[]>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, byte[]> eldest = iterator.next();
+            totalBytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    private static long sizeOf(String key, byte[] content) {
+        return content.length + 2L * key.length();
+    }
+}
@@ -0,0 +1,41 @@
+package com.ljn.demo.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * 模板文件缓存测试
+ */
+public class TemplateCacheTest {
+
+    @Test
+    public void lruEvictionTest() {
+        // 每个条目 100 + 2 字节
+        TemplateCache cache = new TemplateCache(310);
+        cache.put("a", new byte[100]);
+        cache.put("b", new byte[100]);
+        cache.put("c", new byte[100]);
+        // 访问a后，最久未访问的是b
+        assertNotNull(cache.get("a"));
+        cache.put("d", new byte[100]);
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(3, cache.size());
+        assertEquals(306, cache.getTotalBytes());
+    }
+
+    @Test
+    public void oversizedTest() {
+        TemplateCache cache = new TemplateCache(100);
+        cache.put("a", new byte[200]);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getTotalBytes());
+
+        cache.put("b", new byte[50]);
+        cache.setMaxBytes(10);
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,494 @@
+package org.example;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTXf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * xlsx包流式拼装器
+ * 特点：
+ * 1. 直接把各线程写好的单Sheet临时xlsx中的 xl/worksheets/sheet1.xml 流式拷贝到最终zip包，不在内存中构建任何Sheet；
+ *    样式无需重写时按原始压缩数据拷贝（沿用临时文件中的CRC和大小），不解压也不重新压缩，压缩开销由各写入线程并行承担
+ * 2. 重写 workbook.xml、workbook.xml.rels、[Content_Types].xml、_rels/.rels 和 styles.xml 等包部件
+ * 3. 各临时文件styles.xml一致时直接复用；不一致时合并样式表，并在流式拷贝时重写单元格的样式索引
+ * 4. Sheet按加入顺序写入，包描述部件在finish时最后写入（zip内条目顺序不影响Excel解析）
+ * 5. 设置了共享字符串字典时在finish时写入 xl/sharedStrings.xml，临时文件中的共享字符串表不使用
+ */
+public class XlsxPackageAssembler implements Closeable {
+    private static final String SHEET_ENTRY = "xl/worksheets/sheet1.xml";
+
+    private static final String STYLES_ENTRY = "xl/styles.xml";
+
+    private static final String SHARED_STRINGS_ENTRY = "xl/sharedStrings.xml";
+
+    private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    private static final String NS_REL = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    private static final String NS_PKG_REL = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ZipArchiveOutputStream zipOut;
+
+    private final List<String> sheetNames = new ArrayList<>();
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    // 第一个Sheet的styles.xml，作为最终样式表的基准
+    private byte[] baseStyles;
+
+    // 出现不一致的styles.xml时才创建的合并样式表
+    private StylesTable mergedStyles;
+
+    // 样式签名 -> 合并样式表中的索引
+    private Map<String, Integer> mergedStyleIndex;
+
+    // 各Sheet共享的字符串字典
+    private SharedStringDictionary sharedStrings;
+
+    private boolean finished;
+
+    /**
+     * 构造函数
+     *
+     * @param out 最终xlsx的输出流（finish/close时关闭）
+     */
+    public XlsxPackageAssembler(OutputStream out) {
+        Objects.requireNonNull(out, "输出流不能为空");
+        this.zipOut = new ZipArchiveOutputStream(out);
+    }
+
+    /**
+     * 设置拼装器自己压缩的条目（包描述部件、共享字符串表、需要重写样式索引的Sheet）的压缩级别
+     *
+     * @param compressionLevel 压缩级别（Deflater.DEFAULT_COMPRESSION 或 0-9）
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION
+            && (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("压缩级别无效: " + compressionLevel);
+        }
+        zipOut.setLevel(compressionLevel);
+    }
+
+    /**
+     * 追加一个Sheet
+     *
+     * @param sheetName Sheet名称
+     * @param sheetWorkbookFile 只包含一个Sheet的临时xlsx文件
+     * @throws IOException IO异常
+     */
+    public void addSheet(String sheetName, File sheetWorkbookFile) throws IOException {
+        addSheet(sheetName, Files.newByteChannel(sheetWorkbookFile.toPath()), sheetWorkbookFile.getName());
+    }
+
+    /**
+     * 追加一个Sheet
+     *
+     * @param sheetName Sheet名称
+     * @param sheetWorkbook 只包含一个Sheet的临时xlsx（TempBlob等非文件存储），读取后关闭
+     * @param sourceName 临时xlsx名称（用于错误信息）
+     * @throws IOException IO异常
+     */
+    public void addSheet(String sheetName, SeekableByteChannel sheetWorkbook, String sourceName) throws IOException {
+        Objects.requireNonNull(sheetName, "Sheet名称不能为空");
+        if (finished) {
+            sheetWorkbook.close();
+            throw new IllegalStateException("xlsx包已完成拼装");
+        }
+
+        try (ZipFile zipFile = new ZipFile(sheetWorkbook, sourceName, StandardCharsets.UTF_8.name(), true)) {
+            ZipArchiveEntry sheetEntry = zipFile.getEntry(SHEET_ENTRY);
+            if (sheetEntry == null) {
+                throw new IOException("临时文件缺少Sheet部件: " + sourceName);
+            }
+            int[] styleMapping = resolveStyleMapping(zipFile, sourceName);
+
+            String entryName = "xl/worksheets/sheet" + (sheetNames.size() + 1) + ".xml";
+            if (styleMapping == null && isRawCopyable(sheetEntry)) {
+                // 已压缩的数据原样拷贝，本地文件头使用临时文件中记录的CRC和大小
+                ZipArchiveEntry entry = new ZipArchiveEntry(entryName);
+                entry.setMethod(sheetEntry.getMethod());
+                entry.setCrc(sheetEntry.getCrc());
+                entry.setSize(sheetEntry.getSize());
+                entry.setCompressedSize(sheetEntry.getCompressedSize());
+                try (InputStream raw = zipFile.getRawInputStream(sheetEntry)) {
+                    zipOut.addRawArchiveEntry(entry, raw);
+                }
+            } else {
+                zipOut.putArchiveEntry(new ZipArchiveEntry(entryName));
+                try (InputStream in = zipFile.getInputStream(sheetEntry)) {
+                    if (styleMapping == null) {
+                        copy(in, zipOut);
+                    } else {
+                        copyWithStyleMapping(in, zipOut, styleMapping);
+                    }
+                }
+                zipOut.closeArchiveEntry();
+            }
+        }
+        sheetNames.add(sheetName);
+    }
+
+    /**
+     * 设置各Sheet单元格引用的共享字符串字典（finish时写出）
+     *
+     * @param sharedStrings 共享字符串字典
+     */
+    public void setSharedStrings(SharedStringDictionary sharedStrings) {
+        this.sharedStrings = sharedStrings;
+    }
+
+    /**
+     * 写入包描述部件并关闭输出流
+     *
+     * @throws IOException IO异常
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (sheetNames.isEmpty()) {
+            throw new IllegalStateException("至少需要一个Sheet");
+        }
+        finished = true;
+
+        writeEntry("[Content_Types].xml", buildContentTypes());
+        writeEntry("_rels/.rels", buildRootRels());
+        writeEntry("xl/workbook.xml", buildWorkbook());
+        writeEntry("xl/_rels/workbook.xml.rels", buildWorkbookRels());
+        writeEntry(STYLES_ENTRY, buildStyles());
+        if (hasSharedStrings()) {
+            zipOut.putArchiveEntry(new ZipArchiveEntry(SHARED_STRINGS_ENTRY));
+            sharedStrings.writeTo(zipOut);
+            zipOut.closeArchiveEntry();
+        }
+        zipOut.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        zipOut.close();
+    }
+
+    /**
+     * 临时文件中的条目是否可按原始压缩数据拷贝（压缩方式为存储或deflate，且CRC和大小已知）
+     */
+    private static boolean isRawCopyable(ZipArchiveEntry entry) {
+        int method = entry.getMethod();
+        return (method == ZipEntry.DEFLATED || method == ZipEntry.STORED)
+            && entry.getCrc() != ZipArchiveEntry.CRC_UNKNOWN
+            && entry.getSize() != ZipArchiveEntry.SIZE_UNKNOWN
+            && entry.getCompressedSize() != ZipArchiveEntry.SIZE_UNKNOWN;
+    }
+
+    /**
+     * 解析当前Sheet的样式索引映射
+     *
+     * @return null表示样式表与基准一致，无需重写索引
+     */
+    private int[] resolveStyleMapping(ZipFile zipFile, String sourceName) throws IOException {
+        ZipArchiveEntry stylesEntry = zipFile.getEntry(STYLES_ENTRY);
+        if (stylesEntry == null) {
+            throw new IOException("临时文件缺少样式部件: " + sourceName);
+        }
+        byte[] styles;
+        try (InputStream in = zipFile.getInputStream(stylesEntry)) {
+            styles = readAll(in);
+        }
+
+        if (baseStyles == null) {
+            baseStyles = styles;
+            return null;
+        }
+        if (Arrays.equals(baseStyles, styles)) {
+            return null;
+        }
+        return mergeStyles(styles);
+    }
+
+    /**
+     * 把不一致的样式表合并到最终样式表，返回 源索引 -> 目标索引 的映射
+     */
+    private int[] mergeStyles(byte[] styles) throws IOException {
+        if (mergedStyles == null) {
+            mergedStyles = readStyles(baseStyles);
+            mergedStyleIndex = new HashMap<>();
+            for (int i = 0; i < mergedStyles.getNumCellStyles(); i++) {
+                mergedStyleIndex.putIfAbsent(styleSignature(mergedStyles, mergedStyles.getStyleAt(i)), i);
+            }
+        }
+
+        StylesTable srcStyles = readStyles(styles);
+        int[] mapping = new int[srcStyles.getNumCellStyles()];
+        for (int i = 0; i < mapping.length; i++) {
+            XSSFCellStyle srcStyle = srcStyles.getStyleAt(i);
+            String signature = styleSignature(srcStyles, srcStyle);
+            Integer destIndex = mergedStyleIndex.get(signature);
+            if (destIndex == null) {
+                XSSFCellStyle destStyle = mergedStyles.createCellStyle();
+                destStyle.cloneStyleFrom(srcStyle);
+                destIndex = (int) destStyle.getIndex() & 0xffff;
+                mergedStyleIndex.put(signature, destIndex);
+            }
+            mapping[i] = destIndex;
+        }
+        return mapping;
+    }
+
+    /**
+     * 样式签名：去掉表内索引后的xf，加上其引用的字体、填充、边框和数字格式
+     */
+    private String styleSignature(StylesTable stylesSource, XSSFCellStyle style) {
+        CTXf xf = style.getCoreXf();
+        CTXf xfWithoutIds = (CTXf) xf.copy();
+        xfWithoutIds.setFontId(0);
+        xfWithoutIds.setFillId(0);
+        xfWithoutIds.setBorderId(0);
+        xfWithoutIds.setNumFmtId(0);
+
+        StringBuilder signature = new StringBuilder(256);
+        signature.append(xfWithoutIds.xmlText());
+        signature.append('|').append(style.getDataFormatString());
+        signature.append('|').append(style.getFont().getCTFont().xmlText());
+        signature.append('|').append(stylesSource.getFillAt((int) xf.getFillId()).getCTFill().xmlText());
+        signature.append('|').append(stylesSource.getBorderAt((int) xf.getBorderId()).getCTBorder().xmlText());
+        return signature.toString();
+    }
+
+    /**
+     * 流式拷贝Sheet XML，同时重写 c/row 的s属性 和 col的style属性
+     */
+    private void copyWithStyleMapping(InputStream in, OutputStream out, int[] styleMapping) throws IOException {
+        XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+        XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+        XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+        XMLEventReader reader = null;
+        XMLEventWriter writer = null;
+        try {
+            reader = inputFactory.createXMLEventReader(in, StandardCharsets.UTF_8.name());
+            writer = outputFactory.createXMLEventWriter(out, StandardCharsets.UTF_8.name());
+            while (reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    event = remapStyleAttribute(event.asStartElement(), styleMapping, eventFactory);
+                }
+                writer.add(event);
+            }
+            writer.flush();
+        } catch (XMLStreamException ex) {
+            throw new IOException("Sheet XML样式索引重写失败", ex);
+        } finally {
+            closeQuietly(reader, writer);
+        }
+    }
+
+    private XMLEvent remapStyleAttribute(StartElement element, int[] styleMapping, XMLEventFactory eventFactory) {
+        String localName = element.getName().getLocalPart();
+        String styleAttr;
+        if ("c".equals(localName) || "row".equals(localName)) {
+            styleAttr = "s";
+        } else if ("col".equals(localName)) {
+            styleAttr = "style";
+        } else {
+            return element;
+        }
+
+        Attribute style = element.getAttributeByName(new QName(styleAttr));
+        if (style == null) {
+            return element;
+        }
+        int srcIndex = Integer.parseInt(style.getValue());
+        int destIndex = srcIndex < styleMapping.length ? styleMapping[srcIndex] : srcIndex;
+        if (destIndex == srcIndex) {
+            return element;
+        }
+
+        List<Attribute> attributes = new ArrayList<>();
+        Iterator<?> it = element.getAttributes();
+        while (it.hasNext()) {
+            Attribute attribute = (Attribute) it.next();
+            if (attribute.getName().equals(style.getName())) {
+                attribute = eventFactory.createAttribute(style.getName(), String.valueOf(destIndex));
+            }
+            attributes.add(attribute);
+        }
+        return eventFactory.createStartElement(element.getName(), attributes.iterator(), element.getNamespaces());
+    }
+
+    private boolean hasSharedStrings() {
+        return sharedStrings != null && sharedStrings.size() > 0;
+    }
+
+    private byte[] buildStyles() throws IOException {
+        if (mergedStyles == null) {
+            return baseStyles;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        mergedStyles.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private byte[] buildContentTypes() {
+        StringBuilder xml = new StringBuilder(512 + sheetNames.size() * 160);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+        xml.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        xml.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        xml.append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        xml.append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        if (hasSharedStrings()) {
+            xml.append("<Override PartName=\"/").append(SHARED_STRINGS_ENTRY)
+                .append("\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+        }
+        xml.append("</Types>");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] buildRootRels() {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<Relationships xmlns=\"" + NS_PKG_REL + "\">"
+            + "<Relationship Id=\"rId1\" Type=\"" + NS_REL + "/officeDocument\" Target=\"xl/workbook.xml\"/>"
+            + "</Relationships>";
+        return xml.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] buildWorkbook() {
+        StringBuilder xml = new StringBuilder(256 + sheetNames.size() * 96);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.append("<workbook xmlns=\"").append(NS_MAIN).append("\" xmlns:r=\"").append(NS_REL).append("\">");
+        // 打开时激活第一个Sheet
+        xml.append("<bookViews><workbookView activeTab=\"0\"/></bookViews>");
+        xml.append("<sheets>");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.append("<sheet name=\"").append(escapeXml(sheetNames.get(i - 1))).append("\" sheetId=\"").append(i)
+                .append("\" r:id=\"rId").append(i).append("\"/>");
+        }
+        xml.append("</sheets></workbook>");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] buildWorkbookRels() {
+        StringBuilder xml = new StringBuilder(256 + sheetNames.size() * 160);
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        xml.append("<Relationships xmlns=\"").append(NS_PKG_REL).append("\">");
+        for (int i = 1; i <= sheetNames.size(); i++) {
+            xml.append("<Relationship Id=\"rId").append(i).append("\" Type=\"").append(NS_REL)
+                .append("/worksheet\" Target=\"worksheets/sheet").append(i).append(".xml\"/>");
+        }
+        xml.append("<Relationship Id=\"rId").append(sheetNames.size() + 1).append("\" Type=\"").append(NS_REL)
+            .append("/styles\" Target=\"styles.xml\"/>");
+        if (hasSharedStrings()) {
+            xml.append("<Relationship Id=\"rId").append(sheetNames.size() + 2).append("\" Type=\"").append(NS_REL)
+                .append("/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+        }
+        xml.append("</Relationships>");
+        return xml.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void writeEntry(String name, byte[] content) throws IOException {
+        zipOut.putArchiveEntry(new ZipArchiveEntry(name));
+        zipOut.write(content);
+        zipOut.closeArchiveEntry();
+    }
+
+    private void copy(InputStream in, OutputStream out) throws IOException {
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+    }
+
+    private byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        copy(in, out);
+        return out.toByteArray();
+    }
+
+    private static StylesTable readStyles(byte[] styles) throws IOException {
+        return new StylesTable(new ByteArrayInputStream(styles));
+    }
+
+    private static String escapeXml(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 16);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * XMLEventWriter/XMLEventReader关闭时不会关闭底层流
+     */
+    private static void closeQuietly(XMLEventReader reader, XMLEventWriter writer) {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+            if (reader != null) {
+                reader.close();
+            }
+        } catch (XMLStreamException ignored) {
+            // 关闭失败不影响已写出的数据
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package org.example;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * xlsx包流式拼装测试
+ */
+public class XlsxPackageAssemblerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void assembleTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxPackageAssembler assembler = new XlsxPackageAssembler(out)) {
+            for (int i = 0; i < 3; i++) {
+                assembler.addSheet("数据" + (i + 1), sheetFile(i, i + 2));
+            }
+            assembler.finish();
+        }
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(3, workbook.getNumberOfSheets());
+            for (int i = 0; i < 3; i++) {
+                Sheet sheet = workbook.getSheetAt(i);
+                assertEquals("数据" + (i + 1), sheet.getSheetName());
+                assertEquals(i + 2, sheet.getPhysicalNumberOfRows());
+                assertEquals("s" + i + "-r1", sheet.getRow(1).getCell(0).getStringCellValue());
+            }
+            assertEquals(0, workbook.getActiveSheetIndex());
+            assertEquals(1, selectedSheets(workbook));
+        }
+    }
+
+    @Test
+    public void exportSelectsFirstSheetOnlyTest() throws Exception {
+        List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            data.add(i);
+        }
+        PoiMultiThreadExcelExporter<Integer> exporter = new PoiMultiThreadExcelExporter<>(new String[] {"序号"},
+            value -> new Object[] {value}, "Sheet");
+        File file = folder.newFile("export.xlsx");
+        exporter.export(data, file.getPath(), 10).await();
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+            assertEquals(3, workbook.getNumberOfSheets());
+            assertEquals(11, workbook.getSheetAt(0).getPhysicalNumberOfRows());
+            assertEquals(6, workbook.getSheetAt(2).getPhysicalNumberOfRows());
+            assertEquals(20.0, workbook.getSheetAt(2).getRow(1).getCell(0).getNumericCellValue(), 0.0);
+            assertEquals(1, selectedSheets(workbook));
+            assertEquals(true, workbook.getSheetAt(0).isSelected());
+        }
+    }
+
+    @Test
+    public void styleMappingTest() throws IOException {
+        // 两个临时文件的样式表不同：样式创建顺序相反，第二个还多一个样式
+        File first = styledSheetFile("first.xlsx", new String[] {"bold", "red"});
+        File second = styledSheetFile("second.xlsx", new String[] {"red", "italic", "bold"});
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxPackageAssembler assembler = new XlsxPackageAssembler(out)) {
+            assembler.addSheet("第一个", first);
+            assembler.addSheet("第二个", second);
+            assembler.finish();
+        }
+
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            // 相同的样式合并为一个：默认样式 + 加粗、红色填充、斜体
+            assertEquals(4, workbook.getNumCellStyles());
+            assertStyles(workbook.getSheetAt(0), new String[] {"bold", "red"});
+            assertStyles(workbook.getSheetAt(1), new String[] {"red", "italic", "bold"});
+            // 两个Sheet中同名样式指向同一个索引
+            assertEquals(workbook.getSheetAt(0).getRow(0).getCell(0).getCellStyle().getIndex(),
+                workbook.getSheetAt(1).getRow(0).getCell(2).getCellStyle().getIndex());
+        }
+    }
+
+    /**
+     * 模拟写入线程生成的单Sheet临时xlsx（内联字符串，非第一个Sheet取消选中）
+     */
+    private File sheetFile(int sheetIndex, int rows) throws IOException {
+        File file = folder.newFile("sheet" + sheetIndex + ".xlsx");
+        SXSSFWorkbook workbook = new SXSSFWorkbook();
+        try (OutputStream os = new FileOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("tmp");
+            if (sheetIndex > 0) {
+                sheet.setSelected(false);
+            }
+            for (int r = 0; r < rows; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("s" + sheetIndex + "-r" + r);
+            }
+            workbook.write(os);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        return file;
+    }
+
+
+    /**
+     * 按给定顺序创建样式的单Sheet临时xlsx：第一行第i列使用第i个样式，
+     * 第二行整行使用最后一个样式，第一列的列样式为第一个样式
+     */
+    private File styledSheetFile(String name, String[] styleNames) throws IOException {
+        File file = folder.newFile(name);
+        SXSSFWorkbook workbook = new SXSSFWorkbook();
+        try (OutputStream os = new FileOutputStream(file)) {
+            CellStyle[] styles = new CellStyle[styleNames.length];
+            for (int i = 0; i < styles.length; i++) {
+                styles[i] = createStyle(workbook, styleNames[i]);
+            }
+            Sheet sheet = workbook.createSheet("tmp");
+            sheet.setDefaultColumnStyle(0, styles[0]);
+            Row row = sheet.createRow(0);
+            for (int i = 0; i < styles.length; i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellValue(styleNames[i]);
+                cell.setCellStyle(styles[i]);
+            }
+            sheet.createRow(1).setRowStyle(styles[styles.length - 1]);
+            workbook.write(os);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        return file;
+    }
+
+    private static CellStyle createStyle(Workbook workbook, String styleName) {
+        CellStyle style = workbook.createCellStyle();
+        if ("red".equals(styleName)) {
+            style.setFillForegroundColor(IndexedColors.RED.getIndex());
+            style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            return style;
+        }
+        Font font = workbook.createFont();
+        font.setBold("bold".equals(styleName));
+        font.setItalic("italic".equals(styleName));
+        style.setFont(font);
+        return style;
+    }
+
+    /**
+     * 检查单元格、行和列引用的样式在拼装后仍是原来的样式
+     */
+    private static void assertStyles(XSSFSheet sheet, String[] styleNames) {
+        for (int i = 0; i < styleNames.length; i++) {
+            XSSFCell cell = sheet.getRow(0).getCell(i);
+            assertEquals(styleNames[i], cell.getStringCellValue());
+            assertEquals(styleNames[i], styleName(cell.getCellStyle()));
+        }
+        assertEquals(styleNames[styleNames.length - 1], styleName(sheet.getRow(1).getRowStyle()));
+        assertEquals(styleNames[0], styleName(sheet.getColumnStyle(0)));
+    }
+
+    private static String styleName(CellStyle style) {
+        XSSFCellStyle xssfStyle = (XSSFCellStyle) style;
+        if (xssfStyle.getFillPattern() == FillPatternType.SOLID_FOREGROUND
+            && xssfStyle.getFillForegroundColor() == IndexedColors.RED.getIndex()) {
+            return "red";
+        }
+        XSSFFont font = xssfStyle.getFont();
+        if (font.getBold()) {
+            return "bold";
+        }
+        return font.getItalic() ? "italic" : "default";
+    }
+
+    private static int selectedSheets(XSSFWorkbook workbook) {
+        int selected = 0;
+        for (Sheet sheet : workbook) {
+            if (sheet.isSelected()) {
+                selected++;
+            }
+        }
+        return selected;
+    }
+}